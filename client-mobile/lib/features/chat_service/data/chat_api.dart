@@ -192,6 +192,108 @@ class ChatApi {
     return [];
   }
 
+  // [MỚI] Lấy 1 trang lịch sử (mặc định 50 tin mới nhất).
+  // Truyền beforeId = id tin cũ nhất đang có để cuộn lên trang trước.
+  Future<ChatMessagePage> fetchMessagePage(
+    int roomId, {
+    String? beforeId,
+    int limit = 50,
+  }) async {
+    try {
+      final headers = await _getHeaders();
+      final query = {
+        'limit': '$limit',
+        if (beforeId != null && beforeId.isNotEmpty) 'before': beforeId,
+      };
+      final response = await http.get(
+        Uri.parse(
+          '$baseUrl/api/chat/rooms/$roomId/messages',
+        ).replace(queryParameters: query),
+        headers: headers,
+      );
+
+      if (response.statusCode == 200) {
+        final body = json.decode(utf8.decode(response.bodyBytes));
+        String? myId = await _storage.read(key: 'userId');
+        List<dynamic> items = body['messages'] ?? [];
+        return ChatMessagePage(
+          messages: items
+              .map((e) => ChatMessage.fromJson(e, myId ?? ""))
+              .toList(),
+          hasMore: body['hasMore'] ?? false,
+          nextCursor: body['nextCursor']?.toString(),
+        );
+      }
+    } catch (e) {
+      print("Lỗi lấy trang lịch sử chat: $e");
+    }
+    return ChatMessagePage(messages: [], hasMore: false);
+  }
+
+  // [MỚI] Tìm kiếm tin nhắn trên Server (không cần tải toàn bộ lịch sử về máy)
+  // Trả về JSON thô: { results: [{messageId, roomId, seq, senderName, snippet, highlights, ...}], hasMore, nextOffset }
+  Future<Map<String, dynamic>> searchMessages(
+    String query, {
+    int? roomId,
+    int offset = 0,
+    int limit = 20,
+  }) async {
+    try {
+      final headers = await _getHeaders();
+      final params = {
+        'q': query,
+        'offset': '$offset',
+        'limit': '$limit',
+        if (roomId != null) 'roomId': '$roomId',
+      };
+      final response = await http.get(
+        Uri.parse('$baseUrl/api/chat/search').replace(queryParameters: params),
+        headers: headers,
+      );
+      if (response.statusCode == 200) {
+        return json.decode(utf8.decode(response.bodyBytes));
+      }
+    } catch (e) {
+      print("Lỗi tìm kiếm tin nhắn: $e");
+    }
+    return {'results': [], 'hasMore': false};
+  }
+
+  // [MỚI] Bù tin sau reconnect: gửi seq cuối đã nhận của từng phòng, Server chỉ trả phần thiếu
+  Future<List<ChatRoomDelta>> syncMissed(Map<int, int> lastSeqByRoom) async {
+    try {
+      final headers = await _getHeaders();
+      final response = await http.post(
+        Uri.parse('$baseUrl/api/chat/sync'),
+        headers: headers,
+        body: json.encode({
+          'rooms': lastSeqByRoom.map((k, v) => MapEntry(k.toString(), v)),
+        }),
+      );
+
+      if (response.statusCode == 200) {
+        final body = json.decode(utf8.decode(response.bodyBytes));
+        String? myId = await _storage.read(key: 'userId');
+        List<dynamic> rooms = body['rooms'] ?? [];
+        return rooms.map((r) {
+          List<dynamic> items = r['messages'] ?? [];
+          return ChatRoomDelta(
+            roomId: r['roomId'],
+            lastSeq: r['lastSeq'] ?? 0,
+            messages: items
+                .map((e) => ChatMessage.fromJson(e, myId ?? ""))
+                .toList(),
+            hasMore: r['hasMore'] ?? false,
+            reset: r['reset'] ?? false,
+          );
+        }).toList();
+      }
+    } catch (e) {
+      print("Lỗi sync tin nhắn: $e");
+    }
+    return [];
+  }
+
   // Lấy thông tin chi tiết phòng (Members, Admin...)
   Future<Map<String, dynamic>?> fetchRoomInfo(int roomId) async {
     try {
@@ -289,3 +391,33 @@ class ChatUser {
     this.isOnline = false, // <--- Mặc định false
   });
 }
+
+// [MỚI] Kết quả 1 trang lịch sử chat (messages: cũ -> mới)
+class ChatMessagePage {
+  final List<ChatMessage> messages;
+  final bool hasMore;
+  final String? nextCursor; // id tin cũ nhất của trang, dùng làm beforeId
+
+  ChatMessagePage({
+    required this.messages,
+    required this.hasMore,
+    this.nextCursor,
+  });
+}
+
+// [MỚI] Phần tin bị thiếu của 1 phòng sau reconnect
+class ChatRoomDelta {
+  final int roomId;
+  final int lastSeq;
+  final List<ChatMessage> messages; // Theo seq tăng dần
+  final bool hasMore; // Còn thiếu -> sync tiếp
+  final bool reset; // Seq lệch -> tải lại trang mới nhất
+
+  ChatRoomDelta({
+    required this.roomId,
+    required this.lastSeq,
+    required this.messages,
+    required this.hasMore,
+    required this.reset,
+  });
+}
@@ -11,6 +11,10 @@ class ChatMessage {
   // [MỚI] Thêm trường type để biết là 'CHAT' hay 'IMAGE'
   final String type;
 
+  // [MỚI] Số thứ tự tin trong phòng (Server cấp), dùng để bù tin khi reconnect
+  // Có ở cả lịch sử/sync lẫn tin phát realtime (/topic/room/{id}, /queue/notifications)
+  final int? seq;
+
   ChatMessage({
     required this.id,
     required this.senderId,
@@ -21,6 +25,7 @@ class ChatMessage {
     this.senderName = "",
     this.avatarUrl = "",
     this.type = 'CHAT', // Mặc định là tin nhắn chữ
+    this.seq,
   });
 
   factory ChatMessage.fromJson(Map<String, dynamic> json, String myId) {
@@ -37,6 +42,7 @@ class ChatMessage {
 
       // [MỚI] Map type từ Server về (nếu null thì coi như CHAT)
       type: json['type'] ?? 'CHAT',
+      seq: json['seq'] is int ? json['seq'] : int.tryParse('${json['seq']}'),
     );
   }
 
@@ -46,19 +52,23 @@ class ChatMessage {
     String? avatarUrl,
     bool? isMe, // Đổi thành nullable để linh hoạt hơn
     String? type, // [MỚI]
+    String? id, // [MỚI] id/seq/giờ thật từ ack của Server
+    int? seq,
+    String? timestamp,
   }) {
     return ChatMessage(
-      id: this.id,
+      id: id ?? this.id,
       senderId: this.senderId,
       recipientId: this.recipientId,
       content: this.content,
-      timestamp: this.timestamp,
+      timestamp: timestamp ?? this.timestamp,
 
       // Nếu truyền vào thì dùng, không thì lấy cái cũ
       isMe: isMe ?? this.isMe,
       senderName: senderName ?? this.senderName,
       avatarUrl: avatarUrl ?? this.avatarUrl,
       type: type ?? this.type,
+      seq: seq ?? this.seq,
     );
   }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ class ChatRoom {
   final String type;
   final String? avatarUrl;
   final String updatedAt; // 👈 Cái này cần được update
+  // [MỚI] Số tin chưa đọc (Server đếm, giảm khi gửi /app/chat.read)
+  final int unreadCount;
 
   ChatRoom({
     required this.id,
@@ -13,6 +15,7 @@ class ChatRoom {
     required this.type,
     this.avatarUrl,
     required this.updatedAt,
+    this.unreadCount = 0,
   });
 
   factory ChatRoom.fromJson(Map<String, dynamic> json) {
@@ -22,6 +25,7 @@ class ChatRoom {
       type: json['type'] ?? "PRIVATE",
       avatarUrl: json['roomAvatarUrl'],
       updatedAt: json['updatedAt'] ?? "",
+      unreadCount: (json['unreadCount'] as num?)?.toInt() ?? 0,
     );
   }
 
@@ -30,6 +34,7 @@ class ChatRoom {
     String? updatedAt,
     String?
     lastMessage, // Sau này bạn có thể muốn hiện cả nội dung tin nhắn ngắn
+    int? unreadCount,
   }) {
     return ChatRoom(
       id: this.id,
@@ -39,6 +44,7 @@ class ChatRoom {
       updatedAt:
           updatedAt ??
           this.updatedAt, // Nếu có giờ mới thì lấy, không thì giữ cũ
+      unreadCount: unreadCount ?? this.unreadCount,
     );
   }
 }
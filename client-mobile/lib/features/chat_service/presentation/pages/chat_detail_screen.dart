@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'dart:convert';
 import 'package:flutter/material.dart';
 import 'package:flutter_secure_storage/flutter_secure_storage.dart';
@@ -49,18 +50,34 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
   String myId = "";
   bool isConnected = false;
   bool isLoadingHistory = true;
+  // [MỚI] Phân trang lịch sử: cuộn lên để tải thêm tin cũ
+  bool isLoadingMore = false;
+  bool hasMoreHistory = false;
+  String? oldestCursor;
   bool isPartnerOnline = false;
+  // [MỚI] Seq lớn nhất đã nhận của phòng -> reconnect chỉ xin phần thiếu thay vì tải lại lịch sử
+  int? _lastSeq;
+  bool _hasConnectedOnce = false;
+  // [MỚI] Seq cuối đã báo "đã đọc" (/app/chat.read) -> không gửi lại cùng 1 mốc
+  int? _lastReadSeq;
+  // [MỚI] "Đang gõ...": sự kiện tạm thời, không lưu DB (server gộp & giới hạn tần suất)
+  final Map<String, Timer> _typingUsers = {};
+  DateTime? _lastTypingSentAt;
 
   @override
   void initState() {
     super.initState();
     isPartnerOnline = widget.initIsOnline;
+    _scrollController.addListener(_onScroll);
     _initChat();
   }
 
   @override
   void dispose() {
     stompClient?.deactivate();
+    for (final t in _typingUsers.values) {
+      t.cancel();
+    }
     _controller.dispose();
     _scrollController.dispose();
     super.dispose();
@@ -76,18 +93,24 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
     }
   }
 
-  // 1. Load lịch sử tin nhắn
+  // 1. Load lịch sử tin nhắn (chỉ trang mới nhất)
   void _loadHistory() async {
     try {
-      final history = await _chatApi.fetchMessagesByRoom(widget.roomId);
+      final page = await _chatApi.fetchMessagePage(widget.roomId);
       // Đảo ngược vì ListView đang reverse: true
-      final reversedHistory = history.reversed.toList();
+      final reversedHistory = page.messages.reversed.toList();
 
       if (mounted) {
         setState(() {
           messages = reversedHistory;
+          hasMoreHistory = page.hasMore;
+          oldestCursor = page.nextCursor;
           isLoadingHistory = false;
+          for (final m in page.messages) {
+            _trackSeq(m);
+          }
         });
+        _markRead();
       }
     } catch (e) {
       print("Lỗi load history: $e");
@@ -95,6 +118,38 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
     }
   }
 
+  // [MỚI] Cuộn gần đến tin cũ nhất (đầu danh sách, vì reverse: true) -> tải thêm
+  void _onScroll() {
+    if (!_scrollController.hasClients) return;
+    final position = _scrollController.position;
+    if (position.pixels >= position.maxScrollExtent - 200) {
+      _loadOlderMessages();
+    }
+  }
+
+  void _loadOlderMessages() async {
+    if (isLoadingMore || !hasMoreHistory || oldestCursor == null) return;
+    setState(() => isLoadingMore = true);
+    try {
+      final page = await _chatApi.fetchMessagePage(
+        widget.roomId,
+        beforeId: oldestCursor,
+      );
+      if (mounted) {
+        setState(() {
+          // Tin cũ hơn nằm cuối list (vì reverse: true)
+          messages.addAll(page.messages.reversed);
+          hasMoreHistory = page.hasMore;
+          oldestCursor = page.nextCursor ?? oldestCursor;
+        });
+      }
+    } catch (e) {
+      print("Lỗi load thêm tin cũ: $e");
+    } finally {
+      if (mounted) setState(() => isLoadingMore = false);
+    }
+  }
+
   // 2. Kết nối WebSocket
   void _connectSocket() async {
     String? token = await _storage.read(key: 'auth_token');
@@ -107,7 +162,13 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
           print("✅ Đã kết nối vào phòng: ${widget.roomId}");
           if (mounted) setState(() => isConnected = true);
           _subscribeToRoom();
+          _subscribeToRoomEvents();
+          _subscribeToAck();
           _subscribeToStatus();
+          _markRead();
+          // Kết nối lại sau khi rớt mạng -> bù các tin bị lỡ
+          if (_hasConnectedOnce) _syncMissed();
+          _hasConnectedOnce = true;
         },
         onWebSocketError: (err) => print("❌ Lỗi Socket: $err"),
         onStompError: (frame) => print("❌ Lỗi Stomp: ${frame.body}"),
@@ -118,12 +179,111 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
     stompClient!.activate();
   }
 
-  void _subscribeToStatus() {
+  // [MỚI] Vị trí chèn theo seq (list mới -> cũ): tin phát từ nhiều instance có thể tới lệch thứ tự.
+  // Tin chưa có seq (tin ảo đang gửi) luôn nằm trên cùng.
+  int _indexBySeq(ChatMessage m) {
+    if (m.seq == null) return 0;
+    for (var i = 0; i < messages.length; i++) {
+      final s = messages[i].seq;
+      if (s != null && s < m.seq!) return i;
+    }
+    return messages.length;
+  }
+
+  void _trackSeq(ChatMessage m) {
+    if (m.seq != null && (_lastSeq == null || m.seq! > _lastSeq!)) {
+      _lastSeq = m.seq;
+    }
+  }
+
+  // [MỚI] Bù tin bị lỡ trong lúc mất kết nối (theo seq), lặp lại nếu còn thiếu
+  void _syncMissed() async {
+    if (_lastSeq == null) {
+      _loadHistory();
+      return;
+    }
+    final deltas = await _chatApi.syncMissed({widget.roomId: _lastSeq!});
+    for (final delta in deltas.where((d) => d.roomId == widget.roomId)) {
+      if (delta.reset) {
+        _loadHistory();
+        return;
+      }
+      if (!mounted) return;
+      setState(() {
+        final knownIds = messages.map((m) => m.id).toSet();
+        for (final m in delta.messages) {
+          if (!knownIds.contains(m.id)) messages.insert(_indexBySeq(m), m);
+          _trackSeq(m);
+        }
+      });
+      _markRead();
+      if (delta.hasMore) _syncMissed();
+    }
+  }
+
+  // [MỚI] Server xác nhận tin mình gửi: /user/queue/ack { clientId, id, roomId, seq, timestamp }
+  // -> gắn id/seq thật cho tin ảo (tin phát lại qua /topic/room sẽ bị bỏ nhờ trùng id)
+  void _subscribeToAck() {
+    stompClient!.subscribe(
+      destination: '/user/queue/ack',
+      callback: (StompFrame frame) {
+        if (frame.body == null || !mounted) return;
+        final data = json.decode(frame.body!);
+        if (data['roomId']?.toString() != widget.roomId.toString()) return;
+        final clientId = data['clientId']?.toString();
+        final seq = data['seq'] is int
+            ? data['seq'] as int
+            : int.tryParse('${data['seq']}');
+        setState(() {
+          final index = messages.indexWhere((m) => m.id == clientId);
+          if (index != -1) {
+            messages[index] = messages[index].copyWith(
+              id: data['id'].toString(),
+              seq: seq,
+              timestamp: data['timestamp']?.toString(),
+            );
+          }
+          if (seq != null && (_lastSeq == null || seq > _lastSeq!)) {
+            _lastSeq = seq;
+          }
+        });
+        _markRead();
+      },
+    );
+  }
+
+  // [MỚI] Báo Server đã đọc tới tin mới nhất (badge + read receipt): /app/chat.read { roomId, messageId, seq }
+  void _markRead() {
+    if (_lastSeq == null || stompClient == null || !stompClient!.connected) {
+      return;
+    }
+    if (_lastReadSeq != null && _lastReadSeq! >= _lastSeq!) return;
+    final newest = messages.where((m) => m.seq == _lastSeq).toList();
+    final messageId = newest.isEmpty ? null : int.tryParse(newest.first.id);
+    if (messageId == null) return;
+    _lastReadSeq = _lastSeq;
+    stompClient!.send(
+      destination: '/app/chat.read',
+      body: json.encode({
+        'roomId': widget.roomId,
+        'messageId': messageId,
+        'seq': _lastSeq,
+      }),
+    );
+  }
+
+  void _subscribeToStatus() async {
     // Nếu chat nhóm hoặc không có ID đối phương thì thôi
     if (widget.partnerId == null) return;
 
+    // [SỬA] Server chỉ bắn status theo công ty: /topic/status/{companyId}
+    String? userInfoStr = await _storage.read(key: 'user_info');
+    if (userInfoStr == null || stompClient == null) return;
+    final companyId = json.decode(userInfoStr)['companyId'];
+    if (companyId == null) return;
+
     stompClient!.subscribe(
-      destination: '/topic/status', // Kênh chung bắn status
+      destination: '/topic/status/$companyId', // Kênh status của công ty
       callback: (StompFrame frame) {
         if (frame.body != null) {
           final data = json.decode(frame.body!);
@@ -151,6 +311,7 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
           // 1. Parse tin nhắn từ Server
           // Lưu ý: Đảm bảo Model ChatMessage của bạn xử lý tốt việc ID là số hay chuỗi
           ChatMessage serverMsg = ChatMessage.fromJson(data, myId);
+          _trackSeq(serverMsg);
 
           // Log để kiểm tra (Xem trong Console)
           print(
@@ -159,6 +320,12 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
 
           if (mounted) {
             setState(() {
+              // [MỚI] Tin đã có (vd: vừa được bù qua _syncMissed) -> bỏ qua, so theo id Server cấp
+              if (serverMsg.id.isNotEmpty &&
+                  messages.any((msg) => msg.id == serverMsg.id)) {
+                return;
+              }
+
               // 2. LOGIC CHỐNG TRÙNG LẶP (Dùng indexWhere an toàn hơn)
               // Tìm trong danh sách xem có tin nhắn nào "của mình" (isMe)
               // VÀ nội dung giống hệt tin vừa nhận không?
@@ -178,15 +345,60 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
               } else {
                 // => Không tìm thấy (Tin mới hoặc tin của người khác)
                 print("➕ Thêm tin nhắn mới.");
-                messages.insert(0, serverMsg);
+                messages.insert(_indexBySeq(serverMsg), serverMsg);
               }
             });
+            // Đang mở phòng -> tin mới coi như đã đọc
+            _markRead();
           }
         }
       },
     );
   }
 
+  // [MỚI] Nhận sự kiện tạm thời của phòng (typing/seen) ở /topic/room/{id}/events
+  void _subscribeToRoomEvents() {
+    stompClient!.subscribe(
+      destination: '/topic/room/${widget.roomId}/events',
+      callback: (StompFrame frame) {
+        if (frame.body == null) return;
+        final data = json.decode(frame.body!);
+        final userId = data['userId']?.toString() ?? '';
+        if (userId.isEmpty || userId == myId || !mounted) return;
+
+        setState(() {
+          _typingUsers.remove(userId)?.cancel();
+          if (data['type'] == 'TYPING') {
+            // Tự tắt sau 4s nếu không nhận thêm TYPING (người kia rời app, mất mạng...)
+            _typingUsers[userId] = Timer(const Duration(seconds: 4), () {
+              if (mounted) setState(() => _typingUsers.remove(userId));
+            });
+          }
+        });
+      },
+    );
+  }
+
+  void _sendEphemeral(String type) {
+    if (stompClient == null || !stompClient!.connected) return;
+    stompClient!.send(
+      destination: '/app/chat.ephemeral',
+      body: json.encode({'roomId': widget.roomId, 'type': type}),
+    );
+  }
+
+  // Gõ phím -> báo TYPING tối đa 1 lần / 2s
+  void _onTextChanged(String value) {
+    if (value.trim().isEmpty) return;
+    final now = DateTime.now();
+    if (_lastTypingSentAt != null &&
+        now.difference(_lastTypingSentAt!) < const Duration(seconds: 2)) {
+      return;
+    }
+    _lastTypingSentAt = now;
+    _sendEphemeral('TYPING');
+  }
+
   // 4. Gửi tin nhắn (Hiện ngay lập tức)
   void _doPostMessage(String content, {String type = 'CHAT'}) {
     // 1. Tạo tin nhắn giả để hiện ngay (Optimistic UI)
@@ -209,6 +421,10 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
 
     // 2. Gửi thật lên Server
     if (stompClient != null && stompClient!.connected) {
+      if (_lastTypingSentAt != null) {
+        _lastTypingSentAt = null;
+        _sendEphemeral('STOP_TYPING');
+      }
       stompClient!.send(
         destination: '/app/chat.sendMessage',
         body: json.encode({
@@ -216,6 +432,7 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
           'content': content,
           'recipientId': "0",
           'type': type, // [QUAN TRỌNG] Gửi type lên Server
+          'clientId': tempMsg.id, // [MỚI] Server trả lại trong ack để gắn id/seq thật
         }),
       );
     } else {
@@ -304,7 +521,16 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
                     ),
                     overflow: TextOverflow.ellipsis,
                   ),
-                  (!isConnected || isPartnerOnline)
+                  (isConnected && _typingUsers.isNotEmpty)
+                      ? const Text(
+                          "typing...",
+                          style: TextStyle(
+                            color: Colors.green,
+                            fontSize: 12,
+                            fontStyle: FontStyle.italic,
+                          ),
+                        )
+                      : (!isConnected || isPartnerOnline)
                       ? Text(
                           !isConnected ? "Connecting..." : "Online",
                           style: TextStyle(
@@ -461,6 +687,7 @@ class _ChatDetailScreenState extends State<ChatDetailScreen> {
                 ),
                 child: TextField(
                   controller: _controller,
+                  onChanged: _onTextChanged,
                   decoration: const InputDecoration(
                     hintText: "Type a message...",
                     hintStyle: TextStyle(color: Colors.grey),
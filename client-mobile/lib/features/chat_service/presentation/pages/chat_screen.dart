@@ -119,7 +119,11 @@ class _ChatScreenState extends State<ChatScreen> {
             ChatRoom existingRoom = _allRooms[index];
 
             // ✅ [SỬA ĐOẠN NÀY] Tạo room mới với thời gian mới nhất
-            ChatRoom updatedRoom = existingRoom.copyWith(updatedAt: newTime);
+            // Kênh /queue/notifications chỉ gửi cho người nhận -> +1 tin chưa đọc
+            ChatRoom updatedRoom = existingRoom.copyWith(
+              updatedAt: newTime,
+              unreadCount: existingRoom.unreadCount + 1,
+            );
 
             _allRooms.removeAt(index);
             _allRooms.insert(0, updatedRoom); // Đẩy room ĐÃ UPDATE lên đầu
@@ -387,15 +391,43 @@ class _ChatScreenState extends State<ChatScreen> {
                     ],
                   ),
                   const SizedBox(height: 4),
-                  Text(
-                    isGroup ? "Group Conversation" : "Private Message",
-                    maxLines: 1,
-                    overflow: TextOverflow.ellipsis,
-                    style: TextStyle(
-                      color: Colors.grey[600],
-                      fontSize: 14,
-                      fontStyle: FontStyle.normal,
-                    ),
+                  Row(
+                    children: [
+                      Expanded(
+                        child: Text(
+                          isGroup ? "Group Conversation" : "Private Message",
+                          maxLines: 1,
+                          overflow: TextOverflow.ellipsis,
+                          style: TextStyle(
+                            color: Colors.grey[600],
+                            fontSize: 14,
+                            fontStyle: FontStyle.normal,
+                          ),
+                        ),
+                      ),
+                      // [MỚI] Badge tin chưa đọc
+                      if (room.unreadCount > 0)
+                        Container(
+                          padding: const EdgeInsets.symmetric(
+                            horizontal: 7,
+                            vertical: 2,
+                          ),
+                          decoration: BoxDecoration(
+                            color: const Color(0xFF2260FF),
+                            borderRadius: BorderRadius.circular(10),
+                          ),
+                          child: Text(
+                            room.unreadCount > 99
+                                ? '99+'
+                                : room.unreadCount.toString(),
+                            style: const TextStyle(
+                              color: Colors.white,
+                              fontSize: 12,
+                              fontWeight: FontWeight.w600,
+                            ),
+                          ),
+                        ),
+                    ],
                   ),
                 ],
               ),
@@ -33,6 +33,31 @@ class NewsfeedApi {
     }
   }
 
+  // [MỚI] Newsfeed phân trang keyset: beforeId = nextCursor của trang trước
+  Future<FeedPage> fetchFeedPage({int? beforeId, int limit = 20}) async {
+    final headers = await _getHeaders();
+    final query = {
+      'limit': '$limit',
+      if (beforeId != null) 'before': '$beforeId',
+    };
+    final response = await http.get(
+      Uri.parse('$baseUrl/feed').replace(queryParameters: query),
+      headers: headers,
+    );
+
+    if (response.statusCode == 200) {
+      final body = jsonDecode(utf8.decode(response.bodyBytes));
+      List<dynamic> items = body['posts'] ?? [];
+      return FeedPage(
+        posts: items.map((e) => PostModel.fromJson(e)).toList(),
+        hasMore: body['hasMore'] ?? false,
+        nextCursor: body['nextCursor'],
+      );
+    } else {
+      throw Exception("Lỗi tải bài viết: ${response.statusCode}");
+    }
+  }
+
   // 1. ✅ THÊM HÀM UPLOAD ẢNH (Mới)
   Future<String> uploadImage(File file) async {
     try {
@@ -191,3 +216,12 @@ class NewsfeedApi {
     return null;
   }
 }
+
+// [MỚI] Một trang newsfeed
+class FeedPage {
+  final List<PostModel> posts;
+  final bool hasMore;
+  final int? nextCursor; // id bài cũ nhất của trang, dùng làm beforeId
+
+  FeedPage({required this.posts, required this.hasMore, this.nextCursor});
+}
@@ -27,21 +27,36 @@ class _NewsfeedScreenState extends State<NewsfeedScreen> {
   bool _isLoading = true;
   String _currentAvatar = "";
 
+  // [MỚI] Phân trang: tải thêm bài cũ khi cuộn gần cuối
+  final ScrollController _scrollController = ScrollController();
+  bool _hasMore = true;
+  bool _isLoadingMore = false;
+  int? _nextCursor;
+
   @override
   void initState() {
     super.initState();
     _loadMyAvatar();
+    _scrollController.addListener(_onScroll);
     _loadPostsInitial(); // Load lần đầu
     _connectSocket(); // Kết nối Socket
   }
 
+  @override
+  void dispose() {
+    _scrollController.dispose();
+    super.dispose();
+  }
+
   // Hàm load dữ liệu từ API lần đầu
   void _loadPostsInitial() async {
     try {
-      final data = await _api.fetchPosts();
+      final page = await _api.fetchFeedPage();
       if (mounted) {
         setState(() {
-          _posts = data;
+          _posts = page.posts;
+          _hasMore = page.hasMore;
+          _nextCursor = page.nextCursor;
           _isLoading = false;
         });
       }
@@ -53,14 +68,46 @@ class _NewsfeedScreenState extends State<NewsfeedScreen> {
 
   // Hàm refresh (khi kéo xuống)
   Future<void> _refreshPosts() async {
-    final data = await _api.fetchPosts();
+    final page = await _api.fetchFeedPage();
     if (mounted) {
       setState(() {
-        _posts = data;
+        _posts = page.posts;
+        _hasMore = page.hasMore;
+        _nextCursor = page.nextCursor;
       });
     }
   }
 
+  // [MỚI] Cuộn gần cuối danh sách -> tải trang bài cũ hơn
+  void _onScroll() {
+    if (!_scrollController.hasClients) return;
+    final position = _scrollController.position;
+    if (position.pixels >= position.maxScrollExtent - 300) {
+      _loadMorePosts();
+    }
+  }
+
+  void _loadMorePosts() async {
+    if (_isLoadingMore || !_hasMore || _nextCursor == null) return;
+    setState(() => _isLoadingMore = true);
+    try {
+      final page = await _api.fetchFeedPage(beforeId: _nextCursor);
+      if (mounted) {
+        setState(() {
+          // Bỏ bài trùng (bài mới nhận qua socket có thể đã nằm trong list)
+          final existingIds = _posts.map((p) => p.id).toSet();
+          _posts.addAll(page.posts.where((p) => !existingIds.contains(p.id)));
+          _hasMore = page.hasMore;
+          _nextCursor = page.nextCursor ?? _nextCursor;
+        });
+      }
+    } catch (e) {
+      print("Lỗi tải thêm bài viết: $e");
+    } finally {
+      if (mounted) setState(() => _isLoadingMore = false);
+    }
+  }
+
   Future<void> _loadMyAvatar() async {
     String avatar = await _getMyAvatar();
     if (mounted) {
@@ -336,9 +383,16 @@ class _NewsfeedScreenState extends State<NewsfeedScreen> {
                 : RefreshIndicator(
                     onRefresh: _refreshPosts,
                     child: ListView.builder(
+                      controller: _scrollController,
                       padding: const EdgeInsets.all(16),
-                      itemCount: _posts.length,
+                      itemCount: _posts.length + (_isLoadingMore ? 1 : 0),
                       itemBuilder: (context, index) {
+                        if (index >= _posts.length) {
+                          return const Padding(
+                            padding: EdgeInsets.symmetric(vertical: 16),
+                            child: Center(child: CircularProgressIndicator()),
+                          );
+                        }
                         return PostCard(
                           key: ValueKey(_posts[index].id),
                           post: _posts[index],
@@ -248,4 +248,49 @@ class RequestRemoteDataSource {
       return [];
     }
   }
+
+  // 8. [MỚI] HỘP DUYỆT ĐƠN PHÂN TRANG (thay cho tải toàn bộ lịch sử)
+  // [SỬA] reviewable=true: tab "Chờ duyệt", reviewable=false: tab "Lịch sử" (server lọc, không lọc ở client)
+  Future<RequestInboxPage> getManagerInboxPage(
+    String managerId, {
+    String? status,
+    bool? reviewable,
+    String? search,
+    int? day,
+    int? month,
+    int? year,
+    String? cursor,
+    int? limit,
+  }) async {
+    try {
+      final queryParams = <String, String>{};
+      if (status != null) queryParams['status'] = status;
+      if (reviewable != null) queryParams['reviewable'] = reviewable.toString();
+      if (search != null && search.trim().isNotEmpty) {
+        queryParams['search'] = search.trim();
+      }
+      if (day != null) queryParams['day'] = day.toString();
+      if (month != null) queryParams['month'] = month.toString();
+      if (year != null) queryParams['year'] = year.toString();
+      if (cursor != null) queryParams['cursor'] = cursor;
+      if (limit != null) queryParams['limit'] = limit.toString();
+
+      final uri = Uri.parse(
+        '$baseUrl/inbox',
+      ).replace(queryParameters: queryParams);
+
+      final headers = await _getHeaders(managerId);
+      final response = await http.get(uri, headers: headers);
+
+      if (response.statusCode == 200) {
+        return RequestInboxPage.fromJson(jsonDecode(response.body));
+      } else {
+        print("--> [API ERROR] ${response.statusCode} - ${response.body}");
+        return RequestInboxPage(items: [], hasMore: false);
+      }
+    } catch (e) {
+      print("--> [API EXCEPTION] $e");
+      return RequestInboxPage(items: [], hasMore: false);
+    }
+  }
 }
@@ -108,6 +108,31 @@ class RequestModel {
     );
   }
 
+  // [MỚI] Parse 1 dòng phẳng từ /api/requests/inbox (không có object lồng requester/approver)
+  factory RequestModel.fromInboxJson(Map<String, dynamic> json) {
+    return RequestModel(
+      id: json['id'],
+      requestCode: json['requestCode'] ?? '',
+      type: _parseType(json['type']),
+      status: _parseStatus(json['status']),
+      startTime: DateTime.parse(json['startTime']),
+      endTime: DateTime.parse(json['endTime']),
+      durationVal: (json['durationVal'] as num?)?.toDouble(),
+      durationUnit: json['durationUnit'],
+      reason: json['reason'] ?? '',
+      createdAt: json['createdAt'] != null
+          ? DateTime.parse(json['createdAt'])
+          : null,
+      requesterName: json['requesterName'] ?? 'Unknown',
+      requesterId:
+          json['requesterCode'] ?? json['requesterId']?.toString() ?? '',
+      requesterAvatar: json['requesterAvatar'] ?? '',
+      requesterDept: json['requesterDept'] ?? '',
+      requesterRole: json['requesterRole'],
+      approverName: json['approverName'],
+    );
+  }
+
   // --- 2. TO JSON (Gửi đi Backend) ---
   Map<String, dynamic> toJson() {
     return {
@@ -201,3 +226,29 @@ class RequestModel {
 
   String get statusText => status.name; // "PENDING", "APPROVED"...
 }
+
+// [MỚI] 1 trang hộp duyệt đơn (keyset): nextCursor truyền lại để lấy trang kế
+class RequestInboxPage {
+  final List<RequestModel> items;
+  final bool hasMore;
+  final String? nextCursor;
+  // [MỚI] Số đơn chờ mình duyệt (badge), chỉ có ở trang đầu
+  final int? pendingCount;
+
+  RequestInboxPage({
+    required this.items,
+    required this.hasMore,
+    this.nextCursor,
+    this.pendingCount,
+  });
+
+  factory RequestInboxPage.fromJson(Map<String, dynamic> json) {
+    final List<dynamic> items = json['items'] ?? [];
+    return RequestInboxPage(
+      items: items.map((e) => RequestModel.fromInboxJson(e)).toList(),
+      hasMore: json['hasMore'] ?? false,
+      nextCursor: json['nextCursor'],
+      pendingCount: (json['pendingCount'] as num?)?.toInt(),
+    );
+  }
+}
@@ -32,6 +32,14 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
   String _currentUserRole = '';
 
   List<Map<String, dynamic>> _requestList = [];
+  // [MỚI] Phân trang hộp duyệt đơn: cuộn gần cuối thì tải trang kế theo cursor
+  final ScrollController _scrollController = ScrollController();
+  String? _userId;
+  String? _nextCursor;
+  bool _hasMore = false;
+  bool _isLoadingMore = false;
+  // [SỬA] Badge "Chờ duyệt" do server đếm (trang đầu), không đếm trên các trang đã tải
+  int _pendingCount = 0;
 
   // Biến phục vụ tìm kiếm Server-side
   final TextEditingController _searchController = TextEditingController();
@@ -43,6 +51,7 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
   @override
   void initState() {
     super.initState();
+    _scrollController.addListener(_onScroll);
     _fetchRequests();
     _setupSocketListener();
   }
@@ -53,6 +62,7 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
       _unsubscribeFn(unsubscribeHeaders: const <String, String>{});
     }
     _searchController.dispose();
+    _scrollController.dispose();
     _debounce?.cancel();
     super.dispose();
   }
@@ -128,35 +138,26 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
           }
         }
 
-        // Gọi API tìm kiếm
-        List<RequestModel> requests = await _dataSource.getManagerRequests(
+        // Gọi API tìm kiếm (trang đầu) - server lọc theo tab đang xem
+        _userId = userId;
+        final bool toReview = _isToReviewTab;
+        final page = await _dataSource.getManagerInboxPage(
           userId,
+          status: toReview ? 'PENDING' : null,
+          reviewable: toReview,
           search: _searchController.text,
           day: d,
           month: m,
           year: y,
         );
 
-        if (mounted) {
+        // Người dùng đã đổi tab trong lúc chờ -> bỏ kết quả cũ
+        if (mounted && toReview == _isToReviewTab) {
           setState(() {
-            _requestList = requests.map((req) {
-              return {
-                'request': req,
-                'id': req.id,
-                'employeeName': req.requesterName.isNotEmpty
-                    ? req.requesterName
-                    : 'Unknown',
-                'employeeId': req.requesterId,
-                'dept': req.requesterDept.isNotEmpty
-                    ? req.requesterDept
-                    : 'N/A',
-                'avatar': req.requesterAvatar,
-                'timeInfo': req.duration,
-                'processedDate': '',
-                'status': req.status.name,
-              };
-            }).toList();
-
+            _requestList = page.items.map(_toListItem).toList();
+            _nextCursor = page.nextCursor;
+            _hasMore = page.hasMore;
+            _pendingCount = page.pendingCount ?? _pendingCount;
             _isLoading = false;
           });
         }
@@ -169,6 +170,70 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
     }
   }
 
+  Map<String, dynamic> _toListItem(RequestModel req) {
+    return {
+      'request': req,
+      'id': req.id,
+      'employeeName': req.requesterName.isNotEmpty
+          ? req.requesterName
+          : 'Unknown',
+      'employeeId': req.requesterId,
+      'dept': req.requesterDept.isNotEmpty ? req.requesterDept : 'N/A',
+      'avatar': req.requesterAvatar,
+      'timeInfo': req.duration,
+      'processedDate': '',
+      'status': req.status.name,
+    };
+  }
+
+  void _onScroll() {
+    if (!_scrollController.hasClients) return;
+    final pos = _scrollController.position;
+    if (pos.pixels >= pos.maxScrollExtent - 300) _loadMore();
+  }
+
+  // [MỚI] Tải trang kế (giữ nguyên bộ lọc hiện tại)
+  Future<void> _loadMore() async {
+    if (_isLoadingMore || !_hasMore || _nextCursor == null || _userId == null) {
+      return;
+    }
+    setState(() => _isLoadingMore = true);
+    try {
+      int? d, m, y;
+      if (_selectedDate != null) {
+        if (_filterType == FilterType.date) {
+          d = _selectedDate!.day;
+          m = _selectedDate!.month;
+          y = _selectedDate!.year;
+        } else if (_filterType == FilterType.month) {
+          m = _selectedDate!.month;
+          y = _selectedDate!.year;
+        } else if (_filterType == FilterType.year) {
+          y = _selectedDate!.year;
+        }
+      }
+      final bool toReview = _isToReviewTab;
+      final page = await _dataSource.getManagerInboxPage(
+        _userId!,
+        status: toReview ? 'PENDING' : null,
+        reviewable: toReview,
+        search: _searchController.text,
+        day: d,
+        month: m,
+        year: y,
+        cursor: _nextCursor,
+      );
+      if (!mounted || toReview != _isToReviewTab) return;
+      setState(() {
+        _requestList.addAll(page.items.map(_toListItem));
+        _nextCursor = page.nextCursor;
+        _hasMore = page.hasMore;
+      });
+    } finally {
+      if (mounted) setState(() => _isLoadingMore = false);
+    }
+  }
+
   // Hàm kiểm tra quyền duyệt đơn
   bool _canReview(RequestModel req) {
     // 1. Chỉ quan tâm đơn PENDING
@@ -600,6 +665,7 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
   @override
   Widget build(BuildContext context) {
     // Lọc danh sách hiển thị dựa trên cả Status và Quyền hạn
+    // [SỬA] Server đã lọc theo tab; lọc lại ở đây chỉ để chắc chắn (vd: đơn vừa đổi trạng thái qua socket)
     final displayList = _requestList.where((item) {
       final req = item['request'] as RequestModel;
       final bool hasPermission = _canReview(req);
@@ -629,11 +695,8 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
     });
     // --------------------------------------
 
-    // Đếm badge
-    final int pendingCount = _requestList.where((item) {
-      final req = item['request'] as RequestModel;
-      return req.status == RequestStatus.PENDING && _canReview(req);
-    }).length;
+    // Đếm badge (server trả về ở trang đầu)
+    final int pendingCount = _pendingCount;
 
     return Scaffold(
       backgroundColor: const Color(0xFFF9F9F9),
@@ -731,10 +794,17 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
         onRefresh: () async => await _fetchRequests(isBackgroundRefresh: true),
         color: const Color(0xFF2260FF),
         child: ListView.builder(
+          controller: _scrollController,
           physics: const AlwaysScrollableScrollPhysics(),
           padding: const EdgeInsets.symmetric(horizontal: 24, vertical: 8),
-          itemCount: displayList.length,
+          itemCount: displayList.length + (_isLoadingMore ? 1 : 0),
           itemBuilder: (context, index) {
+            if (index >= displayList.length) {
+              return const Padding(
+                padding: EdgeInsets.symmetric(vertical: 16),
+                child: Center(child: CircularProgressIndicator()),
+              );
+            }
             final item = displayList[index];
             final request = item['request'] as RequestModel;
             final date = request.createdAt ?? request.startTime;
@@ -840,6 +910,18 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
     );
   }
 
+  // [MỚI] Mỗi tab là 1 truy vấn riêng trên server -> đổi tab thì tải lại từ trang đầu
+  void _switchTab(bool toReview) {
+    if (_isToReviewTab == toReview) return;
+    setState(() {
+      _isToReviewTab = toReview;
+      _requestList = [];
+      _nextCursor = null;
+      _hasMore = false;
+    });
+    _fetchRequests();
+  }
+
   Widget _buildTabs(int pendingCount) {
     return Container(
       height: 52,
@@ -855,7 +937,7 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
               label: 'To review',
               count: pendingCount,
               isActive: _isToReviewTab,
-              onTap: () => setState(() => _isToReviewTab = true),
+              onTap: () => _switchTab(true),
             ),
           ),
           Expanded(
@@ -863,7 +945,7 @@ class _ManagerRequestListPageState extends State<ManagerRequestListPage> {
               label: 'History',
               count: null,
               isActive: !_isToReviewTab,
-              onTap: () => setState(() => _isToReviewTab = false),
+              onTap: () => _switchTab(false),
             ),
           ),
         ],
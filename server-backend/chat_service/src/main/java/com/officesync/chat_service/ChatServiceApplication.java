@@ -3,9 +3,11 @@ package com.officesync.chat_service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient // <--- Dòng này giúp service đăng ký lên Eureka
+@EnableScheduling // Heartbeat presence
 public class ChatServiceApplication {
 
     public static void main(String[] args) {
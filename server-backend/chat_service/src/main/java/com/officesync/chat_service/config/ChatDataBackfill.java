@@ -0,0 +1,79 @@
+package com.officesync.chat_service.config;
+
+import com.officesync.chat_service.repository.ChatMessageRepository;
+import com.officesync.chat_service.repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Configuration
+@Slf4j
+public class ChatDataBackfill {
+
+    // Điền con trỏ tin nhắn cuối cho các phòng tạo trước khi có cột last_message_id
+    @Bean
+    CommandLineRunner backfillRoomLastMessage(ChatRoomRepository chatRoomRepository) {
+        return args -> {
+            try {
+                int updated = chatRoomRepository.backfillLastMessage();
+                if (updated > 0) {
+                    log.info("--> Đã điền last_message cho {} phòng chat", updated);
+                }
+            } catch (Exception e) {
+                log.error("❌ Lỗi backfill last_message: {}", e.getMessage());
+            }
+        };
+    }
+
+    // Phòng còn tin chưa có seq -> đánh lại seq cả phòng theo thứ tự id rồi đặt bộ đếm seq của phòng tương ứng.
+    // [SỬA] Chạy như migration TRƯỚC khi nhận traffic: SmartInitializingSingleton chạy sau khi tạo xong bean,
+    // trước khi web server / WebSocket / RabbitMQ listener mở -> saveMessage của instance này không chen vào.
+    // Instance khác đang chạy bị chặn nhờ khóa dòng phòng trong cùng transaction.
+    // [SỬA] Đánh lại cả phòng chứ không nối tin cũ sau bộ đếm: seq luôn tăng theo id trong phòng
+    // (findAfterSeq, countUnreadInSeqRange, Client đều dựa vào điều này). Client đang giữ seq cũ chỉ nhận lại
+    // vài tin khi sync (chống trùng theo id).
+    @Bean
+    SmartInitializingSingleton backfillMessageSeq(ChatMessageRepository messageRepository,
+                                                  ChatRoomRepository chatRoomRepository,
+                                                  PlatformTransactionManager transactionManager) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        return () -> {
+            try {
+                int[] counts = tx.execute(status -> {
+                    List<Long> roomIds = chatRoomRepository.lockRoomsWithMissingSeq();
+                    if (roomIds.isEmpty()) return new int[]{0, 0};
+                    messageRepository.clearSeq(roomIds);
+                    int messages = messageRepository.renumberSeq(roomIds);
+                    chatRoomRepository.setLastSeqToMax(roomIds);
+                    return new int[]{messages, roomIds.size()};
+                });
+                if (counts != null && counts[1] > 0) {
+                    log.info("--> Đã đánh lại seq cho {} tin nhắn trong {} phòng chat", counts[0], counts[1]);
+                }
+            } catch (Exception e) {
+                log.error("❌ Lỗi backfill seq: {}", e.getMessage());
+            }
+        };
+    }
+
+    // Gán khóa cặp cho các phòng 1-1 tạo trước khi có cột pair_key
+    @Bean
+    CommandLineRunner backfillPrivateRoomPairKey(ChatRoomRepository chatRoomRepository) {
+        return args -> {
+            try {
+                int updated = chatRoomRepository.backfillPairKeys();
+                if (updated > 0) {
+                    log.info("--> Đã gán pair_key cho {} phòng chat 1-1", updated);
+                }
+            } catch (Exception e) {
+                log.error("❌ Lỗi backfill pair_key: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.officesync.chat_service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Executor cho pipeline phát tin (broadcast, cập nhật phòng, unread, push offline).
+// [SỬA] Chia theo phòng: max-concurrency làn 1 luồng (virtual thread), roomId băm vào 1 làn cố định
+// -> 2 tin cùng phòng không bao giờ phát lệch thứ tự; tổng sức chứa hàng đợi = queue-capacity.
+// Làn đầy -> thread inbound chờ tới khi có chỗ => tự động "phanh" client gửi quá nhanh.
+@Configuration
+public class ChatDeliveryConfig {
+
+    @Value("${chat.delivery.max-concurrency:64}")
+    private int maxConcurrency;
+
+    @Value("${chat.delivery.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Bean(destroyMethod = "shutdown")
+    public ChatDeliveryLanes chatDeliveryLanes(MeterRegistry meterRegistry) {
+        ChatDeliveryLanes lanes = new ChatDeliveryLanes(maxConcurrency, queueCapacity);
+
+        // Metrics backpressure: /actuator/metrics/chat.delivery.queue.depth ...
+        Gauge.builder("chat.delivery.queue.depth", lanes, ChatDeliveryLanes::queuedTasks)
+                .description("Tin nhắn đang chờ phát")
+                .register(meterRegistry);
+        Gauge.builder("chat.delivery.queue.remaining", lanes, ChatDeliveryLanes::remainingCapacity)
+                .register(meterRegistry);
+        Gauge.builder("chat.delivery.active", lanes, ChatDeliveryLanes::activeCount)
+                .register(meterRegistry);
+        return lanes;
+    }
+}
@@ -0,0 +1,69 @@
+package com.officesync.chat_service.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// [MỚI] N "làn" phát tin, mỗi làn 1 luồng: cùng roomId luôn vào cùng làn -> tin của 1 phòng phát đúng thứ tự commit,
+// các phòng khác nhau vẫn chạy song song trên N làn.
+// Làn đầy -> luồng gọi (thread inbound STOMP) CHỜ tới khi có chỗ: vẫn "phanh" client gửi quá nhanh
+// nhưng không tự chạy tác vụ như CallerRunsPolicy (sẽ làm tin vượt lên trước các tin đang xếp hàng).
+// [SỬA] Làn chỉ giữ thứ tự xếp hàng; ChatDeliveryService xếp hàng lúc còn giữ khóa phòng nên thứ tự này = thứ tự seq.
+public class ChatDeliveryLanes {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public ChatDeliveryLanes(int laneCount, int queueCapacity) {
+        int count = Math.max(1, laneCount);
+        int perLane = Math.max(1, queueCapacity / count);
+        this.lanes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new ThreadPoolExecutor(
+                    1, 1,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(perLane),
+                    Thread.ofVirtual().name("chat-delivery-" + i + "-", 0).factory(),
+                    (task, executor) -> {
+                        if (executor.isShutdown()) throw new RejectedExecutionException("Delivery lane is shut down");
+                        try {
+                            executor.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for delivery lane", e);
+                        }
+                    }
+            );
+            // Không cho luồng làn tự tắt khi rảnh (virtual thread, gần như không tốn gì): handler ở trên đẩy thẳng
+            // vào hàng đợi nên làn luôn phải có sẵn 1 luồng đang đọc
+            lanes[i].prestartCoreThread();
+        }
+    }
+
+    public void execute(Long roomId, Runnable task) {
+        int index = roomId == null ? 0 : Math.floorMod(Long.hashCode(roomId), lanes.length);
+        lanes[index].execute(task);
+    }
+
+    public int queuedTasks() {
+        int total = 0;
+        for (ThreadPoolExecutor lane : lanes) total += lane.getQueue().size();
+        return total;
+    }
+
+    public int remainingCapacity() {
+        int total = 0;
+        for (ThreadPoolExecutor lane : lanes) total += lane.getQueue().remainingCapacity();
+        return total;
+    }
+
+    public int activeCount() {
+        int total = 0;
+        for (ThreadPoolExecutor lane : lanes) total += lane.getActiveCount();
+        return total;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) lane.shutdown();
+    }
+}
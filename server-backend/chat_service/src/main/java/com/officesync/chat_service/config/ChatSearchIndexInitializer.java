@@ -0,0 +1,35 @@
+package com.officesync.chat_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@Slf4j
+public class ChatSearchIndexInitializer {
+
+    public static final String FULLTEXT_INDEX = "ft_msg_content";
+
+    // Hibernate (ddl-auto=update) không tạo được FULLTEXT index -> tự tạo 1 lần khi khởi động.
+    // Dùng parser ngram: tiếng Việt có nhiều từ 2 ký tự ("đi", "ăn", "họp") mà parser mặc định bỏ qua (min token = 3).
+    @Bean
+    CommandLineRunner ensureMessageFulltextIndex(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            try {
+                Integer exists = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'chat_messages' AND index_name = ?",
+                        Integer.class, FULLTEXT_INDEX);
+                if (exists != null && exists > 0) return;
+
+                log.info("--> Đang tạo FULLTEXT index {} cho chat_messages.content (có thể mất vài phút với bảng lớn)...", FULLTEXT_INDEX);
+                jdbcTemplate.execute("ALTER TABLE chat_messages ADD FULLTEXT INDEX " + FULLTEXT_INDEX + " (content) WITH PARSER ngram");
+                log.info("✅ Đã tạo FULLTEXT index {}", FULLTEXT_INDEX);
+            } catch (Exception e) {
+                log.error("❌ Lỗi tạo FULLTEXT index: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.officesync.chat_service.config;
 
+import com.officesync.chat_service.service.RoomMembershipCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
@@ -25,6 +26,8 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Configuration
@@ -34,7 +37,11 @@ import java.util.stream.Collectors;
 @Order(Ordered.HIGHEST_PRECEDENCE + 99)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // [MỚI] /topic/room/{roomId}/events: kênh sự kiện tạm thời, chỉ thành viên phòng được subscribe
+    private static final Pattern ROOM_EVENTS_TOPIC = Pattern.compile("^/topic/room/(\\d+)/events$");
+
     private final JwtDecoder jwtDecoder; // Inject JwtDecoder từ SecurityConfig sang
+    private final RoomMembershipCache membershipCache;
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -92,6 +99,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         log.warn("⚠️ Socket Connect without Token!");
                     }
                 }
+
+                // [MỚI] Chặn subscribe kênh sự kiện tạm thời của phòng mà user không tham gia
+                if (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && accessor.getDestination() != null) {
+                    Matcher m = ROOM_EVENTS_TOPIC.matcher(accessor.getDestination());
+                    if (m.matches()) {
+                        Long roomId = Long.valueOf(m.group(1));
+                        try {
+                            if (accessor.getUser() == null) return null;
+                            Long userId = membershipCache.resolveUserId(
+                                    accessor.getUser().getName(), accessor.getSessionAttributes());
+                            if (!membershipCache.isMember(roomId, userId)) {
+                                log.warn("⛔ User {} subscribe events phòng {} bị từ chối", userId, roomId);
+                                return null;
+                            }
+                        } catch (Exception e) {
+                            log.error("❌ Lỗi kiểm tra subscribe: {}", e.getMessage());
+                            return null;
+                        }
+                    }
+                }
                 return message;
             }
         });
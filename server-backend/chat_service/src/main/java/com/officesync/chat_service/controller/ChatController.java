@@ -2,6 +2,9 @@ package com.officesync.chat_service.controller;
 
 import com.officesync.chat_service.dto.ChatMessageDTO;
 import com.officesync.chat_service.dto.CreateGroupRequest;
+import com.officesync.chat_service.dto.EphemeralEventDTO;
+import com.officesync.chat_service.dto.ReadReceiptDTO;
+import com.officesync.chat_service.dto.SyncRequestDTO;
 import com.officesync.chat_service.model.ChatMessage;
 import com.officesync.chat_service.model.ChatRoom;
 import com.officesync.chat_service.model.ChatUser;
@@ -11,17 +14,25 @@ import com.officesync.chat_service.repository.ChatRoomRepository;
 import com.officesync.chat_service.repository.ChatUserRepository;
 import com.officesync.chat_service.repository.RoomMemberRepository;
 import com.officesync.chat_service.service.ChatService;
+import com.officesync.chat_service.service.EphemeralEventService;
+import com.officesync.chat_service.service.MessageSearchService;
+import com.officesync.chat_service.service.PresenceService;
+import com.officesync.chat_service.service.RoomMembershipCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import com.officesync.chat_service.dto.UpdateProfileRequest;
 import java.security.Principal;
 import java.text.SimpleDateFormat;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 @Slf4j
@@ -35,6 +46,10 @@ public class ChatController {
     private final ChatRoomRepository chatRoomRepository;
     private final ChatUserRepository chatUserRepository;
     private final RoomMemberRepository roomMemberRepository; // [MỚI] Cần cái này để tìm thành viên
+    private final PresenceService presenceService;
+    private final MessageSearchService messageSearchService;
+    private final EphemeralEventService ephemeralEventService;
+    private final RoomMembershipCache membershipCache;
 
     // --- 1. WEBSOCKET (Đã sửa logic gửi tin & ngày tháng) ---
     @MessageMapping("/chat.sendMessage")
@@ -52,50 +67,104 @@ public class ChatController {
             log.info("📩 Message from: {} (ID: {})", sender.getFullName(), senderId);
 
             // 1. Lưu tin nhắn vào DB
+            // Broadcast, cập nhật phòng và push Offline chạy SAU KHI COMMIT trên ChatDeliveryService
             ChatMessage savedMsg = chatService.saveMessage(senderId, chatMessageDTO);
 
-            // 2. Chuẩn bị dữ liệu trả về (DTO)
-            ChatMessageDTO response = new ChatMessageDTO();
-            response.setContent(savedMsg.getContent());
-            response.setSender(sender.getFullName()); // Tên người gửi
-            
-            // [QUAN TRỌNG] Format ngày tháng chuẩn ISO-8601 cho Flutter
-      response.setTimestamp(savedMsg.getTimestamp().toInstant().toString());
-            response.setType(savedMsg.getType());
-            response.setRoomId(savedMsg.getRoomId());
+            // 2. Xác nhận (ack) cho người gửi: /user/{email}/queue/ack
+            // clientId = id tạm Client gửi kèm -> Client thay tin ảo bằng id/seq thật, rồi báo đã đọc theo seq đó
+            Map<String, Object> ack = new HashMap<>();
+            ack.put("clientId", chatMessageDTO.getClientId());
+            ack.put("id", savedMsg.getId());
+            ack.put("roomId", savedMsg.getRoomId());
+            ack.put("seq", savedMsg.getSeq());
+            ack.put("timestamp", savedMsg.getTimestamp().toInstant().toString());
+            messagingTemplate.convertAndSendToUser(email, "/queue/ack", ack);
 
-            // [MỚI] Thêm avatar để UI hiện đẹp luôn
-            // (Lưu ý: Bạn cần thêm field 'avatarUrl' vào ChatMessageDTO hoặc Client tự lấy)
-            
-            // 3. Gửi vào Topic chung của Phòng (Để hiện tin nhắn Real-time)
-            String roomDestination = "/topic/room/" + savedMsg.getRoomId();
-            messagingTemplate.convertAndSend(roomDestination, response);
+        } catch (Exception e) {
+            log.error("Lỗi gửi tin nhắn: ", e);
+        }
+    }
 
-            // 4. [MỚI] Gửi thông báo riêng cho từng thành viên trong phòng 
-            // (Để update danh sách chat bên ngoài Sidebar - chat_socket_service.dart lắng nghe cái này)
-            List<RoomMember> members = roomMemberRepository.findByChatRoomId(savedMsg.getRoomId());
-            
-            for (RoomMember member : members) {
-                // Không gửi noti cho chính mình (tùy chọn)
-                if (!member.getUserId().equals(senderId)) {
-                    chatUserRepository.findById(member.getUserId()).ifPresent(u -> {
-                        // Gửi vào kênh riêng: /user/{email}/queue/notifications
-                        messagingTemplate.convertAndSendToUser(
-                            u.getEmail(), 
-                            "/queue/notifications", 
-                            response 
-                        );
-                    });
-                }
-            }
+    // [MỚI] Read receipt: Client gửi /app/chat.read { roomId, messageId }
+    // -> Lưu con trỏ đã đọc, reset badge, báo cho cả phòng qua /topic/room/{roomId}/read
+    @MessageMapping("/chat.read")
+    public void markAsRead(@Payload ReadReceiptDTO receipt, Principal principal) {
+        if (principal == null || receipt.getRoomId() == null) return;
+        try {
+            ChatUser me = chatUserRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found: " + principal.getName()));
+            if (!chatService.isRoomMember(receipt.getRoomId(), me.getId())) return;
 
+            ReadReceiptDTO readUpTo = chatService.markAsRead(me.getId(), receipt.getRoomId(),
+                    receipt.getMessageId(), receipt.getSeq());
+            if (readUpTo == null) return;
+
+            messagingTemplate.convertAndSend("/topic/room/" + receipt.getRoomId() + "/read", readUpTo);
         } catch (Exception e) {
-            log.error("Lỗi gửi tin nhắn: ", e);
+            log.error("Lỗi read receipt: ", e);
+        }
+    }
+
+    // [MỚI] Bù tin sau reconnect qua STOMP: /app/chat.sync { rooms: { roomId: lastSeq } }
+    // -> Trả riêng cho người gọi ở /user/queue/sync
+    @MessageMapping("/chat.sync")
+    public void syncMissed(@Payload SyncRequestDTO request, Principal principal) {
+        if (principal == null) return;
+        try {
+            ChatUser me = chatUserRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found: " + principal.getName()));
+            messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/sync",
+                    chatService.syncMissed(me.getId(), request.getRooms()));
+        } catch (Exception e) {
+            log.error("Lỗi sync tin nhắn: ", e);
+        }
+    }
+
+    // [MỚI] Sự kiện tạm thời (đang gõ / đã xem): /app/chat.ephemeral { roomId, type, messageId? }
+    // -> KHÔNG lưu DB, gộp & giới hạn tần suất rồi phát ở /topic/room/{roomId}/events
+    @MessageMapping("/chat.ephemeral")
+    public void ephemeralEvent(@Payload EphemeralEventDTO event, Principal principal,
+                               SimpMessageHeaderAccessor headerAccessor) {
+        if (principal == null || event == null) return;
+        try {
+            Long userId = membershipCache.resolveUserId(principal.getName(), headerAccessor.getSessionAttributes());
+            ephemeralEventService.submit(userId, event);
+        } catch (Exception e) {
+            log.warn("⚠️ Bỏ sự kiện tạm thời: {}", e.getMessage());
         }
     }
 
     // --- 2. REST API ---
 
+    // [MỚI] Tìm kiếm tin nhắn trong các phòng mình tham gia
+    // GET /api/chat/search?q=họp team&roomId=12&offset=0&limit=20 (roomId không bắt buộc)
+    @GetMapping("/api/chat/search")
+    public ResponseEntity<?> searchMessages(@RequestParam String q,
+                                            @RequestParam(required = false) Long roomId,
+                                            @RequestParam(required = false) Integer offset,
+                                            @RequestParam(required = false) Integer limit,
+                                            Principal principal) {
+        try {
+            ChatUser me = chatUserRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            return ResponseEntity.ok(messageSearchService.search(me.getId(), q, roomId, offset, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // [MỚI] Bù tin sau reconnect qua REST: POST /api/chat/sync { rooms: { roomId: lastSeq } }
+    @PostMapping("/api/chat/sync")
+    public ResponseEntity<?> sync(@RequestBody SyncRequestDTO request, Principal principal) {
+        try {
+            ChatUser me = chatUserRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            return ResponseEntity.ok(chatService.syncMissed(me.getId(), request.getRooms()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/api/messages/{partnerId}")
     public ResponseEntity<?> getChatHistory(@PathVariable Long partnerId, Principal principal) {
         try {
@@ -139,6 +208,10 @@ public class ChatController {
                 })
                 .toList();
 
+        // Trạng thái Online lấy từ Redis (PresenceService), không dùng cột is_online nữa
+        Set<Long> onlineIds = presenceService.filterOnline(colleagues.stream().map(ChatUser::getId).toList());
+        colleagues.forEach(user -> user.setOnline(onlineIds.contains(user.getId())));
+
         return ResponseEntity.ok(colleagues);
     }
 
@@ -177,9 +250,34 @@ public class ChatController {
     
     @GetMapping("/api/chat/messages/{roomId}")
     public ResponseEntity<List<ChatMessage>> getMessagesByRoom(@PathVariable Long roomId) {
-        List<ChatMessage> messages = messageRepository.findByRoomIdOrderByTimestampAsc(roomId);
+        // [SỬA] Không trả cả bảng nữa: chỉ trang mới nhất (client cũ vẫn nhận List như trước)
+        List<ChatMessage> messages = chatService.getMessagePage(roomId, null, null, ChatService.DEFAULT_PAGE_SIZE).getMessages();
         return ResponseEntity.ok(messages);
     }
+
+    // [MỚI] Lịch sử chat phân trang keyset
+    // GET /api/chat/rooms/{roomId}/messages?limit=50             -> 50 tin mới nhất
+    // GET /api/chat/rooms/{roomId}/messages?before={id}&limit=50 -> cuộn lên tin cũ hơn
+    // GET /api/chat/rooms/{roomId}/messages?after={id}           -> các tin mới hơn {id}
+    @GetMapping("/api/chat/rooms/{roomId}/messages")
+    public ResponseEntity<?> getMessagePage(@PathVariable Long roomId,
+                                            @RequestParam(required = false) Long before,
+                                            @RequestParam(required = false) Long after,
+                                            @RequestParam(required = false) Integer limit,
+                                            Principal principal) {
+        try {
+            String email = principal.getName();
+            ChatUser me = chatUserRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            if (!chatService.isRoomMember(roomId, me.getId())) {
+                return ResponseEntity.status(403).body("You are not a member of this room");
+            }
+            return ResponseEntity.ok(chatService.getMessagePage(roomId, before, after, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
     @GetMapping("/api/chat/room/{roomId}/info")
     public ResponseEntity<?> getRoomInfo(@PathVariable Long roomId) {
         try {
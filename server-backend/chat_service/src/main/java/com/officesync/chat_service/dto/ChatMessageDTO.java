@@ -9,6 +9,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class ChatMessageDTO {
+    // [MỚI] Id + seq của tin đã lưu (chỉ có ở bản Server phát đi): Client dùng để chống trùng và nhớ seq cuối khi reconnect
+    private Long id;
+    private Long seq;
+
     private String content;
     private String sender;
     
@@ -22,5 +26,8 @@ public class ChatMessageDTO {
 
     private ChatMessage.MessageType type; 
     private String timestamp;
+
+    // [MỚI] Id tạm của tin ảo phía Client (chỉ khi gửi lên): Server trả lại trong ack /user/queue/ack
+    private String clientId;
     
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.officesync.chat_service.dto;
+
+import com.officesync.chat_service.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Sự kiện nội bộ: tin nhắn đã được lưu. Phát trong saveMessage, xử lý SAU KHI COMMIT bởi ChatDeliveryService.
+@Getter
+@AllArgsConstructor
+public class ChatMessageSavedEvent {
+    private final ChatMessage message;
+    private final Long senderId;
+}
@@ -0,0 +1,17 @@
+package com.officesync.chat_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Sự kiện tạm thời trong phòng (đang gõ, đã xem...) - KHÔNG lưu DB
+// Client gửi /app/chat.ephemeral { roomId, type, messageId? }, nhận ở /topic/room/{roomId}/events
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EphemeralEventDTO {
+    private Long roomId;
+    private Long userId;     // Server tự điền theo người gửi
+    private String type;     // TYPING | STOP_TYPING | SEEN
+    private Long messageId;  // Tùy chọn (vd: SEEN tới tin nào)
+}
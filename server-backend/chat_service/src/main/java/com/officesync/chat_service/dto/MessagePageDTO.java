@@ -0,0 +1,17 @@
+package com.officesync.chat_service.dto;
+
+import com.officesync.chat_service.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Một trang lịch sử chat (phân trang keyset theo message id)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessagePageDTO {
+    private List<ChatMessage> messages; // Luôn sắp xếp cũ nhất -> mới nhất
+    private boolean hasMore;            // Còn tin theo chiều đang cuộn hay không
+    private Long nextCursor;            // Truyền lại vào before/after để lấy trang kế tiếp
+}
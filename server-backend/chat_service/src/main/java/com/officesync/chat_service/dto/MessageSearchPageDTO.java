@@ -0,0 +1,16 @@
+package com.officesync.chat_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Một trang kết quả tìm kiếm (sắp xếp theo độ liên quan, mới hơn trước khi bằng điểm)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchPageDTO {
+    private List<MessageSearchResultDTO> results;
+    private boolean hasMore;
+    private Integer nextOffset; // Truyền lại vào ?offset= để lấy trang kế tiếp
+}
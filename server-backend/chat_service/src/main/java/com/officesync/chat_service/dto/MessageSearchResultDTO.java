@@ -0,0 +1,25 @@
+package com.officesync.chat_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+import java.util.List;
+
+// 1 kết quả tìm kiếm tin nhắn: đoạn trích + vị trí các từ khớp để Client tô đậm
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchResultDTO {
+    private Long messageId;
+    private Long roomId;
+    private Long seq;
+    private Long senderId;
+    private String senderName;
+    private Date timestamp;
+    private String snippet;            // Đoạn trích quanh từ khớp đầu tiên
+    private List<int[]> highlights;    // Các cặp [start, end) trong snippet cần tô đậm
+    private double score;              // Điểm liên quan (MySQL FULLTEXT)
+}
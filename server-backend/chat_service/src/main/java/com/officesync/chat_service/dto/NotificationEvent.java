@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -13,4 +15,5 @@ public class NotificationEvent {
     private String body;        // Message Content
     private String type;        // "CHAT"
     private Long referenceId;   // RoomId (To navigate correctly when clicking notification)
+    private List<Long> userIds; // [NEW] Multiple offline recipients in ONE event (notification_service expands it)
 }
\ No newline at end of file
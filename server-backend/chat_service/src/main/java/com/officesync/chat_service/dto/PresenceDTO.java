@@ -0,0 +1,19 @@
+package com.officesync.chat_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Sự kiện trạng thái Online/Offline, bắn qua /topic/status/{companyId}
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceDTO {
+    private Long id;            // userId (Client so sánh với partnerId)
+    private Long companyId;
+    @JsonProperty("isOnline")
+    private boolean online;
+    private LocalDateTime lastActiveAt;
+}
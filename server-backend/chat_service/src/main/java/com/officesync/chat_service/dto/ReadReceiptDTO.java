@@ -0,0 +1,18 @@
+package com.officesync.chat_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Client báo "đã đọc tới tin messageId" trong phòng roomId (/app/chat.read)
+// Server phát lại cho cả phòng qua /topic/room/{roomId}/read
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReadReceiptDTO {
+    private Long roomId;
+    private Long messageId; // null = đã đọc tới tin cuối cùng của phòng
+    private Long userId;    // Server tự điền khi phát lại
+    // [MỚI] Seq của messageId (Client đã có từ tin nhận được): Server tính badge theo seq, không phải tra lại tin
+    private Long seq;
+}
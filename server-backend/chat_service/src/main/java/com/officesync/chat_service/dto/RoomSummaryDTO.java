@@ -0,0 +1,34 @@
+package com.officesync.chat_service.dto;
+
+import com.officesync.chat_service.model.ChatRoom;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// 1 dòng trong danh sách phòng (Sidebar). Giữ tên field giống ChatRoom để Client không phải đổi.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomSummaryDTO {
+    private Long id;
+    private String roomName;        // PRIVATE: tên đối phương
+    private ChatRoom.RoomType type;
+    private String roomAvatarUrl;   // PRIVATE: avatar đối phương
+    private Long adminId;
+    private Long departmentId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Tin nhắn cuối (null nếu phòng chưa có tin)
+    private Long lastMessageId;
+    private LocalDateTime lastMessageAt;
+    private String lastMessageContent;
+    private Long lastMessageSenderId;
+
+    // Tin chưa đọc: badge + con trỏ để mở phòng tại tin chưa đọc đầu tiên (after=lastReadMessageId)
+    private long unreadCount;
+    private Long lastReadMessageId;
+}
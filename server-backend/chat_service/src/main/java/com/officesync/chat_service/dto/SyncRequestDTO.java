@@ -0,0 +1,14 @@
+package com.officesync.chat_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+// Client gửi khi reconnect: roomId -> seq cuối cùng đã nhận của phòng đó
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncRequestDTO {
+    private Map<Long, Long> rooms;
+}
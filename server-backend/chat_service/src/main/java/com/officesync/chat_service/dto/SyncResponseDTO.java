@@ -0,0 +1,26 @@
+package com.officesync.chat_service.dto;
+
+import com.officesync.chat_service.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Chỉ chứa các phòng có tin bị thiếu so với Client
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncResponseDTO {
+    private List<RoomDelta> rooms;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RoomDelta {
+        private Long roomId;
+        private Long lastSeq;               // Seq mới nhất của phòng trên Server
+        private List<ChatMessage> messages; // Sắp xếp theo seq tăng dần
+        private boolean hasMore;            // Còn thiếu tin -> gọi sync lại với seq mới (hoặc tải trang qua REST)
+        private boolean reset;              // Client chưa biết phòng này (hoặc seq lệch / phần thiếu đã lưu trữ): không gửi tin, Client tải lại trang mới nhất khi mở phòng
+    }
+}
@@ -5,7 +5,12 @@ import lombok.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    // Phục vụ phân trang keyset lịch sử chat: WHERE room_id = ? ORDER BY timestamp, id
+    @Index(name = "idx_msg_room_ts_id", columnList = "room_id, timestamp, id"),
+    // [MỚI] Số thứ tự trong phòng: duy nhất + phục vụ sync "các tin sau seq X"
+    @Index(name = "uk_msg_room_seq", columnList = "room_id, seq", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,6 +24,11 @@ public class ChatMessage {
     @Column(name = "room_id")
     private Long roomId;
 
+    // [MỚI] Số thứ tự tăng dần trong phòng (1, 2, 3...), cấp trong saveMessage.
+    // Client nhớ seq cuối đã nhận của từng phòng -> khi reconnect chỉ xin phần bị thiếu.
+    @Column(name = "seq")
+    private Long seq;
+
     // Vẫn giữ lại để tương thích code cũ (nhưng sau này sẽ ít dùng)
     private String chatId; 
 
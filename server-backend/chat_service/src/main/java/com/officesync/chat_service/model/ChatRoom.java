@@ -6,11 +6,15 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.List;
 
 @Entity
-@Table(name = "chat_rooms")
+@Table(name = "chat_rooms", indexes = {
+        // [MỚI] Mỗi cặp user chỉ có đúng 1 phòng PRIVATE (NULL với GROUP/DEPARTMENT)
+        @Index(name = "uk_room_pair_key", columnList = "pair_key", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -48,11 +52,44 @@ public class ChatRoom {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // [MỚI] Tin nhắn cuối cùng của phòng (denormalized, cập nhật trong saveMessage)
+    // -> Sidebar chỉ cần 1 query JOIN thay vì query từng phòng
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    // [MỚI] Seq của tin nhắn mới nhất trong phòng (bộ đếm cấp seq cho ChatMessage)
+    @Column(name = "last_seq")
+    private Long lastSeq;
+
+    // [MỚI] Các tin có id <= giá trị này đã chuyển sang kho lạnh (ChatArchiveStore), không còn trong chat_messages
+    @JsonIgnore
+    @Column(name = "archived_up_to_id")
+    private Long archivedUpToId;
+
+    // [MỚI] Seq của tin cuối đã lưu trữ: sync với seq nhỏ hơn mốc này không bù được từ bảng nóng -> Client tải lại
+    @JsonIgnore
+    @Column(name = "archived_up_to_seq")
+    private Long archivedUpToSeq;
+
+    // [MỚI] Khóa cặp chuẩn hóa "minUserId:maxUserId" của phòng PRIVATE -> tra phòng 1-1 không cần JOIN room_members
+    @JsonIgnore
+    @Column(name = "pair_key", length = 41)
+    private String pairKey;
+
+    public static String pairKeyOf(Long userA, Long userB) {
+        return Math.min(userA, userB) + ":" + Math.max(userA, userB);
+    }
+
     public enum RoomType {
         PRIVATE,    // Chat 1-1
         GROUP,      // Nhóm tùy chọn (Đi ăn, đá bóng...)
         DEPARTMENT  // Nhóm mặc định theo phòng ban công ty
     }
+    // Không serialize ra JSON: tránh lazy-load toàn bộ thành viên mỗi khi trả ChatRoom về Client
+    @JsonIgnore
     @OneToMany(mappedBy = "chatRoom", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<RoomMember> members;
 }
\ No newline at end of file
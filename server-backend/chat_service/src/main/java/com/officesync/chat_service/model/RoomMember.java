@@ -35,6 +35,10 @@ public class RoomMember {
     @Column(name = "joined_at")
     private LocalDateTime joinedAt;
 
+    // [MỚI] Tin nhắn cuối cùng user đã đọc trong phòng (read receipt)
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId;
+
     public enum GroupRole {
         ADMIN,  // Trưởng nhóm (có quyền kick, đổi tên)
         MEMBER  // Thành viên thường
@@ -2,11 +2,13 @@ package com.officesync.chat_service.repository;
 
 import com.officesync.chat_service.model.ChatMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-//import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -37,4 +39,89 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     //     ORDER BY m.timestamp DESC
     // """, nativeQuery = true)
    List<ChatMessage> findByRoomIdOrderByTimestampDesc(Long roomId, Pageable pageable);
+
+    // 3. Phân trang keyset theo (timestamp, id) - đi trên index idx_msg_room_ts_id, không quét cả bảng
+    // Trang mới nhất (mở phòng chat)
+    @Query("SELECT m FROM ChatMessage m WHERE m.roomId = :roomId " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findLatestPage(@Param("roomId") Long roomId, Pageable pageable);
+
+    // Các tin CŨ HƠN con trỏ (cuộn lên trên)
+    @Query("SELECT m FROM ChatMessage m WHERE m.roomId = :roomId " +
+           "AND (m.timestamp < :ts OR (m.timestamp = :ts AND m.id < :id)) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findPageBefore(@Param("roomId") Long roomId,
+                                     @Param("ts") Date ts,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    // Các tin MỚI HƠN con trỏ (bù tin khi quay lại phòng)
+    @Query("SELECT m FROM ChatMessage m WHERE m.roomId = :roomId " +
+           "AND (m.timestamp > :ts OR (m.timestamp = :ts AND m.id > :id)) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    List<ChatMessage> findPageAfter(@Param("roomId") Long roomId,
+                                    @Param("ts") Date ts,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    // 4. [MỚI] Sync sau reconnect: các tin có seq > seq cuối Client đã nhận (đi trên uk_msg_room_seq)
+    @Query("SELECT m FROM ChatMessage m WHERE m.roomId = :roomId AND m.seq > :seq ORDER BY m.seq ASC")
+    List<ChatMessage> findAfterSeq(@Param("roomId") Long roomId,
+                                   @Param("seq") Long seq,
+                                   Pageable pageable);
+
+    // [MỚI] Số tin người khác gửi trong khoảng seq (fromSeq, toSeq] - tính lại badge khi đọc giữa chừng
+    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.roomId = :roomId " +
+           "AND m.seq > :fromSeq AND m.seq <= :toSeq AND m.senderId <> :userId")
+    long countUnreadInSeqRange(@Param("roomId") Long roomId,
+                               @Param("userId") Long userId,
+                               @Param("fromSeq") long fromSeq,
+                               @Param("toSeq") long toSeq);
+
+    // 5. [MỚI] Tìm kiếm toàn văn trong các phòng user tham gia (FULLTEXT ft_msg_content, xem ChatSearchIndexInitializer)
+    // Chỉ phủ bảng nóng: tin đã chuyển sang kho lạnh (ChatArchiveJob) không có trong kết quả
+    // Mỗi dòng = [id, room_id, seq, sender_id, content, timestamp, score]
+    @Query(value = "SELECT m.id, m.room_id, m.seq, m.sender_id, m.content, m.timestamp, " +
+                   "MATCH(m.content) AGAINST (:q IN NATURAL LANGUAGE MODE) AS score " +
+                   "FROM chat_messages m " +
+                   "JOIN room_members rm ON rm.room_id = m.room_id AND rm.user_id = :userId " +
+                   "WHERE MATCH(m.content) AGAINST (:q IN NATURAL LANGUAGE MODE) " +
+                   "AND m.type = 'CHAT' " +
+                   "AND (:roomId IS NULL OR m.room_id = :roomId) " +
+                   "ORDER BY score DESC, m.id DESC " +
+                   "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> searchInUserRooms(@Param("userId") Long userId,
+                                     @Param("q") String query,
+                                     @Param("roomId") Long roomId,
+                                     @Param("limit") int limit,
+                                     @Param("offset") int offset);
+
+    // 6. [MỚI] Kho lạnh: lô tin cũ hơn mốc thời gian để chuyển sang segment (luôn giữ lại tin cuối của phòng)
+    @Query("SELECT m FROM ChatMessage m WHERE m.roomId = :roomId " +
+           "AND m.timestamp < :cutoff AND m.id < :keepFromId ORDER BY m.id ASC")
+    List<ChatMessage> findArchivable(@Param("roomId") Long roomId,
+                                     @Param("cutoff") Date cutoff,
+                                     @Param("keepFromId") Long keepFromId,
+                                     Pageable pageable);
+
+    // Tin đầu tiên còn trong bảng nóng, sau ranh giới lưu trữ (đọc nối tiếp từ kho lạnh sang)
+    List<ChatMessage> findByRoomIdAndIdGreaterThanOrderByIdAsc(Long roomId, Long id, Pageable pageable);
+
+    // [MỚI] Đánh lại seq cho CẢ phòng theo thứ tự id (các phòng còn tin chưa có seq, xem ChatDataBackfill).
+    // [SỬA] Không nối tin cũ vào sau bộ đếm hiện tại: phòng đã nhận tin mới (seq=1...) trước khi backfill chạy,
+    // hoặc có tin do instance bản cũ ghi xen giữa lúc deploy cuốn chiếu -> tin cũ hơn sẽ mang seq lớn hơn tin mới.
+    // Bước 1 xóa seq (unique index cho phép nhiều NULL, tránh đụng uk_msg_room_seq giữa chừng),
+    // bước 2 đánh seq nối tiếp phần đã lưu trữ (archived_up_to_seq). Gọi khi đã khóa các phòng này.
+    @Modifying
+    @Query(value = "UPDATE chat_messages SET seq = NULL WHERE room_id IN (:roomIds)", nativeQuery = true)
+    int clearSeq(@Param("roomIds") List<Long> roomIds);
+
+    @Modifying
+    @Query(value = "UPDATE chat_messages m JOIN (" +
+                   "  SELECT u.id, COALESCE(r.archived_up_to_seq, 0) + ROW_NUMBER() OVER (PARTITION BY u.room_id ORDER BY u.id) AS rn " +
+                   "  FROM chat_messages u JOIN chat_rooms r ON r.id = u.room_id " +
+                   "  WHERE u.room_id IN (:roomIds)" +
+                   ") x ON x.id = m.id " +
+                   "SET m.seq = x.rn", nativeQuery = true)
+    int renumberSeq(@Param("roomIds") List<Long> roomIds);
 }
\ No newline at end of file
@@ -2,27 +2,129 @@ package com.officesync.chat_service.repository;
 
 import com.officesync.chat_service.model.ChatRoom;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     boolean existsByDepartmentId(Long departmentId);
-    // Tìm phòng chat 1-1 giữa 2 người (để tránh tạo trùng)
-    // Logic: Tìm phòng loại PRIVATE mà có cả user1 và user2 tham gia
-    @Query("SELECT r FROM ChatRoom r " +
-           "JOIN RoomMember m1 ON r.id = m1.chatRoom.id " +
-           "JOIN RoomMember m2 ON r.id = m2.chatRoom.id " +
-           "WHERE r.type = 'PRIVATE' " +
-           "AND ((m1.userId = :user1Id AND m2.userId = :user2Id) " +
-           "OR (m1.userId = :user2Id AND m2.userId = :user1Id))")
-    Optional<ChatRoom> findExistingPrivateRoom(@Param("user1Id") Long user1Id, 
-                                               @Param("user2Id") Long user2Id);
+    // [SỬA] Tìm phòng chat 1-1 theo khóa cặp chuẩn hóa (unique index, không JOIN room_members)
+    @Query("SELECT r.id FROM ChatRoom r WHERE r.pairKey = :pairKey")
+    Optional<Long> findIdByPairKey(@Param("pairKey") String pairKey);
+
+    // [MỚI] Đọc + khóa phòng 1-1 trong transaction của người gọi (đọc bản đã commit mới nhất, không theo snapshot)
+    @Query(value = "SELECT id FROM chat_rooms WHERE pair_key = :pairKey FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockIdByPairKey(@Param("pairKey") String pairKey);
+
+    // [MỚI] Tạo phòng 1-1 nếu cặp chưa có phòng; trùng pair_key thì không làm gì (trả về 0)
+    @Modifying
+    @Query(value = "INSERT INTO chat_rooms (type, pair_key, created_at, updated_at) " +
+                   "VALUES ('PRIVATE', :pairKey, :now, :now) " +
+                   "ON DUPLICATE KEY UPDATE pair_key = pair_key", nativeQuery = true)
+    int insertPrivateRoomIfAbsent(@Param("pairKey") String pairKey, @Param("now") LocalDateTime now);
+
+    // [MỚI] Có người rời phòng 1-1 -> nhả pair_key, lần nhắn sau tạo phòng mới cho cặp (giống hành vi cũ)
+    @Modifying
+    @Query("UPDATE ChatRoom r SET r.pairKey = NULL WHERE r.id = :roomId AND r.pairKey IS NOT NULL")
+    int releasePairKey(@Param("roomId") Long roomId);
 
     // Tìm phòng chat theo Department ID (để đồng bộ từ HR)
     Optional<ChatRoom> findByDepartmentId(Long departmentId);
-    
-}
\ No newline at end of file
+
+    // [MỚI] Sidebar trong 1 query: mỗi dòng = [ChatRoom, ChatMessage cuối (có thể null), ChatUser đối phương (chỉ phòng PRIVATE), RoomMember của mình]
+    @Query("SELECT r, lm, u, me FROM RoomMember me " +
+           "JOIN me.chatRoom r " +
+           "LEFT JOIN ChatMessage lm ON lm.id = r.lastMessageId " +
+           "LEFT JOIN RoomMember other ON other.chatRoom.id = r.id AND other.userId <> :userId AND r.type = 'PRIVATE' " +
+           "LEFT JOIN ChatUser u ON u.id = other.userId " +
+           "WHERE me.userId = :userId " +
+           "ORDER BY r.updatedAt DESC")
+    List<Object[]> findSidebarRows(@Param("userId") Long userId);
+
+    // [MỚI] Cập nhật tin cuối sau khi commit tin nhắn. Chỉ tiến lên (tin phát lệch thứ tự không ghi đè tin mới hơn)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChatRoom r SET r.lastMessageId = :messageId, r.lastMessageAt = :messageAt, r.updatedAt = :now " +
+           "WHERE r.id = :roomId AND (r.lastMessageId IS NULL OR r.lastMessageId < :messageId)")
+    int touchLastMessage(@Param("roomId") Long roomId,
+                         @Param("messageId") Long messageId,
+                         @Param("messageAt") LocalDateTime messageAt,
+                         @Param("now") LocalDateTime now);
+
+    // [MỚI] Cấp seq cho tin nhắn mới: tăng bộ đếm của phòng trong transaction của saveMessage.
+    // Khóa dòng chat_rooms giữ tới khi commit -> seq trong phòng tăng liên tục, không trùng, không hổng.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ChatRoom r SET r.lastSeq = COALESCE(r.lastSeq, 0) + 1 WHERE r.id = :roomId")
+    int incrementSeq(@Param("roomId") Long roomId);
+
+    // [MỚI] Như incrementSeq nhưng chỉ khi phòng vẫn giữ pair_key này (roomId lấy từ cache có thể đã bị nhả)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ChatRoom r SET r.lastSeq = COALESCE(r.lastSeq, 0) + 1 WHERE r.id = :roomId AND r.pairKey = :pairKey")
+    int incrementSeqForPair(@Param("roomId") Long roomId, @Param("pairKey") String pairKey);
+
+    @Query("SELECT r.lastSeq FROM ChatRoom r WHERE r.id = :roomId")
+    Long findLastSeq(@Param("roomId") Long roomId);
+
+    // [MỚI] Khóa các phòng còn tin chưa có seq: incrementSeq của instance khác chờ tới khi đánh seq xong
+    @Query(value = "SELECT r.id FROM chat_rooms r " +
+                   "WHERE r.id IN (SELECT DISTINCT m.room_id FROM chat_messages m WHERE m.seq IS NULL) " +
+                   "FOR UPDATE OF r", nativeQuery = true)
+    List<Long> lockRoomsWithMissingSeq();
+
+    // [MỚI] Đặt bộ đếm seq = seq lớn nhất sau khi đánh lại (renumberSeq). Đánh lại chỉ làm seq lớn lên
+    // (thêm tin cũ vào trước), nên bộ đếm không lùi so với seq Client đã biết.
+    @Modifying
+    @Query(value = "UPDATE chat_rooms r JOIN (" +
+                   "  SELECT room_id, MAX(seq) AS max_seq FROM chat_messages WHERE room_id IN (:roomIds) GROUP BY room_id" +
+                   ") x ON x.room_id = r.id " +
+                   "SET r.last_seq = x.max_seq", nativeQuery = true)
+    int setLastSeqToMax(@Param("roomIds") List<Long> roomIds);
+
+    // [MỚI] Kho lạnh: ranh giới id đã lưu trữ của phòng
+    @Query("SELECT r.archivedUpToId FROM ChatRoom r WHERE r.id = :roomId")
+    Long findArchivedUpToId(@Param("roomId") Long roomId);
+
+    // [SỬA] Dời cả mốc seq (seq null = lô toàn tin cũ chưa có seq -> giữ mốc cũ)
+    @Modifying
+    @Query("UPDATE ChatRoom r SET r.archivedUpToId = :messageId, " +
+           "r.archivedUpToSeq = COALESCE(:seq, r.archivedUpToSeq) " +
+           "WHERE r.id = :roomId AND (r.archivedUpToId IS NULL OR r.archivedUpToId < :messageId)")
+    int advanceArchivedUpTo(@Param("roomId") Long roomId, @Param("messageId") Long messageId, @Param("seq") Long seq);
+
+    // Các phòng có tin nhắn: mỗi dòng = [roomId, lastMessageId]
+    @Query("SELECT r.id, r.lastMessageId FROM ChatRoom r WHERE r.lastMessageId IS NOT NULL")
+    List<Object[]> findRoomsWithMessages();
+
+    // [MỚI] Điền last_message_id/last_message_at cho các phòng cũ (trước khi có cột denormalized)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE chat_rooms r " +
+                   "JOIN (SELECT room_id, MAX(id) AS max_id FROM chat_messages GROUP BY room_id) x ON x.room_id = r.id " +
+                   "JOIN chat_messages m ON m.id = x.max_id " +
+                   "SET r.last_message_id = m.id, r.last_message_at = m.timestamp " +
+                   "WHERE r.last_message_id IS NULL", nativeQuery = true)
+    int backfillLastMessage();
+
+    // [MỚI] Gán pair_key cho các phòng PRIVATE cũ (đúng 2 thành viên). Nếu lỡ có phòng trùng cặp thì giữ phòng cũ nhất.
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE chat_rooms r JOIN (" +
+                   "  SELECT MIN(p.room_id) AS room_id, p.pair_key FROM (" +
+                   "    SELECT m.room_id, CONCAT(MIN(m.user_id), ':', MAX(m.user_id)) AS pair_key " +
+                   "    FROM room_members m JOIN chat_rooms c ON c.id = m.room_id " +
+                   "    WHERE c.type = 'PRIVATE' AND c.pair_key IS NULL " +
+                   "    GROUP BY m.room_id HAVING COUNT(*) = 2" +
+                   "  ) p " +
+                   "  WHERE p.pair_key NOT IN (SELECT k.pair_key FROM chat_rooms k WHERE k.pair_key IS NOT NULL) " +
+                   "  GROUP BY p.pair_key" +
+                   ") x ON x.room_id = r.id " +
+                   "SET r.pair_key = x.pair_key", nativeQuery = true)
+    int backfillPairKeys();
+}
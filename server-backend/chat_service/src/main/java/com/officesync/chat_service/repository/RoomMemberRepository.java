@@ -2,7 +2,11 @@ package com.officesync.chat_service.repository;
 
 import com.officesync.chat_service.model.RoomMember;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,5 +17,31 @@ public interface RoomMemberRepository extends JpaRepository<RoomMember, Long> {
     // Tìm các phòng mà user này đang tham gia (để hiển thị danh sách chat)
     List<RoomMember> findByUserId(Long userId);
 
+    // Kiểm tra quyền xem lịch sử phòng
+    boolean existsByChatRoomIdAndUserId(Long roomId, Long userId);
+
     void deleteByChatRoomIdAndUserId(Long roomId, Long userId);
+
+    // [MỚI] Thêm thành viên, đã có (unique room_id + user_id) thì bỏ qua
+    @Modifying
+    @Query(value = "INSERT INTO room_members (room_id, user_id, role, joined_at) " +
+                   "VALUES (:roomId, :userId, :role, :joinedAt) " +
+                   "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfAbsent(@Param("roomId") Long roomId,
+                       @Param("userId") Long userId,
+                       @Param("role") String role,
+                       @Param("joinedAt") LocalDateTime joinedAt);
+
+    // [MỚI] Seq mới nhất của tất cả phòng user tham gia: mỗi dòng = [roomId, lastSeq, archivedUpToSeq]
+    @Query("SELECT r.id, r.lastSeq, r.archivedUpToSeq FROM RoomMember m JOIN m.chatRoom r WHERE m.userId = :userId")
+    List<Object[]> findRoomSeqsByUserId(@Param("userId") Long userId);
+
+    // [MỚI] Chỉ cho con trỏ "đã đọc" tiến lên, không lùi (ack đến trễ/không theo thứ tự)
+    @Modifying
+    @Query("UPDATE RoomMember m SET m.lastReadMessageId = :messageId " +
+           "WHERE m.chatRoom.id = :roomId AND m.userId = :userId " +
+           "AND (m.lastReadMessageId IS NULL OR m.lastReadMessageId < :messageId)")
+    int advanceLastRead(@Param("roomId") Long roomId,
+                        @Param("userId") Long userId,
+                        @Param("messageId") Long messageId);
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.model.ChatMessage;
+import com.officesync.chat_service.repository.ChatMessageRepository;
+import com.officesync.chat_service.repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+// [MỚI] Job chuyển lịch sử chat cũ sang kho lạnh để bảng chat_messages chỉ giữ phần "nóng".
+// Mỗi lô: ghi segment (fsync) -> rồi MỚI xóa khỏi DB + dời ranh giới archived_up_to_id trong cùng 1 transaction.
+// Crash giữa 2 bước: lần chạy sau ghi lại lô đó, ChatArchiveStore tự bỏ phần đã có -> không mất, không trùng.
+// Tin cuối của mỗi phòng luôn được giữ lại (sidebar JOIN theo last_message_id).
+// Tin đã lưu trữ: lịch sử/đánh dấu đã đọc vẫn đọc được qua ChatArchiveStore, sync cũ hơn archived_up_to_seq trả reset,
+// tìm kiếm FULLTEXT chỉ còn trên bảng nóng (xem MessageSearchService).
+// [SỬA] Lock Redis ngắn (LOCK_TTL) được gia hạn sau mỗi lô; mất lock hoặc chạy quá chat.archive.max-run-minutes
+// thì dừng ở ranh giới lô (phần còn lại để lần chạy sau) -> không bao giờ có 2 instance cùng ghi 1 phòng.
+@Component
+@ConditionalOnProperty(name = "chat.archive.enabled", havingValue = "true")
+@Slf4j
+public class ChatArchiveJob {
+
+    private static final String LOCK_KEY = "chat:archive:lock";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+
+    // Chỉ gia hạn / trả lock khi nó vẫn là của instance này
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final ChatMessageRepository messageRepository;
+    private final ChatArchiveStore archiveStore;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${chat.archive.older-than-days:180}")
+    private int olderThanDays;
+
+    @Value("${chat.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${chat.archive.max-run-minutes:90}")
+    private long maxRunMinutes;
+
+    public ChatArchiveJob(ChatRoomRepository chatRoomRepository,
+                          ChatMessageRepository messageRepository,
+                          ChatArchiveStore archiveStore,
+                          StringRedisTemplate redisTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.messageRepository = messageRepository;
+        this.archiveStore = archiveStore;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${chat.archive.cron:0 30 3 * * *}")
+    public void archiveColdMessages() {
+        // Chạy nhiều instance: chỉ 1 instance được lưu trữ tại một thời điểm
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, instanceId, LOCK_TTL);
+        if (!Boolean.TRUE.equals(locked)) return;
+
+        Date cutoff = Date.from(Instant.now().minus(olderThanDays, ChronoUnit.DAYS));
+        Instant deadline = Instant.now().plus(Duration.ofMinutes(maxRunMinutes));
+        long total = 0;
+        try {
+            for (Object[] row : chatRoomRepository.findRoomsWithMessages()) {
+                if (!canContinue(deadline)) {
+                    log.warn("⏸️ Dừng lưu trữ giữa chừng (hết giờ hoặc mất lock), lần chạy sau làm tiếp");
+                    break;
+                }
+                total += archiveRoom((Long) row[0], (Long) row[1], cutoff, deadline);
+            }
+            if (total > 0) {
+                log.info("📦 Đã chuyển {} tin nhắn cũ hơn {} ngày sang kho lạnh", total, olderThanDays);
+            }
+        } catch (Exception e) {
+            log.error("❌ Lỗi lưu trữ tin nhắn cũ: {}", e.getMessage());
+        } finally {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), instanceId);
+            } catch (Exception e) {
+                log.warn("⚠️ Không trả được lock lưu trữ: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long archiveRoom(Long roomId, Long lastMessageId, Date cutoff, Instant deadline) {
+        long moved = 0;
+        while (moved == 0 || canContinue(deadline)) {
+            List<ChatMessage> batch = messageRepository.findArchivable(roomId, cutoff, lastMessageId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) break;
+
+            archiveStore.append(roomId, batch);
+
+            Long maxId = batch.get(batch.size() - 1).getId();
+            Long maxSeq = batch.stream().map(ChatMessage::getSeq).filter(Objects::nonNull).max(Long::compare).orElse(null);
+            List<Long> ids = batch.stream().map(ChatMessage::getId).toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                chatRoomRepository.advanceArchivedUpTo(roomId, maxId, maxSeq);
+                messageRepository.deleteAllByIdInBatch(ids);
+            });
+            moved += batch.size();
+            if (batch.size() < batchSize) break;
+        }
+        return moved;
+    }
+
+    // Còn trong giờ cho phép và lock vẫn là của instance này (gia hạn luôn)
+    private boolean canContinue(Instant deadline) {
+        if (Instant.now().isAfter(deadline)) return false;
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(LOCK_KEY), instanceId, String.valueOf(LOCK_TTL.toMillis()));
+        return renewed != null && renewed == 1L;
+    }
+}
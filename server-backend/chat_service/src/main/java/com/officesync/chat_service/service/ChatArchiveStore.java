@@ -0,0 +1,312 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.model.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// [MỚI] Kho lưu trữ lạnh cho lịch sử chat cũ (xem ChatArchiveJob).
+// Bố cục trên đĩa:  {chat.archive.dir}/room-{roomId}/seg-{firstId}.seg  +  seg-{firstId}.idx
+//  - .seg: chuỗi block nén Deflate, mỗi block tối đa BLOCK_SIZE tin (sắp xếp theo id tăng dần)
+//  - .idx: chỉ mục thưa, 1 dòng / block = [firstId, lastId, offset, length, count]
+//  - Chỉ ghi thêm: mỗi lần lưu trữ tạo segment MỚI, không sửa segment cũ. File .idx được ghi cuối cùng
+//    (sau khi .seg đã fsync) nên segment nào thiếu .idx là segment dở dang -> bị bỏ qua.
+// Đọc: chỉ mục thưa giữ trong RAM, segment đọc qua memory-map, chỉ giải nén đúng các block cần.
+// [SỬA] chat.archive.dir phải là ổ dùng chung (volume mount vào mọi instance, xem docker-compose) vì job chạy
+// trên 1 instance nhưng instance nào cũng đọc. Người đọc truyền archived_up_to_id (nguồn sự thật trong DB):
+// chỉ mục trong RAM cũ hơn mốc đó -> nạp lại từ đĩa; nạp lại vẫn thiếu -> báo lỗi thay vì trả lịch sử bị hổng.
+@Service
+@Slf4j
+public class ChatArchiveStore {
+
+    private static final int BLOCK_SIZE = 128;
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 8 + 4 + 4;
+    private static final int MAX_MAPPED_SEGMENTS = 256;
+
+    private final Path baseDir;
+
+    // roomId -> danh sách block (theo firstId tăng dần), nạp lười từ các file .idx
+    private final Map<Long, List<Block>> roomIndex = new ConcurrentHashMap<>();
+    // Segment bất biến sau khi ghi -> map 1 lần, dùng lại. [SỬA] LRU có giới hạn, không giữ map mọi segment từng đọc
+    private final Map<Path, MappedByteBuffer> mappedSegments = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, MappedByteBuffer> eldest) {
+            return size() > MAX_MAPPED_SEGMENTS;
+        }
+    };
+
+    private record Block(Path segment, long firstId, long lastId, long offset, int length, int count) {}
+
+    public ChatArchiveStore(@Value("${chat.archive.dir:./data/chat-archive}") String dir) {
+        this.baseDir = Paths.get(dir);
+    }
+
+    // Id lớn nhất đã nằm trong kho của phòng (0 nếu chưa có)
+    public long lastArchivedId(Long roomId) {
+        return lastId(blocks(roomId));
+    }
+
+    // Ghi 1 lô tin (id tăng dần) thành 1 segment mới. Tin đã có trong kho (id <= lastArchivedId) bị bỏ qua
+    // -> chạy lại sau khi crash giữa chừng không sinh bản trùng.
+    public synchronized void append(Long roomId, List<ChatMessage> ascending) {
+        // Đọc lại từ đĩa: lần chạy trước có thể do instance khác ghi
+        roomIndex.remove(roomId);
+        long lastId = lastArchivedId(roomId);
+        List<ChatMessage> fresh = ascending.stream().filter(m -> m.getId() > lastId).toList();
+        if (fresh.isEmpty()) return;
+
+        Path roomDir = baseDir.resolve("room-" + roomId);
+        long firstId = fresh.get(0).getId();
+        Path segment = roomDir.resolve("seg-" + firstId + ".seg");
+        Path index = roomDir.resolve("seg-" + firstId + ".idx");
+
+        try {
+            Files.createDirectories(roomDir);
+            List<Block> written = new ArrayList<>();
+            ByteArrayOutputStream segmentBytes = new ByteArrayOutputStream();
+            for (int i = 0; i < fresh.size(); i += BLOCK_SIZE) {
+                List<ChatMessage> chunk = fresh.subList(i, Math.min(i + BLOCK_SIZE, fresh.size()));
+                byte[] compressed = deflate(encode(chunk));
+                written.add(new Block(segment, chunk.get(0).getId(), chunk.get(chunk.size() - 1).getId(),
+                        segmentBytes.size(), compressed.length, chunk.size()));
+                segmentBytes.write(compressed);
+            }
+
+            writeDurably(segment, segmentBytes.toByteArray());
+            ByteBuffer idx = ByteBuffer.allocate(written.size() * INDEX_ENTRY_BYTES);
+            for (Block b : written) {
+                idx.putLong(b.firstId()).putLong(b.lastId()).putLong(b.offset()).putInt(b.length()).putInt(b.count());
+            }
+            writeDurably(index, idx.array());
+
+            List<Block> blocks = new ArrayList<>(blocks(roomId));
+            blocks.addAll(written);
+            roomIndex.put(roomId, Collections.unmodifiableList(blocks));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write archive segment for room " + roomId, e);
+        }
+    }
+
+    // Các tin có id < beforeId (null = từ cuối kho), mới -> cũ, tối đa limit tin. archivedUpTo = chat_rooms.archived_up_to_id
+    public List<ChatMessage> readBefore(Long roomId, long archivedUpTo, Long beforeId, int limit) {
+        List<Block> blocks = blocksUpTo(roomId, archivedUpTo);
+        List<ChatMessage> result = new ArrayList<>();
+        for (int i = blocks.size() - 1; i >= 0 && result.size() < limit; i--) {
+            Block b = blocks.get(i);
+            if (beforeId != null && b.firstId() >= beforeId) continue;
+            List<ChatMessage> decoded = readBlock(roomId, b);
+            for (int j = decoded.size() - 1; j >= 0 && result.size() < limit; j--) {
+                ChatMessage m = decoded.get(j);
+                if (beforeId == null || m.getId() < beforeId) result.add(m);
+            }
+        }
+        return result;
+    }
+
+    // Các tin có id > afterId, cũ -> mới, tối đa limit tin
+    public List<ChatMessage> readAfter(Long roomId, long archivedUpTo, long afterId, int limit) {
+        List<ChatMessage> result = new ArrayList<>();
+        for (Block b : blocksUpTo(roomId, archivedUpTo)) {
+            if (result.size() >= limit) break;
+            if (b.lastId() <= afterId) continue;
+            for (ChatMessage m : readBlock(roomId, b)) {
+                if (m.getId() > afterId && result.size() < limit) result.add(m);
+            }
+        }
+        return result;
+    }
+
+    // [MỚI] 1 tin theo id (đánh dấu đã đọc tới tin đã lưu trữ): chỉ giải nén đúng block chứa id đó
+    public Optional<ChatMessage> find(Long roomId, long archivedUpTo, long messageId) {
+        if (messageId > archivedUpTo) return Optional.empty();
+        for (Block b : blocksUpTo(roomId, archivedUpTo)) {
+            if (messageId < b.firstId()) break;
+            if (messageId > b.lastId()) continue;
+            return readBlock(roomId, b).stream().filter(m -> m.getId() == messageId).findFirst();
+        }
+        return Optional.empty();
+    }
+
+    // ------------------------------------------------------------------
+
+    private List<Block> blocks(Long roomId) {
+        return roomIndex.computeIfAbsent(roomId, this::loadIndex);
+    }
+
+    // Chỉ mục phải phủ tới archivedUpTo: job (có thể ở instance khác) đã ghi thêm segment -> nạp lại
+    private List<Block> blocksUpTo(Long roomId, long archivedUpTo) {
+        List<Block> blocks = blocks(roomId);
+        if (lastId(blocks) >= archivedUpTo) return blocks;
+
+        List<Block> reloaded = loadIndex(roomId);
+        roomIndex.put(roomId, reloaded);
+        if (lastId(reloaded) < archivedUpTo) {
+            throw new IllegalStateException("Archive of room " + roomId + " is not readable here (expected up to id "
+                    + archivedUpTo + ", found " + lastId(reloaded) + "). Is chat.archive.dir shared by all instances?");
+        }
+        return reloaded;
+    }
+
+    private static long lastId(List<Block> blocks) {
+        return blocks.isEmpty() ? 0L : blocks.get(blocks.size() - 1).lastId();
+    }
+
+    private List<Block> loadIndex(Long roomId) {
+        Path roomDir = baseDir.resolve("room-" + roomId);
+        if (!Files.isDirectory(roomDir)) return List.of();
+
+        List<Block> blocks = new ArrayList<>();
+        try (Stream<Path> files = Files.list(roomDir)) {
+            for (Path idx : files.filter(p -> p.toString().endsWith(".idx")).toList()) {
+                Path segment = Paths.get(idx.toString().replace(".idx", ".seg"));
+                if (!Files.exists(segment)) continue;
+                ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(idx));
+                while (buf.remaining() >= INDEX_ENTRY_BYTES) {
+                    blocks.add(new Block(segment, buf.getLong(), buf.getLong(), buf.getLong(), buf.getInt(), buf.getInt()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load archive index for room " + roomId, e);
+        }
+        blocks.sort((a, b) -> Long.compare(a.firstId(), b.firstId()));
+        return Collections.unmodifiableList(blocks);
+    }
+
+    private List<ChatMessage> readBlock(Long roomId, Block block) {
+        MappedByteBuffer mapped;
+        synchronized (mappedSegments) {
+            mapped = mappedSegments.computeIfAbsent(block.segment(), this::map);
+        }
+        byte[] compressed = new byte[block.length()];
+        mapped.slice((int) block.offset(), block.length()).get(compressed);
+        return decode(roomId, inflate(compressed), block.count());
+    }
+
+    private MappedByteBuffer map(Path segment) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map archive segment " + segment, e);
+        }
+    }
+
+    private void writeDurably(Path target, byte[] bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Bản ghi: id, seq, senderId, recipientId (-1 = null), timestamp(ms), type, content
+    private byte[] encode(List<ChatMessage> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (ChatMessage m : messages) {
+            out.writeLong(m.getId());
+            out.writeLong(m.getSeq() != null ? m.getSeq() : -1L);
+            out.writeLong(m.getSenderId() != null ? m.getSenderId() : -1L);
+            out.writeLong(m.getRecipientId() != null ? m.getRecipientId() : -1L);
+            out.writeLong(m.getTimestamp() != null ? m.getTimestamp().getTime() : 0L);
+            out.writeUTF(m.getType() != null ? m.getType().name() : ChatMessage.MessageType.CHAT.name());
+            byte[] content = m.getContent() != null ? m.getContent().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            out.writeInt(content.length);
+            out.write(content);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private List<ChatMessage> decode(Long roomId, byte[] raw, int count) {
+        List<ChatMessage> messages = new ArrayList<>(count);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < count; i++) {
+                ChatMessage m = new ChatMessage();
+                m.setId(in.readLong());
+                long seq = in.readLong();
+                long senderId = in.readLong();
+                long recipientId = in.readLong();
+                m.setSeq(seq >= 0 ? seq : null);
+                m.setSenderId(senderId >= 0 ? senderId : null);
+                m.setRecipientId(recipientId >= 0 ? recipientId : null);
+                m.setTimestamp(new Date(in.readLong()));
+                m.setType(ChatMessage.MessageType.valueOf(in.readUTF()));
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                m.setContent(new String(content, StandardCharsets.UTF_8));
+                m.setRoomId(roomId);
+                m.setChatId("ROOM_" + roomId);
+                messages.add(m);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupted archive block in room " + roomId, e);
+        }
+        return messages;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
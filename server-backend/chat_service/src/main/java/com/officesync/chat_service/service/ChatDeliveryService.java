@@ -0,0 +1,247 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.config.ChatDeliveryLanes;
+import com.officesync.chat_service.config.RabbitMQConfig;
+import com.officesync.chat_service.dto.ChatMessageDTO;
+import com.officesync.chat_service.dto.ChatMessageSavedEvent;
+import com.officesync.chat_service.dto.NotificationEvent;
+import com.officesync.chat_service.model.ChatMessage;
+import com.officesync.chat_service.model.ChatRoom;
+import com.officesync.chat_service.model.ChatUser;
+import com.officesync.chat_service.model.RoomMember;
+import com.officesync.chat_service.repository.ChatRoomRepository;
+import com.officesync.chat_service.repository.ChatUserRepository;
+import com.officesync.chat_service.repository.RoomMemberRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Pipeline phát tin: chạy SAU KHI COMMIT, trên chatDeliveryLanes (không chiếm thread inbound STOMP).
+// Tin của cùng 1 phòng luôn đi chung 1 làn -> broadcast đúng thứ tự commit.
+// [SỬA] Xếp chỗ trong làn ngay trong transaction của saveMessage, lúc còn giữ khóa dòng phòng (incrementSeq):
+// tin seq N+1 chỉ xếp chỗ được sau khi tin seq N đã commit -> thứ tự trong làn = thứ tự seq.
+// (Trước đây xếp chỗ ở afterCommit: 2 transaction commit N, N+1 nhưng afterCommit có thể chạy N+1 trước.)
+// Tác vụ trong làn chờ transaction của nó kết thúc: commit thì phát, rollback thì bỏ.
+// Nhiều instance: mỗi instance chỉ giữ thứ tự các tin nó ghi -> Client vẫn chèn tin theo seq.
+//  1. Cập nhật phòng (updatedAt, tin cuối)
+//  2. Broadcast /topic/room/{id} + /user/{email}/queue/notifications
+//  3. Tăng unread counter
+//  4. Push cho người Offline (notification_service)
+@Service
+@Slf4j
+public class ChatDeliveryService {
+
+    // Số người nhận tối đa trong 1 NotificationEvent gửi sang notification_service
+    private static final int MAX_RECIPIENTS_PER_EVENT = 500;
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final RoomMemberRepository roomMemberRepository;
+    private final ChatUserRepository chatUserRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final PresenceService presenceService;
+    private final ChatDeliveryLanes chatDeliveryLanes;
+
+    private final long commitWaitMs;
+
+    private final Timer lagTimer;
+    private final Timer deliveryTimer;
+    private final Counter failedCounter;
+
+    public ChatDeliveryService(ChatRoomRepository chatRoomRepository,
+                               RoomMemberRepository roomMemberRepository,
+                               ChatUserRepository chatUserRepository,
+                               SimpMessagingTemplate messagingTemplate,
+                               RabbitTemplate rabbitTemplate,
+                               UnreadCounterService unreadCounterService,
+                               PresenceService presenceService,
+                               ChatDeliveryLanes chatDeliveryLanes,
+                               MeterRegistry meterRegistry,
+                               @Value("${chat.delivery.commit-wait-ms:5000}") long commitWaitMs) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.roomMemberRepository = roomMemberRepository;
+        this.chatUserRepository = chatUserRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.presenceService = presenceService;
+        this.chatDeliveryLanes = chatDeliveryLanes;
+        this.commitWaitMs = Math.max(1, commitWaitMs);
+        this.lagTimer = Timer.builder("chat.delivery.lag")
+                .description("Thời gian từ lúc commit tin nhắn đến lúc bắt đầu phát")
+                .register(meterRegistry);
+        this.deliveryTimer = Timer.builder("chat.delivery.duration").register(meterRegistry);
+        this.failedCounter = Counter.builder("chat.delivery.failed").register(meterRegistry);
+    }
+
+    // Chạy đồng bộ trong saveMessage (chưa commit). Làn đầy -> chờ ở đây, tức là chờ trong lúc giữ khóa phòng:
+    // chỉ chặn các tin khác của CÙNG phòng, đúng tinh thần "phanh" client gửi quá nhanh.
+    @EventListener
+    public void onMessageSaved(ChatMessageSavedEvent event) {
+        Long roomId = event.getMessage().getRoomId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            long now = System.nanoTime();
+            chatDeliveryLanes.execute(roomId, () -> deliver(event, now));
+            return;
+        }
+        // Mốc đo lag lấy ngay sau commit (không tính thời gian transaction); null = rollback
+        CompletableFuture<Long> committedAt = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                committedAt.complete(status == STATUS_COMMITTED ? System.nanoTime() : null);
+            }
+        });
+        chatDeliveryLanes.execute(roomId, () -> deliverWhenCommitted(event, committedAt));
+    }
+
+    private void deliverWhenCommitted(ChatMessageSavedEvent event, CompletableFuture<Long> committedAt) {
+        Long committedAtNanos;
+        try {
+            committedAtNanos = committedAt.get(commitWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Transaction treo lâu bất thường: không giữ cả làn, phát khi nó xong (có thể lệch thứ tự, Client sắp theo seq)
+            log.warn("⚠️ Tin nhắn phòng {} chưa commit sau {} ms, phát sau khi commit", event.getMessage().getRoomId(), commitWaitMs);
+            committedAt.thenAccept(at -> {
+                if (at != null) chatDeliveryLanes.execute(event.getMessage().getRoomId(), () -> deliver(event, at));
+            });
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            return;
+        }
+        if (committedAtNanos != null) {
+            deliver(event, committedAtNanos);
+        }
+    }
+
+    private void deliver(ChatMessageSavedEvent event, long committedAtNanos) {
+        lagTimer.record(System.nanoTime() - committedAtNanos, TimeUnit.NANOSECONDS);
+        long start = System.nanoTime();
+        ChatMessage msg = event.getMessage();
+        try {
+            // 1. Room touch-up (chỉ tiến lên, an toàn khi 2 tin phát lệch thứ tự)
+            chatRoomRepository.touchLastMessage(msg.getRoomId(), msg.getId(),
+                    LocalDateTime.ofInstant(msg.getTimestamp().toInstant(), ZoneId.systemDefault()),
+                    LocalDateTime.now());
+
+            ChatRoom room = chatRoomRepository.findById(msg.getRoomId()).orElse(null);
+            ChatUser sender = chatUserRepository.findById(event.getSenderId()).orElse(null);
+            String senderName = (sender != null) ? sender.getFullName() : "Someone";
+
+            List<Long> recipientIds = roomMemberRepository.findByChatRoomId(msg.getRoomId()).stream()
+                    .map(RoomMember::getUserId)
+                    .filter(id -> !id.equals(event.getSenderId())) // Không gửi cho chính mình
+                    .toList();
+
+            // 2. Broadcast
+            broadcast(msg, senderName, recipientIds);
+
+            // 3. Unread counters
+            unreadCounterService.increment(msg.getRoomId(), msg.getSeq(), recipientIds);
+
+            // 4. Push Offline
+            if (room != null) {
+                handleNotification(room, msg, senderName, recipientIds);
+            }
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("❌ Lỗi phát tin nhắn {}: ", msg.getId(), e);
+        } finally {
+            deliveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void broadcast(ChatMessage msg, String senderName, List<Long> recipientIds) {
+        ChatMessageDTO response = new ChatMessageDTO();
+        response.setId(msg.getId());
+        response.setSeq(msg.getSeq());
+        response.setContent(msg.getContent());
+        response.setSender(senderName); // Tên người gửi
+        // [QUAN TRỌNG] Format ngày tháng chuẩn ISO-8601 cho Flutter
+        response.setTimestamp(msg.getTimestamp().toInstant().toString());
+        response.setType(msg.getType());
+        response.setRoomId(msg.getRoomId());
+
+        // Topic chung của Phòng (Để hiện tin nhắn Real-time)
+        messagingTemplate.convertAndSend("/topic/room/" + msg.getRoomId(), response);
+
+        // Kênh riêng từng thành viên (Để update Sidebar) - email lấy bằng 1 query
+        for (ChatUser u : chatUserRepository.findAllById(recipientIds)) {
+            messagingTemplate.convertAndSendToUser(u.getEmail(), "/queue/notifications", response);
+        }
+    }
+
+    // --- NOTIFICATION HANDLING HELPER ---
+    private void handleNotification(ChatRoom room, ChatMessage msg, String senderName, List<Long> recipientIds) {
+        // Only offline users get a push (Socket already handled online ones) - 1 Redis MGET
+        Set<Long> onlineIds = presenceService.filterOnline(recipientIds);
+        List<Long> offlineIds = recipientIds.stream().filter(id -> !onlineIds.contains(id)).toList();
+        if (offlineIds.isEmpty()) {
+            log.info("⏩ All recipients of room {} are Online. Notification skipped.", room.getId());
+            return;
+        }
+
+        // SCENARIO 1: PRIVATE CHAT (1-1)
+        if (room.getType() == ChatRoom.RoomType.PRIVATE) {
+            publishNotification(offlineIds, senderName, msg.getContent(), room.getId());
+        }
+        // SCENARIO 2: GROUP CHAT (GROUP / DEPARTMENT)
+        else {
+            // Body format: "Alice: Hello everyone"
+            publishNotification(offlineIds, room.getRoomName(), senderName + ": " + msg.getContent(), room.getId());
+        }
+    }
+
+    // --- SEND ONE MULTI-RECIPIENT EVENT TO RABBITMQ (chunked) ---
+    private void publishNotification(List<Long> userIds, String title, String body, Long roomId) {
+        // Truncate body if too long
+        String shortBody = body.length() > 100 ? body.substring(0, 97) + "..." : body;
+
+        for (int i = 0; i < userIds.size(); i += MAX_RECIPIENTS_PER_EVENT) {
+            List<Long> chunk = userIds.subList(i, Math.min(i + MAX_RECIPIENTS_PER_EVENT, userIds.size()));
+            try {
+                NotificationEvent event = new NotificationEvent();
+                if (chunk.size() == 1) {
+                    event.setUserId(chunk.get(0)); // 1-1: keep the single-recipient format
+                } else {
+                    event.setUserIds(new ArrayList<>(chunk));
+                }
+                event.setTitle(title);
+                event.setBody(shortBody);
+                event.setType("CHAT");
+                event.setReferenceId(roomId);
+
+                rabbitTemplate.convertAndSend(
+                        RabbitMQConfig.NOTIFICATION_EXCHANGE,
+                        RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
+                        event
+                );
+                log.info("🚀 Notification Event sent to {} user(s) of room {}", chunk.size(), roomId);
+            } catch (Exception e) {
+                log.error("Error sending notification to RabbitMQ: ", e);
+            }
+        }
+    }
+}
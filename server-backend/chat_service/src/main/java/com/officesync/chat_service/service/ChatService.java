@@ -1,11 +1,14 @@
 package com.officesync.chat_service.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper; 
-import com.officesync.chat_service.config.RabbitMQConfig; 
 import com.officesync.chat_service.dto.ChatMessageDTO;
+import com.officesync.chat_service.dto.ChatMessageSavedEvent;
 import com.officesync.chat_service.dto.CreateGroupRequest;
-import com.officesync.chat_service.dto.NotificationEvent; 
+import com.officesync.chat_service.dto.MessagePageDTO;
+import com.officesync.chat_service.dto.ReadReceiptDTO;
 import com.officesync.chat_service.dto.RoomDetailDTO;
+import com.officesync.chat_service.dto.RoomSummaryDTO;
+import com.officesync.chat_service.dto.SyncResponseDTO;
 import com.officesync.chat_service.model.ChatMessage;
 import com.officesync.chat_service.model.ChatRoom;
 import com.officesync.chat_service.model.ChatUser;
@@ -16,7 +19,7 @@ import com.officesync.chat_service.repository.ChatUserRepository;
 import com.officesync.chat_service.repository.RoomMemberRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate; 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.PageRequest;
@@ -24,24 +27,36 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatService {
 
+    // Giới hạn kích thước trang lịch sử chat
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Số tin tối đa trả về cho mỗi phòng trong 1 lần sync
+    public static final int SYNC_PAGE_SIZE = 100;
+
     private final ChatMessageRepository messageRepository;
     private final ChatUserRepository chatUserRepository;
     private final ChatRoomRepository chatRoomRepository;
     private final RoomMemberRepository roomMemberRepository;
     private final SimpMessagingTemplate messagingTemplate;
-    // [NEW] Inject RabbitMQ template and ObjectMapper
-    private final RabbitTemplate rabbitTemplate;
+    // [NEW] Inject ObjectMapper
     private final ObjectMapper objectMapper;
+    private final UnreadCounterService unreadCounterService;
+    private final PresenceService presenceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrivateRoomResolver privateRoomResolver;
+    private final ChatArchiveStore archiveStore;
   
 
     @Transactional
@@ -59,14 +74,14 @@ public class ChatService {
         }
 
         Long finalRoomId = dto.getRoomId();
+        Long recipientId = null;
 
         // Logic: Find/Create Private Room if roomId is missing (Backward compatibility)
         if (finalRoomId == null && dto.getRecipientId() != null) {
             try {
-                Long recipientId = Long.parseLong(dto.getRecipientId());
+                recipientId = Long.parseLong(dto.getRecipientId());
                 message.setRecipientId(recipientId); 
-                ChatRoom privateRoom = getOrCreatePrivateRoom(senderId, recipientId);
-                finalRoomId = privateRoom.getId();
+                finalRoomId = privateRoomResolver.getOrCreateRoomId(senderId, recipientId);
             } catch (NumberFormatException e) {
                 // Ignore
             }
@@ -76,105 +91,36 @@ public class ChatService {
             throw new RuntimeException("Missing valid roomId or recipientId");
         }
 
+        // [MỚI] Cấp seq tiếp theo của phòng (khóa dòng phòng tới khi commit -> không trùng/hổng seq)
+        if (recipientId == null) {
+            chatRoomRepository.incrementSeq(finalRoomId);
+        } else {
+            // [SỬA] roomId 1-1 có thể lấy từ cache của phòng đã có người rời (pair_key đã nhả) -> tra/tạo lại 1 lần
+            String pairKey = ChatRoom.pairKeyOf(senderId, recipientId);
+            if (chatRoomRepository.incrementSeqForPair(finalRoomId, pairKey) == 0) {
+                privateRoomResolver.evict(pairKey);
+                finalRoomId = privateRoomResolver.getOrCreateRoomId(senderId, recipientId);
+                if (chatRoomRepository.incrementSeqForPair(finalRoomId, pairKey) == 0) {
+                    throw new RuntimeException("Private room changed while sending: " + pairKey);
+                }
+            }
+        }
         message.setRoomId(finalRoomId);
+        message.setSeq(chatRoomRepository.findLastSeq(finalRoomId));
         if (message.getChatId() == null) {
             message.setChatId("ROOM_" + finalRoomId);
         }
 
-        // Update Room's 'updatedAt' timestamp
-        ChatRoom room = chatRoomRepository.findById(finalRoomId).orElse(null);
-        if (room != null) {
-            room.setUpdatedAt(LocalDateTime.now());
-            chatRoomRepository.save(room);
-        }
-
         ChatMessage savedMsg = messageRepository.save(message);
 
-        // --- 2. [NEW] SEND NOTIFICATION LOGIC ---
-        // Can be executed asynchronously. Here we execute synchronously for data integrity.
-        try {
-            handleNotification(senderId, room, savedMsg);
-        } catch (Exception e) {
-            log.error("❌ Error sending RabbitMQ notification: {}", e.getMessage());
-            // Do not throw exception to avoid rolling back the saved message
-        }
+        // --- 2. DELIVERY (room touch-up, broadcast, unread, offline push) ---
+        // Runs AFTER COMMIT on the delivery executor (see ChatDeliveryService), not on the STOMP inbound thread.
+        // Queued here while the room row is still locked -> the room's lane keeps seq order
+        eventPublisher.publishEvent(new ChatMessageSavedEvent(savedMsg, senderId));
 
         return savedMsg;
     }
 
-    // --- NOTIFICATION HANDLING HELPER ---
-    private void handleNotification(Long senderId, ChatRoom room, ChatMessage msg) {
-        if (room == null) return;
-
-        // Get Sender Name
-        ChatUser sender = chatUserRepository.findById(senderId).orElse(null);
-        String senderName = (sender != null) ? sender.getFullName() : "Someone";
-
-        // SCENARIO 1: PRIVATE CHAT (1-1)
-        if (room.getType() == ChatRoom.RoomType.PRIVATE) {
-            // Find the other member in the room
-            List<RoomMember> members = roomMemberRepository.findByChatRoomId(room.getId());
-            for (RoomMember m : members) {
-                if (!m.getUserId().equals(senderId)) { // Do not send to self
-                    sendNotificationIfOffline(m.getUserId(), senderName, msg.getContent(), room.getId());
-                }
-            }
-        }
-        // SCENARIO 2: GROUP CHAT (GROUP / DEPARTMENT)
-        else {
-            String groupTitle = room.getRoomName(); 
-            // Body format: "Alice: Hello everyone"
-            String groupBody = senderName + ": " + msg.getContent(); 
-            
-            List<RoomMember> members = roomMemberRepository.findByChatRoomId(room.getId());
-            for (RoomMember m : members) {
-                if (!m.getUserId().equals(senderId)) {
-                    sendNotificationIfOffline(m.getUserId(), groupTitle, groupBody, room.getId());
-                }
-            }
-        }
-    }
-
-    // --- CHECK ONLINE STATUS & SEND TO RABBITMQ ---
-    private void sendNotificationIfOffline(Long userId, String title, String body, Long roomId) {
-        // 1. Check Online Status
-        Optional<ChatUser> userOpt = chatUserRepository.findById(userId);
-        if (userOpt.isPresent()) {
-            ChatUser user = userOpt.get();
-            
-            // If Online -> SKIP (Socket already handled it)
-            if (user.isOnline()) {
-                log.info("⏩ User {} is Online. Notification skipped.", user.getFullName());
-                return;
-            }
-        }
-
-        // 2. If Offline -> Send Event to Notification Service
-        try {
-            NotificationEvent event = new NotificationEvent();
-            event.setUserId(userId);
-            event.setTitle(title);
-            // Truncate body if too long
-            event.setBody(body.length() > 100 ? body.substring(0, 97) + "..." : body);
-            event.setType("CHAT");
-            event.setReferenceId(roomId);
-
-            // Convert Object to JSON String
-            String jsonMessage = objectMapper.writeValueAsString(event);
-
-          rabbitTemplate.convertAndSend(
-    RabbitMQConfig.NOTIFICATION_EXCHANGE,
-    RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
-    event 
-);
-
-            log.info("🚀 Notification Event sent to User ID: {}", userId);
-
-        } catch (Exception e) {
-            log.error("Error packing JSON for RabbitMQ: ", e);
-        }
-    }
-
     // --- EXISTING METHODS (UNCHANGED) ---
     @Transactional
     public ChatRoom createGroupChat(Long creatorId, CreateGroupRequest request) {
@@ -206,89 +152,189 @@ public class ChatService {
         return room;
     }
 
-    public List<ChatRoom> getMyRooms(Long userId) {
-        List<RoomMember> memberships = roomMemberRepository.findByUserId(userId);
-        List<ChatRoom> rooms = new ArrayList<>();
-        
-        for (RoomMember m : memberships) {
-            ChatRoom room = m.getChatRoom();
-            if (room.getType() == ChatRoom.RoomType.PRIVATE) {
-                List<RoomMember> members = roomMemberRepository.findByChatRoomId(room.getId());
-                for (RoomMember member : members) {
-                    if (!member.getUserId().equals(userId)) {
-                        chatUserRepository.findById(member.getUserId()).ifPresent(u -> {
-                            room.setRoomName(u.getFullName());
-                            room.setRoomAvatarUrl(u.getAvatarUrl());
-                        });
-                        break;
-                    }
-                }
+    public List<RoomSummaryDTO> getMyRooms(Long userId) {
+        // 1 query duy nhất: phòng + tin cuối + đối phương (chat 1-1), cộng 1 lệnh Redis cho badge
+        Map<Long, Long> unreadCounts = unreadCounterService.getUnreadCounts(userId);
+        List<RoomSummaryDTO> rooms = new ArrayList<>();
+        for (Object[] row : chatRoomRepository.findSidebarRows(userId)) {
+            ChatRoom room = (ChatRoom) row[0];
+            ChatMessage lastMsg = (ChatMessage) row[1];
+            ChatUser partner = (ChatUser) row[2];
+            RoomMember me = (RoomMember) row[3];
+
+            RoomSummaryDTO.RoomSummaryDTOBuilder summary = RoomSummaryDTO.builder()
+                    .id(room.getId())
+                    .roomName(room.getRoomName())
+                    .type(room.getType())
+                    .roomAvatarUrl(room.getRoomAvatarUrl())
+                    .adminId(room.getAdminId())
+                    .departmentId(room.getDepartmentId())
+                    .createdAt(room.getCreatedAt())
+                    .updatedAt(room.getUpdatedAt())
+                    .lastMessageId(room.getLastMessageId())
+                    .lastMessageAt(room.getLastMessageAt())
+                    .unreadCount(unreadCounts.getOrDefault(room.getId(), 0L))
+                    .lastReadMessageId(me.getLastReadMessageId());
+
+            if (partner != null) {
+                summary.roomName(partner.getFullName()).roomAvatarUrl(partner.getAvatarUrl());
+            }
+            if (lastMsg != null) {
+                summary.lastMessageContent(lastMsg.getContent()).lastMessageSenderId(lastMsg.getSenderId());
             }
-            rooms.add(room);
+            rooms.add(summary.build());
         }
-        rooms.sort((r1, r2) -> r2.getUpdatedAt().compareTo(r1.getUpdatedAt()));
         return rooms;
     }
     
     public List<ChatMessage> getChatHistory(Long myId, Long partnerId) {
-        Optional<ChatRoom> privateRoom = chatRoomRepository.findExistingPrivateRoom(myId, partnerId);
-        if (privateRoom.isPresent()) {
-            return messageRepository.findByRoomIdOrderByTimestampAsc(privateRoom.get().getId());
+        Optional<Long> privateRoomId = privateRoomResolver.findRoomId(myId, partnerId);
+        if (privateRoomId.isPresent()) {
+            // Chỉ trả về trang mới nhất, phần cũ hơn lấy qua getMessagePage(before=...)
+            return getMessagePage(privateRoomId.get(), null, null, DEFAULT_PAGE_SIZE).getMessages();
         } else {
             return new ArrayList<>();
         }
     }
 
-   public List<ChatMessage> getRecentConversations(Long userId) {
-        // 1. Lấy danh sách ID các phòng mà user đang tham gia
-        List<RoomMember> memberships = roomMemberRepository.findByUserId(userId);
-        List<ChatMessage> recentMessages = new ArrayList<>();
+    // Lịch sử chat phân trang keyset: before = cuộn lên tin cũ, after = lấy tin mới hơn con trỏ.
+    // Không truyền con trỏ -> trang mới nhất.
+    // [SỬA] Tin cũ đã chuyển sang kho lạnh được đọc nối tiếp từ ChatArchiveStore, Client không cần biết.
+    public MessagePageDTO getMessagePage(Long roomId, Long beforeId, Long afterId, Integer limit) {
+        int size = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        // Lấy dư 1 bản ghi để biết còn trang sau hay không
+        int fetch = size + 1;
+        PageRequest page = PageRequest.of(0, fetch);
+        Long archivedUpTo = chatRoomRepository.findArchivedUpToId(roomId);
+
+        List<ChatMessage> rows;
+        boolean ascending = false;
+        if (afterId != null) {
+            ascending = true;
+            if (archivedUpTo != null && afterId <= archivedUpTo) {
+                // Con trỏ nằm trong kho lạnh: đọc kho trước, thiếu thì nối sang bảng nóng
+                rows = new ArrayList<>(archiveStore.readAfter(roomId, archivedUpTo, afterId, fetch));
+                if (rows.size() < fetch) {
+                    rows.addAll(messageRepository.findByRoomIdAndIdGreaterThanOrderByIdAsc(
+                            roomId, archivedUpTo, PageRequest.of(0, fetch - rows.size())));
+                }
+            } else {
+                ChatMessage cursor = findCursor(roomId, afterId);
+                rows = messageRepository.findPageAfter(roomId, cursor.getTimestamp(), cursor.getId(), page);
+            }
+        } else {
+            if (beforeId != null && archivedUpTo != null && beforeId <= archivedUpTo) {
+                rows = new ArrayList<>(); // Con trỏ đã ở trong kho lạnh
+            } else if (beforeId != null) {
+                ChatMessage cursor = findCursor(roomId, beforeId);
+                rows = new ArrayList<>(messageRepository.findPageBefore(roomId, cursor.getTimestamp(), cursor.getId(), page));
+            } else {
+                rows = new ArrayList<>(messageRepository.findLatestPage(roomId, page));
+            }
+            // Hết tin trong bảng nóng -> đọc tiếp phần cũ hơn từ kho lạnh
+            if (rows.size() < fetch && archivedUpTo != null) {
+                Long coldBefore = (beforeId != null && beforeId <= archivedUpTo) ? beforeId : null;
+                rows.addAll(archiveStore.readBefore(roomId, archivedUpTo, coldBefore, fetch - rows.size()));
+            }
+        }
 
-        for (RoomMember member : memberships) {
-            ChatRoom room = member.getChatRoom();
-            
-            // 2. Với mỗi phòng, lấy đúng 1 tin nhắn mới nhất
-            List<ChatMessage> lastMsgs = messageRepository.findByRoomIdOrderByTimestampDesc(
-                room.getId(), 
-                PageRequest.of(0, 1) // Limit 1
-            );
+        boolean hasMore = rows.size() > size;
+        List<ChatMessage> messages = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        if (!ascending) {
+            Collections.reverse(messages); // Trả về theo thứ tự cũ -> mới cho Client
+        }
 
-            if (!lastMsgs.isEmpty()) {
-                ChatMessage lastMsg = lastMsgs.get(0);
-                
-                // 3. Xử lý hiển thị tên/avatar (cho Frontend đỡ phải gọi lại API)
-                if (room.getType() == ChatRoom.RoomType.PRIVATE) {
-                    // Chat 1-1: Tìm người kia để lấy tên & avatar
-                    populatePrivateChatInfo(lastMsg, room, userId);
-                } else {
-                    // Chat Nhóm: Lấy tên nhóm & avatar nhóm
-                    lastMsg.setSenderName(room.getRoomName());
-                    lastMsg.setAvatarUrl(room.getRoomAvatarUrl());
+        Long nextCursor = null;
+        if (!messages.isEmpty()) {
+            nextCursor = ascending ? messages.get(messages.size() - 1).getId() : messages.get(0).getId();
+        }
+        return new MessagePageDTO(messages, hasMore, nextCursor);
+    }
+
+    // [MỚI] Bù tin sau reconnect: so seq Client đã có với seq mới nhất của từng phòng,
+    // chỉ query tin nhắn cho những phòng bị thiếu (1 query danh sách phòng + 1 query/phòng có khoảng hổng)
+    @Transactional(readOnly = true)
+    public SyncResponseDTO syncMissed(Long userId, Map<Long, Long> knownSeqs) {
+        Map<Long, Long> clientSeqs = knownSeqs != null ? knownSeqs : Map.of();
+        List<SyncResponseDTO.RoomDelta> deltas = new ArrayList<>();
+
+        for (Object[] row : roomMemberRepository.findRoomSeqsByUserId(userId)) {
+            Long roomId = (Long) row[0];
+            long serverSeq = row[1] != null ? (Long) row[1] : 0L;
+            Long archivedSeq = (Long) row[2];
+            Long clientSeq = clientSeqs.get(roomId);
+
+            if (clientSeq == null || clientSeq > serverSeq) {
+                // Phòng mới (hoặc Client giữ seq không hợp lệ): chỉ báo seq, Client tự tải khi mở phòng
+                if (serverSeq > 0 || clientSeq != null) {
+                    deltas.add(new SyncResponseDTO.RoomDelta(roomId, serverSeq, List.of(), serverSeq > 0, true));
                 }
-                
-                recentMessages.add(lastMsg);
+                continue;
+            }
+            if (serverSeq == clientSeq) continue; // Không thiếu gì
+
+            // [SỬA] Phần thiếu đã sang kho lạnh -> không bù từng tin được, Client tải lại trang mới nhất
+            if (archivedSeq != null && clientSeq < archivedSeq) {
+                deltas.add(new SyncResponseDTO.RoomDelta(roomId, serverSeq, List.of(), true, true));
+                continue;
             }
+            List<ChatMessage> rows = messageRepository.findAfterSeq(roomId, clientSeq, PageRequest.of(0, SYNC_PAGE_SIZE + 1));
+            if (rows.isEmpty() || rows.get(0).getSeq() != clientSeq + 1) {
+                // Bảng nóng không còn liền mạch sau clientSeq (vd: lô lưu trữ chưa kịp ghi mốc seq) -> không trả delta hổng
+                deltas.add(new SyncResponseDTO.RoomDelta(roomId, serverSeq, List.of(), true, true));
+                continue;
+            }
+            boolean hasMore = rows.size() > SYNC_PAGE_SIZE;
+            List<ChatMessage> missed = hasMore ? new ArrayList<>(rows.subList(0, SYNC_PAGE_SIZE)) : rows;
+            deltas.add(new SyncResponseDTO.RoomDelta(roomId, serverSeq, missed, hasMore, false));
         }
+        return new SyncResponseDTO(deltas);
+    }
 
-        // 4. Sắp xếp lại danh sách: Tin nào mới nhất nhảy lên đầu
-        recentMessages.sort((m1, m2) -> m2.getTimestamp().compareTo(m1.getTimestamp()));
+    public boolean isRoomMember(Long roomId, Long userId) {
+        return roomMemberRepository.existsByChatRoomIdAndUserId(roomId, userId);
+    }
 
-        return recentMessages;
+    private ChatMessage findCursor(Long roomId, Long messageId) {
+        ChatMessage cursor = messageRepository.findById(messageId)
+                .orElseThrow(() -> new RuntimeException("Cursor message not found: " + messageId));
+        if (!roomId.equals(cursor.getRoomId())) {
+            throw new RuntimeException("Cursor message does not belong to room " + roomId);
+        }
+        return cursor;
     }
 
-    // Hàm phụ trợ: Lấy thông tin đối phương trong phòng 1-1
-    private void populatePrivateChatInfo(ChatMessage msg, ChatRoom room, Long myId) {
-        List<RoomMember> members = roomMemberRepository.findByChatRoomId(room.getId());
-        for (RoomMember m : members) {
-            // Logic: Người kia chính là người KHÔNG PHẢI LÀ TÔI trong phòng này
-            if (!m.getUserId().equals(myId)) {
-                chatUserRepository.findById(m.getUserId()).ifPresent(user -> {
-                    msg.setSenderName(user.getFullName());
-                    msg.setAvatarUrl(user.getAvatarUrl());
-                });
-                break; 
+   public List<ChatMessage> getRecentConversations(Long userId) {
+        // Dùng chung projection với getMyRooms: 1 query cho cả Sidebar
+        List<ChatMessage> recentMessages = new ArrayList<>();
+
+        for (Object[] row : chatRoomRepository.findSidebarRows(userId)) {
+            ChatRoom room = (ChatRoom) row[0];
+            ChatMessage lastMsg = (ChatMessage) row[1];
+            ChatUser partner = (ChatUser) row[2];
+
+            // Phòng chưa có tin nhắn thì không hiện
+            if (lastMsg == null) continue;
+
+            // Xử lý hiển thị tên/avatar (cho Frontend đỡ phải gọi lại API)
+            if (room.getType() == ChatRoom.RoomType.PRIVATE) {
+                // Chat 1-1: tên & avatar của người kia
+                if (partner != null) {
+                    lastMsg.setSenderName(partner.getFullName());
+                    lastMsg.setAvatarUrl(partner.getAvatarUrl());
+                }
+            } else {
+                // Chat Nhóm: Lấy tên nhóm & avatar nhóm
+                lastMsg.setSenderName(room.getRoomName());
+                lastMsg.setAvatarUrl(room.getRoomAvatarUrl());
             }
+            recentMessages.add(lastMsg);
         }
+
+        // Sắp xếp lại danh sách: Tin nào mới nhất nhảy lên đầu
+        recentMessages.sort((m1, m2) -> m2.getTimestamp().compareTo(m1.getTimestamp()));
+
+        return recentMessages;
     }
 
    // 1. TẠO PHÒNG
@@ -377,22 +423,18 @@ public class ChatService {
             }
         });
     }
+    // [SỬA] Tra theo khóa cặp + tạo an toàn khi chạy đồng thời (xem PrivateRoomResolver)
     public ChatRoom getOrCreatePrivateRoom(Long user1Id, Long user2Id) {
-        Optional<ChatRoom> existingRoom = chatRoomRepository.findExistingPrivateRoom(user1Id, user2Id);
-        if (existingRoom.isPresent()) {
-            return existingRoom.get();
+        Long roomId = privateRoomResolver.getOrCreateRoomId(user1Id, user2Id);
+        ChatRoom room = chatRoomRepository.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found"));
+        if (!ChatRoom.pairKeyOf(user1Id, user2Id).equals(room.getPairKey())) {
+            // Cache trỏ vào phòng đã có người rời -> tra/tạo lại
+            privateRoomResolver.evict(user1Id, user2Id);
+            room = chatRoomRepository.findById(privateRoomResolver.getOrCreateRoomId(user1Id, user2Id))
+                    .orElseThrow(() -> new RuntimeException("Room not found"));
         }
-        ChatRoom newRoom = ChatRoom.builder()
-                .type(ChatRoom.RoomType.PRIVATE)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-        newRoom = chatRoomRepository.save(newRoom);
-
-        addMemberToRoom(newRoom, user1Id, RoomMember.GroupRole.MEMBER);
-        addMemberToRoom(newRoom, user2Id, RoomMember.GroupRole.MEMBER);
-
-        return newRoom;
+        return room;
     }
 
     private void addMemberToRoom(ChatRoom room, Long userId, RoomMember.GroupRole role) {
@@ -414,6 +456,7 @@ public class ChatService {
                 .orElseThrow(() -> new RuntimeException("Room not found"));
 
         List<RoomMember> members = roomMemberRepository.findByChatRoomId(roomId);
+        Set<Long> onlineIds = presenceService.filterOnline(members.stream().map(RoomMember::getUserId).toList());
         
         List<RoomDetailDTO.MemberDTO> memberDTOs = new ArrayList<>();
         for (RoomMember m : members) {
@@ -424,7 +467,7 @@ public class ChatService {
                     u.getEmail(),
                     u.getAvatarUrl(),
                     m.getRole().toString(),
-                    u.isOnline()
+                    onlineIds.contains(u.getId())
                 ));
             });
         }
@@ -438,11 +481,68 @@ public class ChatService {
             memberDTOs
         );
     }
+    // [MỚI] Đánh dấu đã đọc tới messageId (null = tin cuối của phòng). Trả về receipt thực tế đã ghi nhận.
+    // [SỬA] messageId phải thuộc roomId; badge = số tin người khác gửi SAU messageId (không reset thẳng về 0).
+    // [SỬA] Tính theo seq: Client gửi kèm seq thì không tra lại tin; không có seq (client cũ) thì tra bảng nóng,
+    // tin đã chuyển sang kho lạnh thì tra trong ChatArchiveStore.
+    @Transactional
+    public ReadReceiptDTO markAsRead(Long userId, Long roomId, Long messageId, Long seq) {
+        ChatRoom room = chatRoomRepository.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found"));
+        Long readUpTo = messageId;
+        Long readSeq = seq;
+        if (readUpTo == null) {
+            readUpTo = room.getLastMessageId();
+            readSeq = room.getLastSeq();
+        }
+        if (readUpTo == null) return null;
+
+        if (readSeq != null) {
+            // Không đọc quá tin cuối của phòng (id và seq đều chỉ tăng)
+            if (room.getLastMessageId() == null || readUpTo > room.getLastMessageId()) {
+                throw new RuntimeException("Message does not belong to room " + roomId);
+            }
+            readSeq = Math.min(readSeq, room.getLastSeq() != null ? room.getLastSeq() : 0L);
+        } else {
+            readSeq = findReadMessage(room, readUpTo).getSeq();
+        }
+
+        roomMemberRepository.advanceLastRead(roomId, userId, readUpTo);
+        if (readSeq != null) {
+            long readUpToSeq = readSeq;
+            unreadCounterService.markRead(userId, roomId, readUpToSeq,
+                    high -> messageRepository.countUnreadInSeqRange(roomId, userId, readUpToSeq, high));
+        } else {
+            unreadCounterService.reset(userId, roomId);
+        }
+        return new ReadReceiptDTO(roomId, readUpTo, userId, readSeq);
+    }
+
+    private ChatMessage findReadMessage(ChatRoom room, Long messageId) {
+        Optional<ChatMessage> hot = messageRepository.findById(messageId)
+                .filter(m -> room.getId().equals(m.getRoomId()));
+        if (hot.isPresent()) return hot.get();
+        Long archivedUpTo = room.getArchivedUpToId();
+        if (archivedUpTo != null && messageId <= archivedUpTo) {
+            Optional<ChatMessage> cold = archiveStore.find(room.getId(), archivedUpTo, messageId);
+            if (cold.isPresent()) return cold.get();
+        }
+        throw new RuntimeException("Message does not belong to room " + room.getId());
+    }
+
     @Transactional // Quan trọng: Phải có để thực hiện lệnh Delete
 public void leaveRoom(Long userId, Long roomId) {
     // 1. Kiểm tra xem user có trong phòng không (tùy chọn)
     // 2. Xóa user khỏi bảng room_members
     roomMemberRepository.deleteByChatRoomIdAndUserId(roomId, userId);
+    unreadCounterService.reset(userId, roomId);
+
+    // [SỬA] Rời phòng 1-1: nhả pair_key + bỏ khỏi cache -> lần nhắn sau giữa 2 người tạo phòng mới (như trước khi có pair_key).
+    // Instance khác còn cache cũ sẽ tự phát hiện ở saveMessage (incrementSeqForPair = 0).
+    String pairKey = chatRoomRepository.findById(roomId).map(ChatRoom::getPairKey).orElse(null);
+    if (pairKey != null && chatRoomRepository.releasePairKey(roomId) > 0) {
+        privateRoomResolver.evict(pairKey);
+    }
     
     // (Nâng cao: Nếu phòng không còn ai thì xóa luôn phòng - làm sau)
     log.info("User {} left room {}", userId, roomId);
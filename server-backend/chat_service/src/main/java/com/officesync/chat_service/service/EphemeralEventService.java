@@ -0,0 +1,98 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.dto.EphemeralEventDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// [MỚI] Sự kiện tạm thời trong phòng (typing, seen...) - đi thẳng qua broker, không chạm DB.
+//  - Giới hạn tần suất theo (phòng, user): vượt max-per-second trong 1 giây -> bỏ qua
+//  - Gộp (coalesce) theo (phòng, user): trong 1 cửa sổ flush chỉ phát sự kiện MỚI NHẤT
+//    (vd: TYPING rồi STOP_TYPING trong 250ms -> chỉ phát STOP_TYPING)
+//  - Chỉ thành viên phòng mới gửi được; quyền subscribe /topic/room/{id}/events kiểm tra ở WebSocketConfig (SUBSCRIBE)
+@Service
+@Slf4j
+public class EphemeralEventService {
+
+    public static final Set<String> ALLOWED_TYPES = Set.of("TYPING", "STOP_TYPING", "SEEN");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomMembershipCache membershipCache;
+    private final int maxPerSecond;
+
+    // (roomId:userId) -> sự kiện mới nhất chờ phát
+    private final Map<String, EphemeralEventDTO> pending = new ConcurrentHashMap<>();
+    // (roomId:userId) -> [giây hiện tại, số sự kiện trong giây đó]
+    private final Map<String, long[]> rateWindows = new ConcurrentHashMap<>();
+
+    // Scheduler riêng: không dùng chung thread @Scheduled với heartbeat/job lưu trữ
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("chat-ephemeral").daemon().factory());
+
+    public EphemeralEventService(SimpMessagingTemplate messagingTemplate,
+                                 RoomMembershipCache membershipCache,
+                                 @Value("${chat.ephemeral.flush-ms:250}") long flushMs,
+                                 @Value("${chat.ephemeral.max-per-second:5}") int maxPerSecond) {
+        this.messagingTemplate = messagingTemplate;
+        this.membershipCache = membershipCache;
+        this.maxPerSecond = maxPerSecond;
+        flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Trả về false nếu sự kiện bị bỏ (không hợp lệ, không phải thành viên, vượt tần suất)
+    public boolean submit(Long userId, EphemeralEventDTO event) {
+        if (event.getRoomId() == null || event.getType() == null || !ALLOWED_TYPES.contains(event.getType())) {
+            return false;
+        }
+        String key = event.getRoomId() + ":" + userId;
+        if (!allow(key)) return false;
+        if (!membershipCache.isMember(event.getRoomId(), userId)) return false;
+
+        pending.put(key, new EphemeralEventDTO(event.getRoomId(), userId, event.getType(), event.getMessageId()));
+        return true;
+    }
+
+    private boolean allow(String key) {
+        long second = System.currentTimeMillis() / 1000;
+        long[] window = rateWindows.compute(key, (k, w) -> {
+            if (w == null || w[0] != second) return new long[]{second, 1};
+            w[1]++;
+            return w;
+        });
+        return window[1] <= maxPerSecond;
+    }
+
+    private void flush() {
+        try {
+            Iterator<Map.Entry<String, EphemeralEventDTO>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, EphemeralEventDTO> entry = it.next();
+                // remove(key, value): nếu vừa có sự kiện mới hơn ghi đè thì để lần flush sau phát
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    EphemeralEventDTO event = entry.getValue();
+                    messagingTemplate.convertAndSend("/topic/room/" + event.getRoomId() + "/events", event);
+                }
+            }
+            // Dọn bộ đếm tần suất đã hết hạn
+            long second = System.currentTimeMillis() / 1000;
+            rateWindows.entrySet().removeIf(e -> e.getValue()[0] < second - 1);
+        } catch (Exception e) {
+            log.error("❌ Lỗi phát sự kiện tạm thời: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+}
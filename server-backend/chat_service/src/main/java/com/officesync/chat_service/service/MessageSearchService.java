@@ -0,0 +1,118 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.dto.MessageSearchPageDTO;
+import com.officesync.chat_service.dto.MessageSearchResultDTO;
+import com.officesync.chat_service.model.ChatUser;
+import com.officesync.chat_service.repository.ChatMessageRepository;
+import com.officesync.chat_service.repository.ChatUserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// [MỚI] Tìm kiếm tin nhắn trong các phòng của user (MySQL FULLTEXT + đoạn trích có đánh dấu từ khớp)
+// Lưu ý: chỉ tìm trong bảng nóng chat_messages. Bật kho lạnh (chat.archive.enabled) thì tin cũ hơn
+// chat.archive.older-than-days không còn tìm thấy (vẫn đọc được khi cuộn lịch sử phòng).
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 50;
+    // Kết quả xếp theo điểm -> phân trang bằng offset, giới hạn độ sâu để query luôn rẻ
+    public static final int MAX_OFFSET = 500;
+    public static final int MIN_QUERY_LENGTH = 2;
+    private static final int SNIPPET_RADIUS = 60;
+
+    private final ChatMessageRepository messageRepository;
+    private final ChatUserRepository chatUserRepository;
+
+    public MessageSearchPageDTO search(Long userId, String rawQuery, Long roomId, Integer offset, Integer limit) {
+        String query = rawQuery == null ? "" : rawQuery.trim();
+        if (query.length() < MIN_QUERY_LENGTH) {
+            throw new RuntimeException("Search query must have at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        int size = (limit == null || limit <= 0) ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int from = (offset == null || offset < 0) ? 0 : Math.min(offset, MAX_OFFSET);
+
+        // Lấy dư 1 dòng để biết còn trang sau
+        List<Object[]> rows = messageRepository.searchInUserRooms(userId, query, roomId, size + 1, from);
+        boolean hasMore = rows.size() > size && from + size < MAX_OFFSET;
+        if (rows.size() > size) rows = rows.subList(0, size);
+
+        // Tên người gửi lấy theo lô
+        Set<Long> senderIds = rows.stream().map(r -> toLong(r[3])).collect(Collectors.toSet());
+        Map<Long, ChatUser> senders = chatUserRepository.findAllById(senderIds).stream()
+                .collect(Collectors.toMap(ChatUser::getId, Function.identity()));
+
+        List<String> terms = Arrays.stream(query.toLowerCase(Locale.ROOT).split("\\s+"))
+                .filter(t -> !t.isBlank())
+                .toList();
+
+        List<MessageSearchResultDTO> results = new ArrayList<>();
+        for (Object[] r : rows) {
+            Long senderId = toLong(r[3]);
+            ChatUser sender = senders.get(senderId);
+            String content = r[4] != null ? r[4].toString() : "";
+            int[] window = snippetWindow(content, terms);
+            String snippet = (window[0] > 0 ? "…" : "") + content.substring(window[0], window[1])
+                    + (window[1] < content.length() ? "…" : "");
+            int shift = window[0] > 0 ? 1 - window[0] : 0; // Bù vị trí cho dấu "…" ở đầu
+
+            results.add(MessageSearchResultDTO.builder()
+                    .messageId(toLong(r[0]))
+                    .roomId(toLong(r[1]))
+                    .seq(toLong(r[2]))
+                    .senderId(senderId)
+                    .senderName(sender != null ? sender.getFullName() : null)
+                    .timestamp((Date) r[5])
+                    .snippet(snippet)
+                    .highlights(highlights(content, terms, window, shift))
+                    .score(r[6] != null ? ((Number) r[6]).doubleValue() : 0)
+                    .build());
+        }
+        return new MessageSearchPageDTO(results, hasMore, hasMore ? from + size : null);
+    }
+
+    // Cửa sổ [start, end) quanh vị trí khớp đầu tiên của bất kỳ từ khóa nào
+    private int[] snippetWindow(String content, List<String> terms) {
+        String lower = content.toLowerCase(Locale.ROOT);
+        int first = -1;
+        for (String term : terms) {
+            int idx = lower.indexOf(term);
+            if (idx >= 0 && (first < 0 || idx < first)) first = idx;
+        }
+        if (first < 0) first = 0;
+        int start = Math.max(0, first - SNIPPET_RADIUS);
+        int end = Math.min(content.length(), first + SNIPPET_RADIUS * 2);
+        return new int[]{start, end};
+    }
+
+    private List<int[]> highlights(String content, List<String> terms, int[] window, int shift) {
+        String lower = content.toLowerCase(Locale.ROOT);
+        List<int[]> ranges = new ArrayList<>();
+        for (String term : terms) {
+            int idx = lower.indexOf(term, window[0]);
+            while (idx >= 0 && idx + term.length() <= window[1]) {
+                ranges.add(new int[]{idx + shift, idx + term.length() + shift});
+                idx = lower.indexOf(term, idx + term.length());
+            }
+        }
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        return ranges;
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+}
@@ -0,0 +1,237 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.dto.PresenceDTO;
+import com.officesync.chat_service.repository.ChatUserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Trạng thái Online lưu trên Redis thay vì ghi chat_users mỗi lần connect/disconnect.
+//  - chat:presence:sessions:{userId} : hash sessionId -> lần heartbeat cuối (epoch ms), 1 user nhiều thiết bị
+//  - chat:presence:online:{userId}   : "1" có TTL, được heartbeat gia hạn. Instance chết -> tự hết hạn -> Offline
+// Kiểm tra Online hàng loạt = 1 lệnh MGET.
+// [SỬA] Connect / disconnect là 1 script Lua (HDEL session + DEL online cùng lúc, không chen được connect mới vào giữa).
+//  - chat:presence:index : sorted set userId -> lần heartbeat cuối. Instance chết thì không ai gọi disconnect,
+//    sweepStale() tìm user quá TTL không heartbeat, dọn session mồ côi và bắn event Offline thay cho instance đó.
+//  - ZREM trong script chỉ trả về 1 cho đúng 1 lần chuyển Offline -> nhiều instance cùng quét cũng không bắn trùng.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceService {
+
+    private static final String SESSIONS_PREFIX = "chat:presence:sessions:";
+    private static final String ONLINE_PREFIX = "chat:presence:online:";
+    private static final String INDEX_KEY = "chat:presence:index";
+    private static final int SWEEP_BATCH = 500;
+
+    // KEYS = [sessions, online, index], ARGV = [sessionId, now, ttlSeconds, userId]. Trả về 1 nếu vừa Offline -> Online
+    private static final RedisScript<Long> CONNECT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('hset', KEYS[1], ARGV[1], ARGV[2]) " +
+            "redis.call('expire', KEYS[1], ARGV[3]) " +
+            "redis.call('zadd', KEYS[3], ARGV[2], ARGV[4]) " +
+            "if redis.call('set', KEYS[2], '1', 'NX', 'EX', ARGV[3]) then return 1 end " +
+            "redis.call('expire', KEYS[2], ARGV[3]) " +
+            "return 0", Long.class);
+
+    // KEYS = [sessions, online, index], ARGV = [staleBefore, userId, sessionId (rỗng khi quét)].
+    // Bỏ session vừa đóng + các session quá hạn; không còn session nào -> xóa online, trả về 1 nếu vừa Online -> Offline
+    private static final RedisScript<Long> OFFLINE_SCRIPT = new DefaultRedisScript<>(
+            "if ARGV[3] ~= '' then redis.call('hdel', KEYS[1], ARGV[3]) end " +
+            "local entries = redis.call('hgetall', KEYS[1]) " +
+            "local latest, latestRaw = nil, nil " +
+            "for i = 1, #entries, 2 do " +
+            "  local seen = tonumber(entries[i + 1]) or 0 " +
+            "  if seen < tonumber(ARGV[1]) then redis.call('hdel', KEYS[1], entries[i]) " +
+            "  elseif latest == nil or seen > latest then latest, latestRaw = seen, entries[i + 1] end " +
+            "end " +
+            "if latest ~= nil then redis.call('zadd', KEYS[3], latestRaw, ARGV[2]) return 0 end " +
+            "redis.call('del', KEYS[2]) " +
+            "return redis.call('zrem', KEYS[3], ARGV[2])", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ChatUserRepository chatUserRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.presence.ttl-seconds:90}")
+    private long ttlSeconds;
+
+    @Value("${chat.presence.identity-cache-size:10000}")
+    private int identityCacheSize;
+
+    @Value("${chat.presence.identity-ttl-seconds:600}")
+    private long identityTtlSeconds;
+
+    // Các session WebSocket đang mở trên instance này (để heartbeat)
+    private final Map<String, Identity> localSessions = new ConcurrentHashMap<>();
+    // email -> (userId, companyId): tránh findByEmail mỗi lần reconnect.
+    // [SỬA] LRU có giới hạn + hết hạn sau identity-ttl-seconds (user đổi công ty thì lần connect sau đọc lại DB)
+    private final Map<String, CachedIdentity> identityCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedIdentity> eldest) {
+            return size() > identityCacheSize;
+        }
+    };
+
+    private record Identity(Long userId, Long companyId) {}
+
+    private record CachedIdentity(Identity identity, long loadedAt) {}
+
+    public void connect(String sessionId, String email) {
+        Identity identity = resolve(email);
+        if (identity == null || sessionId == null) return;
+        localSessions.put(sessionId, identity);
+
+        try {
+            Long userId = identity.userId();
+            Long becameOnline = redisTemplate.execute(CONNECT_SCRIPT,
+                    List.of(sessionsKey(userId), onlineKey(userId), INDEX_KEY),
+                    sessionId, String.valueOf(System.currentTimeMillis()), String.valueOf(ttlSeconds), String.valueOf(userId));
+            // Chỉ bắn event lúc vừa chuyển Offline -> Online
+            if (becameOnline != null && becameOnline == 1L) {
+                publish(identity, true);
+            }
+        } catch (Exception e) {
+            log.error("❌ Lỗi cập nhật presence (connect) {}: {}", email, e.getMessage());
+        }
+    }
+
+    public void disconnect(String sessionId) {
+        if (sessionId == null) return;
+        Identity identity = localSessions.remove(sessionId);
+        if (identity == null) return;
+
+        try {
+            // Bỏ qua luôn các session "mồ côi" của instance đã chết (quá TTL không heartbeat)
+            if (markOffline(identity.userId(), sessionId)) {
+                publish(identity, false);
+            }
+        } catch (Exception e) {
+            log.error("❌ Lỗi cập nhật presence (disconnect) user {}: {}", identity.userId(), e.getMessage());
+        }
+    }
+
+    // [MỚI] Dọn user của instance đã chết: quá TTL không heartbeat mà vẫn còn trong index -> Offline
+    @Scheduled(fixedDelayString = "${chat.presence.sweep-ms:30000}")
+    public void sweepStale() {
+        long staleBefore = System.currentTimeMillis() - ttlSeconds * 1000;
+        try {
+            Set<String> userIds;
+            do {
+                userIds = redisTemplate.opsForZSet().rangeByScore(INDEX_KEY, 0, staleBefore - 1, 0, SWEEP_BATCH);
+                if (userIds == null || userIds.isEmpty()) return;
+                for (String id : userIds) {
+                    Long userId = Long.valueOf(id);
+                    if (markOffline(userId, null)) {
+                        chatUserRepository.findById(userId)
+                                .ifPresent(u -> publish(new Identity(u.getId(), u.getCompanyId()), false));
+                    }
+                }
+            } while (userIds.size() == SWEEP_BATCH);
+        } catch (Exception e) {
+            log.error("❌ Lỗi dọn presence quá hạn: {}", e.getMessage());
+        }
+    }
+
+    private boolean markOffline(Long userId, String sessionId) {
+        long staleBefore = System.currentTimeMillis() - ttlSeconds * 1000;
+        Long wentOffline = redisTemplate.execute(OFFLINE_SCRIPT,
+                List.of(sessionsKey(userId), onlineKey(userId), INDEX_KEY),
+                String.valueOf(staleBefore), String.valueOf(userId), sessionId == null ? "" : sessionId);
+        return wentOffline != null && wentOffline == 1L;
+    }
+
+    public boolean isOnline(Long userId) {
+        return !filterOnline(List.of(userId)).isEmpty();
+    }
+
+    // Trả về các userId đang Online trong danh sách (1 lệnh MGET)
+    public Set<Long> filterOnline(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        if (userIds == null || userIds.isEmpty()) return online;
+
+        List<Long> ids = new ArrayList<>(userIds);
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(ids.stream().map(this::onlineKey).toList());
+            if (values == null) return online;
+            for (int i = 0; i < ids.size(); i++) {
+                if (values.get(i) != null) online.add(ids.get(i));
+            }
+        } catch (Exception e) {
+            // Redis lỗi -> coi như Offline: thà gửi thừa push còn hơn mất thông báo
+            log.error("❌ Lỗi đọc presence: {}", e.getMessage());
+        }
+        return online;
+    }
+
+    // Gia hạn TTL cho mọi session đang mở trên instance này (1 pipeline)
+    @Scheduled(fixedDelayString = "${chat.presence.heartbeat-ms:30000}")
+    public void heartbeat() {
+        if (localSessions.isEmpty()) return;
+        String now = String.valueOf(System.currentTimeMillis());
+        long ttl = ttlSeconds;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                localSessions.forEach((sessionId, identity) -> {
+                    conn.hSet(sessionsKey(identity.userId()), sessionId, now);
+                    conn.expire(sessionsKey(identity.userId()), ttl);
+                    conn.setEx(onlineKey(identity.userId()), ttl, "1");
+                    conn.zAdd(INDEX_KEY, Double.parseDouble(now), String.valueOf(identity.userId()));
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("❌ Lỗi heartbeat presence: {}", e.getMessage());
+        }
+    }
+
+    private Identity resolve(String email) {
+        long now = System.currentTimeMillis();
+        synchronized (identityCache) {
+            CachedIdentity cached = identityCache.get(email);
+            if (cached != null && now - cached.loadedAt() < identityTtlSeconds * 1000) return cached.identity();
+        }
+        return chatUserRepository.findByEmail(email)
+                .map(u -> {
+                    Identity identity = new Identity(u.getId(), u.getCompanyId());
+                    synchronized (identityCache) {
+                        identityCache.put(email, new CachedIdentity(identity, now));
+                    }
+                    return identity;
+                })
+                .orElse(null);
+    }
+
+    // Chỉ bắn cho đồng nghiệp cùng công ty thay vì topic chung toàn hệ thống
+    private void publish(Identity identity, boolean online) {
+        PresenceDTO payload = new PresenceDTO(identity.userId(), identity.companyId(), online, LocalDateTime.now());
+        log.info("📢 Bắn event Status: {} -> {}", identity.userId(), online);
+        messagingTemplate.convertAndSend("/topic/status/" + identity.companyId(), payload);
+    }
+
+    private String sessionsKey(Long userId) {
+        return SESSIONS_PREFIX + userId;
+    }
+
+    private String onlineKey(Long userId) {
+        return ONLINE_PREFIX + userId;
+    }
+}
@@ -0,0 +1,127 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.model.ChatRoom;
+import com.officesync.chat_service.model.RoomMember;
+import com.officesync.chat_service.repository.ChatRoomRepository;
+import com.officesync.chat_service.repository.RoomMemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// [MỚI] Tra/tạo phòng chat 1-1 theo khóa cặp (min:max).
+//  - Cache trong bộ nhớ pairKey -> roomId: tin nhắn 1-1 không cần chạm DB để tìm phòng
+//  - Tạo phòng an toàn khi 2 người nhắn nhau cùng lúc: INSERT ... ON DUPLICATE KEY trên unique index pair_key,
+//    bên đến sau không lỗi mà dùng lại phòng của bên đến trước.
+// [SỬA] Chạy trong transaction của người gọi (saveMessage), không mở REQUIRES_NEW nữa -> mỗi tin nhắn chỉ giữ 1 connection.
+//  - Phòng vừa tạo chỉ vào cache sau khi commit (rollback thì phòng không tồn tại)
+//  - Rời phòng 1-1 sẽ nhả pair_key (xem ChatService.leaveRoom) -> entry cache có thể cũ,
+//    người gọi kiểm tra lại bằng pair_key và gọi evict() khi lệch
+//  - Cache LRU có giới hạn thay vì xóa sạch khi đầy
+@Service
+@Slf4j
+public class PrivateRoomResolver {
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final RoomMemberRepository roomMemberRepository;
+
+    // LinkedHashMap access-order = LRU; vượt chat.private-room.cache-size thì bỏ cặp ít nhắn nhất
+    private final Map<String, Long> roomIdByPair;
+
+    public PrivateRoomResolver(ChatRoomRepository chatRoomRepository,
+                               RoomMemberRepository roomMemberRepository,
+                               @Value("${chat.private-room.cache-size:100000}") int cacheLimit) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.roomMemberRepository = roomMemberRepository;
+        int maxSize = Math.max(1, cacheLimit);
+        this.roomIdByPair = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    // Chỉ tra, không tạo (vd: xem lịch sử với người chưa từng nhắn).
+    // Đọc thẳng unique index, không qua cache -> không bao giờ trả về phòng đã bị rời.
+    @Transactional(readOnly = true)
+    public Optional<Long> findRoomId(Long userA, Long userB) {
+        return chatRoomRepository.findIdByPairKey(ChatRoom.pairKeyOf(userA, userB));
+    }
+
+    // Tra hoặc tạo phòng 1-1, trả về roomId
+    @Transactional
+    public Long getOrCreateRoomId(Long userA, Long userB) {
+        String pairKey = ChatRoom.pairKeyOf(userA, userB);
+        Long cached = cached(pairKey);
+        if (cached != null) return cached;
+
+        // Khóa dòng phòng (FOR UPDATE, đọc bản đã commit mới nhất) -> saveMessage tăng seq ngay sau đó trên cùng dòng
+        Optional<Long> existing = chatRoomRepository.lockIdByPairKey(pairKey);
+        Long roomId = existing.isPresent() ? existing.get() : createRoom(pairKey, userA, userB);
+        rememberAfterCommit(pairKey, roomId);
+        return roomId;
+    }
+
+    // Entry cache không còn đúng (phòng đã nhả pair_key)
+    public void evict(Long userA, Long userB) {
+        evict(ChatRoom.pairKeyOf(userA, userB));
+    }
+
+    public void evict(String pairKey) {
+        synchronized (roomIdByPair) {
+            roomIdByPair.remove(pairKey);
+        }
+    }
+
+    private Long createRoom(String pairKey, Long userA, Long userB) {
+        LocalDateTime now = LocalDateTime.now();
+        // Người kia tạo cùng lúc -> câu INSERT chờ khóa unique rồi thành no-op, đọc lại ra phòng của họ
+        int inserted = chatRoomRepository.insertPrivateRoomIfAbsent(pairKey, now);
+        Long roomId = chatRoomRepository.lockIdByPairKey(pairKey)
+                .orElseThrow(() -> new RuntimeException("Private room not found after insert: " + pairKey));
+        if (inserted == 0) {
+            log.info("--> Phòng 1-1 {} vừa được tạo bởi request khác, dùng lại", pairKey);
+            return roomId;
+        }
+
+        String role = RoomMember.GroupRole.MEMBER.name();
+        roomMemberRepository.insertIfAbsent(roomId, userA, role, now);
+        if (!userA.equals(userB)) {
+            roomMemberRepository.insertIfAbsent(roomId, userB, role, now);
+        }
+        return roomId;
+    }
+
+    private Long cached(String pairKey) {
+        synchronized (roomIdByPair) {
+            return roomIdByPair.get(pairKey);
+        }
+    }
+
+    private void rememberAfterCommit(String pairKey, Long roomId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(pairKey, roomId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(pairKey, roomId);
+            }
+        });
+    }
+
+    private void remember(String pairKey, Long roomId) {
+        synchronized (roomIdByPair) {
+            roomIdByPair.put(pairKey, roomId);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.officesync.chat_service.service;
+
+import com.officesync.chat_service.model.ChatUser;
+import com.officesync.chat_service.repository.ChatUserRepository;
+import com.officesync.chat_service.repository.RoomMemberRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// [MỚI] Cache ngắn hạn "user X có trong phòng Y không" cho các đường đi tần suất cao
+// (sự kiện typing, kiểm tra subscribe) để không query room_members mỗi frame.
+@Service
+public class RoomMembershipCache {
+
+    private static final int MAX_ENTRIES = 200_000;
+    // Key session attribute giữ userId đã resolve của phiên socket (tránh findByEmail mỗi frame)
+    private static final String SESSION_USER_ID = "chatUserId";
+
+    private final RoomMemberRepository roomMemberRepository;
+    private final ChatUserRepository chatUserRepository;
+    private final long ttlMs;
+
+    private record Entry(boolean member, long expiresAt) {}
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public RoomMembershipCache(RoomMemberRepository roomMemberRepository,
+                               ChatUserRepository chatUserRepository,
+                               @Value("${chat.membership-cache.ttl-ms:60000}") long ttlMs) {
+        this.roomMemberRepository = roomMemberRepository;
+        this.chatUserRepository = chatUserRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    public boolean isMember(Long roomId, Long userId) {
+        String key = roomId + ":" + userId;
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expiresAt() > now) return entry.member();
+
+        boolean member = roomMemberRepository.existsByChatRoomIdAndUserId(roomId, userId);
+        if (cache.size() >= MAX_ENTRIES) cache.clear();
+        cache.put(key, new Entry(member, now + ttlMs));
+        return member;
+    }
+
+    // userId của phiên socket: lấy từ session attributes, lần đầu thì tra theo email rồi ghi lại
+    public Long resolveUserId(String email, Map<String, Object> sessionAttributes) {
+        if (sessionAttributes != null && sessionAttributes.get(SESSION_USER_ID) instanceof Long id) {
+            return id;
+        }
+        Long id = chatUserRepository.findByEmail(email).map(ChatUser::getId)
+                .orElseThrow(() -> new RuntimeException("User not found: " + email));
+        if (sessionAttributes != null) sessionAttributes.put(SESSION_USER_ID, id);
+        return id;
+    }
+}
@@ -0,0 +1,132 @@
+package com.officesync.chat_service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongUnaryOperator;
+
+// Bộ đếm tin chưa đọc theo (room, user) trên Redis.
+// Mỗi user 1 hash: chat:unread:{userId} -> { roomId: count }
+// -> Sidebar lấy toàn bộ badge bằng 1 lệnh HGETALL, không phải COUNT trên chat_messages.
+// [SỬA] Thêm 2 field phụ mỗi phòng để đánh dấu đã đọc không "đè" lượt tăng chạy song song:
+//   {roomId}:r = seq cuối user đã đọc  -> tin có seq <= r không được cộng nữa (tin phát trễ sau khi đã đọc)
+//   {roomId}:h = seq lớn nhất đã cộng   -> markRead chỉ ghi số mới nếu h không đổi từ lúc đếm (compare-and-set)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "chat:unread:";
+    private static final String READ_SUFFIX = ":r";
+    private static final String HIGH_SUFFIX = ":h";
+
+    // KEYS = key của từng người nhận, ARGV = [roomId, seq]
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local room, seq = ARGV[1], tonumber(ARGV[2]) " +
+            "for _, k in ipairs(KEYS) do " +
+            "  if seq > tonumber(redis.call('hget', k, room .. ':r') or '0') then redis.call('hincrby', k, room, 1) end " +
+            "  if seq > tonumber(redis.call('hget', k, room .. ':h') or '0') then redis.call('hset', k, room .. ':h', ARGV[2]) end " +
+            "end return #KEYS", Long.class);
+
+    // KEYS[1] = key user, ARGV = [roomId, readSeq, expectedHigh, newCount]
+    // -1 = có tin mới được cộng trong lúc đếm (phải đếm lại), 0 = đã đọc xa hơn rồi, 1 = đã ghi
+    private static final RedisScript<Long> MARK_READ_SCRIPT = new DefaultRedisScript<>(
+            "local k, room = KEYS[1], ARGV[1] " +
+            "if tonumber(redis.call('hget', k, room .. ':h') or '0') ~= tonumber(ARGV[3]) then return -1 end " +
+            "if tonumber(ARGV[2]) <= tonumber(redis.call('hget', k, room .. ':r') or '0') then return 0 end " +
+            "redis.call('hset', k, room .. ':r', ARGV[2]) " +
+            "if tonumber(ARGV[4]) > 0 then redis.call('hset', k, room, ARGV[4]) else redis.call('hdel', k, room) end " +
+            "return 1", Long.class);
+
+    private static final int MAX_MARK_READ_ATTEMPTS = 5;
+
+    private final StringRedisTemplate redisTemplate;
+
+    // Tăng bộ đếm cho tất cả người nhận của tin có số thứ tự seq (1 round trip nhờ script)
+    public void increment(Long roomId, Long seq, Collection<Long> userIds) {
+        if (roomId == null || userIds == null || userIds.isEmpty()) return;
+        String field = roomId.toString();
+        try {
+            if (seq == null) {
+                // Tin chưa có seq: không so được với con trỏ đã đọc -> cộng thẳng như trước
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    for (Long userId : userIds) {
+                        conn.hIncrBy(key(userId), field, 1);
+                    }
+                    return null;
+                });
+                return;
+            }
+            List<String> keys = userIds.stream().map(this::key).toList();
+            redisTemplate.execute(INCREMENT_SCRIPT, keys, field, seq.toString());
+        } catch (Exception e) {
+            // Redis lỗi không được làm hỏng việc gửi tin
+            log.error("❌ Lỗi tăng unread counter room {}: {}", roomId, e.getMessage());
+        }
+    }
+
+    /**
+     * [MỚI] Đã đọc tới tin có số thứ tự readSeq: đặt lại bộ đếm = số tin người khác gửi sau readSeq
+     * (không phải về 0 nếu readSeq chưa phải tin cuối).
+     * unreadAfter(high) đếm các tin seq trong (readSeq, high] - chỉ những tin đã được cộng vào bộ đếm,
+     * tin đã commit nhưng chưa phát sẽ tự cộng sau.
+     */
+    public void markRead(Long userId, Long roomId, long readSeq, LongUnaryOperator unreadAfter) {
+        String k = key(userId);
+        String field = roomId.toString();
+        try {
+            for (int attempt = 0; attempt < MAX_MARK_READ_ATTEMPTS; attempt++) {
+                Object rawHigh = redisTemplate.opsForHash().get(k, field + HIGH_SUFFIX);
+                long high = rawHigh != null ? Long.parseLong(rawHigh.toString()) : 0L;
+                long count = high > readSeq ? unreadAfter.applyAsLong(high) : 0L;
+                Long result = redisTemplate.execute(MARK_READ_SCRIPT, List.of(k), field,
+                        String.valueOf(readSeq), String.valueOf(high), String.valueOf(count));
+                if (result == null || result >= 0) return;
+            }
+            log.warn("⚠️ Phòng {} có tin mới liên tục, bỏ qua cập nhật unread của user {}", roomId, userId);
+        } catch (Exception e) {
+            log.error("❌ Lỗi cập nhật unread counter user {} room {}: {}", userId, roomId, e.getMessage());
+        }
+    }
+
+    // Rời phòng -> xóa bộ đếm
+    public void reset(Long userId, Long roomId) {
+        try {
+            String field = roomId.toString();
+            redisTemplate.opsForHash().delete(key(userId), field, field + READ_SUFFIX, field + HIGH_SUFFIX);
+        } catch (Exception e) {
+            log.error("❌ Lỗi reset unread counter user {} room {}: {}", userId, roomId, e.getMessage());
+        }
+    }
+
+    // Toàn bộ số tin chưa đọc của user: roomId -> count
+    public Map<Long, Long> getUnreadCounts(Long userId) {
+        Map<Long, Long> result = new HashMap<>();
+        try {
+            Map<Object, Object> raw = redisTemplate.opsForHash().entries(key(userId));
+            raw.forEach((room, count) -> {
+                String field = room.toString();
+                if (field.indexOf(':') >= 0) return; // field phụ :r / :h
+                result.put(Long.valueOf(field), Long.valueOf(count.toString()));
+            });
+        } catch (Exception e) {
+            log.error("❌ Lỗi đọc unread counter user {}: {}", userId, e.getMessage());
+        }
+        return result;
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
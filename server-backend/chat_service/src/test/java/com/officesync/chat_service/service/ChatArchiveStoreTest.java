@@ -0,0 +1,140 @@
+package com.officesync.chat_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.officesync.chat_service.model.ChatMessage;
+
+// Ghi / đọc segment của kho lạnh trên thư mục tạm (nhiều block, nhiều segment, nạp lại từ đĩa)
+class ChatArchiveStoreTest {
+
+    private static final Long ROOM_ID = 3L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsAllFields() {
+        ChatArchiveStore store = new ChatArchiveStore(dir.toString());
+        ChatMessage original = message(1);
+        original.setRecipientId(null);
+        original.setType(ChatMessage.MessageType.IMAGE);
+        original.setContent("Ảnh chụp màn hình 🚀");
+        store.append(ROOM_ID, List.of(original));
+
+        ChatMessage read = store.find(ROOM_ID, 1, 1).orElseThrow();
+
+        assertEquals(1L, read.getId());
+        assertEquals(ROOM_ID, read.getRoomId());
+        assertEquals(original.getSeq(), read.getSeq());
+        assertEquals(original.getSenderId(), read.getSenderId());
+        assertNull(read.getRecipientId());
+        assertEquals(original.getTimestamp(), read.getTimestamp());
+        assertEquals(ChatMessage.MessageType.IMAGE, read.getType());
+        assertEquals("Ảnh chụp màn hình 🚀", read.getContent());
+    }
+
+    @Test
+    void readsAcrossBlocksAndSegments() {
+        ChatArchiveStore store = new ChatArchiveStore(dir.toString());
+        // 300 tin = 3 block (128/block), rồi 1 segment thứ 2
+        store.append(ROOM_ID, range(1, 300));
+        store.append(ROOM_ID, range(301, 350));
+        assertEquals(350L, store.lastArchivedId(ROOM_ID));
+
+        // readBefore: mới -> cũ, cắt ngang ranh giới block (128/129) và segment (300/301)
+        assertEquals(List.of(305L, 304L, 303L, 302L, 301L, 300L, 299L),
+                ids(store.readBefore(ROOM_ID, 350, 306L, 7)));
+        assertEquals(List.of(130L, 129L, 128L, 127L), ids(store.readBefore(ROOM_ID, 350, 131L, 4)));
+        assertEquals(List.of(350L, 349L), ids(store.readBefore(ROOM_ID, 350, null, 2)));
+
+        // readAfter: cũ -> mới
+        assertEquals(List.of(127L, 128L, 129L), ids(store.readAfter(ROOM_ID, 350, 126, 3)));
+        assertEquals(List.of(299L, 300L, 301L), ids(store.readAfter(ROOM_ID, 350, 298, 3)));
+        assertTrue(store.readAfter(ROOM_ID, 350, 350, 10).isEmpty());
+
+        assertEquals(200L, store.find(ROOM_ID, 350, 200).orElseThrow().getId());
+        assertTrue(store.find(ROOM_ID, 350, 351).isEmpty());
+    }
+
+    @Test
+    void appendSkipsMessagesAlreadyArchived() {
+        ChatArchiveStore store = new ChatArchiveStore(dir.toString());
+        store.append(ROOM_ID, range(1, 10));
+        // Chạy lại sau crash: lô gối lên phần đã ghi
+        store.append(ROOM_ID, range(5, 12));
+
+        List<Long> all = ids(store.readAfter(ROOM_ID, 12, 0, 100));
+        assertEquals(ids(range(1, 12)), all);
+    }
+
+    @Test
+    void anotherInstanceSeesSegmentsWrittenLater() {
+        ChatArchiveStore writer = new ChatArchiveStore(dir.toString());
+        ChatArchiveStore reader = new ChatArchiveStore(dir.toString());
+        writer.append(ROOM_ID, range(1, 10));
+        assertEquals(10L, reader.lastArchivedId(ROOM_ID));
+
+        // reader đã nạp chỉ mục tới 10; archived_up_to_id mới hơn -> phải nạp lại từ đĩa
+        writer.append(ROOM_ID, range(11, 20));
+        assertEquals(List.of(20L, 19L), ids(reader.readBefore(ROOM_ID, 20, null, 2)));
+    }
+
+    @Test
+    void missingSegmentsFailInsteadOfReturningGaps() {
+        ChatArchiveStore store = new ChatArchiveStore(dir.toString());
+        store.append(ROOM_ID, range(1, 10));
+
+        assertThrows(IllegalStateException.class, () -> store.readBefore(ROOM_ID, 20, null, 5));
+    }
+
+    @Test
+    void segmentWithoutIndexIsIgnored() throws IOException {
+        ChatArchiveStore store = new ChatArchiveStore(dir.toString());
+        store.append(ROOM_ID, range(1, 10));
+        store.append(ROOM_ID, range(11, 20));
+        // Giả lập crash sau khi ghi .seg nhưng trước khi ghi .idx của segment thứ 2
+        Files.delete(dir.resolve("room-" + ROOM_ID).resolve("seg-11.idx"));
+
+        assertEquals(10L, new ChatArchiveStore(dir.toString()).lastArchivedId(ROOM_ID));
+        try (Stream<Path> files = Files.list(dir.resolve("room-" + ROOM_ID))) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".tmp")));
+        }
+    }
+
+    private static ChatMessage message(long id) {
+        ChatMessage m = new ChatMessage();
+        m.setId(id);
+        m.setRoomId(ROOM_ID);
+        m.setSeq(id);
+        m.setSenderId(100L + id % 3);
+        m.setRecipientId(200L);
+        m.setTimestamp(new Date(1_700_000_000_000L + id * 1_000));
+        m.setType(ChatMessage.MessageType.CHAT);
+        m.setContent("Tin nhắn số " + id);
+        return m;
+    }
+
+    private static List<ChatMessage> range(long fromId, long toId) {
+        List<ChatMessage> list = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) list.add(message(id));
+        return list;
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package com.officesync.chat_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import com.officesync.chat_service.dto.MessagePageDTO;
+import com.officesync.chat_service.model.ChatMessage;
+import com.officesync.chat_service.repository.ChatMessageRepository;
+import com.officesync.chat_service.repository.ChatRoomRepository;
+
+// Phân trang keyset lịch sử chat: con trỏ trả về (nextCursor) và truy vấn theo (timestamp, id) của con trỏ
+@ExtendWith(MockitoExtension.class)
+class ChatServiceMessagePageTest {
+
+    private static final Long ROOM_ID = 7L;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+    @Mock
+    private ChatRoomRepository chatRoomRepository;
+    @Mock
+    private ChatArchiveStore archiveStore;
+
+    @InjectMocks
+    private ChatService chatService;
+
+    @Test
+    void latestPageIsOldestFirstAndCursorPointsAtOldestMessage() {
+        // Repository trả mới -> cũ, lấy dư 1 dòng
+        when(messageRepository.findLatestPage(eq(ROOM_ID), any())).thenReturn(descending(10, 8));
+
+        MessagePageDTO page = chatService.getMessagePage(ROOM_ID, null, null, 2);
+
+        assertEquals(List.of(9L, 10L), ids(page.getMessages()));
+        assertTrue(page.isHasMore());
+        assertEquals(9L, page.getNextCursor());
+    }
+
+    @Test
+    void beforeCursorQueriesByCursorTimestampAndId() {
+        ChatMessage cursor = message(20);
+        when(messageRepository.findById(20L)).thenReturn(Optional.of(cursor));
+        when(messageRepository.findPageBefore(eq(ROOM_ID), eq(cursor.getTimestamp()), eq(20L), any()))
+                .thenReturn(descending(19, 18));
+
+        MessagePageDTO page = chatService.getMessagePage(ROOM_ID, 20L, null, 5);
+
+        assertEquals(List.of(18L, 19L), ids(page.getMessages()));
+        assertFalse(page.isHasMore());
+        assertEquals(18L, page.getNextCursor());
+    }
+
+    @Test
+    void afterCursorIsAscendingAndCursorPointsAtNewestMessage() {
+        ChatMessage cursor = message(20);
+        when(messageRepository.findById(20L)).thenReturn(Optional.of(cursor));
+        when(messageRepository.findPageAfter(eq(ROOM_ID), eq(cursor.getTimestamp()), eq(20L), any()))
+                .thenReturn(ascending(21, 23));
+
+        MessagePageDTO page = chatService.getMessagePage(ROOM_ID, null, 20L, 2);
+
+        assertEquals(List.of(21L, 22L), ids(page.getMessages()));
+        assertTrue(page.isHasMore());
+        assertEquals(22L, page.getNextCursor());
+    }
+
+    @Test
+    void emptyPageHasNoCursor() {
+        when(messageRepository.findLatestPage(eq(ROOM_ID), any())).thenReturn(List.of());
+
+        MessagePageDTO page = chatService.getMessagePage(ROOM_ID, null, null, null);
+
+        assertTrue(page.getMessages().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void pageSizeIsClampedToMaximum() {
+        when(messageRepository.findLatestPage(eq(ROOM_ID), any())).thenReturn(List.of());
+
+        chatService.getMessagePage(ROOM_ID, null, null, 10_000);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(messageRepository).findLatestPage(eq(ROOM_ID), pageable.capture());
+        assertEquals(ChatService.MAX_PAGE_SIZE + 1, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void cursorFromAnotherRoomIsRejected() {
+        ChatMessage foreign = message(20);
+        foreign.setRoomId(99L);
+        when(messageRepository.findById(20L)).thenReturn(Optional.of(foreign));
+
+        assertThrows(RuntimeException.class, () -> chatService.getMessagePage(ROOM_ID, 20L, null, 10));
+    }
+
+    @Test
+    void beforeCursorInsideArchiveReadsColdStore() {
+        when(chatRoomRepository.findArchivedUpToId(ROOM_ID)).thenReturn(100L);
+        when(archiveStore.readBefore(ROOM_ID, 100L, 50L, 3)).thenReturn(descending(49, 48));
+
+        MessagePageDTO page = chatService.getMessagePage(ROOM_ID, 50L, null, 2);
+
+        assertEquals(List.of(48L, 49L), ids(page.getMessages()));
+        assertFalse(page.isHasMore());
+        assertEquals(48L, page.getNextCursor());
+    }
+
+    private static ChatMessage message(long id) {
+        ChatMessage m = new ChatMessage();
+        m.setId(id);
+        m.setRoomId(ROOM_ID);
+        m.setSeq(id);
+        m.setTimestamp(new Date(1_700_000_000_000L + id * 1_000));
+        m.setContent("tin " + id);
+        return m;
+    }
+
+    private static List<ChatMessage> descending(long fromId, long toId) {
+        List<ChatMessage> list = new ArrayList<>();
+        for (long id = fromId; id >= toId; id--) list.add(message(id));
+        return list;
+    }
+
+    private static List<ChatMessage> ascending(long fromId, long toId) {
+        List<ChatMessage> list = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) list.add(message(id));
+        return list;
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,25 @@
+package com.officesync.communication_service.config;
+
+import com.officesync.communication_service.repository.PostRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NewsfeedDataBackfill {
+
+    // Điền reaction_count / comment_count cho các bài đăng tạo trước khi có 2 cột này
+    @Bean
+    CommandLineRunner backfillPostCounts(PostRepository postRepository) {
+        return args -> {
+            try {
+                int updated = postRepository.backfillCounts();
+                if (updated > 0) {
+                    System.out.println("--> Communication DB: Đã điền số reaction/comment cho " + updated + " bài viết");
+                }
+            } catch (Exception e) {
+                System.err.println("Lỗi backfill số liệu bài viết: " + e.getMessage());
+            }
+        };
+    }
+}
@@ -37,6 +37,17 @@ public ResponseEntity<?> getPosts(@AuthenticationPrincipal User currentUser) {
     return ResponseEntity.ok(newsfeedService.getPosts(companyId, currentUser.getId()));
 }
 
+    // [MỚI] Newsfeed phân trang: GET /api/v1/newsfeed/feed?before={postId}&limit=20
+    @GetMapping("/feed")
+    public ResponseEntity<?> getFeed(@AuthenticationPrincipal User currentUser,
+                                     @RequestParam(required = false) Long before,
+                                     @RequestParam(required = false) Integer limit) {
+        Long companyId = currentUser.getCompanyId();
+        if (companyId == null) companyId = 1L;
+
+        return ResponseEntity.ok(newsfeedService.getFeedPage(companyId, currentUser.getId(), before, limit));
+    }
+
     @PostMapping("/{postId}/react")
     public ResponseEntity<?> react(@PathVariable Long postId, 
                                    @RequestBody ReactionRequestDTO request,
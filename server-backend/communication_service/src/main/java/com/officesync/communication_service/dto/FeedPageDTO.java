@@ -0,0 +1,16 @@
+package com.officesync.communication_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Một trang newsfeed (phân trang keyset theo post id, mới nhất trước)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedPageDTO {
+    private List<PostResponseDTO> posts;
+    private boolean hasMore;  // Còn bài cũ hơn hay không
+    private Long nextCursor;  // Truyền lại vào ?before= để lấy trang kế tiếp
+}
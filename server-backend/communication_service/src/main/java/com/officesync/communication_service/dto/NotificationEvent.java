@@ -15,4 +15,6 @@ public class NotificationEvent {
     private String body;        // Nội dung
     private String type;        // Loại: "ANNOUNCEMENT", "COMMENT", "REACTION"
     private Long referenceId;   // ID bài viết
+    private Long companyId;     // [MỚI] Gửi cho toàn bộ công ty (Notification Service tự mở rộng theo lô)
+    private Long excludeUserId; // [MỚI] Bỏ qua người này khi gửi toàn công ty
 }
\ No newline at end of file
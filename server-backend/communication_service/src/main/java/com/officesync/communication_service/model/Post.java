@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        // [MỚI] Phân trang keyset newsfeed: WHERE company_id = ? AND id < ? ORDER BY id DESC
+        @Index(name = "idx_post_company_id", columnList = "company_id, id")
+})
 @Data
 public class Post {
     @Id
@@ -34,6 +37,14 @@ public class Post {
     @Column(name = "view_count")
     private int viewCount = 0;
 
+    // [MỚI] Bộ đếm denormalized, cập nhật cùng transaction với reactToPost / addComment
+    // (nullable để NewsfeedDataBackfill nhận ra các bài cũ chưa có số liệu)
+    @Column(name = "reaction_count")
+    private Integer reactionCount = 0;
+
+    @Column(name = "comment_count")
+    private Integer commentCount = 0;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
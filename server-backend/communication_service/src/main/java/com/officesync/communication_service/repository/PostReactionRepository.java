@@ -2,9 +2,14 @@ package com.officesync.communication_service.repository;
 
 import com.officesync.communication_service.model.PostReaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PostReactionRepository extends JpaRepository<PostReaction, Long> {
     Optional<PostReaction> findByPostIdAndUserId(Long postId, Long userId);
     int countByPostId(Long postId);
-}
\ No newline at end of file
+
+    // [MỚI] Lấy reaction của người xem cho cả trang newsfeed trong 1 query
+    List<PostReaction> findByUserIdAndPostIdIn(Long userId, Collection<Long> postIds);
+}
@@ -1,9 +1,37 @@
 package com.officesync.communication_service.repository;
 
 import com.officesync.communication_service.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByCompanyIdOrderByCreatedAtDesc(Long companyId);
-}
\ No newline at end of file
+
+    // [MỚI] Phân trang keyset (id tăng dần theo thời gian đăng)
+    List<Post> findByCompanyIdOrderByIdDesc(Long companyId, Pageable pageable);
+
+    List<Post> findByCompanyIdAndIdLessThanOrderByIdDesc(Long companyId, Long beforeId, Pageable pageable);
+
+    // [MỚI] Cập nhật bộ đếm nguyên tử (không đọc-sửa-ghi để tránh mất lượt khi nhiều người cùng thả tim)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.reactionCount = COALESCE(p.reactionCount, 0) + :delta WHERE p.id = :postId")
+    int incrementReactionCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = COALESCE(p.commentCount, 0) + :delta WHERE p.id = :postId")
+    int incrementCommentCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    // [MỚI] Điền số liệu cho các bài đăng trước khi có cột reaction_count / comment_count
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE posts p SET " +
+            "p.reaction_count = (SELECT COUNT(*) FROM post_reactions r WHERE r.post_id = p.id), " +
+            "p.comment_count = (SELECT COUNT(*) FROM post_comments c WHERE c.post_id = p.id) " +
+            "WHERE p.reaction_count IS NULL OR p.comment_count IS NULL", nativeQuery = true)
+    int backfillCounts();
+}
@@ -7,11 +7,14 @@ import com.officesync.communication_service.repository.*;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.Map;
 
@@ -27,6 +30,10 @@ public class NewsfeedService {
     @Autowired private SimpMessagingTemplate messagingTemplate;
     // Danh sách các vai trò được phép bắn thông báo (VIP)
     private static final List<String> VIP_ROLES = List.of("COMPANY_ADMIN", "MANAGER", "DIRECTOR");
+
+    // [MỚI] Kích thước trang newsfeed
+    private static final int DEFAULT_FEED_PAGE_SIZE = 20;
+    private static final int MAX_FEED_PAGE_SIZE = 50;
     
     // 1. Tạo bài viết
     // 1. TẠO BÀI VIẾT (Đã tích hợp Notification cho VIP)
@@ -61,64 +68,101 @@ public class NewsfeedService {
             System.err.println("Lỗi gửi WebSocket: " + e.getMessage());
         }
 
-        // C. LOGIC THÔNG BÁO (NOTIFICATION SERVICE) - Giữ nguyên logic cũ
+        // C. LOGIC THÔNG BÁO (NOTIFICATION SERVICE)
+        // [SỬA] Chỉ bắn 1 event "toàn công ty", Notification Service tự mở rộng theo lô
+        // -> createPost không còn phụ thuộc số lượng nhân viên
         if (VIP_ROLES.contains(currentUser.getRole())) {
-            List<User> allEmployees = userRepository.findAllByCompanyId(savedPost.getCompanyId());
-            for (User employee : allEmployees) {
-                if (!employee.getId().equals(currentUser.getId())) {
-                    NotificationEvent event = NotificationEvent.builder()
-                            .userId(employee.getId())
-                            .title("📢 NEW POST FROM " + currentUser.getFullName().toUpperCase())
-                            .body(getShortContent(savedPost.getContent()))
-                            .type("ANNOUNCEMENT")
-                            .referenceId(savedPost.getId())
-                            .build();
-                    notificationProducer.sendNotification(event);
-                }
-            }
+            NotificationEvent event = NotificationEvent.builder()
+                    .companyId(savedPost.getCompanyId())
+                    .excludeUserId(currentUser.getId())
+                    .title("📢 NEW POST FROM " + currentUser.getFullName().toUpperCase())
+                    .body(getShortContent(savedPost.getContent()))
+                    .type("ANNOUNCEMENT")
+                    .referenceId(savedPost.getId())
+                    .build();
+            notificationProducer.sendNotification(event);
         }
 
         return savedPost;
     }
 
     // 2. Lấy danh sách bài viết (Đã sửa để luôn hiện Avatar mới nhất)
+    // [SỬA] Không còn N+1: số liệu đọc từ cột denormalized, reaction + tác giả lấy theo lô
     public List<PostResponseDTO> getPosts(Long companyId, Long currentUserId) {
         List<Post> posts = postRepository.findByCompanyIdOrderByCreatedAtDesc(companyId);
+        return toPostResponses(posts, currentUserId);
+    }
 
-        return posts.stream().map(post -> {
-            Optional<PostReaction> reaction = reactionRepository.findByPostIdAndUserId(post.getId(), currentUserId);
-            ReactionType myReaction = reaction.map(PostReaction::getReactionType).orElse(null);
-
-            // ✅ SỬA ĐOẠN NÀY: Tìm thông tin tác giả mới nhất từ bảng Users
-            User author = userRepository.findById(post.getAuthorId()).orElse(null);
-            String latestAvatar = (author != null) ? author.getAvatarUrl() : post.getAuthorAvatar();
-            String latestName = (author != null) ? author.getFullName() : post.getAuthorName();
-
-            return PostResponseDTO.builder()
-                    .id(post.getId())
-                    .content(post.getContent())
-                    .imageUrl(post.getImageUrl())
-                    .authorId(post.getAuthorId())
-                    .authorName(latestName)   // Dùng tên mới nhất
-                    .authorAvatar(latestAvatar) // Dùng avatar mới nhất
-                    .createdAt(post.getCreatedAt())
-                    .reactionCount(reactionRepository.countByPostId(post.getId()))
-                    .commentCount(commentRepository.countByPostId(post.getId()))
-                    .myReaction(myReaction)
-                    .build();
-        }).collect(Collectors.toList());
+    // [MỚI] Newsfeed phân trang keyset: before = id bài cuối của trang trước (null = trang mới nhất)
+    public FeedPageDTO getFeedPage(Long companyId, Long currentUserId, Long beforeId, Integer limit) {
+        int size = (limit == null || limit <= 0) ? DEFAULT_FEED_PAGE_SIZE : Math.min(limit, MAX_FEED_PAGE_SIZE);
+        // Lấy dư 1 bản ghi để biết còn trang sau hay không
+        PageRequest page = PageRequest.of(0, size + 1);
+
+        List<Post> posts = (beforeId == null)
+                ? postRepository.findByCompanyIdOrderByIdDesc(companyId, page)
+                : postRepository.findByCompanyIdAndIdLessThanOrderByIdDesc(companyId, beforeId, page);
+
+        boolean hasMore = posts.size() > size;
+        if (hasMore) posts = posts.subList(0, size);
+
+        Long nextCursor = posts.isEmpty() ? null : posts.get(posts.size() - 1).getId();
+        return new FeedPageDTO(toPostResponses(posts, currentUserId), hasMore, nextCursor);
+    }
+
+    // Map 1 trang bài viết sang DTO với đúng 2 query phụ (reaction của người xem + thông tin tác giả)
+    private List<PostResponseDTO> toPostResponses(List<Post> posts, Long currentUserId) {
+        if (posts.isEmpty()) return List.of();
+
+        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Map<Long, ReactionType> myReactions = reactionRepository.findByUserIdAndPostIdIn(currentUserId, postIds).stream()
+                .collect(Collectors.toMap(PostReaction::getPostId, PostReaction::getReactionType, (a, b) -> a));
+
+        Set<Long> authorIds = posts.stream().map(Post::getAuthorId).collect(Collectors.toSet());
+        Map<Long, User> authors = userRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+
+        return posts.stream()
+                .map(post -> buildPostResponse(post, authors.get(post.getAuthorId()), myReactions.get(post.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private PostResponseDTO buildPostResponse(Post post, User author, ReactionType myReaction) {
+        // Luôn ưu tiên tên/avatar mới nhất từ bảng Users, fallback về bản cache trên bài viết
+        String latestAvatar = (author != null) ? author.getAvatarUrl() : post.getAuthorAvatar();
+        String latestName = (author != null) ? author.getFullName() : post.getAuthorName();
+
+        return PostResponseDTO.builder()
+                .id(post.getId())
+                .content(post.getContent())
+                .imageUrl(post.getImageUrl())
+                .authorId(post.getAuthorId())
+                .authorName(latestName)
+                .authorAvatar(latestAvatar)
+                .createdAt(post.getCreatedAt())
+                .reactionCount(countOf(post.getReactionCount()))
+                .commentCount(countOf(post.getCommentCount()))
+                .myReaction(myReaction)
+                .build();
+    }
+
+    private static int countOf(Integer value) {
+        return value != null ? value : 0;
     }
 
     // 3. Thả tim
     public record FeedUpdatePayload(String type, Long postId, int reactionCount, int commentCount) {}
     public record ReactionUpdatePayload(String type, Long postId, int reactionCount) {}
+    @Transactional
     public void reactToPost(Long postId, Long userId, ReactionType type) {
         Optional<PostReaction> existing = reactionRepository.findByPostIdAndUserId(postId, userId);
 
+        // [SỬA] Cập nhật bộ đếm trên Post cùng transaction (bỏ reaction -1, thêm mới +1, đổi loại giữ nguyên)
         if (existing.isPresent()) {
             PostReaction reaction = existing.get();
             if (reaction.getReactionType() == type) {
                 reactionRepository.delete(reaction);
+                postRepository.incrementReactionCount(postId, -1);
             } else {
                 reaction.setReactionType(type);
                 reactionRepository.save(reaction);
@@ -129,21 +173,21 @@ public class NewsfeedService {
             newReaction.setUserId(userId);
             newReaction.setReactionType(type);
             reactionRepository.save(newReaction);
+            postRepository.incrementReactionCount(postId, 1);
         }
  try {
-            int newReactionCount = reactionRepository.countByPostId(postId);
-            int newCommentCount = commentRepository.countByPostId(postId);
+            Post post = postRepository.findById(postId).orElse(null);
+            if (post == null) return;
+            int newReactionCount = countOf(post.getReactionCount());
+            int newCommentCount = countOf(post.getCommentCount());
             
             // 1. Bắn tin cập nhật vào trang Chi tiết (Detail)
             ReactionUpdatePayload detailPayload = new ReactionUpdatePayload("REACTION_UPDATE", postId, newReactionCount);
             messagingTemplate.convertAndSend("/topic/post/" + postId, detailPayload);
 
             // 2. Bắn tin cập nhật ra trang Danh sách (Newsfeed)
-            Post post = postRepository.findById(postId).orElse(null);
-            if (post != null) {
-                FeedUpdatePayload listPayload = new FeedUpdatePayload("UPDATE_COUNTS", postId, newReactionCount, newCommentCount);
-                messagingTemplate.convertAndSend("/topic/company/" + post.getCompanyId(), listPayload);
-            }
+            FeedUpdatePayload listPayload = new FeedUpdatePayload("UPDATE_COUNTS", postId, newReactionCount, newCommentCount);
+            messagingTemplate.convertAndSend("/topic/company/" + post.getCompanyId(), listPayload);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -171,6 +215,7 @@ public class NewsfeedService {
     }
 
    // 2. THÊM BÌNH LUẬN (Đã tích hợp Notification cho chủ bài viết)
+    @Transactional
     public CommentResponseDTO addComment(Long postId, Long userId, CommentRequestDTO request) {
         User user = userRepository.findById(userId).orElse(null);
 
@@ -195,6 +240,7 @@ public class NewsfeedService {
         }
 
         PostComment savedComment = commentRepository.save(comment);
+        postRepository.incrementCommentCount(postId, 1); // [MỚI] Bộ đếm denormalized
 
         // ✅ [MỚI] BẮN SOCKET REAL-TIME
         // Gửi comment mới vào kênh: /topic/post/{postId}
@@ -206,8 +252,8 @@ public class NewsfeedService {
             // 2. Bắn tin cập nhật số lượng ra trang Danh sách
             Post post = postRepository.findById(postId).orElse(null);
             if (post != null) {
-                int rCount = reactionRepository.countByPostId(postId);
-                int cCount = commentRepository.countByPostId(postId);
+                int rCount = countOf(post.getReactionCount());
+                int cCount = countOf(post.getCommentCount());
                 
                 FeedUpdatePayload listPayload = new FeedUpdatePayload("UPDATE_COUNTS", postId, rCount, cCount);
                 messagingTemplate.convertAndSend("/topic/company/" + post.getCompanyId(), listPayload);
@@ -310,21 +356,6 @@ public class NewsfeedService {
         ReactionType myReaction = reaction.map(PostReaction::getReactionType).orElse(null);
 
         User author = userRepository.findById(post.getAuthorId()).orElse(null);
-        String latestAvatar = (author != null) ? author.getAvatarUrl() : post.getAuthorAvatar();
-        String latestName = (author != null) ? author.getFullName() : post.getAuthorName();
-
-        return PostResponseDTO.builder()
-                .id(post.getId())
-                .content(post.getContent())
-                .imageUrl(post.getImageUrl())
-                .authorId(post.getAuthorId())
-                .authorName(latestName)
-                .authorAvatar(latestAvatar)
-                .createdAt(post.getCreatedAt())
-                .reactionCount(reactionRepository.countByPostId(post.getId()))
-                .commentCount(commentRepository.countByPostId(post.getId()))
-                .myReaction(myReaction)
-                .build();
+        return buildPostResponse(post, author, myReaction);
     }
 }
-        
\ No newline at end of file
@@ -19,7 +19,11 @@ public class NotificationProducer {
         try {
             // Convert Object -> JSON và bắn đi
             rabbitTemplate.convertAndSend(EXCHANGE, ROUTING_KEY, event);
-            System.out.println("--> [RabbitMQ] Sent Notification to User: " + event.getUserId());
+            if (event.getCompanyId() != null) {
+                System.out.println("--> [RabbitMQ] Sent Broadcast to Company: " + event.getCompanyId());
+            } else {
+                System.out.println("--> [RabbitMQ] Sent Notification to User: " + event.getUserId());
+            }
         } catch (Exception e) {
             System.err.println("Lỗi gửi RabbitMQ: " + e.getMessage());
         }
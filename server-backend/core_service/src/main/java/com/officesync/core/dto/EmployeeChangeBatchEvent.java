@@ -0,0 +1,19 @@
+package com.officesync.core.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] Gộp thay đổi nhân viên của 1 transaction bên HR (routing key employee.batch)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EmployeeChangeBatchEvent {
+    private List<EmployeeSyncEvent> upserts;
+    private List<Long> deletedIds;
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.officesync.core.config.RabbitMQConfig;
+import com.officesync.core.dto.EmployeeChangeBatchEvent;
 import com.officesync.core.dto.EmployeeSyncEvent;
 
 @Service
@@ -28,8 +29,14 @@ public class CoreConsumer {
         try {
             System.out.println("--> [RabbitMQ] Nhận tin nhắn. Key: " + routingKey);
 
+            // --- [MỚI] TRƯỜNG HỢP 0: BATCH (mọi thay đổi của 1 transaction bên HR) ---
+            if (routingKey.contains("batch")) {
+                EmployeeChangeBatchEvent batch = objectMapper.readValue(message, EmployeeChangeBatchEvent.class);
+                applyBatch(batch);
+            }
+
             // --- TRƯỜNG HỢP 1: XÓA USER ---
-            if (routingKey.contains("delete")) {
+            else if (routingKey.contains("delete")) {
                 try {
                     Long userId = Long.parseLong(message.replaceAll("\"", "").trim());
                     authService.deleteUser(userId);
@@ -66,4 +73,31 @@ public class CoreConsumer {
             e.printStackTrace();
         }
     }
+
+    // [MỚI] Áp dụng từng dòng của batch; lỗi 1 dòng không bỏ cả batch
+    private void applyBatch(EmployeeChangeBatchEvent batch) {
+        if (batch.getDeletedIds() != null) {
+            for (Long userId : batch.getDeletedIds()) {
+                try {
+                    authService.deleteUser(userId);
+                    securityNotificationService.notifyUserLocked(userId);
+                } catch (Exception e) {
+                    System.err.println("Lỗi xóa user " + userId + " trong batch: " + e.getMessage());
+                }
+            }
+        }
+        if (batch.getUpserts() != null) {
+            for (EmployeeSyncEvent event : batch.getUpserts()) {
+                try {
+                    authService.syncEmployeeAccount(event);
+                    if ("LOCKED".equalsIgnoreCase(event.getStatus()) || "INACTIVE".equalsIgnoreCase(event.getStatus())) {
+                        System.out.println("🚨 Phát hiện lệnh LOCK cho User: " + event.getId());
+                        securityNotificationService.notifyUserLocked(event.getId());
+                    }
+                } catch (Exception e) {
+                    System.err.println("Lỗi đồng bộ user " + event.getId() + " trong batch: " + e.getMessage());
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
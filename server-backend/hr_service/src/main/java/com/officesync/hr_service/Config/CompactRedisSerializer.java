@@ -0,0 +1,104 @@
+package com.officesync.hr_service.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Bọc một RedisSerializer bất kỳ (định dạng có thể thay: JSON theo kiểu cố định, Smile...)
+ * và nén Deflate khi payload lớn hơn ngưỡng.
+ * Byte đầu là header: 0x00 = thô, 0x01 = đã nén. Giá trị không nhận ra (vd: bản JSON cũ) -> coi như cache miss.
+ */
+@Slf4j
+public class CompactRedisSerializer<T> implements RedisSerializer<T> {
+
+    private static final byte RAW = 0x00;
+    private static final byte DEFLATED = 0x01;
+
+    private final RedisSerializer<T> delegate;
+    private final int compressThreshold;
+
+    public CompactRedisSerializer(RedisSerializer<T> delegate, int compressThreshold) {
+        this.delegate = delegate;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        byte[] payload = delegate.serialize(value);
+        if (payload == null) return null;
+
+        if (payload.length >= compressThreshold) {
+            byte[] compressed = deflate(payload);
+            // Chỉ dùng bản nén nếu thực sự nhỏ hơn
+            if (compressed.length < payload.length) return withHeader(DEFLATED, compressed);
+        }
+        return withHeader(RAW, payload);
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        try {
+            byte[] body = Arrays.copyOfRange(bytes, 1, bytes.length);
+            return switch (bytes[0]) {
+                case RAW -> delegate.deserialize(body);
+                case DEFLATED -> delegate.deserialize(inflate(body));
+                default -> null; // Định dạng cũ/không rõ -> miss, method sẽ chạy lại và ghi đè
+            };
+        } catch (Exception e) {
+            // Schema đổi không tương thích -> coi như miss thay vì làm hỏng request
+            log.warn("⚠️ Bỏ giá trị cache không đọc được: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] withHeader(byte header, byte[] body) {
+        byte[] out = new byte[body.length + 1];
+        out[0] = header;
+        System.arraycopy(body, 0, out, 1, body.length);
+        return out;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated deflate payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
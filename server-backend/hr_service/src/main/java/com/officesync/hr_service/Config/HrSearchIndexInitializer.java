@@ -0,0 +1,37 @@
+package com.officesync.hr_service.Config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@Slf4j
+public class HrSearchIndexInitializer {
+
+    public static final String EMPLOYEE_FULLTEXT_INDEX = "ft_emp_name_code";
+
+    // Hibernate (ddl-auto=update) không tạo được FULLTEXT index -> tự tạo 1 lần khi khởi động.
+    // Parser ngram: tìm được cả một phần tên/mã ("Nguy", "NV00") như LIKE '%kw%' nhưng đi qua index.
+    @Bean
+    CommandLineRunner ensureEmployeeFulltextIndex(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            try {
+                Integer exists = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'employees' AND index_name = ?",
+                        Integer.class, EMPLOYEE_FULLTEXT_INDEX);
+                if (exists != null && exists > 0) return;
+
+                log.info("--> Đang tạo FULLTEXT index {} cho employees(full_name, employee_code)...", EMPLOYEE_FULLTEXT_INDEX);
+                jdbcTemplate.execute("ALTER TABLE employees ADD FULLTEXT INDEX " + EMPLOYEE_FULLTEXT_INDEX +
+                        " (full_name, employee_code) WITH PARSER ngram");
+                log.info("✅ Đã tạo FULLTEXT index {}", EMPLOYEE_FULLTEXT_INDEX);
+            } catch (Exception e) {
+                log.error("❌ Lỗi tạo FULLTEXT index: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -67,6 +67,8 @@ public class RabbitMQConfig {
     public static final String FILE_DELETE_ROUTING_KEY = "file.delete";
     public static final String FILE_DELETE_QUEUE = "file.delete.queue";
     public static final String EMPLOYEE_DELETE_ROUTING_KEY = "employee.delete";
+    // [MỚI] 1 message gom mọi thay đổi nhân viên của 1 transaction (EmployeeChangeBuffer)
+    public static final String EMPLOYEE_BATCH_ROUTING_KEY = "employee.batch";
     // [MỚI] Cấu hình cho Notification
     public static final String NOTIFICATION_EXCHANGE = "notification.exchange";
     public static final String NOTIFICATION_ROUTING_KEY = "notification.send";
@@ -78,6 +80,10 @@ public class RabbitMQConfig {
     public static final String SYNC_REQUEST_QUEUE = "sync.request.queue";
     public static final String SYNC_REQUEST_EXCHANGE = "sync.request.exchange";
     public static final String SYNC_REQUEST_ROUTING_KEY = "sync.request.key";
+    // [MỚI] Kết quả resync theo batch -> exchange riêng (chỉ service yêu cầu resync bind vào),
+    // không đổ lại toàn bộ dữ liệu vào employee.exchange / hr_exchange của Core và Chat
+    public static final String RESYNC_EXCHANGE = "hr.resync.exchange";
+    public static final String RESYNC_ROUTING_KEY = "resync.batch";
     
     // Khai báo Queue
     @Bean
@@ -96,6 +102,11 @@ public class RabbitMQConfig {
     public Binding syncRequestBinding(Queue syncRequestQueue, TopicExchange syncRequestExchange) {
         return BindingBuilder.bind(syncRequestQueue).to(syncRequestExchange).with(SYNC_REQUEST_ROUTING_KEY);
     }
+
+    @Bean
+    public TopicExchange resyncExchange() {
+        return new TopicExchange(RESYNC_EXCHANGE);
+    }
     //task
 
 
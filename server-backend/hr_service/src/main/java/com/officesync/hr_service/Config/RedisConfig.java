@@ -2,28 +2,49 @@ package com.officesync.hr_service.Config;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.officesync.hr_service.DTO.RequestInboxPageDTO;
+import com.officesync.hr_service.Model.Department;
+import com.officesync.hr_service.Model.Request;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+    // [MỚI] Đổi định dạng value -> đổi prefix key, entry định dạng cũ bị bỏ qua và tự hết hạn theo TTL
+    private static final String VALUE_FORMAT_VERSION = "v2";
+
+    // Payload lớn hơn ngưỡng này (byte) sẽ được nén Deflate
+    @Value("${hr.cache.compress-threshold-bytes:1024}")
+    private int compressThreshold;
+
     @Bean
     public RedisCacheConfiguration cacheConfiguration() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -47,35 +68,79 @@ public class RedisConfig {
         return RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofMinutes(60)) // Mặc định 60 phút
             .disableCachingNullValues()
+            .computePrefixWith(cacheName -> cacheName + "::" + VALUE_FORMAT_VERSION + "::")
             .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                new CompactRedisSerializer<>(serializer, compressThreshold)));
     }
 
+    // [MỚI] Cache có kiểu cố định: JSON KHÔNG nhúng tên class (nhỏ hơn, parse nhanh hơn) + nén khi lớn.
+    // FAIL_ON_UNKNOWN_PROPERTIES=false: thêm/bớt field trong entity không làm hỏng entry đang có.
+    private RedisCacheConfiguration typedCacheConfiguration(JavaType valueType) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(objectMapper, valueType);
+        return cacheConfiguration().serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+            new CompactRedisSerializer<>(serializer, compressThreshold)));
+    }
+
+    // L2: Redis (TTL theo từng cache như cũ)
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
         Map<String, RedisCacheConfiguration> configMap = new HashMap<>();
+        TypeFactory types = TypeFactory.defaultInstance();
+        JavaType idList = types.constructCollectionType(List.class, Long.class);
         
       
         
         // 2. Dữ liệu nhân viên - 1 giờ
         configMap.put("employee_detail", cacheConfiguration().entryTtl(Duration.ofHours(1)));
-        configMap.put("employees_by_company", cacheConfiguration().entryTtl(Duration.ofHours(1))); 
-        configMap.put("employees_by_department", cacheConfiguration().entryTtl(Duration.ofMinutes(30))); 
+        configMap.put("employees_by_company", typedCacheConfiguration(idList).entryTtl(Duration.ofHours(1)));
+        configMap.put("employees_by_department", typedCacheConfiguration(idList).entryTtl(Duration.ofMinutes(30)));
 
         // 3. Request Detail - 1 ngày
         configMap.put("request_detail", cacheConfiguration().entryTtl(Duration.ofDays(1))); 
         // Thêm config cho 2 loại cache mới
-       configMap.put("departments_metadata", cacheConfiguration().entryTtl(Duration.ofHours(24))); 
-       configMap.put("departments_stats", cacheConfiguration().entryTtl(Duration.ofHours(2)));    
+       configMap.put("departments_metadata", typedCacheConfiguration(
+               types.constructCollectionType(List.class, Department.class)).entryTtl(Duration.ofHours(24)));
+       configMap.put("departments_stats", typedCacheConfiguration(
+               types.constructMapType(HashMap.class, String.class, Long.class)).entryTtl(Duration.ofHours(2)));
         // 4. Request List (User & Manager) - Short Lived (2 phút)
         // Phải khai báo rõ ràng tên cache được dùng trong Service
-        RedisCacheConfiguration shortLivedConfig = cacheConfiguration().entryTtl(Duration.ofMinutes(2));
+        RedisCacheConfiguration shortLivedConfig = typedCacheConfiguration(
+                types.constructCollectionType(List.class, Request.class)).entryTtl(Duration.ofMinutes(2));
         configMap.put("request_list_user", shortLivedConfig);
         configMap.put("request_list_manager", shortLivedConfig);
+        // Trang đầu hộp duyệt đơn: giá trị nhỏ, cỡ theo page size
+        configMap.put("request_inbox_first_page", typedCacheConfiguration(
+                types.constructType(RequestInboxPageDTO.class)).entryTtl(Duration.ofMinutes(2)));
 
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(cacheConfiguration())
                 .withInitialCacheConfigurations(configMap)
                 .build();
     }
-}
\ No newline at end of file
+
+    // [MỚI] CacheManager chính: L1 trong bộ nhớ đứng trước Redis, invalidate L1 qua Redis pub/sub
+    @Bean
+    @Primary
+    public TwoTierCacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                            StringRedisTemplate stringRedisTemplate,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${hr.cache.l1.max-size:1000}") int l1MaxSize,
+                                            @Value("${hr.cache.l1.ttl-seconds:60}") long l1TtlSeconds) {
+        return new TwoTierCacheManager(redisCacheManager, stringRedisTemplate, meterRegistry,
+                l1MaxSize, Duration.ofSeconds(l1TtlSeconds).toMillis());
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory redisConnectionFactory,
+                                                                   TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoTierCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -1,79 +1,130 @@
 package com.officesync.hr_service.Config;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
- * Snowflake ID Generator (Phiên bản Single Server)
+ * Snowflake ID Generator
  * Đảm bảo:
- * 1. ID Duy nhất toàn cầu (Unique).
+ * 1. ID Duy nhất toàn cầu (Unique) - kể cả khi chạy nhiều instance, nhờ worker ID thuê từ Redis (SnowflakeWorkerLease).
  * 2. Tăng dần theo thời gian (Sortable).
- * 3. An toàn tuyệt đối với đa luồng (Thread-safe).
+ * 3. An toàn đa luồng mà KHÔNG khóa (lock-free).
+ *
+ * [SỬA] Bỏ 'synchronized': trạng thái (timestamp, sequence) được gói vào 1 AtomicLong và cập nhật bằng CAS,
+ * nên các luồng (kể cả virtual thread) không phải xếp hàng trên 1 monitor.
+ * Đồng hồ lùi nhỏ (<= hr.snowflake.max-backward-ms) được chịu đựng bằng cách tiếp tục từ timestamp logic cũ.
  */
 @Component
 public class SnowflakeIdGenerator {
 
-    // CẤU HÌNH CỨNG: ID của Server này là 1 (Vì bạn chạy 1 server duy nhất)
-    private final long machineId = 1L;
-
     // Mốc thời gian bắt đầu (Epoch): 01/01/2024 (Giúp ID nhỏ gọn hơn so với dùng từ năm 1970)
-    private final long epoch = 1704067200000L;
+    private static final long EPOCH = 1704067200000L;
 
     // Cấu hình số Bit
-    private final long sequenceBits = 12L;   // 12 bit cho số thứ tự (tối đa 4096 ID/mili-giây)
-    private final long machineIdBits = 10L;  // 10 bit cho mã máy (tối đa 1024 máy)
+    private static final int SEQUENCE_BITS = 12;   // 12 bit cho số thứ tự (tối đa 4096 ID/mili-giây)
+    private static final int WORKER_ID_BITS = 10;  // 10 bit cho mã máy (tối đa 1024 máy)
 
     // Tính toán dịch chuyển Bit (Shift)
-    private final long machineIdShift = sequenceBits;
-    private final long timestampLeftShift = sequenceBits + machineIdBits;
-    
-    // Mặt nạ để reset sequence (4095)
-    private final long sequenceMask = -1L ^ (-1L << sequenceBits);
+    private static final int WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final int TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
 
-    // Biến lưu trạng thái
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
+    // Mặt nạ lấy sequence (4095)
+    private static final long SEQUENCE_MASK = -1L ^ (-1L << SEQUENCE_BITS);
+    private static final int MAX_BATCH_PER_RESERVE = (int) SEQUENCE_MASK + 1;
 
-    /**
-     * Hàm sinh ID kế tiếp.
-     * Từ khóa 'synchronized' đảm bảo chỉ 1 luồng được chạy tại 1 thời điểm.
-     * Nếu 1000 người bấm cùng lúc, họ sẽ được xếp hàng lần lượt -> KHÔNG BAO GIỜ TRÙNG.
-     */
-    public synchronized long nextId() {
-        long timestamp = System.currentTimeMillis();
+    private final SnowflakeWorkerLease workerLease;
+    private final long maxBackwardMs;
+    private final LongSupplier clock;
 
-        // Trường hợp hiếm: Đồng hồ hệ thống bị quay ngược -> Báo lỗi ngay để bảo vệ dữ liệu
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException("Clock moved backwards. Refusing to generate id");
-        }
+    // Trạng thái gói: (timestamp - EPOCH) << SEQUENCE_BITS | sequence  -> ID cuối cùng đã cấp (chưa có worker)
+    private final AtomicLong state = new AtomicLong(0L);
+
+    @Autowired
+    public SnowflakeIdGenerator(SnowflakeWorkerLease workerLease,
+                                @Value("${hr.snowflake.max-backward-ms:10}") long maxBackwardMs) {
+        this(workerLease, maxBackwardMs, System::currentTimeMillis);
+    }
+
+    // Đồng hồ thay được để test tràn sequence / đồng hồ lùi
+    SnowflakeIdGenerator(SnowflakeWorkerLease workerLease, long maxBackwardMs, LongSupplier clock) {
+        this.workerLease = workerLease;
+        this.maxBackwardMs = Math.max(0L, maxBackwardMs);
+        this.clock = clock;
+    }
+
+    /** Hàm sinh ID kế tiếp. */
+    public long nextId() {
+        SnowflakeWorkerLease.Lease lease = workerLease.current();
+        return compose(reserve(1, lease), lease.workerId());
+    }
 
-        // Nếu trùng thời điểm (cùng 1 mili-giây)
-        if (lastTimestamp == timestamp) {
-            // Tăng số thứ tự lên 1
-            sequence = (sequence + 1) & sequenceMask;
-            
-            // Nếu số thứ tự vượt quá giới hạn (4096), chờ sang mili-giây tiếp theo
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+    /**
+     * [MỚI] Sinh n ID liên tiếp (import hàng loạt): mỗi lần CAS giữ chỗ tới 4096 sequence thay vì n lần nextId().
+     * Các ID trong kết quả tăng dần.
+     */
+    public long[] nextIds(int n) {
+        if (n < 0) throw new IllegalArgumentException("n phải >= 0");
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            int count = Math.min(n - filled, MAX_BATCH_PER_RESERVE);
+            SnowflakeWorkerLease.Lease lease = workerLease.current();
+            long first = reserve(count, lease);
+            for (int i = 0; i < count; i++) {
+                ids[filled++] = compose(first + i, lease.workerId());
             }
-        } else {
-            // Nếu sang mili-giây mới -> Reset số thứ tự về 0
-            sequence = 0L;
         }
+        return ids;
+    }
 
-        lastTimestamp = timestamp;
+    /**
+     * Giữ chỗ 'count' giá trị trạng thái liên tiếp, trả về giá trị đầu tiên.
+     * Sequence tràn thì "mượn" sang mili-giây kế tiếp (phép cộng tự nhớ sang phần timestamp),
+     * nhưng không được vượt đồng hồ thật quá maxBackwardMs -> khi đó chờ đồng hồ đuổi kịp.
+     */
+    private long reserve(int count, SnowflakeWorkerLease.Lease lease) {
+        while (true) {
+            // Đọc trạng thái TRƯỚC rồi mới đọc đồng hồ: nếu đọc ngược lại, luồng bị dừng giữa 2 lệnh
+            // sẽ thấy trạng thái "tương lai" do luồng khác ghi và tưởng nhầm là đồng hồ bị quay ngược
+            long prev = state.get();
+            long prevTs = prev >>> SEQUENCE_BITS;
+            long now = clock.getAsLong();
+            if (now >= lease.validUntilMs()) {
+                throw new RuntimeException("Snowflake worker lease " + lease.workerId() + " đã hết hạn. Refusing to generate id");
+            }
+            long nowTs = now - EPOCH;
 
-        // Phép toán Bitwise để ghép các phần lại thành 1 số Long duy nhất
-        return ((timestamp - epoch) << timestampLeftShift) |
-               (machineId << machineIdShift) |
-               sequence;
+            long first;
+            if (nowTs > prevTs) {
+                // Sang mili-giây mới -> sequence bắt đầu lại từ 0
+                first = nowTs << SEQUENCE_BITS;
+            } else {
+                // Cùng mili-giây, hoặc đồng hồ bị quay ngược một chút -> tiếp tục từ trạng thái cũ
+                if (prevTs - nowTs > maxBackwardMs) {
+                    throw new RuntimeException("Clock moved backwards " + (prevTs - nowTs) + "ms. Refusing to generate id");
+                }
+                first = prev + 1;
+            }
+            long last = first + count - 1;
+            if ((last >>> SEQUENCE_BITS) - nowTs > maxBackwardMs) {
+                // Hết sequence trong khoảng được mượn -> chờ sang mili-giây tiếp theo
+                Thread.onSpinWait();
+                continue;
+            }
+            if (state.compareAndSet(prev, last)) {
+                return first;
+            }
+        }
     }
 
-    // Hàm chờ cho đến khi sang mili-giây tiếp theo
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = System.currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = System.currentTimeMillis();
-        }
-        return timestamp;
+    // Phép toán Bitwise để ghép các phần lại thành 1 số Long duy nhất
+    private static long compose(long packed, long workerId) {
+        return ((packed >>> SEQUENCE_BITS) << TIMESTAMP_LEFT_SHIFT) |
+               (workerId << WORKER_ID_SHIFT) |
+               (packed & SEQUENCE_MASK);
     }
-}
\ No newline at end of file
+}
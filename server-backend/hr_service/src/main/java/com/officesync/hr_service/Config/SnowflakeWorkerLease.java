@@ -0,0 +1,149 @@
+package com.officesync.hr_service.Config;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Thuê (lease) worker ID cho SnowflakeIdGenerator từ Redis để chạy nhiều instance HR cùng lúc.
+ * - Mỗi instance giữ 1 key hr:snowflake:worker:{id} (SET NX + TTL), gia hạn định kỳ mỗi ttl/3.
+ * - Lease chỉ được coi là hợp lệ tới (lúc gia hạn + 2/3 TTL), tức là trước khi key trong Redis hết hạn,
+ *   nên khi mất kết nối Redis lâu thì instance ngừng sinh ID trước khi worker ID bị instance khác lấy.
+ * - Mất lease (key bị người khác chiếm) -> tự thuê worker ID khác, ID cũ/mới vẫn không trùng.
+ * - hr.snowflake.lease.enabled=false -> dùng cố định hr.snowflake.worker-id (chạy 1 server như trước).
+ */
+@Component
+@Slf4j
+public class SnowflakeWorkerLease {
+
+    public static final int MAX_WORKER_ID = 1023; // 10 bit
+    private static final String KEY_PREFIX = "hr:snowflake:worker:";
+
+    // Chỉ gia hạn / trả key khi nó vẫn thuộc về instance này
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /** Worker ID đang giữ và thời điểm (epoch ms) phải ngừng dùng nó nếu chưa gia hạn được. */
+    public record Lease(long workerId, long validUntilMs) {}
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final long staticWorkerId;
+    private final long ttlMs;
+    private final String owner = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService heartbeat =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("snowflake-lease").daemon().factory());
+
+    private volatile Lease lease;
+
+    public SnowflakeWorkerLease(StringRedisTemplate redisTemplate,
+                                @Value("${hr.snowflake.lease.enabled:true}") boolean enabled,
+                                @Value("${hr.snowflake.worker-id:1}") long staticWorkerId,
+                                @Value("${hr.snowflake.lease.ttl-seconds:30}") long ttlSeconds) {
+        if (staticWorkerId < 0 || staticWorkerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("hr.snowflake.worker-id phải nằm trong [0, " + MAX_WORKER_ID + "]");
+        }
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.staticWorkerId = staticWorkerId;
+        this.ttlMs = TimeUnit.SECONDS.toMillis(Math.max(3, ttlSeconds));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            lease = new Lease(staticWorkerId, Long.MAX_VALUE);
+            log.info("❄️ Snowflake dùng worker ID cố định {}", staticWorkerId);
+            return;
+        }
+        acquire();
+        long period = ttlMs / 3;
+        heartbeat.scheduleWithFixedDelay(this::renewOrAcquire, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        Lease current = lease;
+        if (!enabled || current == null) return;
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(KEY_PREFIX + current.workerId()), owner);
+        } catch (Exception e) {
+            log.warn("⚠️ Không trả được worker ID {}: {}", current.workerId(), e.getMessage());
+        }
+    }
+
+    /** Lease hiện tại; ném lỗi nếu instance chưa thuê được worker ID nào. */
+    public Lease current() {
+        Lease current = lease;
+        if (current == null) {
+            throw new RuntimeException("Snowflake worker ID chưa được cấp (không kết nối được Redis?)");
+        }
+        return current;
+    }
+
+    private void renewOrAcquire() {
+        Lease current = lease;
+        if (current == null) {
+            acquire();
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                    List.of(KEY_PREFIX + current.workerId()), owner, String.valueOf(ttlMs));
+            if (renewed != null && renewed == 1L) {
+                lease = new Lease(current.workerId(), validUntil(startedAt));
+            } else {
+                log.warn("⚠️ Mất lease worker ID {} -> thuê worker ID khác", current.workerId());
+                acquire();
+            }
+        } catch (Exception e) {
+            // Giữ nguyên lease cũ: tới validUntilMs mà vẫn chưa gia hạn được thì generator sẽ tự ngừng
+            log.error("❌ Lỗi gia hạn worker ID {}: {}", current.workerId(), e.getMessage());
+        }
+    }
+
+    private void acquire() {
+        int offset = ThreadLocalRandom.current().nextInt(MAX_WORKER_ID + 1);
+        try {
+            for (int i = 0; i <= MAX_WORKER_ID; i++) {
+                long workerId = (offset + i) % (MAX_WORKER_ID + 1);
+                long startedAt = System.currentTimeMillis();
+                Boolean ok = redisTemplate.opsForValue()
+                        .setIfAbsent(KEY_PREFIX + workerId, owner, ttlMs, TimeUnit.MILLISECONDS);
+                if (Boolean.TRUE.equals(ok)) {
+                    lease = new Lease(workerId, validUntil(startedAt));
+                    log.info("❄️ Snowflake đã thuê worker ID {}", workerId);
+                    return;
+                }
+            }
+            log.error("❌ Hết worker ID Snowflake (đã có {} instance giữ lease)", MAX_WORKER_ID + 1);
+        } catch (Exception e) {
+            log.error("❌ Không thuê được worker ID Snowflake: {}", e.getMessage());
+        }
+    }
+
+    // Hết hạn sớm hơn key Redis 1/3 TTL để bù độ trễ mạng và lệch đồng hồ
+    private long validUntil(long startedAt) {
+        return startedAt + ttlMs - ttlMs / 3;
+    }
+}
@@ -1,9 +1,10 @@
 package com.officesync.hr_service.Config;
 
 import com.officesync.hr_service.Model.Employee;
-import com.officesync.hr_service.Producer.EmployeeProducer;
 import com.officesync.hr_service.DTO.EmployeeSyncEvent;
-import com.officesync.hr_service.Repository.EmployeeRepository;
+import com.officesync.hr_service.Service.EmployeeChangeBuffer;
+import com.officesync.hr_service.Service.EmployeeDirectoryIndex;
+import com.officesync.hr_service.Model.Department;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
@@ -16,14 +17,19 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class SyncAspect {
 
-    private final EmployeeProducer employeeProducer;
-    private final EmployeeRepository employeeRepository;
+    private final EmployeeChangeBuffer changeBuffer;
+    private final EmployeeDirectoryIndex directoryIndex;
 
-    // 1. Bắt mọi hành động save() - Để gửi ID khủng lúc mới tạo
-    @AfterReturning(pointcut = "execution(* com.officesync.hr_service.Repository.EmployeeRepository.save(..))", returning = "result")
+    // 1. [SỬA] Bắt mọi save / saveAndFlush / saveAll nhân viên -> ghi vào buffer của transaction,
+    // commit mới phát 1 event / nhân viên (trước đây bắn ngay sau MỖI lần save)
+    @AfterReturning(pointcut = "execution(* com.officesync.hr_service.Repository.EmployeeRepository.save*(..))", returning = "result")
     public void afterRepoSave(Object result) {
-        if (result instanceof Employee) {
-            broadcastToTask((Employee) result, "SAVE");
+        if (result instanceof Employee emp) {
+            changeBuffer.recordSaved(emp);
+        } else if (result instanceof Iterable<?> items) {
+            for (Object item : items) {
+                if (item instanceof Employee emp) changeBuffer.recordSaved(emp);
+            }
         }
     }
 
@@ -31,39 +37,61 @@ public class SyncAspect {
     @After("execution(* com.officesync.hr_service.Repository.EmployeeRepository.delete*(..))")
     public void afterRepoDelete(JoinPoint joinPoint) {
         Object[] args = joinPoint.getArgs();
-        if (args.length > 0 && args[0] instanceof Long) {
-            employeeProducer.sendEmployeeDeletedEvent((Long) args[0]);
-            log.info("🗑️ [AOP Sync] Báo Task Service xóa ID cũ: {}", args[0]);
+        if (args.length == 0) return;
+        if (args[0] instanceof Long id) {
+            changeBuffer.recordDeleted(id);
+            log.info("🗑️ [AOP Sync] Báo Task Service xóa ID cũ: {}", id);
+        } else if (args[0] instanceof Employee emp) {
+            // delete(entity): service tự gửi event xóa, chỉ bỏ bản cập nhật đang chờ của nhân viên này
+            changeBuffer.forget(emp.getId());
+        }
+    }
+
+    // 3. [SỬA] Service tự gửi event tạo / cập nhật -> báo buffer để lúc commit không gửi lại bản giống hệt
+    // (thay cho afterServiceMethodReturn cũ: bắn lại mọi Employee / List trả về, kể cả kết quả tìm kiếm)
+    @Before("execution(* com.officesync.hr_service.Producer.EmployeeProducer.sendEmployeeCreatedEvent(..)) || " +
+            "execution(* com.officesync.hr_service.Producer.EmployeeProducer.sendEmployeeUpdatedEvent(..))")
+    public void beforeExplicitEmployeeEvent(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        if (args.length > 0 && args[0] instanceof EmployeeSyncEvent event) {
+            changeBuffer.notePublished(event);
         }
     }
 
-    // 3.  Đảm bảo gửi ID thật ngay sau khi Swap
-    @AfterReturning(pointcut = "execution(* com.officesync.hr_service.Service.EmployeeService.*(..))", returning = "result")
-    public void afterServiceMethodReturn(Object result) {
-        // Nếu hàm trả về Employee (đã swap ID xong), gửi ngay bản đó sang Task
-        if (result instanceof Employee) {
-            broadcastToTask((Employee) result, "SERVICE_REAL_ID");
-        } 
-        // Nếu trả về List (như sau khi sync all), gửi cả list
-        else if (result instanceof java.util.List) {
-            for (Object item : (java.util.List<?>) result) {
-                if (item instanceof Employee) broadcastToTask((Employee) item, "SERVICE_LIST");
+    // [MỚI] 4 điểm dưới đây giữ danh bạ trong bộ nhớ (EmployeeDirectoryIndex) khớp với DB
+    // save / saveAndFlush / saveAll nhân viên
+    @AfterReturning(pointcut = "execution(* com.officesync.hr_service.Repository.EmployeeRepository.save*(..))", returning = "result")
+    public void afterRepoSaveForDirectory(Object result) {
+        if (result instanceof Employee emp) {
+            directoryIndex.onEmployeeChanged(emp.getCompanyId(), emp.getId());
+        } else if (result instanceof Iterable<?> items) {
+            for (Object item : items) {
+                if (item instanceof Employee emp) directoryIndex.onEmployeeChanged(emp.getCompanyId(), emp.getId());
             }
         }
     }
 
-    private void broadcastToTask(Employee emp, String source) {
-        // Chỉ gửi nếu ID là ID thật (nhỏ hơn 1 tỷ) hoặc là lệnh lưu ban đầu
-        String deptName = (emp.getDepartment() != null) ? emp.getDepartment().getName() : "N/A";
-        Long deptId = (emp.getDepartment() != null) ? emp.getDepartment().getId() : null;
+    // delete(entity) / deleteById(id)
+    @After("execution(* com.officesync.hr_service.Repository.EmployeeRepository.delete*(..))")
+    public void afterRepoDeleteForDirectory(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        if (args.length == 0) return;
+        if (args[0] instanceof Employee emp) {
+            directoryIndex.onEmployeeChanged(emp.getCompanyId(), emp.getId());
+        } else if (args[0] instanceof Long id) {
+            directoryIndex.onEmployeeChanged(null, id);
+        }
+    }
 
-        EmployeeSyncEvent event = new EmployeeSyncEvent(
-            emp.getId(), emp.getEmail(), emp.getFullName(), emp.getPhone(),
-            emp.getDateOfBirth(), emp.getCompanyId(), emp.getRole().name(),
-            emp.getStatus().name(), null, deptName, deptId
-        );
+    // Đổi tên / mã / xóa phòng ban -> token phòng ban của cả công ty đổi theo
+    @AfterReturning(pointcut = "execution(* com.officesync.hr_service.Repository.DepartmentRepository.save*(..))", returning = "result")
+    public void afterDepartmentSave(Object result) {
+        if (result instanceof Department dept) directoryIndex.onCompanyChanged(dept.getCompanyId());
+    }
 
-        employeeProducer.sendEmployeeCreatedEventDirect(event);
-        log.info("🚀 [AOP Sync] [{}] Gửi User: {} (ID: {})", source, emp.getFullName(), emp.getId());
+    @After("execution(* com.officesync.hr_service.Repository.DepartmentRepository.delete*(..))")
+    public void afterDepartmentDelete(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        if (args.length > 0 && args[0] instanceof Department dept) directoryIndex.onCompanyChanged(dept.getCompanyId());
     }
-}
\ No newline at end of file
+}
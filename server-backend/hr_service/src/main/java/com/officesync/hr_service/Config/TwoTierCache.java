@@ -0,0 +1,183 @@
+package com.officesync.hr_service.Config;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+// [MỚI] Cache 2 tầng: L1 trong bộ nhớ (LRU có giới hạn + TTL ngắn) đứng trước L2 Redis.
+//  - Đọc: L1 -> L2 -> (loader); trúng L2 thì nạp lại vào L1
+//  - Ghi/Xóa: ghi L2 trước, cập nhật L1 cục bộ rồi phát lệnh invalidate để instance khác bỏ L1
+//  - Key L1 = String.valueOf(key), giống cách RedisCache đổi key sang chuỗi -> khớp giữa các instance
+// [SỬA] L1 lưu bản đã serialize (cùng serializer với L2) và mỗi lần đọc trả về 1 bản MỚI:
+//  caller sửa object trả về (vd DepartmentService gán memberCount) không làm hỏng cache hay request khác.
+//  Vẫn rẻ hơn nhiều so với 1 round-trip Redis.
+public class TwoTierCache implements Cache {
+
+    // Callback phát invalidate sang instance khác (key == null nghĩa là clear cả cache)
+    public interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    private record Entry(ByteBuffer value, long expiresAt) {}
+
+    private final String name;
+    private final Cache redisCache;
+    private final InvalidationPublisher publisher;
+    private final RedisSerializationContext.SerializationPair<Object> valueSerialization;
+    private final long l1TtlMs;
+    private final Map<String, Entry> l1;
+
+    final LongAdder l1Hits = new LongAdder();
+    final LongAdder l1Misses = new LongAdder();
+    final LongAdder l2Hits = new LongAdder();
+    final LongAdder l2Misses = new LongAdder();
+
+    public TwoTierCache(String name, Cache redisCache, RedisSerializationContext.SerializationPair<Object> valueSerialization,
+                        InvalidationPublisher publisher, int l1MaxSize, long l1TtlMs) {
+        this.name = name;
+        this.redisCache = redisCache;
+        this.valueSerialization = valueSerialization;
+        this.publisher = publisher;
+        this.l1TtlMs = l1TtlMs;
+        // LinkedHashMap access-order = LRU; vượt l1MaxSize thì bỏ phần tử ít dùng nhất
+        this.l1 = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > l1MaxSize;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String k = String.valueOf(key);
+        Object cached = l1Get(k);
+        if (cached != null) {
+            l1Hits.increment();
+            return new SimpleValueWrapper(cached);
+        }
+        l1Misses.increment();
+
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            l2Hits.increment();
+            l1Put(k, wrapper.get());
+            return wrapper;
+        }
+        l2Misses.increment();
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    // Dùng cho @Cacheable(sync = true): L2 RedisCache tự đồng bộ loader trong instance
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String k = String.valueOf(key);
+        Object cached = l1Get(k);
+        if (cached != null) {
+            l1Hits.increment();
+            return (T) cached;
+        }
+        l1Misses.increment();
+
+        boolean[] loaded = {false};
+        T value = redisCache.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (loaded[0]) l2Misses.increment(); else l2Hits.increment();
+        if (value != null) l1Put(k, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        String k = String.valueOf(key);
+        if (value != null) l1Put(k, value); else l1Remove(k);
+        publisher.publish(name, k);
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        String k = String.valueOf(key);
+        l1Remove(k);
+        publisher.publish(name, k);
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        invalidateLocal(null);
+        publisher.publish(name, null);
+    }
+
+    // Nhận lệnh invalidate từ instance khác: chỉ bỏ L1, không đụng Redis
+    void invalidateLocal(String key) {
+        synchronized (l1) {
+            if (key == null) l1.clear(); else l1.remove(key);
+        }
+    }
+
+    int l1Size() {
+        synchronized (l1) {
+            return l1.size();
+        }
+    }
+
+    // Trả về bản sao mới deserialize từ L1 (null = miss)
+    private Object l1Get(String key) {
+        Entry entry;
+        synchronized (l1) {
+            entry = l1.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt() <= System.currentTimeMillis()) {
+                l1.remove(key);
+                return null;
+            }
+        }
+        return valueSerialization.read(entry.value().duplicate());
+    }
+
+    private void l1Put(String key, Object value) {
+        // Serialize ngay lúc ghi: caller sửa object sau đó cũng không ảnh hưởng bản trong L1
+        ByteBuffer bytes = valueSerialization.write(value);
+        synchronized (l1) {
+            l1.put(key, new Entry(bytes, System.currentTimeMillis() + l1TtlMs));
+        }
+    }
+
+    private void l1Remove(String key) {
+        synchronized (l1) {
+            l1.remove(key);
+        }
+    }
+}
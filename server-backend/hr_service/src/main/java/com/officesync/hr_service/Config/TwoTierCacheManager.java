@@ -0,0 +1,114 @@
+package com.officesync.hr_service.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// [MỚI] CacheManager tổng hợp: mỗi cache = L1 trong bộ nhớ + L2 Redis (xem TwoTierCache).
+// Xóa/ghi cache được phát qua Redis pub/sub kênh INVALIDATION_CHANNEL để mọi instance HR bỏ L1 tương ứng.
+// Metrics theo từng cache: cache.tier.gets{cache, tier=l1|l2, result=hit|miss}, cache.tier.hit.ratio{cache, tier}
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "hr:cache:invalidate";
+    // Định dạng message: instanceId|cacheName|key ("*" = clear cả cache)
+    private static final String SEPARATOR = "|";
+    private static final String CLEAR_ALL = "*";
+
+    private final CacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int l1MaxSize;
+    private final long l1TtlMs;
+    // Bỏ qua message do chính instance này phát ra
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager redisCacheManager, StringRedisTemplate redisTemplate,
+                               MeterRegistry meterRegistry, int l1MaxSize, long l1TtlMs) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.l1MaxSize = l1MaxSize;
+        this.l1TtlMs = l1TtlMs;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) return cache;
+
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (!(redisCache instanceof RedisCache rc)) return redisCache;
+        return caches.computeIfAbsent(name, n -> {
+            TwoTierCache created = new TwoTierCache(n, redisCache, rc.getCacheConfiguration().getValueSerializationPair(),
+                    this::publish, l1MaxSize, l1TtlMs);
+            registerMetrics(created);
+            return created;
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    private void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    instanceId + SEPARATOR + cacheName + SEPARATOR + (key == null ? CLEAR_ALL : key));
+        } catch (Exception e) {
+            // L1 của instance khác sẽ tự hết hạn sau l1TtlMs
+            log.warn("⚠️ Không phát được lệnh invalidate cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) return;
+
+        TwoTierCache cache = caches.get(parts[1]);
+        if (cache == null) return; // Instance này chưa dùng cache đó -> không có L1 để bỏ
+        cache.invalidateLocal(CLEAR_ALL.equals(parts[2]) ? null : parts[2]);
+    }
+
+    private void registerMetrics(TwoTierCache cache) {
+        String name = cache.getName();
+        FunctionCounter.builder("cache.tier.gets", cache, c -> c.l1Hits.sum())
+                .tags("cache", name, "tier", "l1", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, c -> c.l1Misses.sum())
+                .tags("cache", name, "tier", "l1", "result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, c -> c.l2Hits.sum())
+                .tags("cache", name, "tier", "l2", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, c -> c.l2Misses.sum())
+                .tags("cache", name, "tier", "l2", "result", "miss").register(meterRegistry);
+        Gauge.builder("cache.tier.hit.ratio", cache, c -> ratio(c.l1Hits.sum(), c.l1Misses.sum()))
+                .tags("cache", name, "tier", "l1").register(meterRegistry);
+        Gauge.builder("cache.tier.hit.ratio", cache, c -> ratio(c.l2Hits.sum(), c.l2Misses.sum()))
+                .tags("cache", name, "tier", "l2").register(meterRegistry);
+        Gauge.builder("cache.tier.l1.size", cache, TwoTierCache::l1Size)
+                .tags("cache", name).register(meterRegistry);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
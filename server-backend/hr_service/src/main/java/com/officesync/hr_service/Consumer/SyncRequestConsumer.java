@@ -1,7 +1,9 @@
 package com.officesync.hr_service.Consumer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.officesync.hr_service.Config.RabbitMQConfig;
-import com.officesync.hr_service.Service.EmployeeService;
+import com.officesync.hr_service.DTO.ResyncRequest;
+import com.officesync.hr_service.Service.EmployeeResyncService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -12,14 +14,34 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class SyncRequestConsumer {
 
-    private final EmployeeService employeeService;
+    private final EmployeeResyncService resyncService;
+    private final ObjectMapper objectMapper;
 
+    // [SỬA] Nhận "START_SYNC_ALL" (toàn bộ) hoặc JSON ResyncRequest (giới hạn theo companyId / changedSince).
+    // Việc đẩy dữ liệu chạy nền theo batch trong EmployeeResyncService, listener trả về ngay.
     @RabbitListener(queues = RabbitMQConfig.SYNC_REQUEST_QUEUE)
     public void handleSyncRequest(String message) {
-        if ("START_SYNC_ALL".equals(message)) {
-            log.info("📩 [MQ] Nhận tín hiệu yêu cầu đồng bộ từ Task Service.");
-            employeeService.forceSyncAllDataToMQ();
-            log.info("✅ [MQ] Đã hoàn thành việc đẩy ngược dữ liệu cho Task Service.");
+        ResyncRequest request = parse(message);
+        if (request == null || !ResyncRequest.TYPE_START_SYNC_ALL.equals(request.getType())) {
+            return;
         }
+        log.info("📩 [MQ] Nhận yêu cầu đồng bộ (companyId={}, changedSince={}).",
+                request.getCompanyId(), request.getChangedSince());
+        resyncService.requestSync(request);
     }
-}
\ No newline at end of file
+
+    private ResyncRequest parse(String message) {
+        if (message == null) return null;
+        String body = message.trim();
+        if (ResyncRequest.TYPE_START_SYNC_ALL.equals(body)) {
+            return new ResyncRequest(ResyncRequest.TYPE_START_SYNC_ALL, null, null);
+        }
+        if (!body.startsWith("{")) return null;
+        try {
+            return objectMapper.readValue(body, ResyncRequest.class);
+        } catch (Exception e) {
+            log.error("❌ [MQ] Yêu cầu đồng bộ không hợp lệ: {}", e.getMessage());
+            return null;
+        }
+    }
+}
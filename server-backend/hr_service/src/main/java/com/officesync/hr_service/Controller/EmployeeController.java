@@ -186,7 +186,7 @@ public class EmployeeController {
             @RequestHeader("X-User-Id") Long requesterId,
             @RequestParam(defaultValue = "") String keyword
     ) {
-        // Gọi hàm service dùng query searchStaffForSelection
+        // Gọi hàm service tìm trong danh bạ bộ nhớ (EmployeeDirectoryIndex)
         List<Employee> results = employeeService.searchStaff(requesterId, keyword);
         return ResponseEntity.ok(results);
     }
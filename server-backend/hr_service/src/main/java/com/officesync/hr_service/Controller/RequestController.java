@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.officesync.hr_service.Model.Request;
 import com.officesync.hr_service.Model.RequestStatus;
+import com.officesync.hr_service.Model.RequestType;
 import com.officesync.hr_service.Service.RequestService;
 
 import lombok.RequiredArgsConstructor;
@@ -94,4 +95,28 @@ public ResponseEntity<List<Request>> getMyRequests(
     List<Request> requests = requestService.getRequestsForManager(managerId, search, day, month, year);
     return ResponseEntity.ok(requests);
 }
-}
\ No newline at end of file
+
+    // [MỚI] Hộp duyệt đơn phân trang: GET /api/requests/inbox?status=PENDING&type=OVERTIME&limit=20&cursor=...
+    // cursor lấy từ nextCursor của trang trước (bỏ trống = trang đầu)
+    // [SỬA] reviewable=true: tab "Chờ duyệt" (đơn PENDING mình được duyệt), reviewable=false: tab "Lịch sử"
+    @GetMapping("/inbox")
+    public ResponseEntity<?> getInbox(
+            @RequestHeader("X-User-Id") Long viewerId,
+            @RequestParam(required = false) RequestStatus status,
+            @RequestParam(required = false) RequestType type,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Integer day,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Boolean reviewable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(requestService.getInboxPage(viewerId, status, type, search, day, month, year,
+                    reviewable, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            // [SỬA] Cursor sai định dạng là lỗi phía client -> 400 thay vì 500
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
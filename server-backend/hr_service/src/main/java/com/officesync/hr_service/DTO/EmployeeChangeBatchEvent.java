@@ -0,0 +1,17 @@
+package com.officesync.hr_service.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] Toàn bộ thay đổi nhân viên của 1 transaction trong 1 message (routing key employee.batch).
+// upserts và deletedIds không trùng nhau (mỗi nhân viên chỉ mang trạng thái cuối cùng) -> thứ tự áp dụng không quan trọng.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeChangeBatchEvent {
+    private List<EmployeeSyncEvent> upserts;
+    private List<Long> deletedIds;
+}
@@ -0,0 +1,39 @@
+package com.officesync.hr_service.DTO;
+
+import java.time.LocalDateTime;
+
+import com.officesync.hr_service.Model.DurationUnit;
+import com.officesync.hr_service.Model.EmployeeRole;
+import com.officesync.hr_service.Model.RequestStatus;
+import com.officesync.hr_service.Model.RequestType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] 1 dòng trong hộp duyệt đơn: chỉ các cột màn danh sách hiển thị, phẳng (không lồng entity)
+// Thứ tự field = thứ tự tham số constructor dùng trong "SELECT new ..." ở RequestRepository
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RequestInboxItemDTO {
+    private Long id;
+    private String requestCode;
+    private RequestType type;
+    private RequestStatus status;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Float durationVal;
+    private DurationUnit durationUnit;
+    private String reason;
+    private LocalDateTime createdAt;
+
+    private Long requesterId;
+    private String requesterCode;
+    private String requesterName;
+    private String requesterAvatar;
+    private EmployeeRole requesterRole;
+    private String requesterDept;
+
+    private String approverName;
+}
@@ -0,0 +1,19 @@
+package com.officesync.hr_service.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] 1 trang hộp duyệt đơn. nextCursor = "createdAt,id" của dòng cuối, truyền lại để lấy trang kế
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RequestInboxPageDTO {
+    private List<RequestInboxItemDTO> items;
+    private boolean hasMore;
+    private String nextCursor;
+    // [MỚI] Số đơn chờ người xem duyệt (badge tab "Chờ duyệt"), cùng bộ lọc search/ngày/loại; chỉ có ở trang đầu
+    private Long pendingCount;
+}
@@ -0,0 +1,23 @@
+package com.officesync.hr_service.DTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] 1 message resync chứa nhiều phòng ban / nhân viên (thay cho 1 message / 1 dòng).
+// Thứ tự: các batch phòng ban trước, rồi nhân viên, cuối cùng là batch last = true (có thể rỗng).
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResyncBatchEvent {
+    private String syncId;
+    private long batchNo;
+    private Long companyId;            // null = toàn hệ thống
+    private List<DepartmentSyncEvent> departments;
+    private List<EmployeeSyncEvent> employees;
+    private boolean last;
+    private LocalDateTime watermark;   // Chỉ có ở batch cuối: lần sau gửi changedSince = watermark để chỉ lấy phần thay đổi
+}
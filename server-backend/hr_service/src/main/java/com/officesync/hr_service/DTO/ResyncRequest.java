@@ -0,0 +1,23 @@
+package com.officesync.hr_service.DTO;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] Yêu cầu resync gửi vào sync.request.queue dưới dạng JSON string.
+// Chuỗi cũ "START_SYNC_ALL" vẫn được hiểu là resync toàn bộ.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResyncRequest {
+    public static final String TYPE_START_SYNC_ALL = "START_SYNC_ALL";
+
+    private String type;
+    private Long companyId;              // null = mọi công ty
+    private LocalDateTime changedSince;  // null = toàn bộ dữ liệu
+}
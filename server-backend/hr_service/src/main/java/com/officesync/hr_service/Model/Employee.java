@@ -67,7 +67,6 @@ public class Employee extends BaseEntity {
     @Column(name = "role", nullable = false)
     private EmployeeRole role;
 
- \
     public String getDepartmentName() {
         return department != null ? department.getName() : null;
     }
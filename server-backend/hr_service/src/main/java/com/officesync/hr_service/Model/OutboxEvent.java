@@ -0,0 +1,57 @@
+package com.officesync.hr_service.Model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+// [MỚI] Transactional outbox: message RabbitMQ được ghi vào bảng này CÙNG transaction với nghiệp vụ,
+// OutboxRelay đọc ra theo thứ tự id và gửi đi sau khi commit. Gửi xong (broker đã confirm) thì xóa dòng.
+@Entity
+@Table(name = "outbox_events")
+@Data
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String exchange;
+
+    @Column(name = "routing_key", nullable = false, length = 100)
+    private String routingKey;
+
+    // Body đã được convert sẵn lúc ghi (giống hệt bytes mà trước đây convertAndSend gửi đi)
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] payload;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "content_encoding", length = 50)
+    private String contentEncoding;
+
+    // Header AMQP (vd __TypeId__ của Jackson2JsonMessageConverter) dạng JSON
+    @Column(columnDefinition = "TEXT")
+    private String headers;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // [MỚI] Gửi lỗi quá hr.outbox.max-attempts lần -> đánh dấu hỏng (dead-letter), relay bỏ qua để các event sau đi tiếp.
+    // Dòng vẫn nằm trong bảng để tra cứu / gửi lại bằng tay (set failed_at = NULL, attempts = 0).
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
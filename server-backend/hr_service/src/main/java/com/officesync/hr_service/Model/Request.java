@@ -25,7 +25,9 @@ import lombok.EqualsAndHashCode;
     @Index(name = "idx_request_status", columnList = "status"), 
     @Index(name = "idx_request_code", columnList = "request_code"), 
     @Index(name = "idx_request_type", columnList = "type"),
-    @Index(name = "idx_req_company_created", columnList = "company_id, created_at")
+    @Index(name = "idx_req_company_created", columnList = "company_id, created_at"),
+    @Index(name = "idx_req_dept_created", columnList = "department_id, created_at"),
+    @Index(name = "idx_req_user_created", columnList = "user_id, created_at")
 })
 @Data
 @EqualsAndHashCode(callSuper = true)
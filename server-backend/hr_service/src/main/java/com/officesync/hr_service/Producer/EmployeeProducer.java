@@ -5,9 +5,12 @@ import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.officesync.hr_service.Config.RabbitMQConfig;
+import com.officesync.hr_service.DTO.EmployeeChangeBatchEvent;
 import com.officesync.hr_service.DTO.EmployeeSyncEvent;
 import com.officesync.hr_service.DTO.NotificationEvent;
 import com.officesync.hr_service.DTO.DepartmentSyncEvent; 
+import com.officesync.hr_service.DTO.ResyncBatchEvent;
+import com.officesync.hr_service.Service.OutboxService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,12 +18,17 @@ import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageBuilder;
 import org.springframework.amqp.core.MessageProperties;
 
+// [SỬA] Mọi event nghiệp vụ được ghi vào outbox (OutboxService) trong transaction của người gọi,
+// OutboxRelay gửi sang RabbitMQ sau khi commit. Chỉ batch resync còn gửi thẳng qua rabbitTemplate.
+// Không còn nuốt lỗi: không ghi được outbox (serialize / INSERT lỗi) thì transaction nghiệp vụ phải fail,
+// nếu không dữ liệu sẽ commit mà service khác không bao giờ biết.
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmployeeProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
     private final ObjectMapper objectMapper;
 
     private static final String INTERNAL_EXCHANGE = "internal.exchange";
@@ -28,45 +36,36 @@ public class EmployeeProducer {
  
     // 1. Gửi TẠO MỚI
     public void sendEmployeeCreatedEvent(EmployeeSyncEvent event) {
-        try {
-            log.info("--> [RabbitMQ] Gửi yêu cầu tạo User: {}", event.getEmail());
-            
-            // Chuyển Object -> String JSON
-            String jsonMessage = objectMapper.writeValueAsString(event);
-            
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EMPLOYEE_EXCHANGE,
-                RabbitMQConfig.EMPLOYEE_ROUTING_KEY,
-                jsonMessage // Gửi chuỗi String đi, không gửi Object nữa
-            );
-        } catch (Exception e) {
-            log.error("Lỗi parse JSON Create: {}", e.getMessage());
-        }
+        log.info("--> [RabbitMQ] Gửi yêu cầu tạo User: {}", event.getEmail());
+
+        // Chuyển Object -> String JSON
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            RabbitMQConfig.EMPLOYEE_EXCHANGE,
+            RabbitMQConfig.EMPLOYEE_ROUTING_KEY,
+            jsonMessage // Gửi chuỗi String đi, không gửi Object nữa
+        );
     }
 
     // 2. Gửi CẬP NHẬT
     public void sendEmployeeUpdatedEvent(EmployeeSyncEvent event) {
-        try {
-            log.info("--> [RabbitMQ] Gửi yêu cầu CẬP NHẬT User: {}", event.getEmail());
-            
-          
-            String jsonMessage = objectMapper.writeValueAsString(event);
-            
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EMPLOYEE_EXCHANGE,
-                RabbitMQConfig.EMPLOYEE_UPDATE_ROUTING_KEY,
-                jsonMessage 
-            );
-        } catch (Exception e) {
-            log.error("Lỗi parse JSON Update: {}", e.getMessage());
-        }
+        log.info("--> [RabbitMQ] Gửi yêu cầu CẬP NHẬT User: {}", event.getEmail());
+
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            RabbitMQConfig.EMPLOYEE_EXCHANGE,
+            RabbitMQConfig.EMPLOYEE_UPDATE_ROUTING_KEY,
+            jsonMessage 
+        );
     }
 
     // 3. Gửi XÓA USER
     public void sendEmployeeDeletedEvent(Long userId) {
         log.info("--> [RabbitMQ] Delete User ID: {}", userId);
         
-        rabbitTemplate.convertAndSend(
+        outboxService.enqueue(
             RabbitMQConfig.EMPLOYEE_EXCHANGE,
             RabbitMQConfig.EMPLOYEE_DELETE_ROUTING_KEY,
             String.valueOf(userId) // Gửi String ID
@@ -76,7 +75,7 @@ public class EmployeeProducer {
     // 4. Gửi XÓA FILE
     public void sendDeleteFileEvent(String fileName) {
         log.info("--> [RabbitMQ] Gửi yêu cầu XÓA file: {}", fileName);
-        rabbitTemplate.convertAndSend(
+        outboxService.enqueue(
             RabbitMQConfig.FILE_EXCHANGE,
             RabbitMQConfig.FILE_DELETE_ROUTING_KEY,
             fileName 
@@ -84,120 +83,125 @@ public class EmployeeProducer {
     }
     // Hàm gửi thông báo 
     public void sendNotification(NotificationEvent event) {
-        try {
-            log.info("--> [RabbitMQ] Pushing Notification to User: {}", event.getUserId());
-            
-         
-           
-            
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.NOTIFICATION_EXCHANGE,
-                RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
-                event 
-            );
-        } catch (Exception e) {
-            log.error("Lỗi gửi Notification Event: {}", e.getMessage());
-        }
+        log.info("--> [RabbitMQ] Pushing Notification to User: {}", event.getUserId());
+
+        outboxService.enqueue(
+            RabbitMQConfig.NOTIFICATION_EXCHANGE,
+            RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
+            event 
+        );
     }
 
     public void sendToAttendance(EmployeeSyncEvent event) {
-        try {
-            log.info("--> [HR -> Attendance] Gửi thông tin User ID: {}", event.getId());
-            
-            // Chuyển sang JSON String để khớp với Consumer bên Attendance 
-            // (Vì bên Attendance bạn đang dùng UserSyncConsumer nhận String message)
-            String jsonMessage = objectMapper.writeValueAsString(event);
-
-            rabbitTemplate.convertAndSend(
-                INTERNAL_EXCHANGE,
-                ATTENDANCE_ROUTING_KEY,
-                jsonMessage
-            );
-        } catch (Exception e) {
-            log.error("Lỗi gửi sang Attendance: {}", e.getMessage());
-        }
+        log.info("--> [HR -> Attendance] Gửi thông tin User ID: {}", event.getId());
+
+        // Chuyển sang JSON String để khớp với Consumer bên Attendance 
+        // (Vì bên Attendance bạn đang dùng UserSyncConsumer nhận String message)
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            INTERNAL_EXCHANGE,
+            ATTENDANCE_ROUTING_KEY,
+            jsonMessage
+        );
     }
 
 // [CHAT] Gửi sự kiện sang Chat Service--------------------------------------------------
  public void sendDepartmentEvent(DepartmentSyncEvent event) {
-        try {
-            log.info("--> [RabbitMQ] Gửi event Department sang Chat (Raw JSON): {}", event.getEvent());
-
-            // 1. Chuyển Object -> JSON String
-            String json = objectMapper.writeValueAsString(event);
-
-            // 2. Đóng gói thành Message chuẩn RabbitMQ (Byte Array)
-            // Việc này bỏ qua mọi Config Converter của HR Service
-            Message message = MessageBuilder
-                    .withBody(json.getBytes()) // Chuyển String thành Bytes
-                    .setContentType(MessageProperties.CONTENT_TYPE_JSON) // Gắn nhãn "Đây là JSON"
-                    .build();
-
-            // 3. Gửi gói tin đi
-            rabbitTemplate.send(
-                RabbitMQConfig.HR_EXCHANGE,
-                RabbitMQConfig.HR_ROUTING_KEY,
-                message
-            );
-            
-            log.info("✅ Đã gửi thành công gói tin JSON sang Chat!");
-        } catch (Exception e) {
-            log.error("❌ Lỗi gửi event Department: {}", e.getMessage());
-            e.printStackTrace();
-        }
+        log.info("--> [RabbitMQ] Gửi event Department sang Chat (Raw JSON): {}", event.getEvent());
+
+        // 1. Chuyển Object -> JSON String
+        String json = toJson(event);
+
+        // 2. Đóng gói thành Message chuẩn RabbitMQ (Byte Array)
+        // Việc này bỏ qua mọi Config Converter của HR Service
+        Message message = MessageBuilder
+                .withBody(json.getBytes()) // Chuyển String thành Bytes
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON) // Gắn nhãn "Đây là JSON"
+                .build();
+
+        // 3. Gửi gói tin đi
+        outboxService.enqueue(
+            RabbitMQConfig.HR_EXCHANGE,
+            RabbitMQConfig.HR_ROUTING_KEY,
+            message
+        );
+
+        log.info("✅ Đã ghi gói tin JSON sang Chat vào outbox!");
     }
 
    // 1. Gửi TẠO MỚI 
     public void sendEmployeeCreatedEventDirect(EmployeeSyncEvent event) {
-        try {
-            log.info("--> [RabbitMQ-Sync] Gửi JSON tạo User: {}", event.getEmail());
-            
-            
-            String jsonMessage = objectMapper.writeValueAsString(event);
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EMPLOYEE_EXCHANGE,
-                RabbitMQConfig.EMPLOYEE_ROUTING_KEY,
-                jsonMessage 
-            );
-        } catch (Exception e) {
-            log.error("Lỗi gửi Object Create: {}", e.getMessage());
-        }
+        log.info("--> [RabbitMQ-Sync] Gửi JSON tạo User: {}", event.getEmail());
+
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            RabbitMQConfig.EMPLOYEE_EXCHANGE,
+            RabbitMQConfig.EMPLOYEE_ROUTING_KEY,
+            jsonMessage 
+        );
     }
 
   
     public void sendEmployeeUpdatedEventDirect(EmployeeSyncEvent event) {
+        log.info("--> [RabbitMQ-Sync] Gửi JSON cập nhật User: {}", event.getEmail());
+
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            RabbitMQConfig.EMPLOYEE_EXCHANGE,
+            RabbitMQConfig.EMPLOYEE_UPDATE_ROUTING_KEY,
+            jsonMessage // Gửi String thay vì Object
+        );
+    }
+
+  
+    public void sendDepartmentEventDirect(DepartmentSyncEvent event) {
+        log.info("--> [RabbitMQ-Sync] Gửi JSON Department: {}", event.getEvent());
+
+        String jsonMessage = toJson(event);
+
+        outboxService.enqueue(
+            RabbitMQConfig.HR_EXCHANGE,
+            RabbitMQConfig.HR_ROUTING_KEY,
+            jsonMessage 
+        );
+    }
+
+    // [MỚI] Gửi gộp thay đổi nhân viên của 1 transaction (thay cho N event create/update/delete)
+    public void sendEmployeeChangeBatch(EmployeeChangeBatchEvent batch) {
+        log.info("--> [RabbitMQ-Sync] Gửi batch nhân viên: {} cập nhật, {} xóa",
+                batch.getUpserts().size(), batch.getDeletedIds().size());
+
+        outboxService.enqueue(
+            RabbitMQConfig.EMPLOYEE_EXCHANGE,
+            RabbitMQConfig.EMPLOYEE_BATCH_ROUTING_KEY,
+            toJson(batch)
+        );
+    }
+
+    private String toJson(Object event) {
         try {
-            log.info("--> [RabbitMQ-Sync] Gửi JSON cập nhật User: {}", event.getEmail());
-            
-          
-            String jsonMessage = objectMapper.writeValueAsString(event);
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EMPLOYEE_EXCHANGE,
-                RabbitMQConfig.EMPLOYEE_UPDATE_ROUTING_KEY,
-                jsonMessage // Gửi String thay vì Object
-            );
+            return objectMapper.writeValueAsString(event);
         } catch (Exception e) {
-            log.error("Lỗi gửi Object Update: {}", e.getMessage());
+            throw new RuntimeException("Lỗi serialize event " + event.getClass().getSimpleName(), e);
         }
     }
 
-  
-    public void sendDepartmentEventDirect(DepartmentSyncEvent event) {
+    // [MỚI] Gửi 1 batch resync. KHÁC các hàm trên: lỗi được ném ra để EmployeeResyncService
+    // không ghi checkpoint cho batch chưa gửi được (lần chạy lại sẽ gửi lại từ batch này).
+    public void sendResyncBatch(ResyncBatchEvent batch) {
+        byte[] body;
         try {
-            log.info("--> [RabbitMQ-Sync] Gửi JSON Department: {}", event.getEvent());
-            
-           
-            String jsonMessage = objectMapper.writeValueAsString(event);
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.HR_EXCHANGE,
-                RabbitMQConfig.HR_ROUTING_KEY,
-                jsonMessage 
-            );
+            body = objectMapper.writeValueAsBytes(batch);
         } catch (Exception e) {
-            log.error("Lỗi gửi Object Department: {}", e.getMessage());
+            throw new RuntimeException("Lỗi serialize batch resync " + batch.getBatchNo(), e);
         }
+        Message message = MessageBuilder
+                .withBody(body)
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .build();
+        rabbitTemplate.send(RabbitMQConfig.RESYNC_EXCHANGE, RabbitMQConfig.RESYNC_ROUTING_KEY, message);
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package com.officesync.hr_service.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -40,4 +42,15 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
        "WHERE e.companyId = :companyId AND e.department.id IS NOT NULL " +
        "GROUP BY e.department.id")
     List<Object[]> countMembersByCompany(@Param("companyId") Long companyId);
-}
\ No newline at end of file
+
+    // [MỚI] Resync phòng ban theo keyset (id tăng dần), kèm manager để lấy managerId không phát sinh query
+    @Query("SELECT d FROM Department d LEFT JOIN FETCH d.manager " +
+           "WHERE d.id > :afterId " +
+           "AND (:companyId IS NULL OR d.companyId = :companyId) " +
+           "AND (:since IS NULL OR d.updatedAt >= :since OR d.createdAt >= :since) " +
+           "ORDER BY d.id ASC")
+    List<Department> findResyncChunk(@Param("afterId") Long afterId,
+                                     @Param("companyId") Long companyId,
+                                     @Param("since") LocalDateTime since,
+                                     Pageable pageable);
+}
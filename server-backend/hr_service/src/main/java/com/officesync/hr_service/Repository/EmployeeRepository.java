@@ -1,8 +1,10 @@
 package com.officesync.hr_service.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -51,40 +53,37 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
 
 
 
-    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department WHERE e.companyId = :companyId " +
-           "AND (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(e.department.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +           
-           "OR LOWER(e.department.departmentCode) LIKE LOWER(CONCAT('%', :keyword, '%')))")  
-    List<Employee> searchEmployees(@Param("companyId") Long companyId, @Param("keyword") String keyword);
-
- 
-    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department WHERE " +
-           "e.companyId = :companyId " +
-           "AND e.id <> :requesterId " + 
-           "AND e.status = 'ACTIVE' " + 
-           "AND e.role <> 'COMPANY_ADMIN' " + 
-           "AND (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(e.department.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +          
-           "OR LOWER(e.department.departmentCode) LIKE LOWER(CONCAT('%', :keyword, '%')))")  
-    List<Employee> searchStaffForSelection(
-        @Param("companyId") Long companyId, 
-        @Param("requesterId") Long requesterId, 
-        @Param("keyword") String keyword
-    );
-
-    // [TỐI ƯU] Search trong phòng ban cụ thể
-    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department WHERE e.department.id = :deptId " +
-           "AND (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    List<Employee> searchEmployeesInDepartment(@Param("deptId") Long deptId, @Param("keyword") String keyword);
-    
-    @Query("SELECT e.id FROM Employee e " +
-           "LEFT JOIN e.department d " +
-           "WHERE e.companyId = :companyId " +
-           "AND (e.role = 'COMPANY_ADMIN' OR e.role = 'MANAGER' OR d.isHr = true)")
-    List<Long> findApproverIdsByCompany(@Param("companyId") Long companyId);
+    // [SỬA] Tìm kiếm nhân viên / chọn nhân viên: chuyển sang danh bạ bộ nhớ (Service/EmployeeDirectoryIndex)
+
+    // [MỚI] Tìm ID nhân viên theo tên/mã qua FULLTEXT ngram (ft_emp_name_code), dùng cho lọc đơn từ theo keyword
+    @Query(value = "SELECT user_id FROM employees WHERE company_id = :companyId " +
+                   "AND MATCH(full_name, employee_code) AGAINST (:query IN BOOLEAN MODE)", nativeQuery = true)
+    List<Long> findIdsByCompanyAndFulltext(@Param("companyId") Long companyId, @Param("query") String query);
+
+    // Keyword 1 ký tự: ngắn hơn ngram_token_size nên FULLTEXT không tìm được -> quét theo idx_emp_comp_name
+    @Query("SELECT e.id FROM Employee e WHERE e.companyId = :companyId " +
+           "AND (e.fullName LIKE CONCAT('%', :keyword, '%') OR e.employeeCode LIKE CONCAT('%', :keyword, '%'))")
+    List<Long> findIdsByCompanyAndNameLike(@Param("companyId") Long companyId, @Param("keyword") String keyword);
+
+    // [MỚI] Nạp lại 1 nhân viên kèm phòng ban cho danh bạ trong bộ nhớ (EmployeeDirectoryIndex)
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department WHERE e.id = :id")
+    Optional<Employee> findWithDepartmentById(@Param("id") Long id);
+
+    // [MỚI] Chỉ lấy companyId (tính key cache theo generation của công ty)
+    @Query("SELECT e.companyId FROM Employee e WHERE e.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
+
+    // [MỚI] Resync toàn bộ theo keyset (id > afterId, tăng dần): mỗi lần chỉ đọc 1 chunk thay vì findAll().
+    // companyId / since = null -> không lọc theo công ty / theo thời điểm thay đổi
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department " +
+           "WHERE e.id > :afterId " +
+           "AND (:companyId IS NULL OR e.companyId = :companyId) " +
+           "AND (:since IS NULL OR e.updatedAt >= :since OR e.createdAt >= :since) " +
+           "ORDER BY e.id ASC")
+    List<Employee> findResyncChunk(@Param("afterId") Long afterId,
+                                   @Param("companyId") Long companyId,
+                                   @Param("since") LocalDateTime since,
+                                   Pageable pageable);
 
     // [CHAT] Gỡ nhân viên khỏi phòng ban nhanh--------------------------------------------------
     @org.springframework.data.jpa.repository.Modifying
@@ -0,0 +1,34 @@
+package com.officesync.hr_service.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.officesync.hr_service.Model.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Lấy các message chờ gửi theo đúng thứ tự ghi (id tăng dần = thứ tự gửi), bỏ qua dòng đã đánh dấu hỏng
+    @Query("SELECT o FROM OutboxEvent o WHERE o.failedAt IS NULL ORDER BY o.id ASC")
+    List<OutboxEvent> findNextBatch(Pageable pageable);
+
+    // Gửi lỗi: tăng số lần thử + lưu lỗi cuối để tra cứu (dòng vẫn nằm lại để lần sau gửi tiếp)
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.attempts = o.attempts + 1, o.lastError = :error WHERE o.id IN :ids")
+    int markFailed(@Param("ids") List<Long> ids, @Param("error") String error);
+
+    // [MỚI] Đánh dấu hỏng (dead-letter) 1 message gửi lỗi quá số lần cho phép
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.failedAt = :failedAt WHERE o.id = :id")
+    int markDead(@Param("id") Long id, @Param("failedAt") LocalDateTime failedAt);
+}
@@ -1,17 +1,26 @@
 package com.officesync.hr_service.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.officesync.hr_service.DTO.RequestInboxItemDTO;
 import com.officesync.hr_service.Model.Request;
 import com.officesync.hr_service.Model.RequestStatus;
+import com.officesync.hr_service.Model.RequestType;
 
 @Repository
 public interface RequestRepository extends JpaRepository<Request, Long> {
+
+    // [SỬA] Các hàm search*: lọc ngày theo khoảng created_at [from, to) để dùng được index (company_id, created_at);
+    // day/month chỉ truyền khi không ghép được thành khoảng (thiếu year). Keyword theo tên/mã nhân viên
+    // đi qua FULLTEXT (employeeIds tính sẵn ở RequestService), không LIKE trên bảng join nữa.
     
    
 
@@ -32,22 +41,24 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
             "LEFT JOIN FETCH r.approver a " +
             "WHERE r.companyId = :companyId " +
             "AND r.requester.id <> :adminId " +
-            "AND (:keyword IS NULL OR (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.requestCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "AND (:keyword IS NULL OR e.id IN :employeeIds " +
+            "OR r.requestCode LIKE CONCAT('%', :keyword, '%') " +
             "OR LOWER(r.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%')))) " +
+            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) " +
+            "AND (:to IS NULL OR r.createdAt < :to) " +
             "AND (:day IS NULL OR DAY(r.createdAt) = :day) " +
             "AND (:month IS NULL OR MONTH(r.createdAt) = :month) " +
-            "AND (:year IS NULL OR YEAR(r.createdAt) = :year) " +
             "ORDER BY r.createdAt DESC")
     List<Request> searchRequestsForAdmin(
             @Param("companyId") Long companyId,
             @Param("adminId") Long adminId,
             @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
             @Param("day") Integer day,
-            @Param("month") Integer month,
-            @Param("year") Integer year
+            @Param("month") Integer month
     );
 
   
@@ -75,22 +86,24 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
             "   (ed.manager.id = :hrId AND r.status = 'PENDING') " +
             ") " +
 
-            "AND (:keyword IS NULL OR (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.requestCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "AND (:keyword IS NULL OR e.id IN :employeeIds " +
+            "OR r.requestCode LIKE CONCAT('%', :keyword, '%') " +
             "OR LOWER(r.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%')))) " +
+            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) " +
+            "AND (:to IS NULL OR r.createdAt < :to) " +
             "AND (:day IS NULL OR DAY(r.createdAt) = :day) " +
             "AND (:month IS NULL OR MONTH(r.createdAt) = :month) " +
-            "AND (:year IS NULL OR YEAR(r.createdAt) = :year) " +
             "ORDER BY r.createdAt DESC")
     List<Request> searchRequestsForHR(
             @Param("companyId") Long companyId,
             @Param("hrId") Long hrId, 
             @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
             @Param("day") Integer day,
-            @Param("month") Integer month,
-            @Param("year") Integer year
+            @Param("month") Integer month
     );
 
     
@@ -105,22 +118,24 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
             "AND r.requester.id <> :managerId " +
             "AND e.role <> 'MANAGER' " +         
             "AND e.role <> 'COMPANY_ADMIN' " +   
-            "AND (:keyword IS NULL OR (LOWER(e.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(e.employeeCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.requestCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "AND (:keyword IS NULL OR e.id IN :employeeIds " +
+            "OR r.requestCode LIKE CONCAT('%', :keyword, '%') " +
             "OR LOWER(r.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%')))) " +
+            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) " +
+            "AND (:to IS NULL OR r.createdAt < :to) " +
             "AND (:day IS NULL OR DAY(r.createdAt) = :day) " +
             "AND (:month IS NULL OR MONTH(r.createdAt) = :month) " +
-            "AND (:year IS NULL OR YEAR(r.createdAt) = :year) " +
             "ORDER BY r.createdAt DESC")
     List<Request> searchRequestsForManager(
             @Param("deptId") Long deptId,
             @Param("managerId") Long managerId,
             @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
             @Param("day") Integer day,
-            @Param("month") Integer month,
-            @Param("year") Integer year
+            @Param("month") Integer month
     );
 
 
@@ -133,18 +148,200 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
             "LEFT JOIN FETCH r.approver a " +
             "WHERE r.requester.id = :userId " +
             "AND r.isHidden = false " + 
-            "AND (:keyword IS NULL OR (LOWER(r.requestCode) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "AND (:keyword IS NULL OR r.requestCode LIKE CONCAT('%', :keyword, '%') " +
             "OR LOWER(r.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%')))) " + 
+            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) " +
+            "AND (:to IS NULL OR r.createdAt < :to) " +
             "AND (:day IS NULL OR DAY(r.createdAt) = :day) " +
             "AND (:month IS NULL OR MONTH(r.createdAt) = :month) " +
-            "AND (:year IS NULL OR YEAR(r.createdAt) = :year) " +
             "ORDER BY r.createdAt DESC")
     List<Request> searchRequestsForEmployee(
             @Param("userId") Long userId,
             @Param("keyword") String keyword,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month
+    );
+
+    // =========================================================================
+    // [MỚI] HỘP DUYỆT ĐƠN PHÂN TRANG (keyset trên created_at, id)
+    // Trả DTO phẳng, không JOIN FETCH / DISTINCT, lọc status/type ngay trong SQL.
+    // Trang kế: (createdAt, id) < (cursorAt, cursorId); lấy limit + 1 dòng để biết còn trang sau không.
+    // [SỬA] reviewable: true = tab "Chờ duyệt" (PENDING mà người xem được duyệt), false = tab "Lịch sử" (phần còn lại),
+    //       null = tất cả. Lọc ngay trong SQL -> mỗi trang đủ limit dòng của đúng tab, badge đếm bằng countInbox*.
+    //       Quy tắc giống _canReview bên app: Admin duyệt mọi đơn, người khác không duyệt đơn của MANAGER / thiếu role.
+    // =========================================================================
+
+    String INBOX_SELECT = "SELECT new com.officesync.hr_service.DTO.RequestInboxItemDTO(" +
+            "r.id, r.requestCode, r.type, r.status, r.startTime, r.endTime, r.durationVal, r.durationUnit, " +
+            "r.reason, r.createdAt, e.id, e.employeeCode, e.fullName, e.avatarUrl, e.role, ed.name, a.fullName) " +
+            "FROM Request r " +
+            "JOIN r.requester e " +
+            "LEFT JOIN e.department ed " +
+            "LEFT JOIN r.approver a ";
+
+    String INBOX_COUNT = "SELECT COUNT(r) FROM Request r " +
+            "JOIN r.requester e " +
+            "LEFT JOIN e.department ed ";
+
+    // [SỬA] Keyword khớp cả loại đơn / trạng thái như các hàm search* (trước đây app tự lọc phía client)
+    String INBOX_FILTERS = "AND (:status IS NULL OR r.status = :status) " +
+            "AND (:type IS NULL OR r.type = :type) " +
+            "AND (:keyword IS NULL OR e.id IN :employeeIds " +
+            "OR r.requestCode LIKE CONCAT('%', :keyword, '%') " +
+            "OR LOWER(r.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(r.status) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) " +
+            "AND (:to IS NULL OR r.createdAt < :to) " +
+            "AND (:day IS NULL OR DAY(r.createdAt) = :day) " +
+            "AND (:month IS NULL OR MONTH(r.createdAt) = :month) " +
+            "AND (:reviewable IS NULL " +
+            "   OR (:reviewable = true AND r.status = 'PENDING' " +
+            "       AND (:viewerIsAdmin = true OR (e.role IS NOT NULL AND e.role <> 'MANAGER'))) " +
+            "   OR (:reviewable = false AND (r.status <> 'PENDING' " +
+            "       OR (:viewerIsAdmin = false AND (e.role IS NULL OR e.role = 'MANAGER'))))) ";
+
+    String INBOX_PAGE = "AND (:cursorAt IS NULL OR r.createdAt < :cursorAt " +
+            "OR (r.createdAt = :cursorAt AND r.id < :cursorId)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC";
+
+    @Query(INBOX_SELECT +
+            "WHERE r.companyId = :companyId " +
+            "AND e.id <> :viewerId " +
+            INBOX_FILTERS + INBOX_PAGE)
+    List<RequestInboxItemDTO> findInboxForAdmin(
+            @Param("companyId") Long companyId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month,
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    // Cùng quy tắc hiển thị với searchRequestsForHR
+    @Query(INBOX_SELECT +
+            "LEFT JOIN ed.manager edm " +
+            "WHERE r.companyId = :companyId " +
+            "AND e.id <> :viewerId " +
+            "AND (r.status <> 'PENDING' " +
+            "   OR (e.role <> 'MANAGER' AND ed.isHr = false) " +
+            "   OR (edm.id = :viewerId AND r.status = 'PENDING')) " +
+            INBOX_FILTERS + INBOX_PAGE)
+    List<RequestInboxItemDTO> findInboxForHR(
+            @Param("companyId") Long companyId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month,
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    // Cùng quy tắc hiển thị với searchRequestsForManager
+    @Query(INBOX_SELECT +
+            "WHERE r.department.id = :deptId " +
+            "AND e.id <> :viewerId " +
+            "AND e.role <> 'MANAGER' " +
+            "AND e.role <> 'COMPANY_ADMIN' " +
+            INBOX_FILTERS + INBOX_PAGE)
+    List<RequestInboxItemDTO> findInboxForManager(
+            @Param("deptId") Long deptId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month,
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    // [MỚI] Đếm theo đúng điều kiện của findInbox* (không phân trang) - dùng cho badge tab "Chờ duyệt"
+    @Query(INBOX_COUNT +
+            "WHERE r.companyId = :companyId " +
+            "AND e.id <> :viewerId " +
+            INBOX_FILTERS)
+    long countInboxForAdmin(
+            @Param("companyId") Long companyId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month,
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin
+    );
+
+    @Query(INBOX_COUNT +
+            "LEFT JOIN ed.manager edm " +
+            "WHERE r.companyId = :companyId " +
+            "AND e.id <> :viewerId " +
+            "AND (r.status <> 'PENDING' " +
+            "   OR (e.role <> 'MANAGER' AND ed.isHr = false) " +
+            "   OR (edm.id = :viewerId AND r.status = 'PENDING')) " +
+            INBOX_FILTERS)
+    long countInboxForHR(
+            @Param("companyId") Long companyId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("day") Integer day,
+            @Param("month") Integer month,
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin
+    );
+
+    @Query(INBOX_COUNT +
+            "WHERE r.department.id = :deptId " +
+            "AND e.id <> :viewerId " +
+            "AND e.role <> 'MANAGER' " +
+            "AND e.role <> 'COMPANY_ADMIN' " +
+            INBOX_FILTERS)
+    long countInboxForManager(
+            @Param("deptId") Long deptId,
+            @Param("viewerId") Long viewerId,
+            @Param("status") RequestStatus status,
+            @Param("type") RequestType type,
+            @Param("keyword") String keyword,
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
             @Param("day") Integer day,
             @Param("month") Integer month,
-            @Param("year") Integer year
+            @Param("reviewable") Boolean reviewable,
+            @Param("viewerIsAdmin") boolean viewerIsAdmin
     );
-}
\ No newline at end of file
+}
@@ -328,17 +328,7 @@ public class DepartmentService {
         if (!dept.getCompanyId().equals(deleter.getCompanyId())) {
              throw new RuntimeException("Access Denied.");
         }
-//  Bắn sự kiện XÓA
-             try {
-                DepartmentSyncEvent event = new DepartmentSyncEvent();
-                event.setEvent(DepartmentSyncEvent.ACTION_DELETE);
-                event.setDeptId(deptId);
-                event.setCompanyId(deleter.getCompanyId());
-                employeeProducer.sendDepartmentEvent(event);
-             } catch (Exception e) {
-                log.error("⚠️ Lỗi gửi lệnh xóa sang Chat: {}", e.getMessage());
-             }
-        
+        // [SỬA] Sự kiện DEPT_DELETED chỉ gửi 1 lần ở đoạn "chat" bên dưới (trước đây bị gửi 2 lần)
     
         
         // 1. Gỡ Request (Dùng saveAll để Hibernate batch update)
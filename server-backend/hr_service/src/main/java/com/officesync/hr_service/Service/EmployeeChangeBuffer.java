@@ -0,0 +1,160 @@
+package com.officesync.hr_service.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.officesync.hr_service.DTO.EmployeeChangeBatchEvent;
+import com.officesync.hr_service.DTO.EmployeeSyncEvent;
+import com.officesync.hr_service.Model.Employee;
+import com.officesync.hr_service.Producer.EmployeeProducer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Gom thay đổi nhân viên theo TRANSACTION rồi phát 1 lần (thay cho việc SyncAspect bắn event
+ * sau mỗi lần save + mỗi hàm EmployeeService trả về Employee/List).
+ * - Mỗi nhân viên bị save (dù bao nhiêu lần) -> đúng 1 EmployeeSyncEvent với trạng thái cuối cùng.
+ * - [SỬA] Cả transaction phát đúng 1 EmployeeChangeBatchEvent (employee.batch) chứa mọi upsert + xóa,
+ *   thay vì 1 message / nhân viên.
+ * - Nếu service đã tự gửi sendEmployeeCreatedEvent / sendEmployeeUpdatedEvent với nội dung giống hệt
+ *   (bỏ qua password) thì không gửi lại.
+ * - Phát ở beforeCommit: message được ghi vào outbox cùng transaction, OutboxRelay gửi đi sau khi commit
+ *   (rollback thì không có gì lọt ra).
+ * Không có transaction -> gửi ngay như trước.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmployeeChangeBuffer {
+
+    private final EmployeeProducer employeeProducer;
+
+    private static final class Changes {
+        // Giữ thứ tự lần đầu bị chạm; value = entity mới nhất
+        final Map<Long, Employee> saved = new LinkedHashMap<>();
+        final Set<Long> deleted = new LinkedHashSet<>();
+        // Event service đã tự gửi trong transaction này (đã bỏ password)
+        final Map<Long, EmployeeSyncEvent> published = new HashMap<>();
+    }
+
+    public void recordSaved(Employee emp) {
+        if (emp == null || emp.getId() == null) return;
+        Changes changes = current();
+        if (changes == null) {
+            employeeProducer.sendEmployeeChangeBatch(new EmployeeChangeBatchEvent(List.of(toSyncEvent(emp)), List.of()));
+            return;
+        }
+        changes.deleted.remove(emp.getId());
+        changes.saved.put(emp.getId(), emp);
+    }
+
+    public void recordDeleted(Long employeeId) {
+        if (employeeId == null) return;
+        Changes changes = current();
+        if (changes == null) {
+            employeeProducer.sendEmployeeChangeBatch(new EmployeeChangeBatchEvent(List.of(), List.of(employeeId)));
+            return;
+        }
+        changes.saved.remove(employeeId);
+        changes.deleted.add(employeeId);
+    }
+
+    /** Nhân viên bị xóa bằng delete(entity): service tự gửi event xóa, chỉ cần bỏ bản cập nhật đang chờ. */
+    public void forget(Long employeeId) {
+        if (employeeId == null) return;
+        Changes changes = current();
+        if (changes != null) changes.saved.remove(employeeId);
+    }
+
+    /** Service vừa tự gửi event tạo/cập nhật -> nhớ lại để không gửi bản trùng lúc commit. */
+    public void notePublished(EmployeeSyncEvent event) {
+        if (event == null || event.getId() == null) return;
+        Changes changes = current();
+        if (changes != null) changes.published.put(event.getId(), withoutPassword(event));
+    }
+
+    private Changes current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) return changes;
+
+        Changes created = new Changes();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                // REQUIRES_NEW bên trong có buffer riêng
+                TransactionSynchronizationManager.unbindResourceIfPossible(EmployeeChangeBuffer.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(EmployeeChangeBuffer.this, created);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EmployeeChangeBuffer.this);
+                publish(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EmployeeChangeBuffer.this);
+            }
+        });
+        return created;
+    }
+
+    private void publish(Changes changes) {
+        List<EmployeeSyncEvent> upserts = new ArrayList<>();
+        int skipped = 0;
+        for (Employee emp : changes.saved.values()) {
+            EmployeeSyncEvent event = toSyncEvent(emp);
+            if (Objects.equals(changes.published.get(emp.getId()), event)) {
+                skipped++;
+                continue;
+            }
+            upserts.add(event);
+        }
+        List<Long> deletedIds = new ArrayList<>(changes.deleted);
+        if (!upserts.isEmpty() || !deletedIds.isEmpty()) {
+            employeeProducer.sendEmployeeChangeBatch(new EmployeeChangeBatchEvent(upserts, deletedIds));
+        }
+        if (!upserts.isEmpty() || !deletedIds.isEmpty() || skipped > 0) {
+            log.info("🚀 [Sync] Gom thay đổi nhân viên: {} cập nhật, {} xóa trong 1 batch, bỏ {} bản trùng",
+                    upserts.size(), deletedIds.size(), skipped);
+        }
+    }
+
+    private static EmployeeSyncEvent withoutPassword(EmployeeSyncEvent event) {
+        return new EmployeeSyncEvent(
+            event.getId(), event.getEmail(), event.getFullName(), event.getPhone(),
+            event.getDateOfBirth(), event.getCompanyId(), event.getRole(),
+            event.getStatus(), null, event.getDepartmentName(), event.getDepartmentId()
+        );
+    }
+
+    private static EmployeeSyncEvent toSyncEvent(Employee emp) {
+        String deptName = (emp.getDepartment() != null) ? emp.getDepartment().getName() : "N/A";
+        Long deptId = (emp.getDepartment() != null) ? emp.getDepartment().getId() : null;
+        return new EmployeeSyncEvent(
+            emp.getId(), emp.getEmail(), emp.getFullName(), emp.getPhone(),
+            emp.getDateOfBirth(), emp.getCompanyId(),
+            emp.getRole() != null ? emp.getRole().name() : null,
+            emp.getStatus() != null ? emp.getStatus().name() : null,
+            null, deptName, deptId
+        );
+    }
+}
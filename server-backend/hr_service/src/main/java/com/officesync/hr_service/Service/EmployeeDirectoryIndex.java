@@ -0,0 +1,319 @@
+package com.officesync.hr_service.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.officesync.hr_service.Model.Department;
+import com.officesync.hr_service.Model.Employee;
+import com.officesync.hr_service.Repository.EmployeeRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Danh bạ nhân viên trong bộ nhớ, theo từng công ty - phục vụ ô tìm kiếm / chọn nhân viên
+ * (gõ phím nào gọi API đó) mà không chạm MySQL.
+ *  - Nạp lười: công ty được tìm lần đầu mới load (1 query JOIN FETCH department)
+ *  - Chỉ mục tiền tố trên token đã bỏ dấu tiếng Việt ("Nguyễn Văn Đức" -> nguyen, van, duc);
+ *    mã nhân viên index thêm phần số để gõ "0012" / "12" vẫn ra "NV0012"
+ *  - Cập nhật sau COMMIT từ các điểm save/delete mà SyncAspect đã bắt, phát qua Redis pub/sub cho instance khác
+ *  - Dữ liệu cũ hơn max-age sẽ được nạp lại (lưới an toàn cho các thay đổi bulk không đi qua repository.save)
+ * LƯU Ý: Employee trả về là bản detached dùng chung, caller không được sửa.
+ */
+@Component
+@Slf4j
+public class EmployeeDirectoryIndex implements MessageListener {
+
+    public static final String CHANNEL = "hr:directory:invalidate";
+    // Định dạng message: instanceId|companyId|employeeId ("*" = nạp lại cả công ty)
+    private static final String ALL = "*";
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+    // Tên & mã phòng ban ghép bằng ký tự không bao giờ nằm trong keyword đã fold
+    private static final String DEPT_FIELD_SEPARATOR = "\u0000";
+    private static final Pattern LEADING_LETTERS = Pattern.compile("^[a-z]+");
+    private static final Pattern LEADING_ZEROS = Pattern.compile("^0+");
+
+    private final EmployeeRepository employeeRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final long maxAgeMs;
+    private final int maxCompanies;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<Long, CompanyDirectory> directories = new ConcurrentHashMap<>();
+
+    public EmployeeDirectoryIndex(EmployeeRepository employeeRepository,
+                                  StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  @Value("${hr.directory.max-age-minutes:10}") long maxAgeMinutes,
+                                  @Value("${hr.directory.max-companies:200}") int maxCompanies) {
+        this.employeeRepository = employeeRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.maxAgeMs = maxAgeMinutes * 60_000L;
+        this.maxCompanies = maxCompanies;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    // =========================================================================
+    // TÌM KIẾM
+    // =========================================================================
+
+    /**
+     * Tìm nhân viên trong công ty: mỗi từ của keyword phải là tiền tố của 1 token (tên / mã).
+     * includeDepartment = true: khớp thêm khi tên/mã phòng ban CHỨA keyword (giống LIKE '%kw%' cũ).
+     * keyword rỗng -> trả toàn bộ nhân viên thỏa filter.
+     */
+    public List<Employee> search(Long companyId, String keyword, boolean includeDepartment, Predicate<Employee> filter) {
+        CompanyDirectory dir = directory(companyId);
+        String folded = fold(keyword).trim();
+
+        List<Employee> results = new ArrayList<>();
+        if (folded.isEmpty()) {
+            for (Employee e : dir.byId.values()) {
+                if (filter.test(e)) results.add(e);
+            }
+        } else {
+            Set<Long> ids = dir.match(tokenize(folded));
+            if (includeDepartment) {
+                // Số phòng ban ít -> quét chuỗi đã bỏ dấu sẵn của từng phòng, rồi lấy thành viên
+                dir.deptText.forEach((deptId, text) -> {
+                    if (text.contains(folded)) ids.addAll(dir.deptMembers.getOrDefault(deptId, Set.of()));
+                });
+            }
+            for (Long id : ids) {
+                Employee e = dir.byId.get(id);
+                if (e != null && filter.test(e)) results.add(e);
+            }
+        }
+        results.sort(Comparator.comparing(Employee::getFullName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return results;
+    }
+
+    // =========================================================================
+    // ĐỒNG BỘ (gọi từ SyncAspect)
+    // =========================================================================
+
+    // Nhân viên được lưu/xóa: sau commit nạp lại đúng 1 người này ở mọi instance
+    // companyId = null khi chỉ biết ID (deleteById) -> tự tìm trong các danh bạ đang nạp
+    public void onEmployeeChanged(Long companyId, Long employeeId) {
+        if (employeeId == null) return;
+        afterCommit(() -> {
+            refreshEmployee(companyId, employeeId);
+            publish(companyId, String.valueOf(employeeId));
+        });
+    }
+
+    // Thay đổi ảnh hưởng nhiều người (đổi tên phòng ban, gỡ cả phòng...) -> bỏ danh bạ công ty, lần sau nạp lại
+    public void onCompanyChanged(Long companyId) {
+        if (companyId == null) return;
+        afterCommit(() -> {
+            directories.remove(companyId);
+            publish(companyId, ALL);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) return;
+        try {
+            Long companyId = "null".equals(parts[1]) ? null : Long.valueOf(parts[1]);
+            if (ALL.equals(parts[2])) {
+                directories.remove(companyId);
+            } else {
+                refreshEmployee(companyId, Long.valueOf(parts[2]));
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Lỗi đồng bộ danh bạ: {}", e.getMessage());
+        }
+    }
+
+    private void refreshEmployee(Long companyId, Long employeeId) {
+        Employee fresh = employeeRepository.findWithDepartmentById(employeeId).orElse(null);
+        // Gỡ khỏi mọi danh bạ đang giữ người này (bị xóa / chuyển công ty), rồi thêm lại bản mới nếu còn
+        for (CompanyDirectory dir : directories.values()) {
+            if (dir.byId.containsKey(employeeId)
+                    && (fresh == null || !dir.equals(directories.get(fresh.getCompanyId())))) {
+                dir.remove(employeeId);
+            }
+        }
+        if (fresh == null) return;
+        Long targetCompany = fresh.getCompanyId() != null ? fresh.getCompanyId() : companyId;
+        CompanyDirectory dir = targetCompany != null ? directories.get(targetCompany) : null;
+        if (dir != null) dir.put(fresh); // Công ty chưa nạp -> lần tìm sau sẽ load bản mới
+    }
+
+    private void publish(Long companyId, String employeeId) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, instanceId + "|" + companyId + "|" + employeeId);
+        } catch (Exception e) {
+            log.warn("⚠️ Không phát được đồng bộ danh bạ công ty {}: {}", companyId, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // =========================================================================
+    // NẠP & CHỈ MỤC
+    // =========================================================================
+
+    private CompanyDirectory directory(Long companyId) {
+        long now = System.currentTimeMillis();
+        CompanyDirectory dir = directories.compute(companyId, (id, current) ->
+                (current != null && now - current.loadedAt < maxAgeMs) ? current : load(id));
+        dir.lastAccess = now;
+        if (directories.size() > maxCompanies) evictLeastRecentlyUsed();
+        return dir;
+    }
+
+    private CompanyDirectory load(Long companyId) {
+        long start = System.currentTimeMillis();
+        CompanyDirectory dir = new CompanyDirectory();
+        for (Employee e : employeeRepository.findByCompanyId(companyId)) {
+            dir.put(e);
+        }
+        log.info("--> [Directory] Nạp {} nhân viên công ty {} trong {} ms",
+                dir.byId.size(), companyId, System.currentTimeMillis() - start);
+        return dir;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        directories.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .ifPresent(entry -> directories.remove(entry.getKey(), entry.getValue()));
+    }
+
+    // Bỏ dấu tiếng Việt + chữ thường: "Đặng Thị Ánh" -> "dang thi anh"
+    static String fold(String s) {
+        if (s == null || s.isEmpty()) return "";
+        if (isAscii(s)) return s.toLowerCase(Locale.ROOT);
+        String n = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        return n.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 127) return false;
+        }
+        return true;
+    }
+
+    private static List<String> tokenize(String folded) {
+        List<String> tokens = new ArrayList<>();
+        for (String t : NON_ALNUM.split(folded)) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    private static final class CompanyDirectory {
+        final long loadedAt = System.currentTimeMillis();
+        volatile long lastAccess = loadedAt;
+        final Map<Long, Employee> byId = new ConcurrentHashMap<>();
+        final Map<Long, List<String>> tokensById = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, Set<Long>> tokenIndex = new ConcurrentSkipListMap<>();
+        // deptId -> "tên phòng\0mã phòng" đã bỏ dấu; deptId -> ID thành viên
+        final Map<Long, String> deptText = new ConcurrentHashMap<>();
+        final Map<Long, Set<Long>> deptMembers = new ConcurrentHashMap<>();
+
+        synchronized void put(Employee e) {
+            remove(e.getId());
+            List<String> tokens = new ArrayList<>(tokenize(fold(e.getFullName())));
+            // Mã "NV00123" -> nv00123, 00123, 123: gõ "0012" hay "123" đều ra
+            String code = NON_ALNUM.matcher(fold(e.getEmployeeCode())).replaceAll("");
+            if (!code.isEmpty()) {
+                tokens.add(code);
+                String digits = LEADING_LETTERS.matcher(code).replaceFirst("");
+                if (!digits.isEmpty() && !digits.equals(code)) tokens.add(digits);
+                String number = LEADING_ZEROS.matcher(digits).replaceFirst("");
+                if (!number.isEmpty() && !number.equals(digits)) tokens.add(number);
+            }
+            for (String t : tokens) {
+                tokenIndex.computeIfAbsent(t, k -> ConcurrentHashMap.newKeySet(2)).add(e.getId());
+            }
+            tokensById.put(e.getId(), tokens);
+            byId.put(e.getId(), e);
+
+            Department d = e.getDepartment();
+            if (d != null && d.getId() != null) {
+                deptText.computeIfAbsent(d.getId(),
+                        k -> fold(d.getName()) + DEPT_FIELD_SEPARATOR + fold(d.getDepartmentCode()));
+                deptMembers.computeIfAbsent(d.getId(), k -> ConcurrentHashMap.newKeySet()).add(e.getId());
+            }
+        }
+
+        synchronized void remove(Long id) {
+            Employee old = byId.remove(id);
+            if (old != null && old.getDepartment() != null) {
+                Set<Long> members = deptMembers.get(old.getDepartment().getId());
+                if (members != null) members.remove(id);
+            }
+            List<String> tokens = tokensById.remove(id);
+            if (tokens == null) return;
+            for (String t : tokens) {
+                Set<Long> ids = tokenIndex.get(t);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) tokenIndex.remove(t, ids);
+                }
+            }
+        }
+
+        // Giao các tập ID: mỗi từ trong query khớp tiền tố của ít nhất 1 token
+        Set<Long> match(List<String> queryTokens) {
+            Set<Long> result = null;
+            for (String q : queryTokens) {
+                Set<Long> ids = new HashSet<>();
+                for (Set<Long> posting : tokenIndex.subMap(q, true, q + Character.MAX_VALUE, true).values()) {
+                    ids.addAll(posting);
+                }
+                if (result == null) {
+                    result = ids;
+                } else {
+                    result.retainAll(ids);
+                }
+                if (result.isEmpty()) break;
+            }
+            return result != null ? result : new HashSet<>();
+        }
+    }
+}
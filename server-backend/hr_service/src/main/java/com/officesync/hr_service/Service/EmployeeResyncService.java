@@ -0,0 +1,297 @@
+package com.officesync.hr_service.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officesync.hr_service.DTO.DepartmentSyncEvent;
+import com.officesync.hr_service.DTO.EmployeeSyncEvent;
+import com.officesync.hr_service.DTO.ResyncBatchEvent;
+import com.officesync.hr_service.DTO.ResyncRequest;
+import com.officesync.hr_service.Model.Department;
+import com.officesync.hr_service.Model.Employee;
+import com.officesync.hr_service.Producer.EmployeeProducer;
+import com.officesync.hr_service.Repository.DepartmentRepository;
+import com.officesync.hr_service.Repository.EmployeeRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Resync dữ liệu HR (phòng ban + nhân viên) cho service khác, thay cho forceSyncAllDataToMQ cũ
+ * (findAll() cả 2 bảng vào bộ nhớ rồi gửi 1 message / 1 dòng).
+ * - Đọc theo keyset (id tăng dần), mỗi chunk hr.resync.batch-size dòng -> 1 message ResyncBatchEvent.
+ * - Giới hạn hr.resync.max-batches-per-second để không chiếm hết DB / RabbitMQ của traffic thật.
+ * - Sau mỗi batch ghi checkpoint vào Redis; HR bị tắt giữa chừng thì lúc khởi động lại (hoặc lần yêu cầu sau)
+ *   sẽ chạy tiếp từ batch kế tiếp thay vì làm lại từ đầu.
+ * - Chạy trên 1 luồng riêng, listener MQ trả về ngay.
+ */
+@Service
+@Slf4j
+public class EmployeeResyncService {
+
+    private static final String CHECKPOINT_PREFIX = "hr:resync:checkpoint:";
+    private static final String CHECKPOINT_INDEX = "hr:resync:checkpoints";
+    private static final String LOCK_PREFIX = "hr:resync:lock:";
+    private static final Duration CHECKPOINT_TTL = Duration.ofDays(1);
+
+    private static final String PHASE_DEPARTMENTS = "DEPARTMENTS";
+    private static final String PHASE_EMPLOYEES = "EMPLOYEES";
+
+    // Chỉ trả lock khi nó vẫn thuộc về lần chạy này
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /** Tiến độ 1 lần resync, lưu dạng JSON trong Redis. lastId = id cuối cùng của phase hiện tại đã gửi xong. */
+    public record Checkpoint(String syncId, Long companyId, LocalDateTime changedSince, LocalDateTime startedAt,
+                             String phase, long lastId, long batchNo) {}
+
+    private final EmployeeRepository employeeRepository;
+    private final DepartmentRepository departmentRepository;
+    private final EmployeeProducer employeeProducer;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long minBatchIntervalNanos;
+    private final Duration lockTtl;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("hr-resync").daemon().factory());
+
+    public EmployeeResyncService(EmployeeRepository employeeRepository,
+                                 DepartmentRepository departmentRepository,
+                                 EmployeeProducer employeeProducer,
+                                 StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Value("${hr.resync.batch-size:500}") int batchSize,
+                                 @Value("${hr.resync.max-batches-per-second:10}") int maxBatchesPerSecond,
+                                 @Value("${hr.resync.lock-ttl-seconds:120}") long lockTtlSeconds) {
+        this.employeeRepository = employeeRepository;
+        this.departmentRepository = departmentRepository;
+        this.employeeProducer = employeeProducer;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.minBatchIntervalNanos = maxBatchesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxBatchesPerSecond : 0L;
+        this.lockTtl = Duration.ofSeconds(Math.max(10, lockTtlSeconds));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Lần chạy dở sẽ được tiếp tục từ checkpoint ở lần khởi động sau
+        executor.shutdownNow();
+    }
+
+    /** Nhận yêu cầu resync (từ SyncRequestConsumer) và chạy nền. */
+    public void requestSync(ResyncRequest request) {
+        Long companyId = request.getCompanyId();
+        LocalDateTime since = request.getChangedSince();
+        executor.execute(() -> {
+            Checkpoint saved = loadCheckpoint(scopeKey(companyId));
+            // Chỉ chạy tiếp khi lần dở dang phủ được yêu cầu mới (cùng mốc changedSince, hoặc là bản toàn bộ)
+            if (saved != null && (saved.changedSince() == null || Objects.equals(saved.changedSince(), since))) {
+                log.info("⏯️ [Resync] Tiếp tục {} từ checkpoint {} (phase {}, id > {})",
+                        scopeKey(companyId), saved.syncId(), saved.phase(), saved.lastId());
+                run(saved);
+            } else {
+                run(new Checkpoint(UUID.randomUUID().toString(), companyId, since, LocalDateTime.now(),
+                        PHASE_DEPARTMENTS, 0L, 0L));
+            }
+        });
+    }
+
+    /** Khởi động lại sau khi bị tắt giữa chừng -> chạy tiếp các lần resync còn checkpoint. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        Set<String> scopes;
+        try {
+            scopes = redisTemplate.opsForSet().members(CHECKPOINT_INDEX);
+        } catch (Exception e) {
+            log.warn("⚠️ [Resync] Không đọc được danh sách checkpoint: {}", e.getMessage());
+            return;
+        }
+        if (scopes == null) return;
+        for (String scope : scopes) {
+            // Đọc lại checkpoint lúc thực sự chạy: có thể đã có yêu cầu khác chạy xong phạm vi này trước đó
+            executor.execute(() -> {
+                Checkpoint saved = loadCheckpoint(scope);
+                if (saved == null) {
+                    redisTemplate.opsForSet().remove(CHECKPOINT_INDEX, scope);
+                    return;
+                }
+                log.info("⏯️ [Resync] Phát hiện resync dở dang {} -> chạy tiếp", scope);
+                run(saved);
+            });
+        }
+    }
+
+    private void run(Checkpoint start) {
+        String scope = scopeKey(start.companyId());
+        String lockKey = LOCK_PREFIX + scope;
+        Boolean locked;
+        try {
+            locked = redisTemplate.opsForValue().setIfAbsent(lockKey, start.syncId(), lockTtl);
+        } catch (Exception e) {
+            log.error("❌ [Resync] Không lấy được lock {}: {}", lockKey, e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            // Instance khác đang chạy cùng phạm vi -> các batch của nó cũng đi vào cùng queue đích
+            log.info("⏭️ [Resync] {} đang được chạy ở nơi khác, bỏ qua yêu cầu", scope);
+            return;
+        }
+        long startedNanos = System.nanoTime();
+        try {
+            Checkpoint cp = start;
+            if (PHASE_DEPARTMENTS.equals(cp.phase())) {
+                cp = exportDepartments(cp, lockKey);
+            }
+            cp = exportEmployees(cp, lockKey);
+
+            employeeProducer.sendResyncBatch(new ResyncBatchEvent(cp.syncId(), cp.batchNo() + 1, cp.companyId(),
+                    List.of(), List.of(), true, cp.startedAt()));
+            clearCheckpoint(scope);
+            log.info("✅ [Resync] Hoàn tất {} ({} batch, {} ms)", scope, cp.batchNo() + 1,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("⏸️ [Resync] {} bị dừng, sẽ tiếp tục từ checkpoint", scope);
+        } catch (Exception e) {
+            log.error("❌ [Resync] {} lỗi, sẽ tiếp tục từ checkpoint ở lần sau: {}", scope, e.getMessage());
+        } finally {
+            try {
+                redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey), start.syncId());
+            } catch (Exception e) {
+                log.warn("⚠️ [Resync] Không trả được lock {}: {}", lockKey, e.getMessage());
+            }
+        }
+    }
+
+    private Checkpoint exportDepartments(Checkpoint cp, String lockKey) throws InterruptedException {
+        while (true) {
+            long batchStart = System.nanoTime();
+            List<Department> chunk = departmentRepository.findResyncChunk(
+                    cp.lastId(), cp.companyId(), cp.changedSince(), PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) {
+                return saveCheckpoint(withPhase(cp, PHASE_EMPLOYEES, 0L, cp.batchNo()));
+            }
+            List<DepartmentSyncEvent> events = new ArrayList<>(chunk.size());
+            for (Department dept : chunk) {
+                events.add(toSyncEvent(dept));
+            }
+            long batchNo = cp.batchNo() + 1;
+            employeeProducer.sendResyncBatch(new ResyncBatchEvent(cp.syncId(), batchNo, cp.companyId(),
+                    events, List.of(), false, null));
+            cp = saveCheckpoint(withPhase(cp, PHASE_DEPARTMENTS, chunk.get(chunk.size() - 1).getId(), batchNo));
+            afterBatch(lockKey, cp.syncId(), batchStart);
+        }
+    }
+
+    private Checkpoint exportEmployees(Checkpoint cp, String lockKey) throws InterruptedException {
+        while (true) {
+            long batchStart = System.nanoTime();
+            List<Employee> chunk = employeeRepository.findResyncChunk(
+                    cp.lastId(), cp.companyId(), cp.changedSince(), PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) {
+                return cp;
+            }
+            List<EmployeeSyncEvent> events = new ArrayList<>(chunk.size());
+            for (Employee emp : chunk) {
+                events.add(toSyncEvent(emp));
+            }
+            long batchNo = cp.batchNo() + 1;
+            employeeProducer.sendResyncBatch(new ResyncBatchEvent(cp.syncId(), batchNo, cp.companyId(),
+                    List.of(), events, false, null));
+            cp = saveCheckpoint(withPhase(cp, PHASE_EMPLOYEES, chunk.get(chunk.size() - 1).getId(), batchNo));
+            afterBatch(lockKey, cp.syncId(), batchStart);
+        }
+    }
+
+    // Gia hạn lock + giãn nhịp theo max-batches-per-second
+    private void afterBatch(String lockKey, String syncId, long batchStartNanos) throws InterruptedException {
+        if (!syncId.equals(redisTemplate.opsForValue().get(lockKey))) {
+            throw new RuntimeException("Mất lock resync " + lockKey);
+        }
+        redisTemplate.expire(lockKey, lockTtl);
+        long waitNanos = minBatchIntervalNanos - (System.nanoTime() - batchStartNanos);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private static Checkpoint withPhase(Checkpoint cp, String phase, long lastId, long batchNo) {
+        return new Checkpoint(cp.syncId(), cp.companyId(), cp.changedSince(), cp.startedAt(), phase, lastId, batchNo);
+    }
+
+    private Checkpoint saveCheckpoint(Checkpoint cp) {
+        String scope = scopeKey(cp.companyId());
+        try {
+            redisTemplate.opsForValue().set(CHECKPOINT_PREFIX + scope, objectMapper.writeValueAsString(cp), CHECKPOINT_TTL);
+            redisTemplate.opsForSet().add(CHECKPOINT_INDEX, scope);
+        } catch (Exception e) {
+            // Không dừng resync: tệ nhất là lần chạy lại phải gửi lại vài batch (phía nhận upsert nên không sao)
+            log.warn("⚠️ [Resync] Không ghi được checkpoint {}: {}", scope, e.getMessage());
+        }
+        return cp;
+    }
+
+    private Checkpoint loadCheckpoint(String scope) {
+        try {
+            String json = redisTemplate.opsForValue().get(CHECKPOINT_PREFIX + scope);
+            return json != null ? objectMapper.readValue(json, Checkpoint.class) : null;
+        } catch (Exception e) {
+            log.warn("⚠️ [Resync] Checkpoint {} không đọc được, chạy lại từ đầu: {}", scope, e.getMessage());
+            return null;
+        }
+    }
+
+    private void clearCheckpoint(String scope) {
+        redisTemplate.delete(CHECKPOINT_PREFIX + scope);
+        redisTemplate.opsForSet().remove(CHECKPOINT_INDEX, scope);
+    }
+
+    private static String scopeKey(Long companyId) {
+        return companyId == null ? "all" : "company:" + companyId;
+    }
+
+    private static DepartmentSyncEvent toSyncEvent(Department dept) {
+        DepartmentSyncEvent event = new DepartmentSyncEvent();
+        event.setEvent(DepartmentSyncEvent.ACTION_CREATE);
+        event.setDeptId(dept.getId());
+        event.setDeptName(dept.getName());
+        event.setCompanyId(dept.getCompanyId());
+        event.setManagerId(dept.getManager() != null ? dept.getManager().getId() : null);
+        return event;
+    }
+
+    private static EmployeeSyncEvent toSyncEvent(Employee emp) {
+        return new EmployeeSyncEvent(
+                emp.getId(), emp.getEmail(), emp.getFullName(),
+                emp.getPhone(), emp.getDateOfBirth(),
+                emp.getCompanyId(),
+                emp.getRole() != null ? emp.getRole().name() : null,
+                emp.getStatus() != null ? emp.getStatus().name() : null,
+                null,
+                emp.getDepartment() != null ? emp.getDepartment().getName() : "N/A",
+                emp.getDepartment() != null ? emp.getDepartment().getId() : null
+        );
+    }
+}
@@ -9,7 +9,6 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Lazy;
@@ -53,6 +52,8 @@ public class EmployeeService {
     
     // Inject CacheManager để xóa cache thủ công
     private final CacheManager cacheManager;
+    private final RequestCacheGenerations requestCacheGenerations;
+    private final EmployeeDirectoryIndex directoryIndex;
     
     private final SimpMessagingTemplate messagingTemplate;
     
@@ -113,16 +114,10 @@ public class EmployeeService {
     }
 
     // 3. Xóa cache danh sách đơn từ của Manager (SaaS Cache)
+    // [SỬA] Key theo generation công ty -> 1 lệnh INCR thay vì query + evict từng người duyệt
     private void evictSaaSCaches(Long companyId) {
         try {
-            Cache managerCache = cacheManager.getCache("request_list_manager");
-            if (managerCache != null) {
-                // Tìm tất cả người duyệt trong công ty để clear cache của họ
-                List<Long> approverIds = employeeRepository.findApproverIdsByCompany(companyId);
-                for (Long approverId : approverIds) {
-                    managerCache.evict("mgr_" + approverId);
-                }
-            }
+            requestCacheGenerations.bumpCompany(companyId);
         } catch (Exception e) {
             log.error("Lỗi xóa cache SaaS: {}", e.getMessage());
         }
@@ -208,10 +203,9 @@ public class EmployeeService {
                 try {
                     var detailCache = cacheManager.getCache("employee_detail");
                     if (detailCache != null) detailCache.evict(oldManager.getId());
-                    // Xóa cache SaaS nếu có
-                    Cache managerCache = cacheManager.getCache("request_list_manager");
-                    if (managerCache != null) managerCache.evict("mgr_" + oldManager.getId());
                 } catch (Exception e) {}
+                // Xóa cache SaaS (quyền duyệt của người cũ thay đổi)
+                evictSaaSCaches(oldManager.getCompanyId());
 
                 // 3. Gửi thông báo cho người cũ
                 sendNotification(oldManager, "Manager Role Ended", 
@@ -833,11 +827,11 @@ public class EmployeeService {
         Employee requester = employeeRepository.findById(requesterId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return employeeRepository.searchStaffForSelection(
-                requester.getCompanyId(),
-                requesterId,
-                keyword == null ? "" : keyword 
-        );
+        // [SỬA] Tìm trong danh bạ bộ nhớ thay vì LIKE '%kw%' trên MySQL mỗi lần gõ phím
+        return directoryIndex.search(requester.getCompanyId(), keyword, true, e ->
+                !e.getId().equals(requesterId)
+                && e.getStatus() == EmployeeStatus.ACTIVE
+                && e.getRole() != EmployeeRole.COMPANY_ADMIN);
     }
 
     @Transactional(readOnly = true)
@@ -849,16 +843,15 @@ public class EmployeeService {
 
         // ADMIN
         if (role == EmployeeRole.COMPANY_ADMIN) {
-             return employeeRepository.searchEmployees(requester.getCompanyId(), keyword);
+             return directoryIndex.search(requester.getCompanyId(), keyword, true, e -> true);
         }
 
         // MANAGER
         if (role == EmployeeRole.MANAGER) {
             if (requester.getDepartment() != null) {
-                return employeeRepository.searchEmployeesInDepartment(
-                    requester.getDepartment().getId(), 
-                    keyword
-                );
+                Long deptId = requester.getDepartment().getId();
+                return directoryIndex.search(requester.getCompanyId(), keyword, false, e ->
+                        e.getDepartment() != null && deptId.equals(e.getDepartment().getId()));
             } else {
                 return List.of(); 
             }
@@ -894,33 +887,4 @@ public class EmployeeService {
             log.error("Lỗi đồng bộ sang Attendance: {}", e.getMessage());
         }
     }
-
-    //task
-    public void forceSyncAllDataToMQ() {
-        log.info("🚀 [HR Service] Khởi động đồng bộ toàn diện (Dạng Object)...");
-        
-        departmentRepository.findAll().forEach(dept -> {
-            DepartmentSyncEvent event = new DepartmentSyncEvent();
-            event.setEvent("DEPT_CREATED");
-            event.setDeptId(dept.getId());
-            event.setDeptName(dept.getName()); // Đảm bảo field này là deptName
-            event.setCompanyId(dept.getCompanyId());
-            event.setManagerId(dept.getManager() != null ? dept.getManager().getId() : null);
-            
-            employeeProducer.sendDepartmentEventDirect(event); // DÙNG HÀM DIRECT
-        });
-
-        employeeRepository.findAll().forEach(emp -> {
-            EmployeeSyncEvent syncEvent = new EmployeeSyncEvent(
-                emp.getId(), emp.getEmail(), emp.getFullName(),
-                emp.getPhone(), emp.getDateOfBirth(),
-                emp.getCompanyId(), emp.getRole().name(),
-                emp.getStatus().name(), 
-                null, 
-                emp.getDepartment() != null ? emp.getDepartment().getName() : "N/A",
-                emp.getDepartment() != null ? emp.getDepartment().getId() : null
-            );
-            employeeProducer.sendEmployeeCreatedEventDirect(syncEvent); // DÙNG HÀM DIRECT
-        });
-    }
-}
\ No newline at end of file
+}
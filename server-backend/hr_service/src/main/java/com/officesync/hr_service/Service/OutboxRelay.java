@@ -0,0 +1,242 @@
+package com.officesync.hr_service.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.amqp.AmqpAuthenticationException;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officesync.hr_service.Model.OutboxEvent;
+import com.officesync.hr_service.Repository.OutboxEventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Luồng nền đọc bảng outbox_events và gửi sang RabbitMQ.
+ * - Mỗi lượt lấy tối đa hr.outbox.batch-size dòng theo id tăng dần, gửi trên 1 channel rồi chờ publisher confirm
+ *   cho cả batch; broker xác nhận xong mới xóa các dòng đó.
+ * - Chỉ 1 instance HR làm relay tại 1 thời điểm (lock Redis, gia hạn mỗi lượt) nên thứ tự gửi = thứ tự id,
+ *   các event của cùng 1 nhân viên / phòng ban không bị đảo.
+ * - Gửi lỗi -> giữ nguyên batch, lùi thời gian chờ (tối đa hr.outbox.max-backoff-ms) rồi gửi lại từ đầu batch
+ *   (at-least-once: bên nhận có thể thấy lại vài message, các consumer hiện tại đều upsert/xóa theo id).
+ * - [SỬA] Batch lỗi không phải do mất kết nối broker -> gửi lại TỪNG message của batch đó để tìm ra message hỏng.
+ *   Message lỗi quá hr.outbox.max-attempts lần bị đánh dấu failed_at (dead-letter) và relay đi tiếp,
+ *   không để 1 message hỏng chặn mọi event HR phía sau.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String LOCK_KEY = "hr:outbox:relay-lock";
+    private static final TypeReference<Map<String, Object>> HEADERS_TYPE = new TypeReference<>() {};
+
+    // Chỉ gia hạn / trả lock khi nó vẫn là của instance này
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long confirmTimeoutMs;
+    private final long maxBackoffMs;
+    private final long lockTtlMs;
+    private final int maxAttempts;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Semaphore wakeUpSignal = new Semaphore(0);
+    private volatile boolean running = true;
+    private Thread worker;
+    // Số message còn phải gửi lẻ từng cái sau 1 batch lỗi (chỉ luồng relay đọc/ghi)
+    private int isolateRemaining = 0;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       RabbitTemplate rabbitTemplate,
+                       StringRedisTemplate redisTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${hr.outbox.batch-size:100}") int batchSize,
+                       @Value("${hr.outbox.poll-interval-ms:500}") long pollIntervalMs,
+                       @Value("${hr.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${hr.outbox.max-backoff-ms:30000}") long maxBackoffMs,
+                       @Value("${hr.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalMs = Math.max(50, pollIntervalMs);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.maxBackoffMs = Math.max(this.pollIntervalMs, maxBackoffMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        // Lock sống đủ lâu để không hết hạn giữa 1 batch đang chờ confirm
+        this.lockTtlMs = Math.max(10_000L, 3 * (this.pollIntervalMs + confirmTimeoutMs));
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = Thread.ofPlatform().name("hr-outbox-relay").daemon().start(this::loop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), instanceId);
+        } catch (Exception e) {
+            log.warn("⚠️ [Outbox] Không trả được lock relay: {}", e.getMessage());
+        }
+    }
+
+    /** Gọi sau khi 1 transaction có ghi outbox commit xong. */
+    public void wakeUp() {
+        wakeUpSignal.release();
+    }
+
+    private void loop() {
+        int failures = 0;
+        while (running) {
+            try {
+                long waitMs = failures == 0 ? pollIntervalMs : Math.min(maxBackoffMs, pollIntervalMs << Math.min(failures, 16));
+                // Khi đang lùi vì lỗi thì không để wakeUp() đánh thức sớm
+                if (failures == 0) {
+                    wakeUpSignal.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+                } else {
+                    Thread.sleep(waitMs);
+                }
+                wakeUpSignal.drainPermits();
+                if (!holdLock()) continue;
+
+                boolean more;
+                do {
+                    more = relayBatch();
+                } while (more && running && holdLock());
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures++;
+                log.error("❌ [Outbox] Gửi batch thất bại (lần {}): {}", failures, e.getMessage());
+            }
+        }
+    }
+
+    /** Gửi 1 batch; trả về true nếu có thể còn message chờ phía sau. Chỉ gọi từ luồng relay (và test). */
+    boolean relayBatch() {
+        int limit = isolateRemaining > 0 ? 1 : batchSize;
+        List<OutboxEvent> batch = outboxEventRepository.findNextBatch(PageRequest.of(0, limit));
+        if (batch.isEmpty()) {
+            isolateRemaining = 0;
+            return false;
+        }
+
+        List<Long> ids = batch.stream().map(OutboxEvent::getId).toList();
+        try {
+            rabbitTemplate.invoke(ops -> {
+                for (OutboxEvent event : batch) {
+                    ops.send(event.getExchange(), event.getRoutingKey(), toMessage(event));
+                }
+                ops.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            String error = String.valueOf(e.getMessage());
+            error = error.length() > 500 ? error.substring(0, 500) : error;
+            if (isBrokerUnavailable(e)) {
+                // Broker chết / quá tải: không phải lỗi của message -> không tính lần thử, chỉ lùi lại
+                throw e;
+            }
+            if (batch.size() > 1) {
+                // Chưa biết message nào hỏng -> lượt sau gửi lẻ từng message của batch này
+                isolateRemaining = batch.size();
+                throw e;
+            }
+            OutboxEvent event = batch.get(0);
+            boolean dead = event.getAttempts() + 1 >= maxAttempts;
+            try {
+                outboxEventRepository.markFailed(ids, error);
+                if (dead) outboxEventRepository.markDead(event.getId(), LocalDateTime.now());
+            } catch (Exception dbError) {
+                // DB cũng lỗi -> ném lỗi gửi ra ngoài để relay lùi lại
+                e.addSuppressed(dbError);
+                throw e;
+            }
+            if (!dead) throw e;
+            if (isolateRemaining > 0) isolateRemaining--;
+            log.error("☠️ [Outbox] Bỏ qua message {} ({} -> {}) sau {} lần gửi lỗi: {}",
+                    event.getId(), event.getExchange(), event.getRoutingKey(), maxAttempts, error);
+            return true;
+        }
+
+        outboxEventRepository.deleteAllByIdInBatch(ids);
+        if (isolateRemaining > 0) isolateRemaining--;
+        log.debug("📤 [Outbox] Đã gửi {} message (id {} -> {})", ids.size(), ids.get(0), ids.get(ids.size() - 1));
+        return batch.size() == limit;
+    }
+
+    // Lỗi kết nối / timeout chờ confirm: gửi lại sau là được, không đổ lỗi cho message
+    private static boolean isBrokerUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof AmqpConnectException || t instanceof AmqpTimeoutException
+                    || t instanceof AmqpAuthenticationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties props = new MessageProperties();
+        props.setContentType(event.getContentType());
+        props.setContentEncoding(event.getContentEncoding());
+        // Cho phép bên nhận bỏ qua message trùng khi relay gửi lại sau lỗi
+        props.setMessageId("hr-outbox-" + event.getId());
+        if (event.getHeaders() != null) {
+            try {
+                Map<String, Object> headers = objectMapper.readValue(event.getHeaders(), HEADERS_TYPE);
+                headers.forEach(props::setHeader);
+            } catch (Exception e) {
+                log.warn("⚠️ [Outbox] Header của message {} không đọc được: {}", event.getId(), e.getMessage());
+            }
+        }
+        return new Message(event.getPayload(), props);
+    }
+
+    // Lấy hoặc gia hạn lock relay; instance không giữ lock thì chỉ ngồi chờ
+    private boolean holdLock() {
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(LOCK_KEY), instanceId, String.valueOf(lockTtlMs));
+            if (renewed != null && renewed == 1L) return true;
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, instanceId, lockTtlMs, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            log.warn("⚠️ [Outbox] Không lấy được lock relay: {}", e.getMessage());
+            return false;
+        }
+    }
+}
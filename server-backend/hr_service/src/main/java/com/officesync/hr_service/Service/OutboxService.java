@@ -0,0 +1,73 @@
+package com.officesync.hr_service.Service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officesync.hr_service.Model.OutboxEvent;
+import com.officesync.hr_service.Repository.OutboxEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * [MỚI] Ghi message RabbitMQ vào outbox thay vì gửi thẳng tới broker.
+ * - Đang trong transaction nghiệp vụ -> dòng outbox commit/rollback cùng dữ liệu (rollback thì không có event nào lọt ra).
+ * - Không có transaction -> tự commit ngay.
+ * [SỬA] Không đặt @Transactional ở đây: với REQUIRED, lỗi bất kỳ trong enqueue đánh dấu transaction của người gọi
+ * rollback-only, người gọi có bắt lỗi thì request vẫn chết lúc commit (UnexpectedRollbackException).
+ * Lỗi serialize được ném ra TRƯỚC khi INSERT, người gọi nhận đúng lỗi đó.
+ * Request HTTP chỉ tốn 1 câu INSERT, không còn chờ broker / retry của RabbitTemplate.
+ * Lưu ý: không gọi từ afterCommit() của transaction khác (lúc đó INSERT sẽ "tham gia" transaction đã commit và bị mất).
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+
+    /** Tương đương rabbitTemplate.convertAndSend(exchange, routingKey, payload). */
+    public void enqueue(String exchange, String routingKey, Object payload) {
+        Message message = rabbitTemplate.getMessageConverter().toMessage(payload, new MessageProperties());
+        enqueue(exchange, routingKey, message);
+    }
+
+    /** Tương đương rabbitTemplate.send(exchange, routingKey, message). */
+    public void enqueue(String exchange, String routingKey, Message message) {
+        MessageProperties props = message.getMessageProperties();
+        OutboxEvent event = new OutboxEvent();
+        event.setExchange(exchange);
+        event.setRoutingKey(routingKey);
+        event.setPayload(message.getBody());
+        event.setContentType(props.getContentType());
+        event.setContentEncoding(props.getContentEncoding());
+        try {
+            event.setHeaders(props.getHeaders().isEmpty() ? null : objectMapper.writeValueAsString(props.getHeaders()));
+        } catch (Exception e) {
+            throw new RuntimeException("Không serialize được header message outbox", e);
+        }
+        event.setCreatedAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // save() đã tự commit
+            outboxRelay.wakeUp();
+            return;
+        }
+        // Commit xong thì đánh thức relay gửi luôn, không phải chờ tới lượt quét kế tiếp
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
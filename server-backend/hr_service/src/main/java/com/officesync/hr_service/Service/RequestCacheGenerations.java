@@ -0,0 +1,88 @@
+package com.officesync.hr_service.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.officesync.hr_service.Repository.EmployeeRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * [MỚI] Invalidate cache "request_list_manager" theo THẾ HỆ (generation) thay vì evict từng key.
+ * Mỗi công ty có 1 bộ đếm trong Redis; key cache = mgr_{userId}:g{generation}.
+ * Mọi thay đổi đơn trong công ty chỉ cần 1 lệnh INCR -> key cũ không còn được đọc và tự hết hạn theo TTL.
+ */
+@Component("requestCacheGenerations")
+@RequiredArgsConstructor
+@Slf4j
+public class RequestCacheGenerations {
+
+    private static final String GEN_KEY_PREFIX = "hr:cache-gen:requests:";
+    private static final int MAX_COMPANY_ENTRIES = 100_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final EmployeeRepository employeeRepository;
+
+    // userId -> companyId (nhân viên không đổi công ty) để tính key không cần query mỗi lần
+    private final Map<Long, Long> companyOfUser = new ConcurrentHashMap<>();
+
+    // Dùng trong SpEL của @Cacheable: key = "@requestCacheGenerations.managerListKey(#requesterId)"
+    public String managerListKey(Long userId) {
+        return "mgr_" + userId + ":g" + generation(companyIdOf(userId));
+    }
+
+    public long generation(Long companyId) {
+        if (companyId == null) return 0L;
+        try {
+            String value = redisTemplate.opsForValue().get(GEN_KEY_PREFIX + companyId);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("Lỗi đọc generation cache công ty {}: {}", companyId, e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Tăng thế hệ cache danh sách đơn của công ty.
+     * Đang trong transaction thì chờ COMMIT xong mới tăng, tránh việc người đọc nạp lại dữ liệu cũ vào key mới.
+     */
+    public void bumpCompany(Long companyId) {
+        if (companyId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incr(companyId);
+                }
+            });
+        } else {
+            incr(companyId);
+        }
+    }
+
+    private void incr(Long companyId) {
+        try {
+            redisTemplate.opsForValue().increment(GEN_KEY_PREFIX + companyId);
+        } catch (Exception e) {
+            log.error("Lỗi tăng generation cache công ty {}: {}", companyId, e.getMessage());
+        }
+    }
+
+    private Long companyIdOf(Long userId) {
+        Long cached = companyOfUser.get(userId);
+        if (cached != null) return cached;
+
+        Long companyId = employeeRepository.findCompanyIdById(userId).orElse(null);
+        if (companyId != null) {
+            if (companyOfUser.size() >= MAX_COMPANY_ENTRIES) companyOfUser.clear();
+            companyOfUser.put(userId, companyId);
+        }
+        return companyId;
+    }
+}
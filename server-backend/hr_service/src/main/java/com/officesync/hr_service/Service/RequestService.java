@@ -1,5 +1,7 @@
 package com.officesync.hr_service.Service;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,17 +13,21 @@ import org.hibernate.Hibernate;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.officesync.hr_service.DTO.NotificationEvent;
+import com.officesync.hr_service.DTO.RequestInboxItemDTO;
+import com.officesync.hr_service.DTO.RequestInboxPageDTO;
 import com.officesync.hr_service.Model.Department;
 import com.officesync.hr_service.Model.Employee;
 import com.officesync.hr_service.Model.EmployeeRole;
 import com.officesync.hr_service.Model.Request;
 import com.officesync.hr_service.Model.RequestAuditLog;
 import com.officesync.hr_service.Model.RequestStatus;
+import com.officesync.hr_service.Model.RequestType;
 import com.officesync.hr_service.Producer.EmployeeProducer;
 import com.officesync.hr_service.Repository.DepartmentRepository;
 import com.officesync.hr_service.Repository.EmployeeRepository;
@@ -43,6 +49,7 @@ public class RequestService {
     private final EmployeeProducer employeeProducer;
     private final SimpMessagingTemplate messagingTemplate;
     private final CacheManager cacheManager;
+    private final RequestCacheGenerations cacheGenerations;
 
     // =========================================================================
     // 1. HELPER: QUẢN LÝ CACHE TẬP TRUNG & HIBERNATE PROXY
@@ -62,12 +69,11 @@ public class RequestService {
     
     /**
      * Hàm này sẽ xóa cache của TẤT CẢ những người liên quan đến đơn từ này.
+     * [SỬA] Danh sách của Manager/HR/Admin dùng key theo generation của công ty:
+     * chỉ cần 1 lệnh INCR, không còn query HR/Admin rồi evict từng người.
      */
     private void clearRelatedCaches(Request request) {
         try {
-            Long companyId = request.getCompanyId();
-            Department dept = request.getDepartment();
-
             // 1. Xóa cache chi tiết đơn
             var detailCache = cacheManager.getCache("request_detail");
             if (detailCache != null) {
@@ -77,26 +83,8 @@ public class RequestService {
             // 2. Xóa cache danh sách của người tạo (Employee)
             evictUserListCache(request.getRequester().getId());
 
-            // 3. Xóa cache của Quản lý trực tiếp
-            if (dept != null && dept.getManager() != null) {
-                evictManagerListCache(dept.getManager().getId());
-            }
-
-            // 4.  Xóa cache của TOÀN BỘ team HR (Manager + Staff)
-            // Để đảm bảo HR luôn thấy trạng thái mới nhất (dù họ không nhận thông báo)
-            Department hrDept = departmentRepository.findByCompanyIdAndIsHrTrue(companyId).orElse(null);
-            if (hrDept != null) {
-                List<Employee> hrEmployees = employeeRepository.findByDepartmentId(hrDept.getId());
-                for (Employee hr : hrEmployees) {
-                    evictManagerListCache(hr.getId());
-                }
-            }
-
-            // 5. Xóa cache của TOÀN BỘ Admin
-            List<Employee> admins = employeeRepository.findByCompanyIdAndRole(companyId, EmployeeRole.COMPANY_ADMIN);
-            for (Employee admin : admins) {
-                evictManagerListCache(admin.getId());
-            }
+            // 3. Quản lý trực tiếp + toàn bộ HR + Admin: tăng generation của công ty
+            cacheGenerations.bumpCompany(request.getCompanyId());
 
             log.info("--> [CACHE CLEANUP] Đã xóa cache cho tất cả các bên liên quan đến Request ID: {}", request.getId());
 
@@ -105,17 +93,6 @@ public class RequestService {
         }
     }
 
-    private void evictManagerListCache(Long managerId) {
-        try {
-            var cache = cacheManager.getCache("request_list_manager");
-            if (cache != null) {
-                cache.evict("mgr_" + managerId);
-            }
-        } catch (Exception e) {
-            log.warn("Lỗi xóa cache manager {}: {}", managerId, e.getMessage());
-        }
-    }
-
     private void evictUserListCache(Long userId) {
         try {
             var cache = cacheManager.getCache("request_list_user");
@@ -277,7 +254,7 @@ public class RequestService {
     @Transactional(readOnly = true)
     @Cacheable(
         value = "request_list_manager",
-        key = "'mgr_' + #requesterId",
+        key = "@requestCacheGenerations.managerListKey(#requesterId)",
         condition = "#keyword == null && #day == null && #month == null && #year == null",
         sync = true
     )
@@ -291,20 +268,30 @@ public class RequestService {
         boolean isHrStaff = isHrEmployee(requester);
 
         List<Request> results = Collections.emptyList();
+        DateFilter date = DateFilter.of(day, month, year);
+        if (date == null) return results; // Ngày không tồn tại (vd: 31/02) -> không có đơn nào
+
+        // Chỉ tra FULLTEXT khi có keyword và người xem có quyền xem danh sách
+        List<Long> employeeIds = (searchKey != null && (isAdmin || isHrStaff || isManager))
+                ? findEmployeeIdsByKeyword(requester.getCompanyId(), searchKey)
+                : NO_EMPLOYEE_IDS;
 
         // 1. ADMIN
         if (isAdmin) {
-            results = requestRepository.searchRequestsForAdmin(requester.getCompanyId(), requesterId, searchKey, day, month, year);
+            results = requestRepository.searchRequestsForAdmin(requester.getCompanyId(), requesterId, searchKey,
+                    employeeIds, date.from(), date.to(), date.day(), date.month());
         }
         // 2. HR
         else if (isHrStaff) {
-            results = requestRepository.searchRequestsForHR(requester.getCompanyId(), requesterId, searchKey, day, month, year);
+            results = requestRepository.searchRequestsForHR(requester.getCompanyId(), requesterId, searchKey,
+                    employeeIds, date.from(), date.to(), date.day(), date.month());
         }
         // 3. MANAGER
         else if (isManager) {
             Department dept = requester.getDepartment();
             if (dept != null) {
-                results = requestRepository.searchRequestsForManager(dept.getId(), requesterId, searchKey, day, month, year);
+                results = requestRepository.searchRequestsForManager(dept.getId(), requesterId, searchKey,
+                        employeeIds, date.from(), date.to(), date.day(), date.month());
             }
         }
 
@@ -330,6 +317,84 @@ public class RequestService {
     }
 
 
+    // [MỚI] Hộp duyệt đơn phân trang (keyset) - thay cho việc tải & cache toàn bộ lịch sử công ty.
+    // Chỉ trang đầu không lọc mới được cache (key theo generation như request_list_manager).
+    // [SỬA] 2 tab (status/reviewable) là 2 entry cache riêng; trang đầu kèm pendingCount cho badge.
+    // [SỬA] Key theo page size thực tế (limit đã chuẩn hoá) để client gửi limit tường minh vẫn dùng được cache.
+    // Cursor sai định dạng -> IllegalArgumentException (Controller trả 400).
+    @Transactional(readOnly = true)
+    @Cacheable(
+        value = "request_inbox_first_page",
+        key = "@requestCacheGenerations.managerListKey(#viewerId) + ':' + #status + ':' + #reviewable " +
+              "+ ':' + T(com.officesync.hr_service.Service.RequestService).inboxPageSize(#limit)",
+        condition = "#type == null && #keyword == null && #day == null && #month == null " +
+                    "&& #year == null && #cursor == null"
+    )
+    public RequestInboxPageDTO getInboxPage(Long viewerId, RequestStatus status, RequestType type, String keyword,
+                                            Integer day, Integer month, Integer year, Boolean reviewable,
+                                            String cursor, Integer limit) {
+        Employee viewer = employeeRepository.findById(viewerId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        int pageSize = inboxPageSize(limit);
+        RequestInboxPageDTO empty = new RequestInboxPageDTO(Collections.emptyList(), false, null, 0L);
+
+        DateFilter date = DateFilter.of(day, month, year);
+        if (date == null) return empty;
+
+        InboxCursor after = InboxCursor.decode(cursor);
+        LocalDateTime cursorAt = after != null ? after.createdAt() : null;
+        Long cursorId = after != null ? after.id() : null;
+
+        String searchKey = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
+        List<Long> employeeIds = searchKey != null
+                ? findEmployeeIdsByKeyword(viewer.getCompanyId(), searchKey)
+                : NO_EMPLOYEE_IDS;
+        // Lấy dư 1 dòng để biết còn trang sau
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        // Badge chỉ tính ở trang đầu: đơn chờ duyệt theo cùng bộ lọc, bỏ qua tab đang xem (status/reviewable)
+        boolean firstPage = cursorAt == null;
+        List<RequestInboxItemDTO> rows;
+        Long pendingCount = null;
+        if (viewer.getRole() == EmployeeRole.COMPANY_ADMIN) {
+            rows = requestRepository.findInboxForAdmin(viewer.getCompanyId(), viewerId, status, type, searchKey,
+                    employeeIds, date.from(), date.to(), date.day(), date.month(), reviewable, true,
+                    cursorAt, cursorId, page);
+            if (firstPage) {
+                pendingCount = requestRepository.countInboxForAdmin(viewer.getCompanyId(), viewerId, null, type,
+                        searchKey, employeeIds, date.from(), date.to(), date.day(), date.month(), true, true);
+            }
+        } else if (isHrEmployee(viewer)) {
+            rows = requestRepository.findInboxForHR(viewer.getCompanyId(), viewerId, status, type, searchKey,
+                    employeeIds, date.from(), date.to(), date.day(), date.month(), reviewable, false,
+                    cursorAt, cursorId, page);
+            if (firstPage) {
+                pendingCount = requestRepository.countInboxForHR(viewer.getCompanyId(), viewerId, null, type,
+                        searchKey, employeeIds, date.from(), date.to(), date.day(), date.month(), true, false);
+            }
+        } else if (viewer.getRole() == EmployeeRole.MANAGER && viewer.getDepartment() != null) {
+            rows = requestRepository.findInboxForManager(viewer.getDepartment().getId(), viewerId, status, type,
+                    searchKey, employeeIds, date.from(), date.to(), date.day(), date.month(), reviewable, false,
+                    cursorAt, cursorId, page);
+            if (firstPage) {
+                pendingCount = requestRepository.countInboxForManager(viewer.getDepartment().getId(), viewerId, null,
+                        type, searchKey, employeeIds, date.from(), date.to(), date.day(), date.month(), true, false);
+            }
+        } else {
+            return empty;
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<RequestInboxItemDTO> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            RequestInboxItemDTO last = items.get(items.size() - 1);
+            nextCursor = new InboxCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new RequestInboxPageDTO(items, hasMore, nextCursor, pendingCount);
+    }
+
    @Transactional(readOnly = true)
     @Cacheable(
         value = "request_list_user",
@@ -339,7 +404,10 @@ public class RequestService {
     )
     public List<Request> getMyRequests(Long userId, String keyword, Integer day, Integer month, Integer year) {
         String searchKey = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
-        List<Request> results = requestRepository.searchRequestsForEmployee(userId, searchKey, day, month, year);
+        DateFilter date = DateFilter.of(day, month, year);
+        if (date == null) return Collections.emptyList();
+        List<Request> results = requestRepository.searchRequestsForEmployee(userId, searchKey,
+                date.from(), date.to(), date.day(), date.month());
         
         // UNPROXY
         if (!results.isEmpty()) {
@@ -359,6 +427,81 @@ public class RequestService {
     // 4. PRIVATE UTILS
     // =========================================================================
 
+    private static final int DEFAULT_INBOX_PAGE_SIZE = 20;
+    private static final int MAX_INBOX_PAGE_SIZE = 50;
+
+    // [MỚI] Page size thực tế của hộp duyệt (dùng cả trong key cache trang đầu)
+    public static int inboxPageSize(Integer limit) {
+        return (limit == null || limit <= 0) ? DEFAULT_INBOX_PAGE_SIZE : Math.min(limit, MAX_INBOX_PAGE_SIZE);
+    }
+
+    /**
+     * [MỚI] Cursor keyset của hộp duyệt: "createdAt,id" của dòng cuối trang trước.
+     */
+    record InboxCursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            return createdAt + "," + id;
+        }
+
+        // Trả về null nếu bỏ trống (= trang đầu); sai định dạng -> IllegalArgumentException
+        static InboxCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            String[] parts = cursor.split(",", 2);
+            try {
+                if (parts.length != 2) throw new IllegalArgumentException();
+                return new InboxCursor(LocalDateTime.parse(parts[0].trim()), Long.parseLong(parts[1].trim()));
+            } catch (DateTimeException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+
+    // Hibernate không render được "IN ()" rỗng -> dùng ID không tồn tại làm giá trị giữ chỗ
+    private static final List<Long> NO_EMPLOYEE_IDS = List.of(-1L);
+
+    /**
+     * [MỚI] Bộ lọc ngày/tháng/năm quy về khoảng created_at [from, to) để MySQL range-scan trên index.
+     * Phần không ghép được thành khoảng (vd: chỉ chọn tháng, không chọn năm) giữ lại ở day/month.
+     */
+    private record DateFilter(LocalDateTime from, LocalDateTime to, Integer day, Integer month) {
+
+        // Trả về null nếu ngày không hợp lệ (vd: 31/02/2025)
+        static DateFilter of(Integer day, Integer month, Integer year) {
+            try {
+                if (year == null) {
+                    return new DateFilter(null, null, day, month);
+                }
+                if (month == null) {
+                    LocalDateTime start = LocalDate.of(year, 1, 1).atStartOfDay();
+                    return new DateFilter(start, start.plusYears(1), day, null);
+                }
+                if (day == null) {
+                    LocalDateTime start = LocalDate.of(year, month, 1).atStartOfDay();
+                    return new DateFilter(start, start.plusMonths(1), null, null);
+                }
+                LocalDateTime start = LocalDate.of(year, month, day).atStartOfDay();
+                return new DateFilter(start, start.plusDays(1), null, null);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+    }
+
+    // [MỚI] ID nhân viên trong công ty khớp keyword theo tên/mã (FULLTEXT ngram thay cho LIKE '%kw%')
+    private List<Long> findEmployeeIdsByKeyword(Long companyId, String keyword) {
+        List<Long> ids;
+        String term = keyword.replace("\"", "").trim();
+        if (term.length() < 2) {
+            ids = employeeRepository.findIdsByCompanyAndNameLike(companyId, term);
+        } else {
+            // Cụm trong ngoặc kép: các ngram phải liền nhau -> tương đương "chứa chuỗi"
+            // (Cần index ft_emp_name_code, tạo lúc khởi động ở HrSearchIndexInitializer)
+            ids = employeeRepository.findIdsByCompanyAndFulltext(companyId, "\"" + term + "\"");
+        }
+        return ids.isEmpty() ? NO_EMPLOYEE_IDS : ids;
+    }
+
     private void validateApprovalPermission(Request request, Employee approver) {
         EmployeeRole approverRole = approver.getRole();
         EmployeeRole requesterRole = request.getRequester().getRole();
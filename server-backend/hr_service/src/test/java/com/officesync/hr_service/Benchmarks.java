@@ -0,0 +1,39 @@
+package com.officesync.hr_service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Đo thời gian đơn giản cho các test @Tag("benchmark") (không có JMH trong build).
+ * Chạy: mvn test -Pbenchmark. Kết quả in ra stdout, chỉ dùng để so sánh tương đối trên cùng 1 máy.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {}
+
+    /** Chạy op warmup lần rồi đo iterations lần, trả về ns/lần (trung bình). */
+    public static double nanosPerOp(int warmup, int iterations, Runnable op) {
+        for (int i = 0; i < warmup; i++) op.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    /** Giống nanosPerOp nhưng op tự đo (vd: chạy đa luồng) và trả về số ns đã dùng. */
+    public static double nanosPerRun(int warmup, int iterations, LongSupplier timedOp) {
+        for (int i = 0; i < warmup; i++) timedOp.getAsLong();
+        long total = 0;
+        for (int i = 0; i < iterations; i++) total += timedOp.getAsLong();
+        return total / (double) iterations;
+    }
+
+    public static void report(String name, String format, Object... args) {
+        System.out.printf("[benchmark] %-50s " + format + "%n", prepend(name, args));
+    }
+
+    private static Object[] prepend(Object first, Object[] rest) {
+        Object[] all = new Object[rest.length + 1];
+        all[0] = first;
+        System.arraycopy(rest, 0, all, 1, rest.length);
+        return all;
+    }
+}
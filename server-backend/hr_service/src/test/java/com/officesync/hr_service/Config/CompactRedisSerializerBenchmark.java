@@ -0,0 +1,139 @@
+package com.officesync.hr_service.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.officesync.hr_service.Benchmarks;
+import com.officesync.hr_service.Model.Department;
+import com.officesync.hr_service.Model.DurationUnit;
+import com.officesync.hr_service.Model.Employee;
+import com.officesync.hr_service.Model.EmployeeRole;
+import com.officesync.hr_service.Model.EmployeeStatus;
+import com.officesync.hr_service.Model.Request;
+import com.officesync.hr_service.Model.RequestStatus;
+import com.officesync.hr_service.Model.RequestType;
+
+/**
+ * So sánh định dạng value cache: JSON nhúng tên class (GenericJackson2Json, định dạng cũ)
+ * với JSON kiểu cố định + CompactRedisSerializer (RedisConfig.typedCacheConfiguration).
+ * In kích thước (byte) và thời gian serialize + deserialize 1 lượt.
+ */
+@Tag("benchmark")
+class CompactRedisSerializerBenchmark {
+
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 1_000;
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    @Test
+    void requestListCacheValue() {
+        TypeFactory types = TypeFactory.defaultInstance();
+        List<Request> requests = sampleRequests(200);
+        run("request_list (200 đơn)", requests, types.constructCollectionType(List.class, Request.class));
+    }
+
+    @Test
+    void employeeIdListCacheValue() {
+        TypeFactory types = TypeFactory.defaultInstance();
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < 5_000; i++) ids.add(1_900_000_000_000_000L + i * 4_096L);
+        run("employees_by_company (5000 id)", ids, types.constructCollectionType(List.class, Long.class));
+    }
+
+    private void run(String name, Object value, JavaType type) {
+        RedisSerializer<Object> legacy = new GenericJackson2JsonRedisSerializer(legacyMapper());
+        RedisSerializer<Object> typedJson = new Jackson2JsonRedisSerializer<>(typedMapper(), type);
+        RedisSerializer<Object> compact = new CompactRedisSerializer<>(typedJson, COMPRESS_THRESHOLD);
+
+        measure(name + " / json có type", legacy, value);
+        measure(name + " / json kiểu cố định", typedJson, value);
+        measure(name + " / compact", compact, value);
+    }
+
+    private void measure(String name, RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        assertEquals(value, serializer.deserialize(bytes));
+
+        double nanos = Benchmarks.nanosPerOp(WARMUP, ITERATIONS,
+                () -> serializer.deserialize(serializer.serialize(value)));
+        Benchmarks.report(name, "%8d byte  %10.1f µs/lượt", bytes.length, nanos / 1_000);
+    }
+
+    // Giống RedisConfig.cacheConfiguration() trước khi có CompactRedisSerializer
+    private static ObjectMapper legacyMapper() {
+        ObjectMapper mapper = typedMapper();
+        mapper.activateDefaultTyping(
+            BasicPolymorphicTypeValidator.builder()
+                .allowIfBaseType(Object.class)
+                .allowIfSubType("com.officesync.hr_service")
+                .allowIfSubType("java.util.ArrayList")
+                .allowIfSubType("java.util.HashMap")
+                .build(),
+            ObjectMapper.DefaultTyping.NON_FINAL,
+            JsonTypeInfo.As.PROPERTY
+        );
+        return mapper;
+    }
+
+    private static ObjectMapper typedMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+
+    static List<Request> sampleRequests(int count) {
+        Department dept = new Department();
+        dept.setId(3L);
+        dept.setName("Phòng Kỹ thuật");
+        dept.setDepartmentCode("DEP003");
+        dept.setCompanyId(1L);
+
+        List<Request> requests = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 8, 0);
+        for (int i = 0; i < count; i++) {
+            Employee requester = new Employee();
+            requester.setId(1_000L + i % 40);
+            requester.setEmployeeCode(String.format("NV%04d", i % 40));
+            requester.setFullName("Nguyễn Văn Nhân Viên " + (i % 40));
+            requester.setEmail("nv" + (i % 40) + "@officesync.vn");
+            requester.setRole(EmployeeRole.STAFF);
+            requester.setStatus(EmployeeStatus.ACTIVE);
+            requester.setCompanyId(1L);
+
+            Request r = new Request();
+            r.setId(10_000L + i);
+            r.setRequestCode(String.format("REQ%06d", i));
+            r.setCompanyId(1L);
+            r.setRequester(requester);
+            r.setDepartment(dept);
+            r.setType(RequestType.values()[i % RequestType.values().length]);
+            r.setStatus(RequestStatus.values()[i % RequestStatus.values().length]);
+            r.setStartTime(base.plusDays(i));
+            r.setEndTime(base.plusDays(i).plusHours(8));
+            r.setDurationVal(1.0f);
+            r.setDurationUnit(DurationUnit.DAYS);
+            r.setReason("Xin nghỉ phép việc gia đình");
+            r.setCreatedAt(base.plusDays(i).minusDays(2));
+            r.setUpdatedAt(base.plusDays(i).minusDays(1));
+            requests.add(r);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,83 @@
+package com.officesync.hr_service.Config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+// Header 0x00 = thô, 0x01 = Deflate; giá trị không đọc được -> null (cache miss)
+class CompactRedisSerializerTest {
+
+    private static final int THRESHOLD = 64;
+
+    private final RedisSerializer<Object> json = new Jackson2JsonRedisSerializer<>(new ObjectMapper(),
+            TypeFactory.defaultInstance().constructCollectionType(List.class, Long.class));
+    private final CompactRedisSerializer<Object> serializer = new CompactRedisSerializer<>(json, THRESHOLD);
+
+    @Test
+    void smallPayloadIsStoredRaw() {
+        List<Long> value = List.of(1L, 2L, 3L);
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals(0x00, bytes[0]);
+        assertArrayEquals(json.serialize(value), Arrays.copyOfRange(bytes, 1, bytes.length));
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void largePayloadIsDeflated() {
+        List<Long> value = new ArrayList<>();
+        for (long i = 0; i < 2_000; i++) value.add(1_900_000_000_000_000L + i);
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals(0x01, bytes[0]);
+        assertTrue(bytes.length < json.serialize(value).length / 2);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void incompressiblePayloadFallsBackToRaw() {
+        RedisSerializer<String> raw = new StringRedisSerializer(StandardCharsets.ISO_8859_1);
+        CompactRedisSerializer<String> strings = new CompactRedisSerializer<>(raw, THRESHOLD);
+        byte[] noise = new byte[4_096];
+        new Random(42).nextBytes(noise);
+        String value = new String(noise, StandardCharsets.ISO_8859_1);
+
+        byte[] bytes = strings.serialize(value);
+
+        assertEquals(0x00, bytes[0]);
+        assertEquals(value, strings.deserialize(bytes));
+    }
+
+    @Test
+    void nullAndEmptyValues() {
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void unreadableValuesBecomeCacheMisses() {
+        // Định dạng cũ (JSON trần, không header) -> byte đầu là '['
+        assertNull(serializer.deserialize("[1,2,3]".getBytes(StandardCharsets.UTF_8)));
+        // Header nén nhưng dữ liệu hỏng / bị cắt
+        byte[] deflated = serializer.serialize(new ArrayList<>(Collections.nCopies(500, 7L)));
+        assertNull(serializer.deserialize(Arrays.copyOf(deflated, deflated.length / 2)));
+    }
+}
@@ -0,0 +1,110 @@
+package com.officesync.hr_service.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.officesync.hr_service.Benchmarks;
+
+/**
+ * Tranh chấp khi nhiều luồng cùng sinh ID: SnowflakeIdGenerator (CAS) so với bản 'synchronized' cũ.
+ * Cả 2 đều bị chặn trên bởi 4096 ID/ms/worker, nên số liệu cho thấy chi phí phối hợp giữa các luồng
+ * cho tới khi chạm trần đó.
+ */
+@Tag("benchmark")
+class SnowflakeIdGeneratorBenchmark {
+
+    private static final int IDS_PER_THREAD = 20_000;
+    private static final int[] THREADS = {1, 4, 16};
+
+    @Test
+    void contention() {
+        // Lease tắt -> worker ID cố định, không cần Redis
+        SnowflakeWorkerLease lease = new SnowflakeWorkerLease(null, false, 1, 30);
+        lease.start();
+        SnowflakeIdGenerator lockFree = new SnowflakeIdGenerator(lease, 10);
+        SynchronizedSnowflake legacy = new SynchronizedSnowflake();
+
+        for (int threads : THREADS) {
+            long total = (long) threads * IDS_PER_THREAD;
+            double casNanos = Benchmarks.nanosPerRun(2, 5, () -> runThreads(threads, lockFree::nextId));
+            double syncNanos = Benchmarks.nanosPerRun(2, 5, () -> runThreads(threads, legacy::nextId));
+            Benchmarks.report(threads + " luồng / CAS", "%8.1f ns/id", casNanos / total);
+            Benchmarks.report(threads + " luồng / synchronized", "%8.1f ns/id", syncNanos / total);
+        }
+
+        long start = System.nanoTime();
+        long[] ids = lockFree.nextIds(1_000_000);
+        Benchmarks.report("nextIds(1_000_000)", "%8.1f ns/id", (System.nanoTime() - start) / (double) ids.length);
+        assertEquals(1_000_000, ids.length);
+        lease.stop();
+    }
+
+    // Trả về số ns để tất cả luồng sinh xong IDS_PER_THREAD ID; kiểm tra luôn ID tăng dần trong từng luồng
+    private static long runThreads(int threads, LongSupplier nextId) {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong outOfOrder = new AtomicLong();
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long last = Long.MIN_VALUE;
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    long id = nextId.getAsLong();
+                    if (id <= last) outOfOrder.incrementAndGet();
+                    last = id;
+                }
+                done.countDown();
+            });
+        }
+        try {
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            assertEquals(0, outOfOrder.get());
+            return elapsed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Bản trước khi bỏ 'synchronized' (worker cố định = 1)
+    private static final class SynchronizedSnowflake {
+        private static final long EPOCH = 1704067200000L;
+        private static final long SEQUENCE_MASK = 4095L;
+        private long sequence = 0L;
+        private long lastTimestamp = -1L;
+
+        synchronized long nextId() {
+            long timestamp = System.currentTimeMillis();
+            if (timestamp < lastTimestamp) {
+                throw new RuntimeException("Clock moved backwards. Refusing to generate id");
+            }
+            if (lastTimestamp == timestamp) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    while (timestamp <= lastTimestamp) timestamp = System.currentTimeMillis();
+                }
+            } else {
+                sequence = 0L;
+            }
+            lastTimestamp = timestamp;
+            return ((timestamp - EPOCH) << 22) | (1L << 12) | sequence;
+        }
+    }
+}
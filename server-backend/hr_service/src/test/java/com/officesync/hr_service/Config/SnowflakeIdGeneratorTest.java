@@ -0,0 +1,166 @@
+package com.officesync.hr_service.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Bố cục ID, tràn sequence (mượn mili-giây / chờ đồng hồ), đồng hồ lùi và lease hết hạn - với đồng hồ giả
+class SnowflakeIdGeneratorTest {
+
+    private static final long EPOCH = 1704067200000L;
+    private static final long T = EPOCH + 1_000_000L;
+    private static final long WORKER_ID = 5L;
+
+    private SnowflakeWorkerLease lease;
+    private final AtomicLong now = new AtomicLong(T);
+
+    @BeforeEach
+    void setUp() {
+        // Lease tắt -> worker ID cố định, không cần Redis
+        lease = new SnowflakeWorkerLease(null, false, WORKER_ID, 30);
+        lease.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        lease.stop();
+    }
+
+    @Test
+    void idCarriesTimestampWorkerAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 10, now::get);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(T, timestamp(first));
+        assertEquals(WORKER_ID, worker(first));
+        assertEquals(0, sequence(first));
+        assertEquals(1, sequence(second));
+
+        now.set(T + 1);
+        assertEquals(0, sequence(generator.nextId()));
+    }
+
+    @Test
+    void nextIdsRejectsNegativeCount() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 10, now::get);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.nextIds(-1));
+        assertEquals(0, generator.nextIds(0).length);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsFollowingMillisecondsWithinLimit() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 2, now::get);
+
+        long[] ids = generator.nextIds(3 * 4096);
+
+        assertStrictlyIncreasing(ids);
+        assertEquals(T, timestamp(ids[0]));
+        assertEquals(T + 2, timestamp(ids[ids.length - 1]));
+        assertEquals(4095, sequence(ids[ids.length - 1]));
+    }
+
+    @Test
+    void sequenceOverflowWaitsForClockWhenNothingLeftToBorrow() {
+        AtomicInteger reads = new AtomicInteger();
+        // 2 lần đọc đầu vẫn ở T, sau đó đồng hồ sang T + 1
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 0,
+                () -> reads.incrementAndGet() <= 2 ? T : T + 1);
+
+        long[] full = generator.nextIds(4096);
+        long next = generator.nextId();
+
+        assertEquals(4095, sequence(full[full.length - 1]));
+        assertEquals(T + 1, timestamp(next));
+        assertEquals(0, sequence(next));
+        assertTrue(next > full[full.length - 1]);
+        assertEquals(3, reads.get());
+    }
+
+    @Test
+    void smallClockStepBackContinuesFromLogicalTime() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 10, now::get);
+        long before = generator.nextId();
+
+        now.set(T - 10);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+        assertEquals(T, timestamp(after));
+        assertEquals(1, sequence(after));
+    }
+
+    @Test
+    void largeClockStepBackIsRefused() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 10, now::get);
+        generator.nextId();
+
+        now.set(T - 11);
+        RuntimeException e = assertThrows(RuntimeException.class, generator::nextId);
+        assertTrue(e.getMessage().contains("Clock moved backwards"));
+
+        // Đồng hồ đuổi kịp -> sinh tiếp bình thường
+        now.set(T + 1);
+        assertEquals(T + 1, timestamp(generator.nextId()));
+    }
+
+    @Test
+    void expiredLeaseIsRefused() {
+        SnowflakeWorkerLease expiring = mock(SnowflakeWorkerLease.class);
+        when(expiring.current()).thenReturn(new SnowflakeWorkerLease.Lease(WORKER_ID, T + 5));
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(expiring, 10, now::get);
+        generator.nextId();
+
+        now.set(T + 5);
+        assertThrows(RuntimeException.class, generator::nextId);
+    }
+
+    @Test
+    void concurrentCallersNeverGetDuplicates() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(lease, 10);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) seen.add(generator.nextId());
+                for (long id : generator.nextIds(5_000)) seen.add(id);
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(4 * 15_000, seen.size());
+    }
+
+    private static void assertStrictlyIncreasing(long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1], "id #" + i + " không tăng");
+        }
+    }
+
+    private static long timestamp(long id) {
+        return (id >>> 22) + EPOCH;
+    }
+
+    private static long worker(long id) {
+        return (id >>> 12) & 1023;
+    }
+
+    private static long sequence(long id) {
+        return id & 4095;
+    }
+}
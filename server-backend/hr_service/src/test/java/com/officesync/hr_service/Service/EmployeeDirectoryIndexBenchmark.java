@@ -0,0 +1,143 @@
+package com.officesync.hr_service.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.officesync.hr_service.Benchmarks;
+import com.officesync.hr_service.Model.Department;
+import com.officesync.hr_service.Model.Employee;
+import com.officesync.hr_service.Repository.EmployeeRepository;
+
+/**
+ * EmployeeDirectoryIndex.search so với quét toàn bộ kiểu LIKE '%kw%' (cách tìm cũ).
+ * Không có MySQL khi chạy test nên mốc so sánh là quét trong bộ nhớ trên chuỗi đã bỏ dấu sẵn:
+ * đây là cận dưới của query DB cũ (chưa tính mạng, JOIN FETCH và dựng entity).
+ */
+@Tag("benchmark")
+class EmployeeDirectoryIndexBenchmark {
+
+    private static final long COMPANY_ID = 1L;
+    private static final int EMPLOYEES = 50_000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng",
+            "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Minh", "Ngọc", "Thanh", "Quốc", "Hữu", "Đức", "Thu", "Gia"};
+    private static final String[] GIVEN = {"An", "Anh", "Bình", "Châu", "Dũng", "Giang", "Hà", "Hải", "Hạnh", "Hiếu",
+            "Hoa", "Hùng", "Hương", "Khánh", "Lan", "Linh", "Long", "Mai", "Nam", "Nga", "Phong", "Phúc", "Quân",
+            "Sơn", "Tâm", "Thảo", "Trang", "Tuấn", "Vy", "Yến"};
+
+    private static List<Employee> employees;
+    private static EmployeeDirectoryIndex index;
+
+    @BeforeAll
+    static void setUp() {
+        employees = sampleEmployees(EMPLOYEES);
+        EmployeeRepository repository = mock(EmployeeRepository.class);
+        when(repository.findByCompanyId(COMPANY_ID)).thenReturn(employees);
+        index = new EmployeeDirectoryIndex(repository, mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), 60, 10);
+
+        long start = System.nanoTime();
+        index.search(COMPANY_ID, "", false, e -> true);
+        Benchmarks.report("nạp danh bạ " + EMPLOYEES + " nhân viên", "%10.1f ms", (System.nanoTime() - start) / 1e6);
+    }
+
+    @Test
+    void selectiveQuery() {
+        compare("họ tên đầy đủ", "nguyen van an");
+    }
+
+    @Test
+    void employeeCodeQuery() {
+        compare("mã nhân viên", "NV012345");
+    }
+
+    @Test
+    void broadQuery() {
+        compare("1 từ phổ biến", "huong");
+    }
+
+    private void compare(String name, String keyword) {
+        LikeScan scan = new LikeScan(employees);
+        int indexed = index.search(COMPANY_ID, keyword, false, e -> true).size();
+        int scanned = scan.search(keyword).size();
+        // Index khớp tiền tố từng từ, LIKE khớp chuỗi con -> LIKE có thể trả nhiều hơn, không bao giờ ít hơn
+        if (indexed > scanned) assertEquals(scanned, indexed);
+
+        double indexNanos = Benchmarks.nanosPerOp(WARMUP, ITERATIONS,
+                () -> index.search(COMPANY_ID, keyword, false, e -> true));
+        double scanNanos = Benchmarks.nanosPerOp(WARMUP, ITERATIONS, () -> scan.search(keyword));
+        Benchmarks.report(name + " / index", "%6d kết quả  %10.1f µs/query", indexed, indexNanos / 1_000);
+        Benchmarks.report(name + " / quét LIKE", "%6d kết quả  %10.1f µs/query", scanned, scanNanos / 1_000);
+    }
+
+    // Mô phỏng WHERE LOWER(full_name) LIKE '%kw%' OR LOWER(employee_code) LIKE '%kw%' ORDER BY full_name
+    private static final class LikeScan {
+        private final List<Employee> rows;
+        private final String[] names;
+        private final String[] codes;
+
+        LikeScan(List<Employee> rows) {
+            this.rows = rows;
+            this.names = new String[rows.size()];
+            this.codes = new String[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                names[i] = fold(rows.get(i).getFullName());
+                codes[i] = fold(rows.get(i).getEmployeeCode());
+            }
+        }
+
+        List<Employee> search(String keyword) {
+            String kw = fold(keyword);
+            List<Employee> result = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].contains(kw) || codes[i].contains(kw)) result.add(rows.get(i));
+            }
+            result.sort(Comparator.comparing(Employee::getFullName, String.CASE_INSENSITIVE_ORDER));
+            return result;
+        }
+
+        private static String fold(String s) {
+            String n = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+            return n.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static List<Employee> sampleEmployees(int count) {
+        List<Department> departments = new ArrayList<>();
+        for (long d = 1; d <= 20; d++) {
+            Department dept = new Department();
+            dept.setId(d);
+            dept.setName("Phòng " + d);
+            dept.setDepartmentCode(String.format("DEP%03d", d));
+            departments.add(dept);
+        }
+        List<Employee> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Employee e = new Employee();
+            e.setId(100_000L + i);
+            e.setCompanyId(COMPANY_ID);
+            e.setEmployeeCode(String.format("NV%06d", i));
+            e.setFullName(FAMILY[i % FAMILY.length] + " " + MIDDLE[(i / FAMILY.length) % MIDDLE.length] + " "
+                    + GIVEN[(i * 7) % GIVEN.length]);
+            e.setDepartment(departments.get(i % departments.size()));
+            result.add(e);
+        }
+        return result;
+    }
+}
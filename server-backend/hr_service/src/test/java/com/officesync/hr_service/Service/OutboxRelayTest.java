@@ -0,0 +1,164 @@
+package com.officesync.hr_service.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officesync.hr_service.Model.OutboxEvent;
+import com.officesync.hr_service.Repository.OutboxEventRepository;
+
+// Relay outbox với bảng outbox giả trong bộ nhớ: gửi theo batch, tách message hỏng, dead-letter, lỗi broker
+class OutboxRelayTest {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final List<OutboxEvent> table = new ArrayList<>();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private Set<String> poison = Set.of();
+    private RuntimeException brokerDown;
+
+    private OutboxEventRepository repository;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        when(repository.findNextBatch(any())).thenAnswer(inv -> {
+            int size = inv.<Pageable>getArgument(0).getPageSize();
+            batchSizes.add(size);
+            return table.stream().filter(e -> e.getFailedAt() == null).limit(size).toList();
+        });
+        doAnswer(inv -> table.removeIf(e -> inv.<List<Long>>getArgument(0).contains(e.getId())))
+                .when(repository).deleteAllByIdInBatch(anyList());
+        when(repository.markFailed(anyList(), anyString())).thenAnswer(inv -> {
+            List<Long> ids = inv.getArgument(0);
+            table.stream().filter(e -> ids.contains(e.getId())).forEach(e -> {
+                e.setAttempts(e.getAttempts() + 1);
+                e.setLastError(inv.getArgument(1));
+            });
+            return ids.size();
+        });
+        when(repository.markDead(anyLong(), any())).thenAnswer(inv -> {
+            table.stream().filter(e -> e.getId().equals(inv.getArgument(0)))
+                    .forEach(e -> e.setFailedAt(inv.getArgument(1)));
+            return 1;
+        });
+
+        // 1 channel: message của batch chỉ được tính là đã gửi khi cả batch thành công (như chờ confirm)
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.invoke(any())).thenAnswer(inv -> {
+            if (brokerDown != null) throw brokerDown;
+            List<String> sent = new ArrayList<>();
+            RabbitOperations ops = mock(RabbitOperations.class);
+            doAnswer(send -> {
+                String body = new String(send.<Message>getArgument(2).getBody(), StandardCharsets.UTF_8);
+                if (poison.contains(body)) throw new AmqpException("message too large: " + body);
+                sent.add(body);
+                return null;
+            }).when(ops).send(anyString(), anyString(), any(Message.class));
+            inv.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(ops);
+            delivered.addAll(sent);
+            return null;
+        });
+
+        relay = new OutboxRelay(repository, rabbitTemplate, mock(StringRedisTemplate.class), new ObjectMapper(),
+                3, 500, 1000, 1000, MAX_ATTEMPTS);
+    }
+
+    @Test
+    void sendsInIdOrderAndDeletesAfterConfirm() {
+        enqueue("a", "b", "c", "d");
+
+        assertTrue(relay.relayBatch());   // batch đầy (3) -> có thể còn
+        assertFalse(relay.relayBatch());
+
+        assertEquals(List.of("a", "b", "c", "d"), delivered);
+        assertTrue(table.isEmpty());
+        assertEquals(List.of(3, 3), batchSizes);
+    }
+
+    @Test
+    void poisonMessageIsIsolatedAndDeadLettered() {
+        enqueue("a", "bad", "c", "d");
+        poison = Set.of("bad");
+
+        // Batch [a, bad, c] lỗi -> chưa biết message nào hỏng, không tính lần thử cho ai
+        assertThrows(AmqpException.class, relay::relayBatch);
+        assertTrue(delivered.isEmpty());
+        verify(repository, never()).markFailed(anyList(), anyString());
+
+        // Gửi lẻ từng message của batch lỗi
+        assertTrue(relay.relayBatch());                      // a
+        assertThrows(AmqpException.class, relay::relayBatch); // bad: lần 1
+        assertTrue(relay.relayBatch());                      // bad: lần 2 -> dead-letter, đi tiếp
+        assertTrue(relay.relayBatch());                      // c
+        // Hết phần cần tách -> quay lại batch thường
+        assertFalse(relay.relayBatch());                     // d
+
+        assertEquals(List.of("a", "c", "d"), delivered);
+        assertEquals(List.of(3, 1, 1, 1, 1, 3), batchSizes);
+        OutboxEvent dead = table.get(0);
+        assertEquals("bad", new String(dead.getPayload(), StandardCharsets.UTF_8));
+        assertEquals(MAX_ATTEMPTS, dead.getAttempts());
+        assertNotNull(dead.getFailedAt());
+    }
+
+    @Test
+    void brokerOutageIsNotBlamedOnMessages() {
+        enqueue("a", "b");
+        brokerDown = new AmqpConnectException(new java.net.ConnectException("Connection refused"));
+
+        assertThrows(AmqpConnectException.class, relay::relayBatch);
+        assertThrows(AmqpConnectException.class, relay::relayBatch);
+
+        verify(repository, never()).markFailed(anyList(), anyString());
+        assertEquals(List.of(3, 3), batchSizes); // Không chuyển sang gửi lẻ
+        assertEquals(2, table.size());
+
+        brokerDown = null;
+        assertFalse(relay.relayBatch());
+        assertEquals(List.of("a", "b"), delivered);
+    }
+
+    private void enqueue(String... payloads) {
+        for (String payload : payloads) {
+            OutboxEvent e = new OutboxEvent();
+            e.setId((long) table.size() + 1);
+            e.setExchange("employee.exchange");
+            e.setRoutingKey("employee.batch");
+            e.setPayload(payload.getBytes(StandardCharsets.UTF_8));
+            e.setContentType("application/json");
+            e.setCreatedAt(LocalDateTime.now());
+            table.add(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.officesync.hr_service.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.officesync.hr_service.Service.RequestService.InboxCursor;
+
+// Cursor keyset "createdAt,id" của hộp duyệt đơn và page size dùng trong key cache trang đầu
+class RequestServiceInboxCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        InboxCursor cursor = new InboxCursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000), 1_900_000_000_123L);
+
+        assertEquals(cursor, InboxCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void roundTripKeepsWholeSecondsAndNanos() {
+        InboxCursor wholeSecond = new InboxCursor(LocalDateTime.of(2025, 1, 1, 0, 0), 1L);
+        InboxCursor nanos = new InboxCursor(LocalDateTime.of(2025, 1, 1, 0, 0, 0, 123_456_789), 2L);
+
+        assertEquals(wholeSecond, InboxCursor.decode(wholeSecond.encode()));
+        assertEquals(nanos, InboxCursor.decode(nanos.encode()));
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(InboxCursor.decode(null));
+        assertNull(InboxCursor.decode(""));
+        assertNull(InboxCursor.decode("   "));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "2025-03-14T09:26:53", "2025-03-14T09:26:53,", ",42", "2025-13-01T00:00,42",
+            "2025-03-14T09:26:53,abc", "42,2025-03-14T09:26:53"})
+    void malformedCursorIsIllegalArgument(String cursor) {
+        assertThrows(IllegalArgumentException.class, () -> InboxCursor.decode(cursor));
+    }
+
+    @Test
+    void pageSizeIsNormalized() {
+        assertEquals(20, RequestService.inboxPageSize(null));
+        assertEquals(20, RequestService.inboxPageSize(0));
+        assertEquals(20, RequestService.inboxPageSize(-5));
+        assertEquals(20, RequestService.inboxPageSize(20));
+        assertEquals(7, RequestService.inboxPageSize(7));
+        assertEquals(50, RequestService.inboxPageSize(500));
+    }
+}
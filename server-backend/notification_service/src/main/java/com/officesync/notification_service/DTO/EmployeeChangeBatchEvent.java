@@ -0,0 +1,18 @@
+package com.officesync.notification_service.DTO;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] Gộp thay đổi nhân viên của 1 transaction bên HR (employee.batch). Chỉ cần id + companyId.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EmployeeChangeBatchEvent {
+    private List<UserCreatedEvent> upserts;
+    private List<Long> deletedIds;
+}
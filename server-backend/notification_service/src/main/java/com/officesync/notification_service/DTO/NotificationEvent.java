@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -13,4 +15,7 @@ public class NotificationEvent {
     private String body;        // Nội dung
     private String type;        // Loại: "REQUEST", "ANNOUNCEMENT"
     private Long referenceId;   // ID của đơn (để click vào mở ra)
+    private List<Long> userIds; // [MỚI] Gửi cùng 1 nội dung cho nhiều người (1 message thay vì N message)
+    private Long companyId;     // [MỚI] Gửi cho TOÀN BỘ nhân viên công ty (Notification Service tự mở rộng)
+    private Long excludeUserId; // [MỚI] Bỏ qua người này khi gửi toàn công ty (vd: chính người đăng bài)
 }
\ No newline at end of file
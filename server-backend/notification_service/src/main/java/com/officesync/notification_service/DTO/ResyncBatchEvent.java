@@ -0,0 +1,20 @@
+package com.officesync.notification_service.DTO;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] 1 batch resync từ HR (hr.resync.exchange). Chỉ cần danh sách nhân viên, bỏ qua phòng ban.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResyncBatchEvent {
+    private String syncId;
+    private long batchNo;
+    private List<UserCreatedEvent> employees;
+    private boolean last;
+}
@@ -0,0 +1,18 @@
+package com.officesync.notification_service.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Chỉ lấy các trường cần cho danh bạ công ty (bỏ qua phần còn lại của event Core).
+// Dùng chung cho event nhân viên của HR (EmployeeSyncEvent) vì cùng tên trường id / companyId / email.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserCreatedEvent {
+    private Long id;
+    private Long companyId;
+    private String email;
+}
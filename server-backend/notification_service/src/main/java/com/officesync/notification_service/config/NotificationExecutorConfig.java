@@ -0,0 +1,31 @@
+package com.officesync.notification_service.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// [MỚI] Executor cho broadcast toàn công ty: fan-out chạy ngoài thread của RabbitMQ listener
+// để listener nhận tiếp message khác trong lúc gửi hàng nghìn thông báo.
+// Hàng đợi đầy -> thread listener tự chạy (CallerRuns) => tự "phanh" thay vì làm rơi broadcast.
+@Configuration
+public class NotificationExecutorConfig {
+
+    @Value("${notification.broadcast.threads:2}")
+    private int threads;
+
+    @Value("${notification.broadcast.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Bean(name = "broadcastExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor broadcastExecutor() {
+        return new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("noti-broadcast-", 0).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
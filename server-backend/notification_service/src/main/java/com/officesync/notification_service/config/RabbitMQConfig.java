@@ -56,6 +56,23 @@ public class RabbitMQConfig {
     public static final String NOTIFICATION_ROUTING_KEY = "notification.send";
     public static final String NOTIFICATION_QUEUE = "notification.queue";
 
+    // [MỚI] Nhận sự kiện tạo user từ Core để dựng danh bạ công ty
+    public static final String EXCHANGE_INTERNAL = "internal.exchange";
+    public static final String ROUTING_KEY_COMPANY_CREATE = "company.create";
+    public static final String QUEUE_NOTIFICATION_USER_SYNC = "notification.user.sync.queue";
+
+    // [MỚI] Nhận thay đổi nhân viên từ HR (tạo / cập nhật đổi công ty / xóa) để giữ danh bạ đúng
+    public static final String EMPLOYEE_EXCHANGE = "employee.exchange";
+    public static final String ROUTING_KEY_EMPLOYEE_WILDCARD = "employee.#";
+    public static final String QUEUE_NOTIFICATION_EMPLOYEE_SYNC = "notification.employee.sync.queue";
+
+    // [MỚI] Nạp danh bạ lần đầu: gửi START_SYNC_ALL cho HR và nhận các batch resync
+    public static final String SYNC_REQUEST_EXCHANGE = "sync.request.exchange";
+    public static final String SYNC_REQUEST_ROUTING_KEY = "sync.request.key";
+    public static final String RESYNC_EXCHANGE = "hr.resync.exchange";
+    public static final String RESYNC_ROUTING_KEY = "resync.batch";
+    public static final String QUEUE_NOTIFICATION_RESYNC = "notification.resync.queue";
+
     @Bean
     public TopicExchange notificationExchange() {
         return new TopicExchange(NOTIFICATION_EXCHANGE);
@@ -70,6 +87,51 @@ public class RabbitMQConfig {
     public Binding binding(Queue notificationQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(notificationQueue).to(notificationExchange).with(NOTIFICATION_ROUTING_KEY);
     }
+
+    @Bean
+    public TopicExchange internalExchange() {
+        return new TopicExchange(EXCHANGE_INTERNAL);
+    }
+
+    @Bean
+    public Queue notificationUserSyncQueue() {
+        return new Queue(QUEUE_NOTIFICATION_USER_SYNC);
+    }
+
+    @Bean
+    public Binding bindingUserSync(Queue notificationUserSyncQueue, TopicExchange internalExchange) {
+        return BindingBuilder.bind(notificationUserSyncQueue).to(internalExchange).with(ROUTING_KEY_COMPANY_CREATE);
+    }
+
+    @Bean
+    public TopicExchange employeeExchange() {
+        return new TopicExchange(EMPLOYEE_EXCHANGE);
+    }
+
+    @Bean
+    public Queue notificationEmployeeSyncQueue() {
+        return new Queue(QUEUE_NOTIFICATION_EMPLOYEE_SYNC);
+    }
+
+    @Bean
+    public Binding bindingEmployeeSync(Queue notificationEmployeeSyncQueue, TopicExchange employeeExchange) {
+        return BindingBuilder.bind(notificationEmployeeSyncQueue).to(employeeExchange).with(ROUTING_KEY_EMPLOYEE_WILDCARD);
+    }
+
+    @Bean
+    public TopicExchange resyncExchange() {
+        return new TopicExchange(RESYNC_EXCHANGE);
+    }
+
+    @Bean
+    public Queue notificationResyncQueue() {
+        return new Queue(QUEUE_NOTIFICATION_RESYNC, true);
+    }
+
+    @Bean
+    public Binding bindingResync(Queue notificationResyncQueue, TopicExchange resyncExchange) {
+        return BindingBuilder.bind(notificationResyncQueue).to(resyncExchange).with(RESYNC_ROUTING_KEY);
+    }
  
     // @Bean
     // public ObjectMapper objectMapper() {
@@ -67,9 +67,36 @@ public class NotificationConsumer {
             // 2. Tự tay Map JSON đó vào DTO của bên Notification (Bỏ qua việc lệch package)
             NotificationEvent event = objectMapper.readValue(jsonBody, NotificationEvent.class);
 
+            // 3. [MỚI] Event toàn công ty -> mở rộng theo từng lô từ danh bạ
+            if (event.getCompanyId() != null) {
+                log.info("--> Broadcast toàn công ty {}", event.getCompanyId());
+                notificationService.sendCompanyBroadcast(
+                    event.getCompanyId(),
+                    event.getExcludeUserId(),
+                    event.getTitle(),
+                    event.getBody(),
+                    event.getType(),
+                    event.getReferenceId()
+                );
+                return;
+            }
+
+            // 3a. [MỚI] Event nhiều người nhận -> xử lý theo lô
+            if (event.getUserIds() != null && !event.getUserIds().isEmpty()) {
+                log.info("--> Mapping thành công! Gửi cho {} user", event.getUserIds().size());
+                notificationService.sendNotificationToUsers(
+                    event.getUserIds(),
+                    event.getTitle(),
+                    event.getBody(),
+                    event.getType(),
+                    event.getReferenceId()
+                );
+                return;
+            }
+
             log.info("--> Mapping thành công! Gửi cho UserID: {}", event.getUserId());
 
-            // 3. Gọi Service xử lý
+            // 3b. Gọi Service xử lý
             notificationService.sendNotification(
                 event.getUserId(),
                 event.getTitle(),
@@ -0,0 +1,140 @@
+package com.officesync.notification_service.consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.officesync.notification_service.DTO.EmployeeChangeBatchEvent;
+import com.officesync.notification_service.DTO.ResyncBatchEvent;
+import com.officesync.notification_service.DTO.UserCreatedEvent;
+import com.officesync.notification_service.config.RabbitMQConfig;
+import com.officesync.notification_service.model.CompanyMember;
+import com.officesync.notification_service.repository.CompanyMemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// [MỚI] Đồng bộ danh bạ công ty từ Core / HR (dùng cho thông báo toàn công ty)
+// [SỬA] Core và HR gửi String JSON qua Jackson2JsonMessageConverter -> body là chuỗi JSON bị bọc trong dấu nháy,
+// phải bóc lớp ngoài (readTree(...).asText()) rồi mới map, giống TaskSyncConsumer bên task-service.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSyncConsumer {
+
+    private static final String START_SYNC_ALL = "START_SYNC_ALL";
+
+    private final CompanyMemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
+
+    // 1. Core tạo user (đăng ký công ty, tạo tài khoản từ HR)
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NOTIFICATION_USER_SYNC)
+    public void receiveUserCreatedEvent(Message message) {
+        try {
+            UserCreatedEvent event = readEvent(message.getBody());
+            upsertMember(event);
+        } catch (Exception e) {
+            log.error("❌ Lỗi đồng bộ user: {}", e.getMessage());
+        }
+    }
+
+    // 2. HR tạo / cập nhật (có thể đổi công ty) / xóa nhân viên
+    // [SỬA] employee.batch: mọi thay đổi của 1 transaction bên HR trong 1 message
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NOTIFICATION_EMPLOYEE_SYNC)
+    public void receiveEmployeeEvent(Message message, @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey) {
+        try {
+            if (routingKey.contains("employee.batch")) {
+                JsonNode node = objectMapper.readTree(message.getBody());
+                EmployeeChangeBatchEvent batch = node.isTextual()
+                        ? objectMapper.readValue(node.asText(), EmployeeChangeBatchEvent.class)
+                        : objectMapper.treeToValue(node, EmployeeChangeBatchEvent.class);
+                if (batch.getDeletedIds() != null) batch.getDeletedIds().forEach(this::removeMember);
+                if (batch.getUpserts() != null) batch.getUpserts().forEach(this::upsertMember);
+                return;
+            }
+            if (routingKey.contains("employee.delete")) {
+                String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                Long userId = Long.parseLong(body.replace("\"", "").trim());
+                removeMember(userId);
+                return;
+            }
+            upsertMember(readEvent(message.getBody()));
+        } catch (Exception e) {
+            log.error("❌ Lỗi đồng bộ nhân viên ({}): {}", routingKey, e.getMessage());
+        }
+    }
+
+    // 3. Batch resync của HR (nạp danh bạ lần đầu). Batch do service khác yêu cầu cũng tới đây -> upsert lại, vô hại.
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NOTIFICATION_RESYNC)
+    public void receiveResyncBatch(Message message) {
+        try {
+            ResyncBatchEvent batch = objectMapper.readValue(message.getBody(), ResyncBatchEvent.class);
+            List<CompanyMember> members = new ArrayList<>();
+            if (batch.getEmployees() != null) {
+                for (UserCreatedEvent emp : batch.getEmployees()) {
+                    if (emp.getId() != null && emp.getCompanyId() != null) {
+                        members.add(new CompanyMember(emp.getId(), emp.getCompanyId()));
+                    }
+                }
+            }
+            if (!members.isEmpty()) {
+                memberRepository.saveAll(members);
+            }
+            if (batch.isLast()) {
+                log.info("✅ Resync {} xong, danh bạ thông báo có {} user", batch.getSyncId(), memberRepository.count());
+            }
+        } catch (Exception e) {
+            log.error("❌ Lỗi nhận batch resync: {}", e.getMessage());
+        }
+    }
+
+    // [MỚI] Danh bạ còn trống (lần chạy đầu, hoặc các user tạo trước khi có bảng này) -> xin HR gửi toàn bộ nhân viên.
+    // Yêu cầu nằm trong queue bền của HR nên HR đang tắt thì lúc bật lên vẫn xử lý.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (memberRepository.count() > 0) return;
+            rabbitTemplate.convertAndSend(RabbitMQConfig.SYNC_REQUEST_EXCHANGE,
+                    RabbitMQConfig.SYNC_REQUEST_ROUTING_KEY, START_SYNC_ALL);
+            log.info("📩 Danh bạ thông báo trống -> đã gửi yêu cầu đồng bộ toàn bộ nhân viên cho HR");
+        } catch (Exception e) {
+            log.error("❌ Không gửi được yêu cầu nạp danh bạ: {}", e.getMessage());
+        }
+    }
+
+    private UserCreatedEvent readEvent(byte[] body) throws Exception {
+        JsonNode node = objectMapper.readTree(body);
+        return node.isTextual()
+                ? objectMapper.readValue(node.asText(), UserCreatedEvent.class)
+                : objectMapper.treeToValue(node, UserCreatedEvent.class);
+    }
+
+    private void upsertMember(UserCreatedEvent event) {
+        if (event == null || event.getId() == null) return;
+        if (event.getCompanyId() == null) {
+            // Không còn thuộc công ty nào (vd Super Admin) -> không nhận thông báo toàn công ty
+            removeMember(event.getId());
+            return;
+        }
+        // save() = upsert theo userId -> nhận lại event cũng không sao, đổi công ty thì ghi đè company_id
+        memberRepository.save(new CompanyMember(event.getId(), event.getCompanyId()));
+        log.info("--> Đã đồng bộ user {} (company {}) vào danh bạ thông báo", event.getId(), event.getCompanyId());
+    }
+
+    private void removeMember(Long userId) {
+        if (memberRepository.existsById(userId)) {
+            memberRepository.deleteById(userId);
+            log.info("--> Đã xóa user {} khỏi danh bạ thông báo", userId);
+        }
+    }
+}
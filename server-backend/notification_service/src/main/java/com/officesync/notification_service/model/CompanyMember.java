@@ -0,0 +1,25 @@
+package com.officesync.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// [MỚI] Danh bạ tối giản (user -> công ty) để tự mở rộng thông báo toàn công ty,
+// đồng bộ từ sự kiện tạo user của Core qua internal.exchange
+@Entity
+@Table(name = "company_members", indexes = {
+        // Duyệt keyset: WHERE company_id = ? AND user_id > ? ORDER BY user_id
+        @Index(name = "idx_member_company_user", columnList = "company_id, user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanyMember {
+    @Id
+    @Column(name = "user_id")
+    private Long userId; // Dùng chung ID với Core
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+}
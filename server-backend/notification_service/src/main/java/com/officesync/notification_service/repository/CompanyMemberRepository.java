@@ -0,0 +1,19 @@
+package com.officesync.notification_service.repository;
+
+import com.officesync.notification_service.model.CompanyMember;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
+
+public interface CompanyMemberRepository extends JpaRepository<CompanyMember, Long> {
+
+    // Lấy 1 lô user id của công ty, sau con trỏ afterUserId (keyset, không OFFSET)
+    @Query("SELECT m.userId FROM CompanyMember m " +
+           "WHERE m.companyId = :companyId AND m.userId > :afterUserId " +
+           "ORDER BY m.userId ASC")
+    List<Long> findUserIdChunk(@Param("companyId") Long companyId,
+                               @Param("afterUserId") Long afterUserId,
+                               Pageable pageable);
+}
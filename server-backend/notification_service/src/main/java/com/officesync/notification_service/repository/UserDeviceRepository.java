@@ -2,10 +2,14 @@ package com.officesync.notification_service.repository;
 
 import com.officesync.notification_service.model.UserDevice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserDeviceRepository extends JpaRepository<UserDevice, Long> {
     Optional<UserDevice> findByUserId(Long userId);
+    // [MỚI] Lấy token của nhiều user trong 1 query (gửi hàng loạt)
+    List<UserDevice> findByUserIdIn(Collection<Long> userIds);
     Optional<UserDevice> findByFcmToken(String fcmToken);
     // 👇 THÊM DÒNG NÀY VÀO ĐÂY:
     void deleteByUserId(Long userId);
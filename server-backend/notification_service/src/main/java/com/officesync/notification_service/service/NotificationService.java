@@ -1,28 +1,55 @@
 package com.officesync.notification_service.service;
 
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
 import com.google.firebase.messaging.Notification; // Lưu ý import của Firebase
 import com.officesync.notification_service.model.UserDevice;
+import com.officesync.notification_service.repository.CompanyMemberRepository;
 import com.officesync.notification_service.repository.NotificationRepository;
 import com.officesync.notification_service.repository.UserDeviceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.annotation.Transactional;
 
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 @Service
+@Slf4j
 public class NotificationService {
 
+    // FCM cho phép tối đa 500 token / 1 multicast
+    private static final int FCM_MULTICAST_LIMIT = 500;
+
     @Autowired
     private UserDeviceRepository deviceRepository;
 
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private CompanyMemberRepository memberRepository;
+
+    // [MỚI] Gọi lại chính mình qua proxy để @Transactional của sendNotificationToUsers có hiệu lực
+    // (gọi this.xxx() bỏ qua proxy -> không có transaction)
+    @Lazy
+    @Autowired
+    private NotificationService self;
+
+    @Autowired
+    @Qualifier("broadcastExecutor")
+    private Executor broadcastExecutor;
+
     // 1. Lưu Token của thiết bị (Khi User đăng nhập App)
     public void registerDevice(Long userId, String token) {
         // Kiểm tra xem user này đã có token trong DB chưa
@@ -64,14 +91,7 @@ public class NotificationService {
             String token = deviceOpt.get().getFcmToken();
             try {
                 // 1. Cấu hình cho Android: Ép độ ưu tiên CAO NHẤT (High Priority)
-                // Để xuyên qua chế độ tiết kiệm pin (Doze Mode)
-                com.google.firebase.messaging.AndroidConfig androidConfig = com.google.firebase.messaging.AndroidConfig.builder()
-                        .setPriority(com.google.firebase.messaging.AndroidConfig.Priority.HIGH) // 👈 Quan trọng nhất
-                        .setNotification(com.google.firebase.messaging.AndroidNotification.builder()
-                                .setSound("default") // Rung chuông mặc định
-                                .setChannelId("high_importance_channel") // (Tùy chọn) Kênh thông báo quan trọng
-                                .build())
-                        .build();
+                com.google.firebase.messaging.AndroidConfig androidConfig = buildAndroidConfig();
 
                 // 2. Tạo message chèn cấu hình vào
                 Message message = Message.builder()
@@ -93,6 +113,96 @@ public class NotificationService {
             }
         }
     }
+    // 3b. [MỚI] Gửi cùng 1 thông báo cho nhiều user: 1 lần saveAll, 1 query token, FCM multicast theo lô 500
+    @Transactional
+    public void sendNotificationToUsers(Collection<Long> userIds, String title, String body, String type, Long referenceId) {
+        // B1: Lưu lịch sử cho tất cả người nhận
+        List<com.officesync.notification_service.model.Notification> history = new ArrayList<>();
+        for (Long userId : userIds) {
+            com.officesync.notification_service.model.Notification noti = new com.officesync.notification_service.model.Notification();
+            noti.setUserId(userId);
+            noti.setTitle(title);
+            noti.setBody(body);
+            noti.setType(type);
+            noti.setReferenceId(referenceId);
+            history.add(noti);
+        }
+        notificationRepository.saveAll(history);
+
+        // B2: Lấy token của tất cả người nhận trong 1 query
+        List<String> tokens = deviceRepository.findByUserIdIn(userIds).stream()
+                .map(UserDevice::getFcmToken)
+                .distinct()
+                .toList();
+
+        // B3: FCM multicast, mỗi lô tối đa 500 token
+        for (int i = 0; i < tokens.size(); i += FCM_MULTICAST_LIMIT) {
+            List<String> batch = tokens.subList(i, Math.min(i + FCM_MULTICAST_LIMIT, tokens.size()));
+            try {
+                MulticastMessage message = MulticastMessage.builder()
+                        .addAllTokens(batch)
+                        .setNotification(Notification.builder()
+                                .setTitle(title)
+                                .setBody(body)
+                                .build())
+                        .setAndroidConfig(buildAndroidConfig())
+                        .putData("type", type)
+                        .putData("referenceId", String.valueOf(referenceId))
+                        .build();
+
+                BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
+                log.info("--> Đã gửi FCM multicast: {}/{} thành công", response.getSuccessCount(), batch.size());
+            } catch (Exception e) {
+                log.error("❌ Lỗi gửi Firebase multicast: {}", e.getMessage());
+            }
+        }
+    }
+
+    // 3c. [MỚI] Thông báo toàn công ty: duyệt danh bạ theo lô (keyset trên user id), mỗi lô 1 lần saveAll + FCM multicast.
+    // Bộ nhớ chỉ giữ 1 lô tại một thời điểm dù công ty có bao nhiêu nhân viên.
+    // [SỬA] Fan-out chạy trên broadcastExecutor (trả thread listener ngay); mỗi lô gọi qua proxy
+    // -> 1 transaction riêng/lô, lô sau lỗi không rollback lịch sử của lô trước.
+    public void sendCompanyBroadcast(Long companyId, Long excludeUserId, String title, String body, String type, Long referenceId) {
+        broadcastExecutor.execute(() -> {
+            try {
+                fanOutCompany(companyId, excludeUserId, title, body, type, referenceId);
+            } catch (Exception e) {
+                log.error("❌ Lỗi broadcast công ty {}: {}", companyId, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void fanOutCompany(Long companyId, Long excludeUserId, String title, String body, String type, Long referenceId) {
+        long cursor = 0L;
+        int total = 0;
+        while (true) {
+            List<Long> chunk = memberRepository.findUserIdChunk(companyId, cursor, PageRequest.of(0, FCM_MULTICAST_LIMIT));
+            if (chunk.isEmpty()) break;
+            cursor = chunk.get(chunk.size() - 1);
+
+            List<Long> recipients = chunk.stream()
+                    .filter(id -> !id.equals(excludeUserId))
+                    .toList();
+            if (!recipients.isEmpty()) {
+                self.sendNotificationToUsers(recipients, title, body, type, referenceId);
+                total += recipients.size();
+            }
+            if (chunk.size() < FCM_MULTICAST_LIMIT) break;
+        }
+        log.info("--> Broadcast công ty {}: đã gửi cho {} user", companyId, total);
+    }
+
+    // Để xuyên qua chế độ tiết kiệm pin (Doze Mode)
+    private com.google.firebase.messaging.AndroidConfig buildAndroidConfig() {
+        return com.google.firebase.messaging.AndroidConfig.builder()
+                .setPriority(com.google.firebase.messaging.AndroidConfig.Priority.HIGH) // 👈 Quan trọng nhất
+                .setNotification(com.google.firebase.messaging.AndroidNotification.builder()
+                        .setSound("default") // Rung chuông mặc định
+                        .setChannelId("high_importance_channel") // (Tùy chọn) Kênh thông báo quan trọng
+                        .build())
+                .build();
+    }
+
     @Transactional // Bắt buộc phải có để cho phép xóa dữ liệu
     public void unregisterDevice(Long userId) {
         deviceRepository.deleteByUserId(userId);
@@ -35,6 +35,11 @@ public class RabbitMQConfig {
     public static final String SYNC_REQUEST_EXCHANGE = "sync.request.exchange";
     public static final String SYNC_REQUEST_ROUTING_KEY = "sync.request.key";
 
+    // Resync theo batch từ HR (trả lời cho START_SYNC_ALL)
+    public static final String RESYNC_EXCHANGE = "hr.resync.exchange";
+    public static final String RESYNC_ROUTING_KEY = "resync.batch";
+    public static final String TASK_RESYNC_QUEUE = "task.resync.queue";
+
     @Bean
     public Queue syncRequestQueue() {
         return new Queue(SYNC_REQUEST_QUEUE, true);
@@ -50,6 +55,17 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(syncRequestQueue).to(syncRequestExchange).with(SYNC_REQUEST_ROUTING_KEY);
     }
 
+    @Bean
+    public TopicExchange resyncExchange() { return new TopicExchange(RESYNC_EXCHANGE); }
+
+    @Bean
+    public Queue resyncQueue() { return new Queue(TASK_RESYNC_QUEUE, true); }
+
+    @Bean
+    public Binding bindingResync(Queue resyncQueue, TopicExchange resyncExchange) {
+        return BindingBuilder.bind(resyncQueue).to(resyncExchange).with(RESYNC_ROUTING_KEY);
+    }
+
     @Bean
     public TopicExchange employeeExchange() { return new TopicExchange(EMPLOYEE_EXCHANGE); }
 
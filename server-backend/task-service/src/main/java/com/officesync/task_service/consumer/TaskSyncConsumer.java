@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.officesync.task_service.config.RabbitMQConfig;
 import com.officesync.task_service.dto.DepartmentSyncEvent;
+import com.officesync.task_service.dto.EmployeeChangeBatchEvent;
 import com.officesync.task_service.dto.EmployeeSyncEvent;
+import com.officesync.task_service.dto.ResyncBatchEvent;
 import com.officesync.task_service.service.TaskSyncService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +27,16 @@ public class TaskSyncConsumer {
     @RabbitListener(queues = RabbitMQConfig.TASK_EMPLOYEE_SYNC_QUEUE)
     public void consumeEmployeeEvent(Message message, @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey) {
         try {
+            // Batch: mọi thay đổi nhân viên của 1 transaction bên HR
+            if (routingKey.contains("employee.batch")) {
+                JsonNode node = objectMapper.readTree(message.getBody());
+                EmployeeChangeBatchEvent batch = node.isTextual()
+                    ? objectMapper.readValue(node.asText(), EmployeeChangeBatchEvent.class)
+                    : objectMapper.treeToValue(node, EmployeeChangeBatchEvent.class);
+                applyEmployeeBatch(batch);
+                return;
+            }
+
             if (routingKey.contains("employee.delete")) {
                 String body = new String(message.getBody());
                 Long idToDelete = Long.parseLong(body.replace("\"", ""));
@@ -46,6 +58,35 @@ public class TaskSyncConsumer {
         }
     }
 
+    // Lỗi 1 dòng không bỏ cả batch (giống resync)
+    private void applyEmployeeBatch(EmployeeChangeBatchEvent batch) {
+        int ok = 0, failed = 0;
+        if (batch.getDeletedIds() != null) {
+            for (Long id : batch.getDeletedIds()) {
+                try {
+                    syncService.deleteEmployee(id);
+                    ok++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("❌ [MQ Sync] Lỗi xóa nhân viên {}: {}", id, e.getMessage());
+                }
+            }
+        }
+        if (batch.getUpserts() != null) {
+            for (EmployeeSyncEvent emp : batch.getUpserts()) {
+                if (emp == null || emp.getId() == null) continue;
+                try {
+                    syncService.upsertEmployee(emp);
+                    ok++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("❌ [MQ Sync] Lỗi nhân viên {}: {}", emp.getId(), e.getMessage());
+                }
+            }
+        }
+        log.info("✅ [MQ Sync] Batch nhân viên: {} dòng OK, {} lỗi", ok, failed);
+    }
+
     @RabbitListener(queues = RabbitMQConfig.TASK_DEPT_SYNC_QUEUE)
     public void consumeDeptEvent(Message message) {
         try {
@@ -70,5 +111,46 @@ public class TaskSyncConsumer {
             log.error("❌ Lỗi giải mã dữ liệu Phòng ban: {}", e.getMessage());
         }
     }
-    
-}
\ No newline at end of file
+
+    // Resync theo batch (HR trả lời START_SYNC_ALL): mỗi message nhiều dòng, lỗi 1 dòng không bỏ cả batch
+    @RabbitListener(queues = RabbitMQConfig.TASK_RESYNC_QUEUE)
+    public void consumeResyncBatch(Message message) {
+        ResyncBatchEvent batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), ResyncBatchEvent.class);
+        } catch (Exception e) {
+            log.error("❌ Lỗi giải mã batch resync: {}", e.getMessage());
+            return;
+        }
+
+        int ok = 0, failed = 0;
+        if (batch.getDepartments() != null) {
+            for (DepartmentSyncEvent dept : batch.getDepartments()) {
+                try {
+                    syncService.upsertDepartment(dept);
+                    ok++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("❌ [Resync] Lỗi phòng ban {}: {}", dept.getDeptId(), e.getMessage());
+                }
+            }
+        }
+        if (batch.getEmployees() != null) {
+            for (EmployeeSyncEvent emp : batch.getEmployees()) {
+                try {
+                    syncService.upsertEmployee(emp);
+                    ok++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("❌ [Resync] Lỗi nhân viên {}: {}", emp.getId(), e.getMessage());
+                }
+            }
+        }
+
+        if (batch.isLast()) {
+            log.info("✅ [Resync] Hoàn tất đồng bộ {} (watermark {})", batch.getSyncId(), batch.getWatermark());
+        } else {
+            log.info("📦 [Resync] Batch #{} của {}: {} dòng OK, {} lỗi", batch.getBatchNo(), batch.getSyncId(), ok, failed);
+        }
+    }
+}
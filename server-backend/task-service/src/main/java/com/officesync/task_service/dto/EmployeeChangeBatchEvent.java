@@ -0,0 +1,18 @@
+package com.officesync.task_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Gộp thay đổi nhân viên của 1 transaction bên HR (routing key employee.batch)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EmployeeChangeBatchEvent {
+    private List<EmployeeSyncEvent> upserts;
+    private List<Long> deletedIds;
+}
@@ -0,0 +1,24 @@
+package com.officesync.task_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 1 message resync từ HR chứa nhiều phòng ban / nhân viên (phòng ban được gửi trước nhân viên)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResyncBatchEvent {
+    private String syncId;
+    private long batchNo;
+    private Long companyId;
+    private List<DepartmentSyncEvent> departments;
+    private List<EmployeeSyncEvent> employees;
+    private boolean last;
+    private LocalDateTime watermark;
+}
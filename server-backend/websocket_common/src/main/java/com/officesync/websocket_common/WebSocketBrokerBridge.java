@@ -0,0 +1,133 @@
+package com.officesync.websocket_common;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+
+// Chế độ broker WebSocket khi chạy NHIỀU instance sau Gateway.
+//  websocket.broker.mode=simple (mặc định): SimpleBroker trong bộ nhớ -> chỉ chạy được 1 instance
+//  websocket.broker.mode=amqp             : mọi tin Server gửi vào brokerChannel (/topic/..., /user/...) được phát
+//      qua fanout exchange ws.broker.{app} trên RabbitMQ; các instance khác nhận lại và đẩy vào SimpleBroker cục bộ
+//      -> client nối vào instance nào cũng nhận được. Giữ nguyên destination nên Client không phải đổi gì.
+// [SỬA] Dùng chung cho chat / hr / attendance / communication (trước đây mỗi service 1 bản sao y hệt):
+// đăng ký qua AutoConfiguration.imports, service chỉ cần dependency websocket_common.
+@AutoConfiguration
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "amqp")
+@Slf4j
+public class WebSocketBrokerBridge implements ChannelInterceptor {
+
+    private static final String HEADER_ORIGIN = "ws-origin";
+    private static final String HEADER_DESTINATION = "ws-destination";
+
+    // Id của instance này, để bỏ qua tin do chính mình phát
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AbstractSubscribableChannel brokerChannel;
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchangeName;
+
+    public WebSocketBrokerBridge(@Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+                                 RabbitTemplate rabbitTemplate,
+                                 @Value("${spring.application.name}") String appName) {
+        this.brokerChannel = brokerChannel;
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchangeName = "ws.broker." + appName;
+    }
+
+    @PostConstruct
+    public void register() {
+        brokerChannel.addInterceptor(this);
+        log.info("🔀 WebSocket broker mode = amqp (exchange {})", exchangeName);
+    }
+
+    @Bean
+    public FanoutExchange wsBrokerExchange() {
+        return new FanoutExchange(exchangeName);
+    }
+
+    // Queue riêng cho mỗi instance, tự xóa khi instance tắt
+    @Bean
+    public Queue wsBrokerQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding wsBrokerBinding(Queue wsBrokerQueue, FanoutExchange wsBrokerExchange) {
+        return BindingBuilder.bind(wsBrokerQueue).to(wsBrokerExchange);
+    }
+
+    @Bean
+    public SimpleMessageListenerContainer wsBrokerListener(ConnectionFactory connectionFactory, Queue wsBrokerQueue) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(wsBrokerQueue);
+        container.setMessageListener(this::onBridgeMessage);
+        return container;
+    }
+
+    // 1. Tin do instance này gửi -> phát sang các instance khác
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || accessor.getDestination() == null
+                || accessor.getHeader(HEADER_ORIGIN) != null // Tin nhận từ instance khác -> không phát lại
+                || accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION) != null // /user/... đã resolve theo session cục bộ
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        try {
+            MessageProperties props = new MessageProperties();
+            props.setHeader(HEADER_ORIGIN, instanceId);
+            props.setHeader(HEADER_DESTINATION, accessor.getDestination());
+            if (accessor.getContentType() != null) {
+                props.setContentType(accessor.getContentType().toString());
+            }
+            rabbitTemplate.send(exchangeName, "", new org.springframework.amqp.core.Message(payload, props));
+        } catch (Exception e) {
+            log.error("❌ Lỗi phát tin WebSocket sang instance khác ({}): {}", accessor.getDestination(), e.getMessage());
+        }
+        return message;
+    }
+
+    // 2. Tin từ instance khác -> đẩy vào broker cục bộ (SimpleBroker + UserDestinationMessageHandler)
+    private void onBridgeMessage(org.springframework.amqp.core.Message amqpMessage) {
+        MessageProperties props = amqpMessage.getMessageProperties();
+        Object origin = props.getHeader(HEADER_ORIGIN);
+        if (origin == null || instanceId.equals(origin.toString())) return;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(String.valueOf((Object) props.getHeader(HEADER_DESTINATION)));
+        if (props.getContentType() != null) {
+            MimeType contentType = MimeTypeUtils.parseMimeType(props.getContentType());
+            accessor.setContentType(contentType);
+        }
+        accessor.setHeader(HEADER_ORIGIN, origin.toString());
+
+        brokerChannel.send(MessageBuilder.createMessage(amqpMessage.getBody(), accessor.getMessageHeaders()));
+    }
+}
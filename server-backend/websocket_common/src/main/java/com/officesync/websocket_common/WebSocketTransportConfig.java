@@ -0,0 +1,139 @@
+package com.officesync.websocket_common;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Thread pool riêng cho kênh inbound/outbound + giới hạn gửi theo từng session.
+// Mục tiêu: 1 client mobile mạng chậm KHÔNG được giữ thread outbound chung và làm trễ mọi người khác.
+//  - send-time-limit / send-buffer-size-limit: session gửi quá chậm hoặc buffer vượt ngưỡng -> đóng session (client tự reconnect)
+//  - message-size-limit: chặn frame STOMP quá lớn từ client
+//  - virtual-threads=true: thread của 2 pool là virtual thread (pool vẫn giới hạn số tác vụ chạy song song)
+// Metrics: log định kỳ của WebSocketMessageBrokerStats (pool size, queued tasks, session bị đóng do vượt giới hạn...).
+// [SỬA] Thêm gauge Micrometer cho 2 pool (tag channel=inbound|outbound), xem qua /actuator/metrics hoặc Prometheus:
+//  - websocket.channel.queued : số tác vụ đang chờ trong hàng đợi
+//  - websocket.channel.active : số thread đang chạy
+// [SỬA] Dùng chung cho chat / hr / attendance / communication, đăng ký qua AutoConfiguration.imports.
+@AutoConfiguration
+@Slf4j
+public class WebSocketTransportConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Value("${websocket.channel.inbound.pool-size:16}")
+    private int inboundPoolSize;
+
+    @Value("${websocket.channel.outbound.pool-size:16}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.channel.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${websocket.channel.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:131072}")
+    private int messageSizeLimit;
+
+    @Value("${websocket.stats.logging-period-ms:300000}")
+    private long statsLoggingPeriodMs;
+
+    @Autowired
+    @Lazy
+    private WebSocketMessageBrokerStats brokerStats;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ThreadPoolTaskExecutor inboundExecutor;
+    private ThreadPoolTaskExecutor outboundExecutor;
+
+    @PostConstruct
+    public void init() {
+        log.info("🔧 WebSocket channels: inbound={} outbound={} queue={} virtual={} | sendTimeLimit={}ms sendBuffer={}B",
+                inboundPoolSize, outboundPoolSize, queueCapacity, virtualThreads, sendTimeLimitMs, sendBufferSizeLimit);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        inboundExecutor = channelExecutor("ws-inbound-", inboundPoolSize);
+        registration.executor(inboundExecutor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        outboundExecutor = channelExecutor("ws-outbound-", outboundPoolSize);
+        registration.executor(outboundExecutor);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        // Outbound chạy nhiều thread -> giữ đúng thứ tự tin gửi tới cùng 1 session
+        registry.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    // Gọi sau khi context sẵn sàng (stats bean được tạo sau các configurer)
+    @EventListener(ApplicationReadyEvent.class)
+    public void configureStatsLogging() {
+        brokerStats.setLoggingPeriod(statsLoggingPeriodMs);
+        meterRegistry.ifAvailable(registry -> {
+            registerGauges(registry, "inbound", inboundExecutor);
+            registerGauges(registry, "outbound", outboundExecutor);
+        });
+    }
+
+    private void registerGauges(MeterRegistry registry, String channel, ThreadPoolTaskExecutor executor) {
+        if (executor == null) return;
+        Gauge.builder("websocket.channel.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Tasks waiting in the WebSocket channel queue")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("websocket.channel.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads running WebSocket channel tasks")
+                .tag("channel", channel)
+                .register(registry);
+    }
+
+    private ThreadPoolTaskExecutor channelExecutor(String prefix, int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix(prefix);
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name(prefix, 0).factory());
+        }
+        // Hàng đợi đầy -> thread gọi tự chạy: phanh nguồn phát thay vì vứt tin
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}